@@ -0,0 +1,156 @@
+/**
+ * Class of {@link WarehouseManagement} which is measured by benchmarks (see benchmarks.Warehouse)
+ *
+ * Inventory gets catalogSize new articles with {@link benchmarks.Warehouse#INITIAL_STOCK} items of every article.
+ * Mapped inventory is written to temporary file first and is opened like inventory of recovered snapshot,
+ * temporary files are deleted by {@link #close()}
+ * @version 1.0
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class BenchmarkWarehouse implements benchmarks.Warehouse {
+    /** Price of every article in minor units */
+    private static final long PRICE = Money.ofMajor(10);
+
+    /** Measured warehouse management */
+    private WarehouseManagement wm;
+    /** {@link AuditSink} of {@link #wm} */
+    private AuditSink sink;
+    /** Authorized employee */
+    private Employee employee;
+    /** Authorized courier */
+    private Courier courier;
+    /** Articles of catalog */
+    private Article[] articles;
+    /** Temporary directory of mapped inventory, or null */
+    private Path directory;
+
+    @Override
+    public void init(String store, int catalogSize, Path auditFile, String durability, String format)
+            throws IOException {
+        articles = new Article[catalogSize];
+        List<Product> products = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            articles[i] = new Article("Article " + i, "Description of article " + i);
+            products.add(new Product(INITIAL_STOCK, PRICE, articles[i]));
+        }
+
+        InventoryStore inventoryStore;
+        switch (store) {
+            case "heap":
+                inventoryStore = new HeapInventoryStore();
+                break;
+            case "columnar":
+                inventoryStore = new ColumnarInventoryStore();
+                break;
+            case "mapped":
+                directory = Files.createTempDirectory("warehouse-benchmark");
+                Path file = directory.resolve("inventory.bin");
+                int[] counts = new int[catalogSize];
+                Arrays.fill(counts, INITIAL_STOCK);
+                MappedInventoryStore.write(file, null, products, counts);
+                inventoryStore = new MappedInventoryStore(file);
+                products.clear();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown inventory store: " + store);
+        }
+
+        if (auditFile == null) {
+            sink = new AuditSink() {
+                @Override
+                public void write(AuditRecord record) {
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        } else {
+            sink = new AsyncAuditWriter(auditFile, AsyncAuditWriter.Durability.valueOf(durability),
+                    "binary".equals(format) ? new BinaryAuditFormat() : new TextAuditFormat());
+        }
+        wm = new WarehouseManagement(sink, inventoryStore);
+        employee = new Employee("Employee");
+        courier = new Courier("Courier");
+        wm.giveEmployeeAuthorization(employee);
+        wm.giveCourierAuthorization(courier);
+        if (!products.isEmpty()) {
+            wm.receiptProducts(employee, products);
+        }
+    }
+
+    @Override
+    public Object[] newOrders(int count, int lines, long seed) {
+        Random random = new Random(seed);
+        Client client = new Client("Client", "Address", "+996555555555");
+        Object[] orders = new Object[count];
+        for (int i = 0; i < count; i++) {
+            List<Product> products = new ArrayList<>(lines);
+            for (int j = 0; j < lines; j++) {
+                products.add(new Product(1, PRICE, articles[random.nextInt(articles.length)]));
+            }
+            orders[i] = new Order(products, client);
+        }
+        return orders;
+    }
+
+    @Override
+    public boolean createOrder(Object order) throws IOException {
+        return wm.createOrder(employee, (Order) order);
+    }
+
+    @Override
+    public boolean cancelOrder(Object order) throws IOException {
+        return wm.cancelOrder(employee, ((Order) order).getId(), "Benchmark");
+    }
+
+    @Override
+    public boolean takeOrder(Object order) throws IOException {
+        return wm.takeOrder(courier, ((Order) order).getId());
+    }
+
+    @Override
+    public boolean deliverOrder(Object order) throws IOException {
+        return wm.deliverOrder(courier, ((Order) order).getId());
+    }
+
+    @Override
+    public boolean receiptProduct(int article) throws IOException {
+        return wm.receiptProduct(employee, new Product(1, PRICE, articles[article]));
+    }
+
+    @Override
+    public int showInventory(Writer out, int pageSize) throws IOException {
+        return wm.showInventory(employee, out, ReportPage.of(0, pageSize));
+    }
+
+    @Override
+    public void writeAudit(int article) throws IOException {
+        Product product = new Product(1, PRICE, articles[article]);
+        sink.write(AuditRecord.of(AuditEventType.PRODUCT_RECEPTION, employee.getId(),
+                articles[article].getId(), Collections.singletonList(product), null,
+                () -> "PRODUCT RECEPTION\n\nEMPLOYEE : " + employee + "\n\nPRODUCT : " + product));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            wm.close();
+        } finally {
+            if (directory != null) {
+                Files.deleteIfExists(directory.resolve("inventory.bin"));
+                Files.deleteIfExists(directory);
+            }
+        }
+    }
+}
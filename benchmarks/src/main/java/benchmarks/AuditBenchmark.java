@@ -0,0 +1,158 @@
+/**
+ * Benchmarks of writing of audit records to file
+ *
+ * Audit log is written to new file in temporary directory for every trial, the directory is deleted after trial.
+ * {@link #writeAudit(Articles)} measures only writing of record like every action does it,
+ * {@link #receiptProduct(Articles)} measures the whole action with the same audit log
+ * @version 1.0
+ */
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuditBenchmark {
+    /** Count of articles */
+    private static final int CATALOG_SIZE = 1000;
+    /** Count of random articles of every thread */
+    private static final int SEQUENCE_SIZE = 4096;
+    /** Count of threads of parallel variants */
+    private static final int THREADS = 4;
+
+    /** Durability of audit writer */
+    @Param({"FIRE_AND_FORGET", "FLUSH_PER_BATCH", "GROUP_COMMIT"})
+    public String durability;
+    /** Format of audit log */
+    @Param({"text", "binary"})
+    public String format;
+
+    /** Temporary directory of audit log */
+    Path directory;
+    /** Measured warehouse management */
+    Warehouse warehouse;
+
+    /**
+     * @throws IOException if directory or warehouse management can't be created
+     */
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        directory = Files.createTempDirectory("warehouse-audit-benchmark");
+        warehouse = Warehouse.open("heap", CATALOG_SIZE, directory.resolve("information.log"), durability, format);
+    }
+
+    /**
+     * Close warehouse management, so all records are written, and delete directory
+     * @throws IOException if warehouse management can't be closed or directory can't be deleted
+     */
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        try {
+            warehouse.close();
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Random articles of one thread, they are used in circle
+     */
+    @State(Scope.Thread)
+    public static class Articles {
+        /** Numbers of articles */
+        int[] articles;
+        /** Index of next article */
+        int next;
+
+        /**
+         * @param thread Parameters of thread, index of thread is seed of articles
+         */
+        @Setup(Level.Trial)
+        public void prepare(ThreadParams thread) {
+            Random random = new Random(thread.getThreadIndex());
+            articles = new int[SEQUENCE_SIZE];
+            for (int i = 0; i < articles.length; i++) {
+                articles[i] = random.nextInt(CATALOG_SIZE);
+            }
+        }
+
+        /**
+         * @return Number of next article
+         */
+        int next() {
+            int article = articles[next];
+            next = (next + 1) % articles.length;
+            return article;
+        }
+    }
+
+    /**
+     * @param articles Random articles of thread
+     * @throws IOException if record can't be written
+     */
+    @Benchmark
+    public void writeAudit(Articles articles) throws IOException {
+        warehouse.writeAudit(articles.next());
+    }
+
+    /**
+     * @param articles Random articles of thread
+     * @throws IOException if record can't be written
+     */
+    @Benchmark
+    @Threads(THREADS)
+    public void writeAuditParallel(Articles articles) throws IOException {
+        writeAudit(articles);
+    }
+
+    /**
+     * @param articles Random articles of thread
+     * @return Is product received
+     * @throws IOException if action can't be recorded
+     */
+    @Benchmark
+    public boolean receiptProduct(Articles articles) throws IOException {
+        return warehouse.receiptProduct(articles.next());
+    }
+
+    /**
+     * @param articles Random articles of thread
+     * @return Is product received
+     * @throws IOException if action can't be recorded
+     */
+    @Benchmark
+    @Threads(THREADS)
+    public boolean receiptProductParallel(Articles articles) throws IOException {
+        return receiptProduct(articles);
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Benchmarks of actions with orders: creation, cancellation and lifecycle of delivery
+ *
+ * Every thread has own pool of prepared orders with random articles, so creating of orders isn't measured.
+ * Single creation and single cancellation need order in other state before every call, so they use
+ * invocation-level helpers; actions take microseconds, so cost of helpers is small for them.
+ * Variants with {@link Threads} run the same action from several threads on one warehouse management
+ * @version 1.0
+ */
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderBenchmark {
+    /** Count of prepared orders of every thread */
+    private static final int POOL_SIZE = 1024;
+    /** Count of threads of parallel variants */
+    private static final int THREADS = 4;
+
+    /** Inventory backend */
+    @Param({"heap", "columnar", "mapped"})
+    public String store;
+    /** Count of articles */
+    @Param({"1000", "100000"})
+    public int catalogSize;
+    /** Count of lines of every order */
+    @Param({"1", "10", "50"})
+    public int lines;
+
+    /** Measured warehouse management */
+    Warehouse warehouse;
+
+    /**
+     * @throws IOException if warehouse management can't be created
+     */
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        warehouse = Warehouse.open(store, catalogSize);
+    }
+
+    /**
+     * @throws IOException if warehouse management can't be closed
+     */
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        warehouse.close();
+    }
+
+    /**
+     * Prepared orders of one thread, they are used in circle
+     */
+    @State(Scope.Thread)
+    public static class Orders {
+        /** Prepared orders */
+        Object[] orders;
+        /** Index of next order */
+        int next;
+
+        /**
+         * @param benchmark Benchmark with warehouse management
+         * @param thread Parameters of thread, index of thread is seed of articles
+         */
+        @Setup(Level.Trial)
+        public void prepare(OrderBenchmark benchmark, ThreadParams thread) {
+            orders = benchmark.warehouse.newOrders(POOL_SIZE, benchmark.lines, thread.getThreadIndex());
+        }
+
+        /**
+         * @return Next order of pool
+         */
+        Object next() {
+            Object order = orders[next];
+            next = (next + 1) % orders.length;
+            return order;
+        }
+    }
+
+    /**
+     * Order which is created by benchmark and is canceled after every call
+     */
+    @State(Scope.Thread)
+    public static class CreatedOrder extends Orders {
+        /** The last order, or null */
+        Object order;
+        /** Benchmark with warehouse management */
+        OrderBenchmark benchmark;
+
+        /**
+         * @param benchmark Benchmark with warehouse management
+         */
+        @Setup(Level.Trial)
+        public void bind(OrderBenchmark benchmark) {
+            this.benchmark = benchmark;
+        }
+
+        /**
+         * @throws IOException if action can't be recorded
+         */
+        @TearDown(Level.Invocation)
+        public void cancel() throws IOException {
+            if (order != null) {
+                benchmark.warehouse.cancelOrder(order);
+                order = null;
+            }
+        }
+    }
+
+    /**
+     * Order which is created before every call and is canceled by benchmark
+     */
+    @State(Scope.Thread)
+    public static class OpenOrder extends Orders {
+        /** Order which is created before call */
+        Object order;
+
+        /**
+         * @param benchmark Benchmark with warehouse management
+         * @throws IOException if action can't be recorded
+         */
+        @Setup(Level.Invocation)
+        public void create(OrderBenchmark benchmark) throws IOException {
+            order = next();
+            benchmark.warehouse.createOrder(order);
+        }
+    }
+
+    /**
+     * @param created State which cancels order after call
+     * @return Is order created
+     * @throws IOException if action can't be recorded
+     */
+    @Benchmark
+    public boolean createOrder(CreatedOrder created) throws IOException {
+        created.order = created.next();
+        return warehouse.createOrder(created.order);
+    }
+
+    /**
+     * @param created State which cancels order after call
+     * @return Is order created
+     * @throws IOException if action can't be recorded
+     */
+    @Benchmark
+    @Threads(THREADS)
+    public boolean createOrderParallel(CreatedOrder created) throws IOException {
+        return createOrder(created);
+    }
+
+    /**
+     * @param open State which creates order before call
+     * @return Is order canceled
+     * @throws IOException if action can't be recorded
+     */
+    @Benchmark
+    public boolean cancelOrder(OpenOrder open) throws IOException {
+        return warehouse.cancelOrder(open.order);
+    }
+
+    /**
+     * @param open State which creates order before call
+     * @return Is order canceled
+     * @throws IOException if action can't be recorded
+     */
+    @Benchmark
+    @Threads(THREADS)
+    public boolean cancelOrderParallel(OpenOrder open) throws IOException {
+        return cancelOrder(open);
+    }
+
+    /**
+     * Create order, take it to delivery and deliver it
+     * @param orders Prepared orders of thread
+     * @return Is order delivered
+     * @throws IOException if action can't be recorded
+     */
+    @Benchmark
+    public boolean lifecycle(Orders orders) throws IOException {
+        Object order = orders.next();
+        return warehouse.createOrder(order) && warehouse.takeOrder(order) && warehouse.deliverOrder(order);
+    }
+
+    /**
+     * @param orders Prepared orders of thread
+     * @return Is order delivered
+     * @throws IOException if action can't be recorded
+     */
+    @Benchmark
+    @Threads(THREADS)
+    public boolean lifecycleParallel(Orders orders) throws IOException {
+        return lifecycle(orders);
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Benchmarks of reception of one item of random article
+ * Every thread goes through own sequence of random articles, variant with {@link Threads} receives articles
+ * from several threads on one warehouse management
+ * @version 1.0
+ */
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReceiptBenchmark {
+    /** Count of random articles of every thread */
+    private static final int SEQUENCE_SIZE = 4096;
+    /** Count of threads of parallel variant */
+    private static final int THREADS = 4;
+
+    /** Inventory backend */
+    @Param({"heap", "columnar", "mapped"})
+    public String store;
+    /** Count of articles */
+    @Param({"1000", "100000"})
+    public int catalogSize;
+
+    /** Measured warehouse management */
+    Warehouse warehouse;
+
+    /**
+     * @throws IOException if warehouse management can't be created
+     */
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        warehouse = Warehouse.open(store, catalogSize);
+    }
+
+    /**
+     * @throws IOException if warehouse management can't be closed
+     */
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        warehouse.close();
+    }
+
+    /**
+     * Random articles of one thread, they are used in circle
+     */
+    @State(Scope.Thread)
+    public static class Articles {
+        /** Numbers of articles */
+        int[] articles;
+        /** Index of next article */
+        int next;
+
+        /**
+         * @param benchmark Benchmark with count of articles
+         * @param thread Parameters of thread, index of thread is seed of articles
+         */
+        @Setup(Level.Trial)
+        public void prepare(ReceiptBenchmark benchmark, ThreadParams thread) {
+            Random random = new Random(thread.getThreadIndex());
+            articles = new int[SEQUENCE_SIZE];
+            for (int i = 0; i < articles.length; i++) {
+                articles[i] = random.nextInt(benchmark.catalogSize);
+            }
+        }
+
+        /**
+         * @return Number of next article
+         */
+        int next() {
+            int article = articles[next];
+            next = (next + 1) % articles.length;
+            return article;
+        }
+    }
+
+    /**
+     * @param articles Random articles of thread
+     * @return Is product received
+     * @throws IOException if action can't be recorded
+     */
+    @Benchmark
+    public boolean receiptProduct(Articles articles) throws IOException {
+        return warehouse.receiptProduct(articles.next());
+    }
+
+    /**
+     * @param articles Random articles of thread
+     * @return Is product received
+     * @throws IOException if action can't be recorded
+     */
+    @Benchmark
+    @Threads(THREADS)
+    public boolean receiptProductParallel(Articles articles) throws IOException {
+        return receiptProduct(articles);
+    }
+}
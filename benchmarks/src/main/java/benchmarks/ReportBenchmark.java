@@ -0,0 +1,107 @@
+/**
+ * Benchmarks of report of inventory which is written page by page to {@link java.io.Writer}
+ * Report is written to writer which drops all chars, so only building of report is measured
+ * @version 1.0
+ */
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+    /** Count of threads of parallel variant */
+    private static final int THREADS = 4;
+
+    /** Inventory backend */
+    @Param({"heap", "columnar", "mapped"})
+    public String store;
+    /** Count of articles */
+    @Param({"100000"})
+    public int catalogSize;
+    /** Count of products of page */
+    @Param({"100", "10000"})
+    public int pageSize;
+
+    /** Measured warehouse management */
+    Warehouse warehouse;
+    /** Writer which drops all chars */
+    final Writer out = new NullWriter();
+
+    /**
+     * @throws IOException if warehouse management can't be created
+     */
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        warehouse = Warehouse.open(store, catalogSize);
+    }
+
+    /**
+     * @throws IOException if warehouse management can't be closed
+     */
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        warehouse.close();
+    }
+
+    /**
+     * @return Count of written products
+     * @throws IOException if report can't be written
+     */
+    @Benchmark
+    public int showInventory() throws IOException {
+        return warehouse.showInventory(out, pageSize);
+    }
+
+    /**
+     * @return Count of written products
+     * @throws IOException if report can't be written
+     */
+    @Benchmark
+    @Threads(THREADS)
+    public int showInventoryParallel() throws IOException {
+        return showInventory();
+    }
+
+    /**
+     * Writer which drops all chars, it can be used by several threads
+     */
+    static final class NullWriter extends Writer {
+        @Override
+        public void write(char[] chars, int offset, int length) {
+        }
+
+        @Override
+        public void write(String value, int offset, int length) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Warehouse management which is measured by benchmarks
+ *
+ * Classes of warehouse management are in default package, and JMH doesn't accept benchmarks in default package,
+ * so benchmarks call warehouse management through this interface. It is implemented by BenchmarkWarehouse
+ * in default package, which is loaded once by {@link #open(String, int, Path, String, String)},
+ * so calls of benchmarks are plain interface calls without reflection.
+ * Orders and products are opaque objects for benchmarks, they are prepared before measurement
+ * @version 1.0
+ */
+package benchmarks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+
+public interface Warehouse extends Closeable {
+    /** Count of every article in new inventory, it is big enough for long runs of orders which aren't canceled */
+    int INITIAL_STOCK = 1_000_000_000;
+
+    /**
+     * Create warehouse management which drops audit records
+     * @param store Inventory backend: "heap", "columnar" or "mapped" (inventory of snapshot which is recovered)
+     * @param catalogSize Count of articles
+     * @return Warehouse management
+     * @throws IOException if warehouse management can't be created
+     * @see #open(String, int, Path, String, String)
+     */
+    static Warehouse open(String store, int catalogSize) throws IOException {
+        return open(store, catalogSize, null, null, null);
+    }
+
+    /**
+     * Create warehouse management with authorized employee and courier and inventory of new articles
+     * @param store Inventory backend: "heap", "columnar" or "mapped" (inventory of snapshot which is recovered)
+     * @param catalogSize Count of articles
+     * @param auditFile File of audit log, or null to drop audit records
+     * @param durability Name of durability of audit writer (for example "FLUSH_PER_BATCH"), it is used with audit file
+     * @param format Format of audit log: "text" or "binary", it is used with audit file
+     * @return Warehouse management
+     * @throws IOException if warehouse management can't be created
+     */
+    static Warehouse open(String store, int catalogSize, Path auditFile, String durability, String format)
+            throws IOException {
+        Warehouse warehouse;
+        try {
+            warehouse = (Warehouse) Class.forName("BenchmarkWarehouse").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("BenchmarkWarehouse can't be created", ex);
+        }
+        warehouse.init(store, catalogSize, auditFile, durability, format);
+        return warehouse;
+    }
+
+    /**
+     * Fill warehouse management, it is called once by {@link #open(String, int, Path, String, String)}
+     * @param store Inventory backend
+     * @param catalogSize Count of articles
+     * @param auditFile File of audit log, or null
+     * @param durability Name of durability of audit writer
+     * @param format Format of audit log
+     * @throws IOException if warehouse management can't be created
+     */
+    void init(String store, int catalogSize, Path auditFile, String durability, String format) throws IOException;
+
+    /**
+     * @param count Count of orders
+     * @param lines Count of lines of every order, one item of random article in every line
+     * @param seed Seed of random articles
+     * @return New orders which aren't created yet
+     */
+    Object[] newOrders(int count, int lines, long seed);
+
+    /**
+     * @param order Order from {@link #newOrders(int, int, long)}
+     * @return Is order created
+     * @throws IOException if action can't be recorded
+     */
+    boolean createOrder(Object order) throws IOException;
+
+    /**
+     * @param order Created order
+     * @return Is order canceled
+     * @throws IOException if action can't be recorded
+     */
+    boolean cancelOrder(Object order) throws IOException;
+
+    /**
+     * @param order Created order
+     * @return Is order taken to delivery
+     * @throws IOException if action can't be recorded
+     */
+    boolean takeOrder(Object order) throws IOException;
+
+    /**
+     * @param order Order which is taken to delivery
+     * @return Is order delivered
+     * @throws IOException if action can't be recorded
+     */
+    boolean deliverOrder(Object order) throws IOException;
+
+    /**
+     * Receive one item of article
+     * @param article Number of article of catalog
+     * @return Is product received
+     * @throws IOException if action can't be recorded
+     */
+    boolean receiptProduct(int article) throws IOException;
+
+    /**
+     * Write page of inventory
+     * @param out Writer of report
+     * @param pageSize Count of products of page
+     * @return Count of written products
+     * @throws IOException if report can't be written
+     */
+    int showInventory(Writer out, int pageSize) throws IOException;
+
+    /**
+     * Write record of reception of article to audit log, like every action does
+     * @param article Number of article of catalog
+     * @throws IOException if record can't be written
+     */
+    void writeAudit(int article) throws IOException;
+}
@@ -4,13 +4,11 @@
  * @version 1.0
  */
 
-import java.util.UUID;
-
 public class Article {
     /**
      * ID of {@link Product}
      */
-    private String id;
+    private Id id;
     /**
      * Name of {@link Product}
      */
@@ -19,6 +17,12 @@ public class Article {
      * Description of {@link Product}
      */
     private String description;
+    /**
+     * Text of article, it is built by the first {@link #toString()}
+     * Article isn't changed, so text is built once. Field isn't volatile, because String is immutable
+     * and other thread can only build the same text again
+     */
+    private String text;
 
     /**
      * Constructor of article for new product
@@ -27,7 +31,7 @@ public class Article {
      * @param description Description of product
      */
     public Article(String name, String description) {
-        id = UUID.randomUUID().toString();
+        id = Id.random();
         this.name = name;
         this.description = description;
     }
@@ -38,16 +42,27 @@ public class Article {
      * @param name name of product
      * @param description description of product
      */
-    public Article(String id, String name, String description){
+    public Article(Id id, String name, String description){
         this.id = id;
         this.name = name;
         this.description = description;
     }
 
+    /**
+     * Constructor of article for existing product
+     * @param id ID of product in UUID form
+     * @param name name of product
+     * @param description description of product
+     * @throws IllegalArgumentException if id isn't in UUID form
+     */
+    public Article(String id, String name, String description){
+        this(Id.parse(id), name, description);
+    }
+
     /**
      * @return ID
      */
-    public String getId() {
+    public Id getId() {
         return id;
     }
 
@@ -69,8 +84,13 @@ public class Article {
      * @return String calue of product
      */
     public String toString(){
-        StringBuilder sb = new StringBuilder();
-        sb.append("\nId : ").append(id).append("\nName : ").append(name).append("\nDescription : ").append(description);
-        return sb.toString();
+        String result = text;
+        if (result == null) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("\nId : ").append(id).append("\nName : ").append(name).append("\nDescription : ").append(description);
+            result = sb.toString();
+            text = result;
+        }
+        return result;
     }
 }
@@ -0,0 +1,431 @@
+/**
+ * Class of search index of names and descriptions of {@link Article}s
+ *
+ * Name and description are split to lower-case tokens (letters and digits). Index keeps:
+ * 1)Sorted map of tokens to IDs of articles, so tokens with prefix are one range of map (it is used instead of trie,
+ *   because it can be read without locks while it is changed)
+ * 2)Map of trigrams (three chars) to tokens which contain them, so tokens with substring are found without scanning
+ * 3)Tokens of every article, so articles can be checked and removed without reading inventory
+ *
+ * Every term of query must match one of tokens of article: the same token, token with prefix or token with substring
+ * (substring only for terms which have at least three chars). Article gets more points for better match of every term.
+ * Candidates are taken from the term with the least articles and the other terms are checked by tokens of candidate,
+ * so time of query depends on count of matching articles, not on size of catalog
+ *
+ * Index is built from inventory by {@link #build(Iterable)}, changes before building are ignored.
+ * Changes are serialized by lock of index, searching doesn't take any lock
+ * @version 1.0
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.ToIntFunction;
+
+public class ArticleSearchIndex {
+    /** Length of grams of substring index */
+    private static final int GRAM = 3;
+    /** Points of term which is equal to token */
+    private static final int EXACT = 3;
+    /** Points of term which is prefix of token */
+    private static final int PREFIX = 2;
+    /** Points of term which is substring of token */
+    private static final int SUBSTRING = 1;
+
+    /** Lock of changes */
+    private final Object lock = new Object();
+    /** Articles by token (token : String, posting : {@link Posting}) */
+    private final NavigableMap<String, Posting> postings = new ConcurrentSkipListMap<>();
+    /** Tokens by trigram (trigram : String, postings of tokens : Set of {@link Posting}) */
+    private final Map<String, Set<Posting>> grams = new ConcurrentHashMap<>();
+    /** Tokens of articles (id : {@link Id}, tokens : String[]), tokens are the same strings as keys of {@link #postings} */
+    private final Map<Id, String[]> tokensOfArticle = new ConcurrentHashMap<>();
+    /** Is index built from inventory */
+    private volatile boolean built;
+
+    /**
+     * Build index from products of inventory, if it isn't built yet
+     * Changes which are done while index is built wait for the end of building
+     * @param products Products of inventory
+     */
+    public void build(Iterable<Product> products) {
+        synchronized (lock) {
+            if (built) {
+                return;
+            }
+            for (Product product : products) {
+                put(product.getArticle());
+            }
+            built = true;
+        }
+    }
+
+    /**
+     * @return Is index built from inventory
+     */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Index name and description of article, old tokens of article are removed
+     * Nothing is done if index isn't built yet, because building reads the current article from inventory
+     * @param article {@link Article}
+     */
+    public void update(Article article) {
+        synchronized (lock) {
+            if (built) {
+                put(article);
+            }
+        }
+    }
+
+    /**
+     * Find articles which match all terms of query
+     * Articles are sorted by points, then by stock
+     *
+     * Query of one term takes articles with the same token first, then with prefix, then with substring,
+     * and stops when there are enough articles, because articles of the next group have less points
+     * @param query Words of name or description
+     * @param limit Max count of articles
+     * @param stockOf Current stock by ID of article
+     * @return IDs of the best articles, empty list if query doesn't have terms
+     */
+    public List<Id> search(String query, int limit, ToIntFunction<Id> stockOf) {
+        String[] terms = tokenize(query, null);
+        if (terms.length == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<Match> best = new PriorityQueue<>(Math.min(limit, 1024) + 1);
+        if (terms.length == 1) {
+            String term = terms[0];
+            Set<Id> seen = new HashSet<>();
+            Posting exact = postings.get(term);
+            if (exact != null) {
+                offer(best, limit, exact.ids, seen, EXACT, stockOf);
+            }
+            if (best.size() < limit) {
+                for (Posting posting : postings.subMap(term, false, term + Character.MAX_VALUE, false).values()) {
+                    offer(best, limit, posting.ids, seen, PREFIX, stockOf);
+                }
+            }
+            if (best.size() < limit && term.length() >= GRAM) {
+                for (Posting posting : postingsWithSubstring(term)) {
+                    if (!posting.token.startsWith(term)) {
+                        offer(best, limit, posting.ids, seen, SUBSTRING, stockOf);
+                    }
+                }
+            }
+        } else {
+            String selective = null;
+            long least = Long.MAX_VALUE;
+            for (String term : terms) {
+                long count = countOf(term, least);
+                if (count < least) {
+                    least = count;
+                    selective = term;
+                }
+            }
+            List<Map<String, Integer>> pointsOfTerms = new ArrayList<>(terms.length);
+            for (String term : terms) {
+                pointsOfTerms.add(pointsOfTokens(term));
+            }
+            Set<Id> candidates = new HashSet<>();
+            for (Posting posting : postingsOf(selective)) {
+                candidates.addAll(posting.ids);
+            }
+            for (Id id : candidates) {
+                String[] tokens = tokensOfArticle.get(id);
+                int points = tokens == null ? 0 : points(pointsOfTerms, tokens);
+                if (points > 0) {
+                    best.add(new Match(id, points, stockOf.applyAsInt(id)));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+        Id[] result = new Id[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = best.poll().id;
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Add articles with the same points to the best articles
+     * @param best Queue of the best articles, the worst is the head
+     * @param limit Max count of articles
+     * @param ids IDs of articles
+     * @param seen IDs of articles which are already added, article gets points only of its best token
+     * @param points Points of articles
+     * @param stockOf Current stock by ID of article
+     */
+    private static void offer(PriorityQueue<Match> best, int limit, Set<Id> ids, Set<Id> seen, int points,
+                              ToIntFunction<Id> stockOf) {
+        for (Id id : ids) {
+            if (seen.add(id)) {
+                best.add(new Match(id, points, stockOf.applyAsInt(id)));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Put tokens of article to index
+     * It must be called under {@link #lock}
+     * @param article {@link Article}
+     */
+    private void put(Article article) {
+        Id id = article.getId();
+        String[] tokens = tokenize(article.getName(), article.getDescription());
+        String[] old = tokensOfArticle.get(id);
+        if (old != null) {
+            if (Arrays.equals(old, tokens)) {
+                return;
+            }
+            for (String token : old) {
+                removePosting(token, id);
+            }
+        }
+        for (int i = 0; i < tokens.length; i++) {
+            Posting posting = postings.get(tokens[i]);
+            if (posting == null) {
+                posting = new Posting(tokens[i]);
+                postings.put(posting.token, posting);
+                for (int j = 0; j + GRAM <= posting.token.length(); j++) {
+                    grams.computeIfAbsent(posting.token.substring(j, j + GRAM), gram -> ConcurrentHashMap.newKeySet())
+                            .add(posting);
+                }
+            }
+            posting.ids.add(id);
+            tokens[i] = posting.token;
+        }
+        tokensOfArticle.put(id, tokens);
+    }
+
+    /**
+     * Remove article from posting of token, token without articles is removed from index
+     * It must be called under {@link #lock}
+     * @param token Token
+     * @param id ID of {@link Article}
+     */
+    private void removePosting(String token, Id id) {
+        Posting posting = postings.get(token);
+        if (posting == null) {
+            return;
+        }
+        posting.ids.remove(id);
+        if (posting.ids.isEmpty()) {
+            postings.remove(token);
+            for (int i = 0; i + GRAM <= token.length(); i++) {
+                String gram = token.substring(i, i + GRAM);
+                Set<Posting> tokens = grams.get(gram);
+                if (tokens != null) {
+                    tokens.remove(posting);
+                    if (tokens.isEmpty()) {
+                        grams.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Count articles of tokens with term, article which has several such tokens is counted several times
+     * @param term Term of query
+     * @param max Count after which counting is stopped, because other term is better
+     * @return Count of articles or max if count isn't less than max
+     */
+    private long countOf(String term, long max) {
+        long count = 0;
+        for (Posting posting : postings.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            count += posting.ids.size();
+            if (count >= max) {
+                return max;
+            }
+        }
+        if (term.length() >= GRAM) {
+            for (Posting posting : postingsWithSubstring(term)) {
+                if (!posting.token.startsWith(term)) {
+                    count += posting.ids.size();
+                    if (count >= max) {
+                        return max;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param term Term of query
+     * @return Postings of tokens which are equal to term, start with term or contain term
+     */
+    private List<Posting> postingsOf(String term) {
+        List<Posting> result = new ArrayList<>(postings.subMap(term, true, term + Character.MAX_VALUE, false).values());
+        if (term.length() >= GRAM) {
+            for (Posting posting : postingsWithSubstring(term)) {
+                if (!posting.token.startsWith(term)) {
+                    result.add(posting);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param term Term which has at least {@link #GRAM} chars
+     * @return Postings of tokens which contain term
+     */
+    private List<Posting> postingsWithSubstring(String term) {
+        Set<Posting> smallest = null;
+        for (int i = 0; i + GRAM <= term.length(); i++) {
+            Set<Posting> tokens = grams.get(term.substring(i, i + GRAM));
+            if (tokens == null) {
+                return Collections.emptyList();
+            }
+            if (smallest == null || tokens.size() < smallest.size()) {
+                smallest = tokens;
+            }
+        }
+        List<Posting> result = new ArrayList<>();
+        for (Posting posting : smallest) {
+            if (posting.token.contains(term)) {
+                result.add(posting);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Points of all tokens which match term
+     * Map compares tokens by reference, because tokens of articles are the same strings as tokens of postings
+     * @param term Term of query
+     * @return Points by token (token : String, points : Integer)
+     */
+    private Map<String, Integer> pointsOfTokens(String term) {
+        Map<String, Integer> result = new IdentityHashMap<>();
+        for (Posting posting : postingsOf(term)) {
+            String token = posting.token;
+            result.put(token, token.equals(term) ? EXACT : token.startsWith(term) ? PREFIX : SUBSTRING);
+        }
+        return result;
+    }
+
+    /**
+     * @param pointsOfTerms Points of tokens for every term of query
+     * @param tokens Tokens of article
+     * @return Sum of points of the best token of every term, or 0 if one of terms doesn't match
+     */
+    private static int points(List<Map<String, Integer>> pointsOfTerms, String[] tokens) {
+        int sum = 0;
+        for (Map<String, Integer> pointsOfTokens : pointsOfTerms) {
+            int best = 0;
+            for (String token : tokens) {
+                Integer points = pointsOfTokens.get(token);
+                if (points != null && points > best) {
+                    best = points;
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            sum += best;
+        }
+        return sum;
+    }
+
+    /**
+     * Split texts to different lower-case tokens of letters and digits
+     * @param first Text or null
+     * @param second Text or null
+     * @return Tokens in order of first appearance
+     */
+    static String[] tokenize(String first, String second) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addTokens(first, tokens);
+        addTokens(second, tokens);
+        return tokens.toArray(new String[0]);
+    }
+
+    /**
+     * @param text Text or null
+     * @param tokens Set for tokens
+     */
+    private static void addTokens(String text, Set<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char ch = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(ch)) {
+                sb.append(Character.toLowerCase(ch));
+            } else if (sb.length() > 0) {
+                tokens.add(sb.toString());
+                sb.setLength(0);
+            }
+        }
+    }
+
+    /**
+     * Token and IDs of articles which have it
+     * Token of posting is shared by all articles, so every token is kept once
+     */
+    private static final class Posting {
+        /** Token */
+        final String token;
+        /** IDs of articles */
+        final Set<Id> ids = ConcurrentHashMap.newKeySet();
+
+        /**
+         * @param token Token
+         */
+        Posting(String token) {
+            this.token = token;
+        }
+    }
+
+    /**
+     * Article which matches query
+     * Matches are compared by points, then by stock, so the worst match is the head of queue
+     */
+    private static final class Match implements Comparable<Match> {
+        /** ID of article */
+        final Id id;
+        /** Points of article */
+        final int points;
+        /** Stock of article */
+        final int stock;
+
+        /**
+         * @param id ID of article
+         * @param points Points of article
+         * @param stock Stock of article
+         */
+        Match(Id id, int points, int stock) {
+            this.id = id;
+            this.points = points;
+            this.stock = stock;
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            int result = Integer.compare(points, other.points);
+            return result != 0 ? result : Integer.compare(stock, other.stock);
+        }
+    }
+}
@@ -0,0 +1,474 @@
+/**
+ * Class of asynchronous audit writer
+ * implements {@link AuditSink}
+ *
+ * Records are put to bounded queue and written by one background thread through one open {@link FileChannel}
+ * If queue is full then caller waits until writer thread takes records from queue
+ * In {@link Durability#GROUP_COMMIT} mode caller also waits until its record is forced to disk together with
+ * records of other callers, so one fsync is shared by the whole batch
+ * File and its parent directories will be created by writer thread with the first record
+ * Records are encoded by writer thread in {@link AuditFormat} of writer
+ * @version 1.0
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+public class AsyncAuditWriter implements AuditSink {
+    /**
+     * Durability of written records
+     */
+    public enum Durability {
+        /** Records are collected in memory and given to OS when buffer is full, writer is idle or closed */
+        FIRE_AND_FORGET,
+        /** Every batch of records is given to OS */
+        FLUSH_PER_BATCH,
+        /** Every batch of records is given to OS and forced to disk */
+        FSYNC_PER_BATCH,
+        /** Like {@link #FSYNC_PER_BATCH}, but {@link #write(AuditRecord)} returns only when the record is forced to disk */
+        GROUP_COMMIT
+    }
+
+    /** Default capacity of {@link #queue} */
+    public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+    /** Default max count of records in one batch */
+    public static final int DEFAULT_BATCH_SIZE = 512;
+    /** Size of buffer of writer thread */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** How long writer thread waits for new record before it gives buffered records to OS (milliseconds) */
+    private static final long IDLE_TIMEOUT_MILLIS = 100;
+    /** How long caller sleeps between checks of writer thread while it waits for commit (nanoseconds) */
+    private static final long COMMIT_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /** File for records */
+    private final Path file;
+    /** {@link Durability} of records */
+    private final Durability durability;
+    /** {@link AuditFormat} of records */
+    private final AuditFormat format;
+    /** Max count of records in one batch */
+    private final int batchSize;
+    /** Max time which writer thread waits for more records after the first record of batch (nanoseconds) */
+    private final long maxBatchWaitNanos;
+    /** Queue of records which are waiting for writing */
+    private final BlockingQueue<PendingRecord> queue;
+    /** Count of callers which are putting record to {@link #queue} right now */
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    /** Background thread which writes records */
+    private final Thread writerThread;
+    /** Buffer of writer thread */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    /** Channel of {@link #file}, opened by writer thread */
+    private FileChannel channel;
+    /** Count of bytes which are given to OS, it is changed only by writer thread */
+    private volatile long bytesWritten;
+    /** Is writer closed */
+    private volatile boolean closed;
+    /** Error of writer thread, it will be thrown to the next caller */
+    private volatile IOException failure;
+
+    /**
+     * Constructor of writer of text log with default capacity of queue and default size of batch
+     * @param file File for records
+     * @param durability {@link Durability} of records
+     */
+    public AsyncAuditWriter(Path file, Durability durability) {
+        this(file, durability, new TextAuditFormat());
+    }
+
+    /**
+     * Constructor of writer with default capacity of queue and default size of batch
+     * @param file File for records
+     * @param durability {@link Durability} of records
+     * @param format {@link AuditFormat} of records
+     */
+    public AsyncAuditWriter(Path file, Durability durability, AuditFormat format) {
+        this(file, durability, format, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, 0);
+    }
+
+    /**
+     * Constructor of writer of text log
+     * Batch contains only records which are already in queue
+     * @param file File for records
+     * @param durability {@link Durability} of records
+     * @param queueCapacity Max count of records which are waiting for writing
+     * @param batchSize Max count of records which are written at once
+     */
+    public AsyncAuditWriter(Path file, Durability durability, int queueCapacity, int batchSize) {
+        this(file, durability, new TextAuditFormat(), queueCapacity, batchSize, 0);
+    }
+
+    /**
+     * Constructor of writer of text log
+     * @param file File for records
+     * @param durability {@link Durability} of records
+     * @param queueCapacity Max count of records which are waiting for writing
+     * @param batchSize Max count of records which are written at once
+     * @param maxBatchWaitMicros Max time which writer thread waits for more records after the first record of batch (microseconds)
+     */
+    public AsyncAuditWriter(Path file, Durability durability, int queueCapacity, int batchSize,
+                            long maxBatchWaitMicros) {
+        this(file, durability, new TextAuditFormat(), queueCapacity, batchSize, maxBatchWaitMicros);
+    }
+
+    /**
+     * Constructor of writer
+     * Starts background writer thread
+     * @param file File for records
+     * @param durability {@link Durability} of records
+     * @param format {@link AuditFormat} of records
+     * @param queueCapacity Max count of records which are waiting for writing
+     * @param batchSize Max count of records which are written at once
+     * @param maxBatchWaitMicros Max time which writer thread waits for more records after the first record of batch (microseconds)
+     */
+    public AsyncAuditWriter(Path file, Durability durability, AuditFormat format, int queueCapacity, int batchSize,
+                            long maxBatchWaitMicros) {
+        if (queueCapacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Capacity of queue and size of batch must be positive");
+        }
+        if (maxBatchWaitMicros < 0) {
+            throw new IllegalArgumentException("Max wait of batch can't be negative");
+        }
+        this.file = file;
+        this.durability = durability;
+        this.format = format;
+        this.batchSize = batchSize;
+        maxBatchWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxBatchWaitMicros);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        writerThread = new Thread(this::run, "audit-writer-" + file.getFileName());
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Put record to queue
+     * Method waits if queue is full and, in {@link Durability#GROUP_COMMIT} mode, until record is forced to disk
+     * @param record {@link AuditRecord} which is needed to write
+     * @throws IOException if writer is closed, writer thread failed or record can't be forced to disk
+     */
+    @Override
+    public void write(AuditRecord record) throws IOException {
+        boolean groupCommit = durability == Durability.GROUP_COMMIT;
+        PendingRecord pending = new PendingRecord(record, groupCommit ? Thread.currentThread() : null);
+        pendingWrites.incrementAndGet();
+        try {
+            checkState();
+            queue.put(pending);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for place in audit queue");
+        } finally {
+            pendingWrites.decrementAndGet();
+        }
+        if (groupCommit) {
+            awaitCommit(pending);
+        }
+    }
+
+    /**
+     * Put all records to queue
+     * In {@link Durability#GROUP_COMMIT} mode method waits once, until the last record is forced to disk,
+     * because records are committed in order of queue
+     * @param records {@link AuditRecord}s which are needed to write
+     * @throws IOException if writer is closed, writer thread failed or records can't be forced to disk
+     */
+    @Override
+    public void writeAll(List<AuditRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        boolean groupCommit = durability == Durability.GROUP_COMMIT;
+        PendingRecord last = null;
+        pendingWrites.incrementAndGet();
+        try {
+            checkState();
+            for (int i = 0; i < records.size(); i++) {
+                boolean isLast = i == records.size() - 1;
+                last = new PendingRecord(records.get(i), groupCommit && isLast ? Thread.currentThread() : null);
+                queue.put(last);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for place in audit queue");
+        } finally {
+            pendingWrites.decrementAndGet();
+        }
+        if (groupCommit) {
+            awaitCommit(last);
+        }
+    }
+
+    /**
+     * @return Count of records which are waiting for writing
+     */
+    @Override
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Bytes which are still in buffer of writer thread are not counted
+     * @return Count of bytes which are given to OS
+     */
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * @return {@link Durability} of records
+     */
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Close writer
+     * All records from queue will be written before the method returns
+     * @throws IOException if records can't be written or file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writerThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing audit writer");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @throws IOException if writer is closed or writer thread failed
+     */
+    private void checkState() throws IOException {
+        if (failure != null) {
+            throw new IOException("Audit writer failed", failure);
+        }
+        if (closed) {
+            throw new IOException("Audit writer is closed");
+        }
+    }
+
+    /**
+     * Wait until writer thread commits record
+     * @param pending Record of caller
+     * @throws IOException if record can't be forced to disk or writer thread stopped without committing it
+     */
+    private void awaitCommit(PendingRecord pending) throws IOException {
+        boolean interrupted = false;
+        while (!pending.done) {
+            LockSupport.parkNanos(this, COMMIT_CHECK_NANOS);
+            if (Thread.interrupted()) {
+                interrupted = true;
+            }
+            if (!pending.done && !writerThread.isAlive()) {
+                throw new IOException("Audit writer stopped before record was committed", failure);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (pending.error != null) {
+            throw new IOException("Audit record wasn't committed", pending.error);
+        }
+    }
+
+    /**
+     * Loop of writer thread
+     * Thread stops when writer is closed and there isn't any record left
+     * If thread fails (also when message or {@link AuditFormat} of record throws exception)
+     * then batch which is being written and all records from queue are completed with {@link #failure}
+     */
+    private void run() {
+        List<PendingRecord> batch = new ArrayList<>(batchSize);
+        try {
+            while (!closed || !queue.isEmpty() || pendingWrites.get() > 0) {
+                PendingRecord first = queue.poll(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    flushBuffer();
+                    continue;
+                }
+                batch.add(first);
+                collectBatch(batch);
+                writeBatch(batch);
+                complete(batch, null);
+                batch.clear();
+            }
+            flushBuffer();
+        } catch (IOException ex) {
+            failure = ex;
+        } catch (InterruptedException ex) {
+            failure = new InterruptedIOException("Audit writer thread was interrupted");
+        } catch (RuntimeException ex) {
+            failure = new IOException("Audit writer thread failed", ex);
+        } catch (Error ex) {
+            failure = new IOException("Audit writer thread failed", ex);
+            throw ex;
+        } finally {
+            closeChannel();
+            queue.drainTo(batch);
+            complete(batch, failure);
+        }
+    }
+
+    /**
+     * Add records from queue to batch until batch is full or max wait of batch is over
+     * @param batch Batch with the first record
+     * @throws InterruptedException if writer thread is interrupted
+     */
+    private void collectBatch(List<PendingRecord> batch) throws InterruptedException {
+        queue.drainTo(batch, batchSize - batch.size());
+        if (maxBatchWaitNanos == 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + maxBatchWaitNanos;
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            PendingRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    /**
+     * Mark records as committed and wake up their callers
+     * @param batch Records
+     * @param error Error of writing or null if records are written
+     */
+    private void complete(List<PendingRecord> batch, IOException error) {
+        for (PendingRecord pending : batch) {
+            pending.error = error;
+            pending.done = true;
+            if (pending.waiter != null) {
+                LockSupport.unpark(pending.waiter);
+            }
+        }
+    }
+
+    /**
+     * Write batch of records according to {@link #durability}
+     * @param batch Records
+     * @throws IOException if records can't be written
+     */
+    private void writeBatch(List<PendingRecord> batch) throws IOException {
+        for (PendingRecord pending : batch) {
+            byte[] bytes = format.encode(pending.record);
+            if (bytes.length > buffer.remaining()) {
+                flushBuffer();
+            }
+            if (bytes.length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(bytes));
+            } else {
+                buffer.put(bytes);
+            }
+        }
+        if (durability != Durability.FIRE_AND_FORGET) {
+            flushBuffer();
+        }
+        if (durability == Durability.FSYNC_PER_BATCH || durability == Durability.GROUP_COMMIT) {
+            channel().force(false);
+        }
+    }
+
+    /**
+     * Give all bytes from {@link #buffer} to OS
+     * @throws IOException if bytes can't be written
+     */
+    private void flushBuffer() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * @param bytes Bytes which are needed to write
+     * @throws IOException if bytes can't be written
+     */
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        FileChannel ch = channel();
+        while (bytes.hasRemaining()) {
+            bytesWritten += ch.write(bytes);
+        }
+    }
+
+    /**
+     * Open {@link #file} if it isn't opened yet
+     * @return Channel of {@link #file}
+     * @throws IOException if file can't be created or opened
+     */
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    /**
+     * Close {@link #channel} if it is opened
+     */
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            if (failure == null) {
+                failure = ex;
+            }
+        }
+    }
+
+    /**
+     * Record in queue with state of its commit
+     */
+    private static final class PendingRecord {
+        /** Record which is needed to write */
+        private final AuditRecord record;
+        /** Caller which waits for commit or null if caller doesn't wait */
+        private final Thread waiter;
+        /** Is record written according to durability of writer */
+        private volatile boolean done;
+        /** Error of writing, it is set before {@link #done} */
+        private IOException error;
+
+        /**
+         * @param record Record which is needed to write
+         * @param waiter Caller which waits for commit or null
+         */
+        private PendingRecord(AuditRecord record, Thread waiter) {
+            this.record = record;
+            this.waiter = waiter;
+        }
+    }
+}
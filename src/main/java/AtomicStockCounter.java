@@ -0,0 +1,17 @@
+/**
+ * Class of {@link StockCounter} which is kept in object on heap
+ * @version 1.0
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AtomicStockCounter extends AtomicInteger implements StockCounter {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param count Initial count
+     */
+    public AtomicStockCounter(int count) {
+        super(count);
+    }
+}
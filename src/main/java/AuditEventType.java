@@ -0,0 +1,74 @@
+/**
+ * Types of actions which are recorded by {@link WarehouseManagement}
+ * Every type has stable code which is used in binary audit log
+ * @version 1.0
+ * @see AuditRecord
+ */
+public enum AuditEventType {
+    EMPLOYEE_AUTHORIZATION_GIVEN(1, "EMPLOYEE AUTHORIZATION"),
+    EMPLOYEE_AUTHORIZATION_WITHDRAWN(2, "EMPLOYEE AUTHORIZATION"),
+    COURIER_AUTHORIZATION_GIVEN(3, "COURIER AUTHORIZATION"),
+    COURIER_AUTHORIZATION_WITHDRAWN(4, "COURIER AUTHORIZATION"),
+    PRODUCT_RECEPTION(5, "PRODUCT RECEPTION"),
+    ORDER_CREATION(6, "CREATE NEW ORDER"),
+    PRODUCT_INFORMATION_CHANGE(7, "CHANGE PRODUCT INFORMATION"),
+    ORDER_CANCELLATION(8, "CANCEL ORDER"),
+    ORDER_TAKING(9, "TAKING ORDER TO DELIVERY"),
+    ORDER_RETURNING(10, "RETURNING ORDER"),
+    ORDER_DELIVERY(11, "DELIVER ORDER"),
+    INVENTORY_SHOWING(12, "SHOW INVENTORY:"),
+    ORDERS_SHOWING(13, "SHOW ORDERS:"),
+    DELIVERING_ORDERS_SHOWING(14, "SHOW DELIVERING ORDERS:"),
+    BATCH_PRODUCT_RECEPTION(15, "BATCH PRODUCT RECEPTION"),
+    REORDER_THRESHOLD_CHANGE(16, "CHANGE REORDER THRESHOLD");
+
+    /** All types by code */
+    private static final AuditEventType[] BY_CODE = new AuditEventType[64];
+
+    static {
+        for (AuditEventType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    /** Code of type in binary audit log */
+    private final byte code;
+    /** Title of record in text audit log */
+    private final String title;
+
+    /**
+     * @param code Code of type in binary audit log
+     * @param title Title of record in text audit log
+     */
+    AuditEventType(int code, String title) {
+        this.code = (byte) code;
+        this.title = title;
+    }
+
+    /**
+     * @return Code of type in binary audit log
+     */
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * @return Title of record in text audit log
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @param code Code of type in binary audit log
+     * @return Type with this code
+     * @throws IllegalArgumentException if there isn't type with this code
+     */
+    public static AuditEventType fromCode(byte code) {
+        AuditEventType type = code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown audit event type: " + code);
+        }
+        return type;
+    }
+}
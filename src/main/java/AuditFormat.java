@@ -0,0 +1,13 @@
+/**
+ * Format of records in audit log
+ * @version 1.0
+ * @see TextAuditFormat
+ * @see BinaryAuditFormat
+ */
+public interface AuditFormat {
+    /**
+     * @param record {@link AuditRecord} which is needed to write
+     * @return Bytes of record in this format
+     */
+    byte[] encode(AuditRecord record);
+}
@@ -0,0 +1,92 @@
+/**
+ * Streaming reader of binary audit log which is written in {@link BinaryAuditFormat}
+ * Reader keeps in memory only the current record, so log of any size can be read
+ * Incomplete last record (for example after crash while writing) is treated as end of log,
+ * it is reported by {@link #isTruncated()} even if it is cut inside its length
+ * @version 1.0
+ */
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class AuditLogReader implements Closeable {
+    /** Stream of log */
+    private final DataInputStream in;
+    /** Is incomplete record found at the end of log */
+    private boolean truncated;
+
+    /**
+     * Constructor of reader of file
+     * @param file Binary audit log
+     * @throws IOException if file can't be opened
+     */
+    public AuditLogReader(Path file) throws IOException {
+        this(Files.newInputStream(file));
+    }
+
+    /**
+     * Constructor of reader of stream
+     * @param in Stream of binary audit log
+     */
+    public AuditLogReader(InputStream in) {
+        this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+    }
+
+    /**
+     * Read next record
+     * @return Next {@link AuditRecord} (without message) or null if there isn't any record left
+     * @throws IOException if log can't be read or record is damaged (wrong length or CRC32)
+     */
+    public AuditRecord next() throws IOException {
+        if (truncated) {
+            return null;
+        }
+        int length = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = in.read();
+            if (b < 0) {
+                truncated = i > 0;
+                return null;
+            }
+            length = (length << 8) | b;
+        }
+        if (length <= 0 || length > BinaryAuditFormat.MAX_PAYLOAD_LENGTH) {
+            throw new IOException("Damaged audit record: length is " + length);
+        }
+        byte[] payload = new byte[length];
+        int crc;
+        try {
+            in.readFully(payload);
+            crc = in.readInt();
+        } catch (EOFException ex) {
+            truncated = true;
+            return null;
+        }
+        if (crc != BinaryAuditFormat.crc(payload, 0, length)) {
+            throw new IOException("Damaged audit record: wrong CRC32");
+        }
+        return BinaryAuditFormat.decode(payload);
+    }
+
+    /**
+     * @return Is incomplete record found at the end of log
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Close stream of log
+     * @throws IOException if stream can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
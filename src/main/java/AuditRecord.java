@@ -0,0 +1,274 @@
+/**
+ * Class of record about one action of {@link WarehouseManagement}
+ * Record contains only ids and quantities, so it can be written in compact binary form by {@link BinaryAuditFormat}
+ * Ids are kept as {@link Id}s, so action doesn't format them, they are formatted as text only by writer of text log
+ * Human-readable message is optional, it is used by {@link TextAuditFormat} and isn't stored in binary form
+ * Message can be given as {@link Supplier}, then it is formatted only when it is needed for the first time,
+ * for example by writer thread of {@link AsyncAuditWriter}, and never if record is written in binary form
+ * @version 1.0
+ */
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+public final class AuditRecord {
+    /** Empty array of ids */
+    private static final Id[] NO_IDS = new Id[0];
+    /** Empty array of quantities */
+    private static final int[] NO_QUANTITIES = new int[0];
+
+    /** {@link AuditEventType} of action */
+    private final AuditEventType type;
+    /** Time of action (nanoseconds since epoch) */
+    private final long epochNanos;
+    /** ID of {@link Employee} or {@link Courier} who did action, or null */
+    private final Id actorId;
+    /** ID of entity which is changed by action ({@link Order}, {@link Article} or {@link Employee}), or null */
+    private final Id subjectId;
+    /** IDs of {@link Article}s which are changed by action */
+    private final Id[] articleIds;
+    /** Quantities of {@link #articleIds} */
+    private final int[] quantities;
+    /** Note of action (for example reason of canceling), or null */
+    private final String note;
+    /** Human-readable message, or null if it isn't formatted yet or record doesn't have message */
+    private volatile String message;
+    /** Source of message which isn't formatted yet, or null */
+    private final Supplier<String> messageSource;
+
+    /**
+     * Constructor of record
+     * @param type {@link AuditEventType} of action
+     * @param epochNanos Time of action (nanoseconds since epoch)
+     * @param actorId ID of employee or courier who did action, or null
+     * @param subjectId ID of entity which is changed by action, or null
+     * @param articleIds IDs of articles which are changed by action
+     * @param quantities Quantities of articles, same length as articleIds
+     * @param note Note of action, or null
+     * @param message Human-readable message, or null
+     */
+    public AuditRecord(AuditEventType type, long epochNanos, Id actorId, Id subjectId,
+                       Id[] articleIds, int[] quantities, String note, String message) {
+        this(type, epochNanos, actorId, subjectId, articleIds, quantities, note, message, null);
+    }
+
+    /**
+     * @param type {@link AuditEventType} of action
+     * @param epochNanos Time of action (nanoseconds since epoch)
+     * @param actorId ID of employee or courier who did action, or null
+     * @param subjectId ID of entity which is changed by action, or null
+     * @param articleIds IDs of articles which are changed by action
+     * @param quantities Quantities of articles, same length as articleIds
+     * @param note Note of action, or null
+     * @param message Human-readable message, or null
+     * @param messageSource Source of message, or null
+     */
+    private AuditRecord(AuditEventType type, long epochNanos, Id actorId, Id subjectId, Id[] articleIds,
+                        int[] quantities, String note, String message, Supplier<String> messageSource) {
+        if (articleIds.length != quantities.length) {
+            throw new IllegalArgumentException("Every article must have quantity");
+        }
+        this.type = type;
+        this.epochNanos = epochNanos;
+        this.actorId = actorId;
+        this.subjectId = subjectId;
+        this.articleIds = articleIds;
+        this.quantities = quantities;
+        this.note = note;
+        this.message = message;
+        this.messageSource = messageSource;
+    }
+
+    /**
+     * Create record of current time without articles
+     * @param type {@link AuditEventType} of action
+     * @param actorId ID of employee or courier who did action, or null
+     * @param subjectId ID of entity which is changed by action, or null
+     * @param note Note of action, or null
+     * @param message Human-readable message, or null
+     * @return Record
+     */
+    public static AuditRecord of(AuditEventType type, Id actorId, Id subjectId, String note, String message) {
+        return new AuditRecord(type, currentEpochNanos(), actorId, subjectId, NO_IDS, NO_QUANTITIES, note, message);
+    }
+
+    /**
+     * Create record of current time with articles and quantities of {@link Product}s
+     * @param type {@link AuditEventType} of action
+     * @param actorId ID of employee or courier who did action, or null
+     * @param subjectId ID of entity which is changed by action, or null
+     * @param products {@link Product}s which are changed by action
+     * @param note Note of action, or null
+     * @param message Human-readable message, or null
+     * @return Record
+     */
+    public static AuditRecord of(AuditEventType type, Id actorId, Id subjectId, List<Product> products,
+                                 String note, String message) {
+        Id[] articleIds = articleIdsOf(products);
+        return new AuditRecord(type, currentEpochNanos(), actorId, subjectId, articleIds, quantitiesOf(products),
+                note, message, null);
+    }
+
+    /**
+     * Create record of current time with articles and quantities of {@link Product}s and message which is formatted
+     * when it is needed
+     * Quantities are read now, so message must not depend on counts which can be changed after action
+     * @param type {@link AuditEventType} of action
+     * @param actorId ID of employee or courier who did action, or null
+     * @param subjectId ID of entity which is changed by action, or null
+     * @param products {@link Product}s which are changed by action
+     * @param note Note of action, or null
+     * @param message Source of human-readable message
+     * @return Record
+     */
+    public static AuditRecord of(AuditEventType type, Id actorId, Id subjectId, List<Product> products,
+                                 String note, Supplier<String> message) {
+        Id[] articleIds = articleIdsOf(products);
+        return new AuditRecord(type, currentEpochNanos(), actorId, subjectId, articleIds, quantitiesOf(products),
+                note, null, message);
+    }
+
+    /**
+     * @param products {@link Product}s
+     * @return IDs of articles of products
+     */
+    private static Id[] articleIdsOf(List<Product> products) {
+        Id[] articleIds = new Id[products.size()];
+        for (int i = 0; i < articleIds.length; i++) {
+            articleIds[i] = products.get(i).getArticle().getId();
+        }
+        return articleIds;
+    }
+
+    /**
+     * @param products {@link Product}s
+     * @return Current counts of products
+     */
+    private static int[] quantitiesOf(List<Product> products) {
+        int[] quantities = new int[products.size()];
+        for (int i = 0; i < quantities.length; i++) {
+            quantities[i] = products.get(i).getCount();
+        }
+        return quantities;
+    }
+
+    /**
+     * @return Current time (nanoseconds since epoch)
+     */
+    public static long currentEpochNanos() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    /**
+     * @return {@link AuditEventType} of action
+     */
+    public AuditEventType getType() {
+        return type;
+    }
+
+    /**
+     * @return Time of action (nanoseconds since epoch)
+     */
+    public long getEpochNanos() {
+        return epochNanos;
+    }
+
+    /**
+     * @return ID of employee or courier who did action, or null
+     */
+    public Id getActorId() {
+        return actorId;
+    }
+
+    /**
+     * @return ID of entity which is changed by action, or null
+     */
+    public Id getSubjectId() {
+        return subjectId;
+    }
+
+    /**
+     * @return Count of articles which are changed by action
+     */
+    public int getLineCount() {
+        return articleIds.length;
+    }
+
+    /**
+     * @param index Index of line
+     * @return ID of article in line
+     */
+    public Id getArticleId(int index) {
+        return articleIds[index];
+    }
+
+    /**
+     * @param index Index of line
+     * @return Quantity of article in line
+     */
+    public int getQuantity(int index) {
+        return quantities[index];
+    }
+
+    /**
+     * @return Note of action, or null
+     */
+    public String getNote() {
+        return note;
+    }
+
+    /**
+     * Message which is given as {@link Supplier} is formatted by the first call
+     * @return Human-readable message, or null
+     */
+    public String getMessage() {
+        String result = message;
+        if (result == null && messageSource != null) {
+            result = messageSource.get();
+            message = result;
+        }
+        return result;
+    }
+
+    /**
+     * Records are equal if all fields except {@link #message} are equal
+     * @param o Other object
+     * @return Result of comparing
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AuditRecord)) {
+            return false;
+        }
+        AuditRecord other = (AuditRecord) o;
+        return type == other.type && epochNanos == other.epochNanos
+                && Objects.equals(actorId, other.actorId)
+                && Objects.equals(subjectId, other.subjectId)
+                && Arrays.equals(articleIds, other.articleIds) && Arrays.equals(quantities, other.quantities)
+                && Objects.equals(note, other.note);
+    }
+
+    /**
+     * @return Hash code of all fields except {@link #message}
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, epochNanos, actorId, subjectId, Arrays.hashCode(articleIds),
+                Arrays.hashCode(quantities), note);
+    }
+
+    /**
+     * @return String value of record
+     */
+    @Override
+    public String toString() {
+        return TextAuditFormat.render(this);
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Destination of all records written by {@link WarehouseManagement}
+ * Implementations decide where and how records are stored
+ * @version 1.0
+ * @see AsyncAuditWriter
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+public interface AuditSink extends Closeable {
+    /**
+     * Write record to sink
+     * @param record {@link AuditRecord} which is needed to write
+     * @throws IOException if sink is closed or record can't be written
+     */
+    void write(AuditRecord record) throws IOException;
+
+    /**
+     * Write several records of one action to sink
+     * By default records are written one by one
+     * @param records {@link AuditRecord}s which are needed to write
+     * @throws IOException if sink is closed or records can't be written
+     */
+    default void writeAll(List<AuditRecord> records) throws IOException {
+        for (AuditRecord record : records) {
+            write(record);
+        }
+    }
+
+    /**
+     * @return Count of records which are waiting for writing, 0 by default
+     */
+    default int getQueueSize() {
+        return 0;
+    }
+
+    /**
+     * @return Count of bytes which are written by sink, 0 by default
+     */
+    default long getBytesWritten() {
+        return 0;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Class of result of batch reception of products
+ * Result contains status of every line in order of lines in batch
+ * @version 1.0
+ * @see WarehouseManagement#receiptProducts(Employee, java.util.Collection)
+ */
+
+import java.util.Arrays;
+
+public class BatchReceiptResult {
+    /**
+     * Status of one line of batch
+     */
+    public enum Status {
+        /** Product is received */
+        RECEIVED,
+        /** Line is merged into the later line with the same article, which is received */
+        MERGED,
+        /** Line is null or has negative count, it is skipped */
+        INVALID,
+        /** Employee doesn't have authorization, nothing is received */
+        UNAUTHORIZED
+    }
+
+    /** Statuses of lines */
+    private final Status[] statuses;
+
+    /**
+     * @param statuses Statuses of lines
+     */
+    BatchReceiptResult(Status[] statuses) {
+        this.statuses = statuses;
+    }
+
+    /**
+     * @param size Count of lines
+     * @return Result where every line has status {@link Status#UNAUTHORIZED}
+     */
+    static BatchReceiptResult unauthorized(int size) {
+        Status[] statuses = new Status[size];
+        Arrays.fill(statuses, Status.UNAUTHORIZED);
+        return new BatchReceiptResult(statuses);
+    }
+
+    /**
+     * @param index Index of line in batch
+     * @return {@link Status} of line
+     */
+    public Status getStatus(int index) {
+        return statuses[index];
+    }
+
+    /**
+     * @return Count of lines
+     */
+    public int size() {
+        return statuses.length;
+    }
+
+    /**
+     * @param status {@link Status}
+     * @return Count of lines with this status
+     */
+    public int count(Status status) {
+        int count = 0;
+        for (Status s : statuses) {
+            if (s == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Is employee authorized (false only if batch isn't empty and every line is unauthorized)
+     */
+    public boolean isAuthorized() {
+        return statuses.length == 0 || statuses[0] != Status.UNAUTHORIZED;
+    }
+}
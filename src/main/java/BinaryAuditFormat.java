@@ -0,0 +1,183 @@
+/**
+ * Compact binary format of audit log
+ * implements {@link AuditFormat}
+ *
+ * Every record is stored as:
+ * 1)length of payload (int)
+ * 2)payload: code of {@link AuditEventType} (byte), time in nanoseconds since epoch (long), actor ID, subject ID,
+ * count of lines (int) with article ID and quantity (int) of every line, note
+ * 3)CRC32 of payload (int)
+ * IDs are written as their high and low longs (see {@link Id}), actor and subject IDs after flag of presence (boolean),
+ * note is written as flag of presence (boolean) and modified UTF-8 string
+ * Message of {@link AuditRecord} isn't stored
+ * Records are read back by {@link AuditLogReader}
+ * @version 1.0
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.CRC32;
+
+public class BinaryAuditFormat implements AuditFormat {
+    /** Max length of payload of one record, longer length means that log is damaged */
+    public static final int MAX_PAYLOAD_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * @param record {@link AuditRecord} which is needed to write
+     * @return Bytes of record with length and CRC32
+     */
+    @Override
+    public byte[] encode(AuditRecord record) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 20 * record.getLineCount());
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeByte(record.getType().getCode());
+            out.writeLong(record.getEpochNanos());
+            writeOptionalId(out, record.getActorId());
+            writeOptionalId(out, record.getSubjectId());
+            out.writeInt(record.getLineCount());
+            for (int i = 0; i < record.getLineCount(); i++) {
+                writeId(out, record.getArticleId(i));
+                out.writeInt(record.getQuantity(i));
+            }
+            writeString(out, record.getNote());
+            out.writeInt(0);
+
+            byte[] result = bytes.toByteArray();
+            int payloadLength = result.length - 8;
+            putInt(result, 0, payloadLength);
+            putInt(result, result.length - 4, crc(result, 4, payloadLength));
+            return result;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Read record from payload
+     * @param payload Payload of record without length and CRC32
+     * @return {@link AuditRecord} without message
+     * @throws IOException if payload is damaged
+     */
+    static AuditRecord decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        AuditEventType type;
+        try {
+            type = AuditEventType.fromCode(in.readByte());
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Damaged audit record", ex);
+        }
+        long epochNanos = in.readLong();
+        Id actorId = readOptionalId(in);
+        Id subjectId = readOptionalId(in);
+        int lineCount = in.readInt();
+        if (lineCount < 0 || lineCount > payload.length) {
+            throw new IOException("Damaged audit record: count of lines is " + lineCount);
+        }
+        Id[] articleIds = new Id[lineCount];
+        int[] quantities = new int[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            articleIds[i] = readId(in);
+            quantities[i] = in.readInt();
+        }
+        String note = readString(in);
+        return new AuditRecord(type, epochNanos, actorId, subjectId, articleIds, quantities, note, null);
+    }
+
+    /**
+     * @param bytes Array
+     * @param offset Start of data
+     * @param length Length of data
+     * @return CRC32 of data
+     */
+    static int crc(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Write ID as its high and low longs
+     * @param out Stream
+     * @param id {@link Id}
+     * @throws IOException if ID can't be written
+     */
+    private static void writeId(DataOutputStream out, Id id) throws IOException {
+        out.writeLong(id.getHigh());
+        out.writeLong(id.getLow());
+    }
+
+    /**
+     * Write ID which can be null
+     * @param out Stream
+     * @param id {@link Id} or null
+     * @throws IOException if ID can't be written
+     */
+    private static void writeOptionalId(DataOutputStream out, Id id) throws IOException {
+        out.writeBoolean(id != null);
+        if (id != null) {
+            writeId(out, id);
+        }
+    }
+
+    /**
+     * Read ID from its high and low longs
+     * @param in Stream
+     * @return {@link Id}
+     * @throws IOException if ID can't be read
+     */
+    private static Id readId(DataInputStream in) throws IOException {
+        return new Id(in.readLong(), in.readLong());
+    }
+
+    /**
+     * Read ID which can be null
+     * @param in Stream
+     * @return {@link Id} or null
+     * @throws IOException if ID can't be read
+     */
+    private static Id readOptionalId(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readId(in) : null;
+    }
+
+    /**
+     * Write string which can be null
+     * @param out Stream
+     * @param value String or null
+     * @throws IOException if string can't be written
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Read string which can be null
+     * @param in Stream
+     * @return String or null
+     * @throws IOException if string can't be read
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Write big-endian int to array
+     * @param bytes Array
+     * @param offset Position of int
+     * @param value Value
+     */
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
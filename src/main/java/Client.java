@@ -4,6 +4,8 @@
  * @version 1.0
  */
 
+import java.util.Objects;
+
 public class Client {
     /**
      * Name of Client
@@ -17,6 +19,10 @@ public class Client {
      * Phone of client
      */
     private String phone;
+    /**
+     * Text of client, it is built by the first {@link #toString()} (see {@link Article#toString()})
+     */
+    private String text;
 
     /**
      * Constructor of class
@@ -30,12 +36,64 @@ public class Client {
         this.phone = phone;
     }
 
+    /**
+     * @return Name of client
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Address of client
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * @return Phone of client
+     */
+    public String getPhone() {
+        return phone;
+    }
+
+    /**
+     * Clients are equal if their names, addresses and phones are equal
+     * @param o Other object
+     * @return Result of comparing
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Client)) {
+            return false;
+        }
+        Client other = (Client) o;
+        return Objects.equals(name, other.name) && Objects.equals(address, other.address)
+                && Objects.equals(phone, other.phone);
+    }
+
+    /**
+     * @return Hash code of name, address and phone
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, address, phone);
+    }
+
     /**
      * @return String value of client
      */
     public String toString(){
-        StringBuilder sb = new StringBuilder();
-        sb.append("\nName : ").append(name).append("\nAddress : ").append(address).append("\nPhone : ").append(phone);
-        return sb.toString();
+        String result = text;
+        if (result == null) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("\nName : ").append(name).append("\nAddress : ").append(address).append("\nPhone : ").append(phone);
+            result = sb.toString();
+            text = result;
+        }
+        return result;
     }
 }
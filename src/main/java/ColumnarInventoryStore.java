@@ -0,0 +1,360 @@
+/**
+ * Class of {@link InventoryStore} which keeps inventory in primitive columns instead of objects
+ *
+ * Every article gets dense index on the first {@link #put(Product)}. Count, price (minor units, see {@link Money})
+ * and position of metadata of article are kept in columns by index, both longs of {@link Id}s are kept in two columns
+ * and IDs are found by open-addressing hash table of indexes.
+ * Name and description of article are kept as UTF-8 bytes in pages and are decoded only when {@link Product} is created
+ * by {@link #get(Id)}. Created products read and change count directly in column, so they can be dropped after use,
+ * and {@link #counterOf(Id)} reserves stock without creating products at all
+ *
+ * Columns grow by chunks which are never moved, so counters of created products stay valid
+ * Metadata of article is written again only if name or description is changed, old bytes are not reused
+ * Writers are serialized by lock of store, readers don't take any lock
+ * @version 1.0
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class ColumnarInventoryStore implements InventoryStore {
+    /** Bits of index inside chunk */
+    private static final int CHUNK_BITS = 14;
+    /** Count of articles in chunk */
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    /** Mask of index inside chunk */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /** Size of page of metadata */
+    private static final int PAGE_SIZE = 1 << 20;
+
+    /** Lock of writers */
+    private final Object lock = new Object();
+    /** Chunks of column of counts */
+    private volatile AtomicIntegerArray[] counts = new AtomicIntegerArray[0];
+    /** Chunks of column of prices in minor units */
+    private volatile AtomicLongArray[] prices = new AtomicLongArray[0];
+    /** Chunks of column of positions of metadata (page in high int, offset in low int) */
+    private volatile AtomicLongArray[] metadata = new AtomicLongArray[0];
+    /** Chunks of column of high bits of IDs */
+    private volatile long[][] idHighs = new long[0][];
+    /** Chunks of column of low bits of IDs */
+    private volatile long[][] idLows = new long[0][];
+    /** Pages of metadata */
+    private volatile byte[][] pages = new byte[0][];
+    /** Used bytes of the last page */
+    private int pageUsed = PAGE_SIZE;
+    /** Hash table of indexes, 0 is empty cell, else index + 1 */
+    private volatile AtomicIntegerArray table = new AtomicIntegerArray(16);
+    /** Count of articles */
+    private volatile int size;
+
+    /**
+     * Create product of article, its count is read and changed in column
+     * @param articleId ID of {@link Article}
+     * @return New {@link Product} of article or null
+     */
+    @Override
+    public Product get(Id articleId) {
+        int index = indexOf(articleId);
+        return index < 0 ? null : product(index);
+    }
+
+    /**
+     * @param articleId ID of {@link Article}
+     * @return {@link StockCounter} of column or null
+     */
+    @Override
+    public StockCounter counterOf(Id articleId) {
+        int index = indexOf(articleId);
+        return index < 0 ? null : new Cell(counts[index >>> CHUNK_BITS], index & CHUNK_MASK);
+    }
+
+    /**
+     * Write product to columns
+     * If counter of product isn't counter of this store then its count is written to column
+     * and product starts to use counter of column
+     * @param product {@link Product}
+     * @return Product of replaced article or null
+     */
+    @Override
+    public Product put(Product product) {
+        Article article = product.getArticle();
+        Id id = article.getId();
+        synchronized (lock) {
+            int index = indexOf(id);
+            Product old = null;
+            if (index < 0) {
+                index = append(id);
+            } else {
+                old = product(index);
+            }
+            int chunk = index >>> CHUNK_BITS;
+            int offset = index & CHUNK_MASK;
+            prices[chunk].set(offset, product.getPrice());
+            if (old == null || !Objects.equals(old.getArticle().getName(), article.getName())
+                    || !Objects.equals(old.getArticle().getDescription(), article.getDescription())) {
+                metadata[chunk].set(offset, writeMetadata(article.getName(), article.getDescription()));
+            }
+            StockCounter counter = product.counter();
+            if (!(counter instanceof Cell && ((Cell) counter).isCellOf(counts[chunk], offset))) {
+                Cell cell = new Cell(counts[chunk], offset);
+                cell.set(counter.get());
+                product.useCounter(cell);
+            }
+            if (old == null) {
+                insert(table, id.hashCode(), index);
+                size = index + 1;
+            }
+            return old;
+        }
+    }
+
+    /**
+     * @return Count of articles
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Products are created while iterating in order of indexes
+     * @return Iterator of all products
+     */
+    @Override
+    public Iterator<Product> iterator() {
+        int count = size;
+        return new Iterator<Product>() {
+            /** Next index */
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < count;
+            }
+
+            @Override
+            public Product next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return product(index++);
+            }
+        };
+    }
+
+    /**
+     * @param id ID of {@link Article}
+     * @return Index of article or -1
+     */
+    private int indexOf(Id id) {
+        AtomicIntegerArray cells = table;
+        int mask = cells.length() - 1;
+        long high = id.getHigh();
+        long low = id.getLow();
+        for (int i = id.hashCode() & mask; ; i = (i + 1) & mask) {
+            int cell = cells.get(i);
+            if (cell == 0) {
+                return -1;
+            }
+            int index = cell - 1;
+            int chunk = index >>> CHUNK_BITS;
+            int offset = index & CHUNK_MASK;
+            if (idLows[chunk][offset] == low && idHighs[chunk][offset] == high) {
+                return index;
+            }
+        }
+    }
+
+    /**
+     * Create product of index
+     * @param index Index of article
+     * @return {@link Product} with counter of column
+     */
+    private Product product(int index) {
+        int chunk = index >>> CHUNK_BITS;
+        int offset = index & CHUNK_MASK;
+        long position = metadata[chunk].get(offset);
+        byte[] page = pages[(int) (position >>> 32)];
+        int start = (int) position;
+        int nameLength = readInt(page, start);
+        String name = readString(page, start + 4, nameLength);
+        int descriptionStart = start + 4 + Math.max(nameLength, 0);
+        String description = readString(page, descriptionStart + 4, readInt(page, descriptionStart));
+
+        return new Product(new Cell(counts[chunk], offset), prices[chunk].get(offset),
+                new Article(new Id(idHighs[chunk][offset], idLows[chunk][offset]), name, description));
+    }
+
+    /**
+     * Add index for new article, columns grow by chunk if it is needed
+     * It must be called under {@link #lock}
+     * @param id ID of {@link Article}
+     * @return New index
+     */
+    private int append(Id id) {
+        int index = size;
+        int chunk = index >>> CHUNK_BITS;
+        if (chunk == idHighs.length) {
+            AtomicIntegerArray[] newCounts = Arrays.copyOf(counts, chunk + 1);
+            newCounts[chunk] = new AtomicIntegerArray(CHUNK_SIZE);
+            AtomicLongArray[] newPrices = Arrays.copyOf(prices, chunk + 1);
+            newPrices[chunk] = new AtomicLongArray(CHUNK_SIZE);
+            AtomicLongArray[] newMetadata = Arrays.copyOf(metadata, chunk + 1);
+            newMetadata[chunk] = new AtomicLongArray(CHUNK_SIZE);
+            long[][] newIdHighs = Arrays.copyOf(idHighs, chunk + 1);
+            newIdHighs[chunk] = new long[CHUNK_SIZE];
+            long[][] newIdLows = Arrays.copyOf(idLows, chunk + 1);
+            newIdLows[chunk] = new long[CHUNK_SIZE];
+            counts = newCounts;
+            prices = newPrices;
+            metadata = newMetadata;
+            idHighs = newIdHighs;
+            idLows = newIdLows;
+        }
+        idHighs[chunk][index & CHUNK_MASK] = id.getHigh();
+        idLows[chunk][index & CHUNK_MASK] = id.getLow();
+        if ((index + 1) * 2 > table.length()) {
+            AtomicIntegerArray bigger = new AtomicIntegerArray(table.length() * 2);
+            for (int i = 0; i < index; i++) {
+                int c = i >>> CHUNK_BITS;
+                insert(bigger, Id.hash(idHighs[c][i & CHUNK_MASK], idLows[c][i & CHUNK_MASK]), i);
+            }
+            table = bigger;
+        }
+        return index;
+    }
+
+    /**
+     * Write name and description to pages
+     * It must be called under {@link #lock}
+     * @param name Name or null
+     * @param description Description or null
+     * @return Position of metadata
+     */
+    private long writeMetadata(String name, String description) {
+        byte[] nameBytes = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+        byte[] descriptionBytes = description == null ? null : description.getBytes(StandardCharsets.UTF_8);
+        int length = 8 + (nameBytes == null ? 0 : nameBytes.length) + (descriptionBytes == null ? 0 : descriptionBytes.length);
+        byte[][] allPages = pages;
+        if (pageUsed + length > PAGE_SIZE || allPages.length == 0) {
+            allPages = Arrays.copyOf(allPages, allPages.length + 1);
+            allPages[allPages.length - 1] = new byte[Math.max(PAGE_SIZE, length)];
+            pageUsed = 0;
+        }
+        int pageIndex = allPages.length - 1;
+        byte[] page = allPages[pageIndex];
+        int start = pageUsed;
+        int position = writeBytes(page, start, nameBytes);
+        pageUsed = writeBytes(page, position, descriptionBytes);
+        pages = allPages;
+        return ((long) pageIndex << 32) | start;
+    }
+
+    /**
+     * @param cells Hash table
+     * @param hash Hash code of ID of {@link Article}
+     * @param index Index of article
+     */
+    private static void insert(AtomicIntegerArray cells, int hash, int index) {
+        int mask = cells.length() - 1;
+        int i = hash & mask;
+        while (cells.get(i) != 0) {
+            i = (i + 1) & mask;
+        }
+        cells.set(i, index + 1);
+    }
+
+    /**
+     * Write length (-1 for null) and bytes
+     * @param page Page
+     * @param position Position in page
+     * @param bytes Bytes or null
+     * @return Position after written bytes
+     */
+    private static int writeBytes(byte[] page, int position, byte[] bytes) {
+        int length = bytes == null ? -1 : bytes.length;
+        page[position] = (byte) (length >>> 24);
+        page[position + 1] = (byte) (length >>> 16);
+        page[position + 2] = (byte) (length >>> 8);
+        page[position + 3] = (byte) length;
+        if (bytes == null) {
+            return position + 4;
+        }
+        System.arraycopy(bytes, 0, page, position + 4, bytes.length);
+        return position + 4 + bytes.length;
+    }
+
+    /**
+     * @param page Page
+     * @param position Position in page
+     * @return Big-endian int
+     */
+    private static int readInt(byte[] page, int position) {
+        return (page[position] & 0xFF) << 24 | (page[position + 1] & 0xFF) << 16
+                | (page[position + 2] & 0xFF) << 8 | (page[position + 3] & 0xFF);
+    }
+
+    /**
+     * @param page Page
+     * @param position Position of bytes
+     * @param length Length of bytes, -1 for null
+     * @return String or null
+     */
+    private static String readString(byte[] page, int position, int length) {
+        return length < 0 ? null : new String(page, position, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@link StockCounter} which is one cell of column of counts
+     */
+    private static final class Cell implements StockCounter {
+        /** Chunk of column */
+        private final AtomicIntegerArray chunk;
+        /** Offset in chunk */
+        private final int offset;
+
+        /**
+         * @param chunk Chunk of column
+         * @param offset Offset in chunk
+         */
+        Cell(AtomicIntegerArray chunk, int offset) {
+            this.chunk = chunk;
+            this.offset = offset;
+        }
+
+        /**
+         * @param otherChunk Chunk of column
+         * @param otherOffset Offset in chunk
+         * @return Is this cell the cell of chunk and offset
+         */
+        boolean isCellOf(AtomicIntegerArray otherChunk, int otherOffset) {
+            return chunk == otherChunk && offset == otherOffset;
+        }
+
+        @Override
+        public int get() {
+            return chunk.get(offset);
+        }
+
+        @Override
+        public void set(int count) {
+            chunk.set(offset, count);
+        }
+
+        @Override
+        public boolean compareAndSet(int expect, int update) {
+            return chunk.compareAndSet(offset, expect, update);
+        }
+
+        @Override
+        public int addAndGet(int delta) {
+            return chunk.addAndGet(offset, delta);
+        }
+    }
+}
@@ -1,14 +1,17 @@
 /**
  * Class of courier
  * extends {@link Employee}
+ *
+ * Orders of courier are kept in {@link CourierIndex} of warehouse management which courier works with.
+ * New courier has own index, its orders are moved to index of warehouse management when courier is attached to it
+ * (for example when courier gets authorization)
  */
 
-import java.util.HashMap;
 import java.util.Map;
 
 public class Courier extends Employee{
-    /** Map of all orders taken to delivery by courier (id : String, order : {@link Order}) */
-    private Map<String, Order> orders = new HashMap<>();
+    /** {@link CourierIndex} which keeps orders of courier */
+    private volatile CourierIndex index = new CourierIndex();
 
     /**
      * Constructor of courier
@@ -19,25 +22,60 @@ public class Courier extends Employee{
     }
 
     /**
-     * Save order to {@link #orders}
+     * Keep orders of courier in index, orders from current index are moved to it
+     * @param target {@link CourierIndex} of warehouse management
+     */
+    void attach(CourierIndex target) {
+        CourierIndex current = index;
+        if (current == target) {
+            return;
+        }
+        for (Order order : current.viewOf(getId()).values()) {
+            current.release(getId(), order.getId());
+            target.assign(getId(), order);
+        }
+        index = target;
+    }
+
+    /**
+     * Assign order to courier in index
+     * It isn't public, because order must be taken by {@link WarehouseManagement#takeOrder(Courier, Id)},
+     * which checks authorization and changes state of order together with index
      * @param order {@link Order} to save
      */
-    public void takeOrder(Order order){
-        orders.put(order.getId(), order);
+    void takeOrder(Order order){
+        index.assign(getId(), order);
+    }
+
+    /**
+     * Release order of courier in index
+     * It isn't public, because order must be returned or delivered through {@link WarehouseManagement}
+     * @param id ID of order
+     */
+    void deleteOrder(Id id){
+        index.release(getId(), id);
+    }
+
+    /**
+     * Release order of courier in index
+     * @param id ID of order in UUID form
+     * @throws IllegalArgumentException if id isn't in UUID form
+     */
+    void deleteOrder(String id){
+        deleteOrder(Id.parse(id));
     }
 
     /**
-     * Delete order from {@link #orders}
-     * @param id
+     * @return Unmodifiable view of all orders taken to delivery by courier (id : {@link Id}, order : {@link Order})
      */
-    public void deleteOrder(String id){
-        orders.remove(id);
+    public Map<Id, Order> getOrders(){
+        return index.viewOf(getId());
     }
 
     /**
-     * @return Map of all orders taken to delivery by courier (id : String, order : {@link Order})
+     * @return Count of orders taken to delivery by courier
      */
-    public Map<String, Order> getOrders(){
-        return orders;
+    public int getOrderCount() {
+        return index.countOf(getId());
     }
 }
@@ -0,0 +1,97 @@
+/**
+ * Class of index of orders which are taken to delivery by couriers
+ *
+ * Index keeps orders of every courier and courier of every order, so both are found in constant time
+ * and {@link Courier#getOrders()} is only view of index, not a copy.
+ * Map of orders of courier is created by the first order of courier and is kept while index exists,
+ * so views of it stay valid
+ *
+ * Order is assigned and released under lock of stripe of order in {@link WarehouseManagement} (see {@link StripedLocks}),
+ * so changes of one order are not concurrent
+ * @version 1.0
+ */
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class CourierIndex {
+    /** Orders of couriers (courier id : {@link Id}, orders : Map of (id : {@link Id}, order : {@link Order})) */
+    private final Map<Id, Map<Id, Order>> ordersByCourier = new ConcurrentHashMap<>();
+    /** Couriers of orders (order id : {@link Id}, courier id : {@link Id}) */
+    private final Map<Id, Id> courierByOrder = new ConcurrentHashMap<>();
+
+    /**
+     * Assign order to courier, order is removed from previous courier
+     * @param courierId ID of {@link Courier}
+     * @param order {@link Order}
+     */
+    public void assign(Id courierId, Order order) {
+        Id orderId = order.getId();
+        Id previous = courierByOrder.put(orderId, courierId);
+        if (previous != null && !previous.equals(courierId)) {
+            ordersOf(previous).remove(orderId);
+        }
+        ordersOf(courierId).put(orderId, order);
+    }
+
+    /**
+     * Release order from its courier
+     * @param orderId ID of {@link Order}
+     * @return ID of courier who had order, or null if order isn't assigned
+     */
+    public Id release(Id orderId) {
+        Id courierId = courierByOrder.remove(orderId);
+        if (courierId != null) {
+            ordersOf(courierId).remove(orderId);
+        }
+        return courierId;
+    }
+
+    /**
+     * Release order only if it is assigned to courier
+     * @param courierId ID of {@link Courier}
+     * @param orderId ID of {@link Order}
+     * @return Was order released
+     */
+    public boolean release(Id courierId, Id orderId) {
+        if (!courierByOrder.remove(orderId, courierId)) {
+            return false;
+        }
+        ordersOf(courierId).remove(orderId);
+        return true;
+    }
+
+    /**
+     * @param orderId ID of {@link Order}
+     * @return ID of courier who has order, or null if order isn't assigned
+     */
+    public Id courierOf(Id orderId) {
+        return courierByOrder.get(orderId);
+    }
+
+    /**
+     * @param courierId ID of {@link Courier}
+     * @return Unmodifiable view of orders of courier (id : {@link Id}, order : {@link Order})
+     */
+    public Map<Id, Order> viewOf(Id courierId) {
+        return Collections.unmodifiableMap(ordersOf(courierId));
+    }
+
+    /**
+     * @param courierId ID of {@link Courier}
+     * @return Count of orders of courier
+     */
+    public int countOf(Id courierId) {
+        Map<Id, Order> orders = ordersByCourier.get(courierId);
+        return orders == null ? 0 : orders.size();
+    }
+
+    /**
+     * @param courierId ID of {@link Courier}
+     * @return Map of orders of courier, it is created if it doesn't exist
+     */
+    private Map<Id, Order> ordersOf(Id courierId) {
+        return ordersByCourier.computeIfAbsent(courierId, id -> new ConcurrentHashMap<>());
+    }
+}
@@ -4,32 +4,35 @@
  * @version 1.0
  */
 
-import java.util.UUID;
-
 public class Employee {
     /**
      * ID of employee
      */
-    private String id;
+    private Id id;
 
     /**
      * Name of employee
      */
     private String name;
 
+    /**
+     * Text of employee, it is built by the first {@link #toString()} (see {@link Article#toString()})
+     */
+    private String text;
+
     /**
      * Constructor of Employee
      * @param name Name of employee
      */
     public Employee(String name){
         this.name = name;
-        id = UUID.randomUUID().toString();
+        id = Id.random();
     }
 
     /**
      * @return ID of employee
      */
-    public String getId(){
+    public Id getId(){
         return id;
     }
 
@@ -37,8 +40,13 @@ public class Employee {
      * @return String value of employee
      */
     public String toString(){
-        StringBuilder sb = new StringBuilder();
-        sb.append("\nId : ").append(id).append("\nName : ").append(name);
-        return sb.toString();
+        String result = text;
+        if (result == null) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("\nId : ").append(id).append("\nName : ").append(name);
+            result = sb.toString();
+            text = result;
+        }
+        return result;
     }
 }
@@ -0,0 +1,55 @@
+/**
+ * Class of {@link InventoryStore} which keeps all {@link Product}s in concurrent hash map on heap
+ * @version 1.0
+ */
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class HeapInventoryStore implements InventoryStore {
+    /** Map of all products (id : {@link Id}, product : {@link Product}) */
+    private final Map<Id, Product> products = new ConcurrentHashMap<>();
+
+    /**
+     * @param articleId ID of {@link Article}
+     * @return {@link Product} of article or null
+     */
+    @Override
+    public Product get(Id articleId) {
+        return products.get(articleId);
+    }
+
+    /**
+     * @param product {@link Product}
+     * @return Replaced {@link Product} or null
+     */
+    @Override
+    public Product put(Product product) {
+        return products.put(product.getArticle().getId(), product);
+    }
+
+    /**
+     * @return Count of articles
+     */
+    @Override
+    public int size() {
+        return products.size();
+    }
+
+    /**
+     * @return Iterator of all products
+     */
+    @Override
+    public Iterator<Product> iterator() {
+        return products.values().iterator();
+    }
+
+    /**
+     * @return Map of all products itself
+     */
+    @Override
+    public Map<Id, Product> asMap() {
+        return products;
+    }
+}
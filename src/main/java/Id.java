@@ -0,0 +1,159 @@
+/**
+ * Class of 128-bit identifier of {@link Article}, {@link Order} and {@link Employee}
+ *
+ * ID is kept as two longs instead of 36-char string, so it takes 32 bytes instead of about 90 bytes,
+ * and hashing and comparing don't read any characters.
+ * String form is the standard UUID form, it is used only for reading and writing of ids (see {@link #parse(String)})
+ * @version 1.0
+ */
+
+import java.util.UUID;
+
+public final class Id implements Comparable<Id> {
+    /** High 64 bits */
+    private final long high;
+    /** Low 64 bits */
+    private final long low;
+
+    /**
+     * @param high High 64 bits
+     * @param low Low 64 bits
+     */
+    public Id(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * @return New random ID
+     */
+    public static Id random() {
+        UUID uuid = UUID.randomUUID();
+        return new Id(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * @param value ID in UUID form (for example "123e4567-e89b-12d3-a456-426614174000")
+     * @return ID
+     * @throws IllegalArgumentException if value isn't ID in UUID form
+     */
+    public static Id parse(String value) {
+        if (value.length() != 36 || value.charAt(8) != '-' || value.charAt(13) != '-'
+                || value.charAt(18) != '-' || value.charAt(23) != '-') {
+            throw new IllegalArgumentException("Wrong ID: " + value);
+        }
+        long high = parseHex(value, 0, 8) << 32 | parseHex(value, 9, 13) << 16 | parseHex(value, 14, 18);
+        long low = parseHex(value, 19, 23) << 48 | parseHex(value, 24, 36);
+        return new Id(high, low);
+    }
+
+    /**
+     * @return High 64 bits
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * @return Low 64 bits
+     */
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * @param o Other object
+     * @return Are both bits of ids equal
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Id)) {
+            return false;
+        }
+        Id other = (Id) o;
+        return high == other.high && low == other.low;
+    }
+
+    /**
+     * @return Hash code of all bits
+     */
+    @Override
+    public int hashCode() {
+        return hash(high, low);
+    }
+
+    /**
+     * Hash code of ID which isn't created as object (for example ID from columns of {@link ColumnarInventoryStore})
+     * @param high High 64 bits
+     * @param low Low 64 bits
+     * @return Hash code which is equal to {@link #hashCode()} of ID with these bits
+     */
+    static int hash(long high, long low) {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * @param other Other ID
+     * @return Result of unsigned comparing of high bits, then of low bits
+     */
+    @Override
+    public int compareTo(Id other) {
+        int result = Long.compare(high ^ Long.MIN_VALUE, other.high ^ Long.MIN_VALUE);
+        return result != 0 ? result : Long.compare(low ^ Long.MIN_VALUE, other.low ^ Long.MIN_VALUE);
+    }
+
+    /**
+     * @return ID in UUID form
+     */
+    @Override
+    public String toString() {
+        char[] chars = new char[36];
+        formatHex(chars, 0, high >>> 32, 8);
+        chars[8] = '-';
+        formatHex(chars, 9, high >>> 16, 4);
+        chars[13] = '-';
+        formatHex(chars, 14, high, 4);
+        chars[18] = '-';
+        formatHex(chars, 19, low >>> 48, 4);
+        chars[23] = '-';
+        formatHex(chars, 24, low, 12);
+        return new String(chars);
+    }
+
+    /**
+     * @param value String
+     * @param start First char
+     * @param end Char after the last char
+     * @return Value of hex digits
+     * @throws IllegalArgumentException if char isn't hex digit
+     */
+    private static long parseHex(String value, int start, int end) {
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(value.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Wrong ID: " + value);
+            }
+            result = result << 4 | digit;
+        }
+        return result;
+    }
+
+    /**
+     * Write low digits of value as lower-case hex
+     * @param chars Chars
+     * @param start First char
+     * @param value Value
+     * @param digits Count of digits
+     */
+    private static void formatHex(char[] chars, int start, long value, int digits) {
+        for (int i = start + digits - 1; i >= start; i--) {
+            chars[i] = Character.forDigit((int) (value & 0xF), 16);
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Storage of {@link Product}s of inventory of {@link WarehouseManagement} by ids of their {@link Article}s
+ *
+ * Store holds the live {@link Product} of every article: counts are reserved through returned products
+ * (see {@link StockReservation}), so store must return the same counter until product is replaced by {@link #put(Product)}
+ * Products are never removed from inventory
+ * @version 1.0
+ * @see HeapInventoryStore
+ * @see MappedInventoryStore
+ * @see ColumnarInventoryStore
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+public interface InventoryStore extends Iterable<Product>, Closeable {
+    /**
+     * @param articleId ID of {@link Article}
+     * @return {@link Product} of article or null if article doesn't exist in inventory
+     */
+    Product get(Id articleId);
+
+    /**
+     * Find counter of article without creating of {@link Product}
+     * By default counter of product from {@link #get(Id)} is returned
+     * @param articleId ID of {@link Article}
+     * @return {@link StockCounter} of article or null if article doesn't exist in inventory
+     */
+    default StockCounter counterOf(Id articleId) {
+        Product product = get(articleId);
+        return product == null ? null : product.counter();
+    }
+
+    /**
+     * Add product or replace product with the same article
+     * @param product {@link Product}
+     * @return Replaced {@link Product} or null
+     */
+    Product put(Product product);
+
+    /**
+     * @return Count of articles in inventory
+     */
+    int size();
+
+    /**
+     * Sum price * count of all products
+     * By default all products are iterated
+     * @return Total value of stock in minor units (see {@link Money})
+     */
+    default long totalValue() {
+        long total = 0;
+        for (Product product : this) {
+            total = Math.addExact(total, Money.times(product.getPrice(), product.getCount()));
+        }
+        return total;
+    }
+
+    /**
+     * @return Map view of store (id : {@link Id}, product : {@link Product}), changes of map are written to store
+     */
+    default Map<Id, Product> asMap() {
+        return new InventoryView(this);
+    }
+
+    /**
+     * Release resources of store
+     * By default store doesn't have any resources
+     * @throws IOException if resources can't be released
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
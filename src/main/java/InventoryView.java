@@ -0,0 +1,94 @@
+/**
+ * Map view of {@link InventoryStore} (id : {@link Id}, product : {@link Product})
+ * Products are read from store on every access, so view doesn't hold any products
+ * Products can't be removed through view
+ * @version 1.0
+ */
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+final class InventoryView extends AbstractMap<Id, Product> {
+    /** Viewed store */
+    private final InventoryStore store;
+
+    /**
+     * @param store Viewed {@link InventoryStore}
+     */
+    InventoryView(InventoryStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @param key ID of {@link Article}
+     * @return {@link Product} or null
+     */
+    @Override
+    public Product get(Object key) {
+        return key instanceof Id ? store.get((Id) key) : null;
+    }
+
+    /**
+     * @param key ID of {@link Article}
+     * @return Does article exist in store
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @param key ID of {@link Article} of product
+     * @param value {@link Product}
+     * @return Replaced {@link Product} or null
+     * @throws IllegalArgumentException if key isn't ID of article of product
+     */
+    @Override
+    public Product put(Id key, Product value) {
+        if (!key.equals(value.getArticle().getId())) {
+            throw new IllegalArgumentException("Key must be ID of article of product: " + key);
+        }
+        return store.put(value);
+    }
+
+    /**
+     * @return Count of articles in store
+     */
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * @return Set of entries which are created while iterating
+     */
+    @Override
+    public Set<Map.Entry<Id, Product>> entrySet() {
+        return new AbstractSet<Map.Entry<Id, Product>>() {
+            @Override
+            public Iterator<Map.Entry<Id, Product>> iterator() {
+                Iterator<Product> products = store.iterator();
+                return new Iterator<Map.Entry<Id, Product>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return products.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<Id, Product> next() {
+                        Product product = products.next();
+                        return new AbstractMap.SimpleImmutableEntry<>(product.getArticle().getId(), product);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return store.size();
+            }
+        };
+    }
+}
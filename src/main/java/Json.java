@@ -0,0 +1,266 @@
+/**
+ * Class of minimal JSON reader and writer for {@link WarehouseHttpServer}
+ *
+ * Objects are read to {@link Map}s with keys in order of text, arrays to {@link List}s,
+ * integer numbers to {@link Long}s, other numbers to {@link Double}s, and literals to {@link Boolean}s and null
+ * @version 1.0
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class Json {
+    /** Text which is read */
+    private final String text;
+    /** Index of next char */
+    private int position;
+
+    /**
+     * @param text Text which is read
+     */
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @param text JSON text
+     * @return Value of text
+     * @throws IllegalArgumentException if text isn't valid JSON
+     */
+    public static Object parse(String text) {
+        Json reader = new Json(text);
+        Object value = reader.readValue();
+        reader.skipWhitespace();
+        if (reader.position != text.length()) {
+            throw reader.error("End of text expected");
+        }
+        return value;
+    }
+
+    /**
+     * @param text JSON text
+     * @return Object of text
+     * @throws IllegalArgumentException if text isn't valid JSON object
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String text) {
+        Object value = parse(text);
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("JSON object expected");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * Append string as JSON string with quotes
+     * @param sb Builder of JSON text
+     * @param value String, or null
+     * @return Builder
+     */
+    public static StringBuilder quote(StringBuilder sb, String value) {
+        if (value == null) {
+            return sb.append("null");
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (ch < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        sb.append(ch);
+                    }
+            }
+        }
+        return sb.append('"');
+    }
+
+    /**
+     * @return Value at current position
+     */
+    private Object readValue() {
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw error("Value expected");
+        }
+        char ch = text.charAt(position);
+        switch (ch) {
+            case '{': return readObject();
+            case '[': return readArray();
+            case '"': return readString();
+            case 't': return readLiteral("true", Boolean.TRUE);
+            case 'f': return readLiteral("false", Boolean.FALSE);
+            case 'n': return readLiteral("null", null);
+            default:
+                if (ch == '-' || (ch >= '0' && ch <= '9')) {
+                    return readNumber();
+                }
+                throw error("Unexpected char '" + ch + "'");
+        }
+    }
+
+    /**
+     * @return Object at current position
+     */
+    private Map<String, Object> readObject() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (consume('}')) {
+            return result;
+        }
+        do {
+            skipWhitespace();
+            if (position >= text.length() || text.charAt(position) != '"') {
+                throw error("Key expected");
+            }
+            String key = readString();
+            skipWhitespace();
+            if (!consume(':')) {
+                throw error("':' expected");
+            }
+            result.put(key, readValue());
+            skipWhitespace();
+        } while (consume(','));
+        if (!consume('}')) {
+            throw error("'}' expected");
+        }
+        return result;
+    }
+
+    /**
+     * @return Array at current position
+     */
+    private List<Object> readArray() {
+        List<Object> result = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (consume(']')) {
+            return result;
+        }
+        do {
+            result.add(readValue());
+            skipWhitespace();
+        } while (consume(','));
+        if (!consume(']')) {
+            throw error("']' expected");
+        }
+        return result;
+    }
+
+    /**
+     * @return String at current position without quotes
+     */
+    private String readString() {
+        StringBuilder sb = new StringBuilder();
+        position++;
+        while (position < text.length()) {
+            char ch = text.charAt(position++);
+            if (ch == '"') {
+                return sb.toString();
+            }
+            if (ch != '\\') {
+                sb.append(ch);
+                continue;
+            }
+            if (position >= text.length()) {
+                break;
+            }
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+                case '"': case '\\': case '/': sb.append(escaped); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("Wrong escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("Wrong escape");
+                    }
+                    position += 4;
+                    break;
+                default: throw error("Wrong escape");
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    /**
+     * @return {@link Long} or {@link Double} at current position
+     */
+    private Object readNumber() {
+        int start = position;
+        boolean integer = true;
+        while (position < text.length()) {
+            char ch = text.charAt(position);
+            if (ch == '.' || ch == 'e' || ch == 'E') {
+                integer = false;
+            } else if (!(ch == '-' || ch == '+' || (ch >= '0' && ch <= '9'))) {
+                break;
+            }
+            position++;
+        }
+        String number = text.substring(start, position);
+        try {
+            return integer ? (Object) Long.parseLong(number) : (Object) Double.parseDouble(number);
+        } catch (NumberFormatException ex) {
+            throw error("Wrong number " + number);
+        }
+    }
+
+    /**
+     * @param literal Expected literal
+     * @param value Value of literal
+     * @return Value of literal
+     */
+    private Object readLiteral(String literal, Object value) {
+        if (!text.startsWith(literal, position)) {
+            throw error(literal + " expected");
+        }
+        position += literal.length();
+        return value;
+    }
+
+    /**
+     * @param ch Expected char
+     * @return Is char at current position, position is moved after it if it is
+     */
+    private boolean consume(char ch) {
+        if (position < text.length() && text.charAt(position) == ch) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Move position after whitespace
+     */
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    /**
+     * @param message Description of error
+     * @return Exception with position of error
+     */
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Wrong JSON at " + position + ": " + message);
+    }
+}
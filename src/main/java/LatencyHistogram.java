@@ -0,0 +1,152 @@
+/**
+ * Class of histogram of latencies in nanoseconds with fixed relative precision (like HdrHistogram)
+ *
+ * Values are counted in log-linear buckets: values less than 2 * {@link #HALF} have own buckets, bigger values
+ * share bucket with values which differ in less than 1 / {@link #HALF} of value (less than 0.8%).
+ * So histogram of any range of longs has fixed size, recording is one increment of array without allocation,
+ * and percentiles are found by one pass over buckets
+ *
+ * Histogram isn't thread-safe: every thread records to own histogram,
+ * and histograms are merged by {@link #add(LatencyHistogram)}
+ * @version 1.0
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+    /** Bits of sub-bucket of every power of two */
+    private static final int SUB_BITS = 8;
+    /** Count of sub-buckets of every power of two after the first ones */
+    private static final int HALF = 1 << (SUB_BITS - 1);
+
+    /** Counts of buckets */
+    private final long[] counts = new long[bucketCount()];
+    /** Count of values */
+    private long count;
+    /** Sum of values */
+    private double sum;
+    /** Max value */
+    private long max;
+
+    /**
+     * @param value Latency in nanoseconds
+     * @throws IllegalArgumentException if value is negative
+     */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value can't be negative: " + value);
+        }
+        counts[indexOf(value)]++;
+        count++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Add all values of other histogram to this histogram
+     * @param other {@link LatencyHistogram}
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Add buckets of concurrent recorder (see {@link LatencyRecorder}) to this histogram
+     * @param bucketCounts Counts of buckets in the same layout as this histogram
+     * @param bucketSum Sum of values of buckets
+     * @param bucketMax Max value of buckets
+     */
+    void addBuckets(AtomicLongArray bucketCounts, long bucketSum, long bucketMax) {
+        for (int i = 0; i < counts.length; i++) {
+            long bucketCount = bucketCounts.get(i);
+            counts[i] += bucketCount;
+            count += bucketCount;
+        }
+        sum += bucketSum;
+        max = Math.max(max, bucketMax);
+    }
+
+    /**
+     * @return Count of buckets
+     */
+    static int bucketCount() {
+        return (Long.SIZE - SUB_BITS + 2) * HALF;
+    }
+
+    /**
+     * @return Count of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Max value, or 0 if histogram is empty
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return Mean of values, or 0 if histogram is empty
+     */
+    public double getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * @param percentile Percentile from 0 to 100 (for example 99.9)
+     * @return The highest value of bucket which contains value at percentile, not more than max,
+     * or 0 if histogram is empty
+     * @throws IllegalArgumentException if percentile isn't from 0 to 100
+     */
+    public long valueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Wrong percentile: " + percentile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @param value Value which isn't negative
+     * @return Index of bucket of value
+     */
+    static int indexOf(long value) {
+        if (value < 2 * HALF) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        return (shift << (SUB_BITS - 1)) + (int) (value >>> shift);
+    }
+
+    /**
+     * @param index Index of bucket
+     * @return The highest value of bucket
+     */
+    static long highestValueOf(int index) {
+        if (index < 2 * HALF) {
+            return index;
+        }
+        int shift = index / HALF - 1;
+        long lowest = (long) (index % HALF + HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
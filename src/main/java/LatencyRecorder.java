@@ -0,0 +1,78 @@
+/**
+ * Class of thread-safe recorder of latencies in nanoseconds
+ *
+ * Values are counted in buckets of {@link LatencyHistogram}. Recorder has several stripes of buckets
+ * and every thread records to stripe of its ID, so threads which record at the same time rarely update
+ * the same counters. Stripe is allocated by the first value which is recorded to it,
+ * after that recording doesn't allocate memory.
+ * {@link #snapshot()} sums all stripes to one {@link LatencyHistogram}
+ * @version 1.0
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class LatencyRecorder {
+    /** Count of stripes, power of two not less than count of processors, but not more than 8 */
+    private static final int STRIPES =
+            Math.min(8, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1);
+
+    /** Stripes of buckets, stripe is null until the first value is recorded to it */
+    private final AtomicReferenceArray<Stripe> stripes = new AtomicReferenceArray<>(STRIPES);
+
+    /**
+     * @param value Latency in nanoseconds, negative latency (for example after change of clock) is recorded as 0
+     */
+    public void record(long value) {
+        long latency = Math.max(0, value);
+        Stripe stripe = stripe();
+        stripe.counts.incrementAndGet(LatencyHistogram.indexOf(latency));
+        stripe.sum.addAndGet(latency);
+        long max = stripe.max.get();
+        while (latency > max && !stripe.max.compareAndSet(max, latency)) {
+            max = stripe.max.get();
+        }
+    }
+
+    /**
+     * Values which are recorded at the same time by other threads may be counted only partly
+     * @return Histogram of all recorded values
+     */
+    public LatencyHistogram snapshot() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < STRIPES; i++) {
+            Stripe stripe = stripes.get(i);
+            if (stripe != null) {
+                histogram.addBuckets(stripe.counts, stripe.sum.get(), stripe.max.get());
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @return Stripe of current thread
+     */
+    private Stripe stripe() {
+        long threadId = Thread.currentThread().getId();
+        int index = (int) (threadId ^ (threadId >>> 16)) & (STRIPES - 1);
+        Stripe stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new Stripe());
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+
+    /**
+     * Buckets, sum and max of values of several threads
+     */
+    private static final class Stripe {
+        /** Counts of buckets in layout of {@link LatencyHistogram} */
+        final AtomicLongArray counts = new AtomicLongArray(LatencyHistogram.bucketCount());
+        /** Sum of values */
+        final AtomicLong sum = new AtomicLong();
+        /** Max value */
+        final AtomicLong max = new AtomicLong();
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * Class of index of stock levels of {@link Article}s which have reorder threshold
+ *
+ * Index keeps levels of tracked articles sorted by ratio of count to threshold, the most depleted article is the first,
+ * so the most depleted articles are read from the head of index without scanning of inventory.
+ * Level of article is refreshed in O(log n) after every change of its count
+ * (reception, change of information, creation and cancellation of order), articles without threshold are skipped
+ * by one lookup.
+ * Article is low when its count is less than its threshold, {@link Listener}s are called when article becomes low
+ * and when it isn't low any more
+ *
+ * Counts are changed without locks (see {@link StockReservation}), so level of article is refreshed under lock of its
+ * tracker and count is read again under this lock, the last refresh always sees the latest count.
+ * Reading of index doesn't take locks, level which is refreshed at the same time can be missed by one read
+ * @version 1.0
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class LowStockIndex {
+    /**
+     * Listener of articles which cross their thresholds
+     * It is called under lock of article, so it must be quick and must not change count of the same article
+     */
+    public interface Listener {
+        /**
+         * @param articleId ID of {@link Article}
+         * @param count Current count of article
+         * @param threshold Threshold of article
+         * @param low Is count less than threshold now (article became low) or not (article was restocked)
+         */
+        void thresholdCrossed(Id articleId, int count, int threshold, boolean low);
+    }
+
+    /** {@link InventoryStore} which counts are tracked */
+    private final InventoryStore inventoryStore;
+    /** Trackers of articles with thresholds (id : {@link Id}, tracker : {@link Tracker}) */
+    private final Map<Id, Tracker> trackers = new ConcurrentHashMap<>();
+    /** Levels of tracked articles, the most depleted is the first */
+    private final NavigableSet<Level> levels = new ConcurrentSkipListSet<>();
+    /** {@link Listener}s of crossings of thresholds */
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param inventoryStore {@link InventoryStore} which counts are tracked
+     */
+    public LowStockIndex(InventoryStore inventoryStore) {
+        this.inventoryStore = inventoryStore;
+    }
+
+    /**
+     * @param listener {@link Listener} of crossings of thresholds
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener {@link Listener} which is added by {@link #addListener(Listener)}
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Set threshold of article and refresh its level
+     * Listeners are called if article is low with new threshold and wasn't low before
+     * @param articleId ID of {@link Article}
+     * @param threshold Threshold, article stops being tracked if it is 0
+     * @throws IllegalArgumentException if threshold is negative
+     */
+    public void setThreshold(Id articleId, int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold can't be negative: " + threshold);
+        }
+        if (threshold == 0) {
+            Tracker tracker = trackers.remove(articleId);
+            if (tracker != null) {
+                synchronized (tracker) {
+                    tracker.removed = true;
+                    if (tracker.level != null) {
+                        levels.remove(tracker.level);
+                    }
+                }
+            }
+            return;
+        }
+        while (true) {
+            Tracker tracker = trackers.computeIfAbsent(articleId, id -> new Tracker());
+            synchronized (tracker) {
+                if (!tracker.removed) {
+                    tracker.threshold = threshold;
+                    refresh(articleId, tracker);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param articleId ID of {@link Article}
+     * @return Threshold of article, or 0 if article isn't tracked
+     */
+    public int thresholdOf(Id articleId) {
+        Tracker tracker = trackers.get(articleId);
+        return tracker == null ? 0 : tracker.threshold;
+    }
+
+    /**
+     * Refresh level of article after change of its count
+     * @param articleId ID of {@link Article}
+     */
+    public void refresh(Id articleId) {
+        Tracker tracker = trackers.get(articleId);
+        if (tracker == null) {
+            return;
+        }
+        synchronized (tracker) {
+            if (!tracker.removed) {
+                refresh(articleId, tracker);
+            }
+        }
+    }
+
+    /**
+     * Refresh levels of articles of lines
+     * @param lines {@link Product}s (for example lines of order)
+     */
+    public void refresh(List<Product> lines) {
+        if (trackers.isEmpty()) {
+            return;
+        }
+        for (Product line : lines) {
+            refresh(line.getArticle().getId());
+        }
+    }
+
+    /**
+     * @param limit Max count of articles
+     * @return IDs of low articles, the most depleted is the first
+     */
+    public List<Id> mostDepleted(int limit) {
+        List<Id> result = new ArrayList<>(Math.min(Math.max(limit, 0), 1024));
+        for (Level level : levels) {
+            if (result.size() >= limit || !level.isLow()) {
+                break;
+            }
+            result.add(level.articleId);
+        }
+        return result;
+    }
+
+    /**
+     * @return Count of tracked articles
+     */
+    public int size() {
+        return trackers.size();
+    }
+
+    /**
+     * Read count of article and replace its level
+     * It must be called under lock of tracker
+     * @param articleId ID of {@link Article}
+     * @param tracker {@link Tracker} of article
+     */
+    private void refresh(Id articleId, Tracker tracker) {
+        StockCounter counter = inventoryStore.counterOf(articleId);
+        int count = counter == null ? 0 : counter.get();
+        Level old = tracker.level;
+        if (old != null && old.count == count && old.threshold == tracker.threshold) {
+            return;
+        }
+        Level level = new Level(articleId, count, tracker.threshold);
+        if (old != null) {
+            levels.remove(old);
+        }
+        levels.add(level);
+        tracker.level = level;
+        boolean wasLow = old != null && old.isLow();
+        if (level.isLow() != wasLow) {
+            for (Listener listener : listeners) {
+                listener.thresholdCrossed(articleId, count, level.threshold, level.isLow());
+            }
+        }
+    }
+
+    /**
+     * Threshold and current level of one article
+     * Tracker is removed from index when threshold is removed, removed tracker isn't used any more
+     */
+    private static final class Tracker {
+        /** Threshold of article */
+        volatile int threshold;
+        /** Current level of article in {@link #levels}, or null before the first refresh */
+        Level level;
+        /** Is tracker removed from index */
+        boolean removed;
+    }
+
+    /**
+     * Count and threshold of article at one moment
+     * Levels are compared by ratio of count to threshold, then by ID of article
+     */
+    private static final class Level implements Comparable<Level> {
+        /** ID of article */
+        final Id articleId;
+        /** Count of article */
+        final int count;
+        /** Threshold of article */
+        final int threshold;
+
+        /**
+         * @param articleId ID of article
+         * @param count Count of article
+         * @param threshold Threshold of article
+         */
+        Level(Id articleId, int count, int threshold) {
+            this.articleId = articleId;
+            this.count = count;
+            this.threshold = threshold;
+        }
+
+        /**
+         * @return Is count less than threshold
+         */
+        boolean isLow() {
+            return count < threshold;
+        }
+
+        @Override
+        public int compareTo(Level other) {
+            int result = Long.compare((long) count * other.threshold, (long) other.count * threshold);
+            return result != 0 ? result : articleId.compareTo(other.articleId);
+        }
+    }
+}
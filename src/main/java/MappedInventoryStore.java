@@ -0,0 +1,520 @@
+/**
+ * Class of {@link InventoryStore} which reads inventory from memory-mapped file
+ *
+ * File is opened without reading of products, so opening doesn't depend on count of articles.
+ * {@link Product} of article is created on the first access by {@link #get(Id)} and is kept in memory after it,
+ * iterating reads products which aren't in memory without keeping them,
+ * all changes of inventory are done only with products in memory, file isn't changed.
+ * New file with all changes is written by {@link #write(Path, MappedInventoryStore, List, int[])}
+ *
+ * File layout (all numbers are big-endian):
+ * 1)Header: magic (long), count of slots (int), capacity of index (int), position of metadata (long), reserved (long)
+ * 2)Index: open-addressing hash table of ID to slot, capacity ints, 0 is empty cell, else number of slot + 1
+ * 3)Slots: fixed-width slots ({@link #SLOT_SIZE} bytes): hash of ID (int), count (int), price in minor units (long),
+ * high and low bits of {@link Id} (two longs), position of metadata (long)
+ * 4)Metadata: name and description of every article as length (int, -1 for null) and UTF-8 bytes
+ *
+ * File must not be bigger than 2 GB, because it is mapped as one buffer
+ * @version 1.0
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MappedInventoryStore implements InventoryStore {
+    /** First bytes of inventory file ("LVINVT03") */
+    private static final long MAGIC = 0x4C56494E56543033L;
+    /** Size of header */
+    private static final int HEADER_SIZE = 32;
+    /** Size of slot */
+    private static final int SLOT_SIZE = 40;
+    /** Position of count in slot */
+    private static final int COUNT = 4;
+    /** Position of price in slot */
+    private static final int PRICE = 8;
+    /** Position of high bits of ID in slot */
+    private static final int ID_HIGH = 16;
+    /** Position of low bits of ID in slot */
+    private static final int ID_LOW = 24;
+    /** Position of position of metadata in slot */
+    private static final int METADATA = 32;
+    /** Size of buffers of writer */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Channel of file */
+    private final FileChannel channel;
+    /** Mapped file */
+    private final MappedByteBuffer buffer;
+    /** Count of slots in file */
+    private final int slotCount;
+    /** Mask of index (capacity - 1) */
+    private final int indexMask;
+    /** Position of first slot */
+    private final int slotsPosition;
+    /** Products which are already read from file or added after opening (id : {@link Id}, product : {@link Product}) */
+    private final Map<Id, Product> loaded = new ConcurrentHashMap<>();
+    /** Count of added articles which don't exist in file */
+    private final AtomicInteger addedCount = new AtomicInteger();
+
+    /**
+     * Open inventory file
+     * @param file Inventory file
+     * @throws IOException if file can't be opened or isn't inventory file
+     */
+    public MappedInventoryStore(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE || size < HEADER_SIZE) {
+                throw new IOException("Wrong size of inventory file: " + size);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getLong(0) != MAGIC) {
+                throw new IOException("File isn't inventory file: " + file);
+            }
+            slotCount = buffer.getInt(8);
+            int capacity = buffer.getInt(12);
+            long metadataPosition = buffer.getLong(16);
+            if (slotCount < 0 || capacity <= 0 || Integer.bitCount(capacity) != 1
+                    || metadataPosition != HEADER_SIZE + 4L * capacity + (long) SLOT_SIZE * slotCount
+                    || metadataPosition > size) {
+                throw new IOException("Damaged header of inventory file: " + file);
+            }
+            indexMask = capacity - 1;
+            slotsPosition = HEADER_SIZE + 4 * capacity;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Find product in memory or read it from file
+     * @param articleId ID of {@link Article}
+     * @return {@link Product} of article or null
+     */
+    @Override
+    public Product get(Id articleId) {
+        Product product = loaded.get(articleId);
+        if (product != null) {
+            return product;
+        }
+        int slot = slotOf(articleId);
+        if (slot < 0) {
+            return null;
+        }
+        product = readSlot(slot);
+        Product other = loaded.putIfAbsent(articleId, product);
+        return other != null ? other : product;
+    }
+
+    /**
+     * Add or replace product in memory
+     * @param product {@link Product}
+     * @return Replaced {@link Product} or null if article wasn't read from file
+     */
+    @Override
+    public Product put(Product product) {
+        Id id = product.getArticle().getId();
+        Product old = loaded.put(id, product);
+        if (old == null && slotOf(id) < 0) {
+            addedCount.incrementAndGet();
+        }
+        return old;
+    }
+
+    /**
+     * @return Count of articles in file and added articles
+     */
+    @Override
+    public int size() {
+        return slotCount + addedCount.get();
+    }
+
+    /**
+     * Iterate articles of file in order of slots, then added articles
+     * Products which are already in memory are returned from memory, other products are read from file
+     * without keeping them in memory, so iterating of all inventory doesn't load it.
+     * Changes of products which aren't in memory are lost, change products got by {@link #get(Id)}
+     * @return Iterator of all products
+     */
+    @Override
+    public Iterator<Product> iterator() {
+        List<Product> added = new ArrayList<>();
+        return new Iterator<Product>() {
+            /** Next slot */
+            private int slot;
+            /** Iterator of added products, it is created after all slots */
+            private Iterator<Product> addedProducts;
+
+            @Override
+            public boolean hasNext() {
+                if (slot < slotCount) {
+                    return true;
+                }
+                if (addedProducts == null) {
+                    for (Map.Entry<Id, Product> entry : loaded.entrySet()) {
+                        if (slotOf(entry.getKey()) < 0) {
+                            added.add(entry.getValue());
+                        }
+                    }
+                    addedProducts = added.iterator();
+                }
+                return addedProducts.hasNext();
+            }
+
+            @Override
+            public Product next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (slot >= slotCount) {
+                    return addedProducts.next();
+                }
+                int current = slot++;
+                Product product = loaded.get(idOf(slotPosition(current)));
+                return product != null ? product : readSlot(current);
+            }
+        };
+    }
+
+    /**
+     * Sum price * count of slots of file without reading of products, then replace values of slots
+     * by values of products in memory
+     * @return Total value of stock in minor units (see {@link Money})
+     */
+    @Override
+    public long totalValue() {
+        long total = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            total = Math.addExact(total, valueOfSlot(slotPosition(slot)));
+        }
+        for (Map.Entry<Id, Product> entry : loaded.entrySet()) {
+            int slot = slotOf(entry.getKey());
+            if (slot >= 0) {
+                total -= valueOfSlot(slotPosition(slot));
+            }
+            total = Math.addExact(total, Money.times(entry.getValue().getPrice(), entry.getValue().getCount()));
+        }
+        return total;
+    }
+
+    /**
+     * @return Count of products in memory
+     */
+    public int getLoadedCount() {
+        return loaded.size();
+    }
+
+    /**
+     * @return Products which are read from file or added, they contain all changes of inventory after opening
+     */
+    Iterable<Product> loadedProducts() {
+        return loaded.values();
+    }
+
+    /**
+     * Close file
+     * @throws IOException if file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Write inventory file
+     *
+     * File contains all articles of base file (if it isn't null) which aren't in products, and all products
+     * Slots of base file are copied without creating of {@link Product}s
+     *
+     * @param file Inventory file, it is replaced if it exists
+     * @param base Store which articles are copied, or null
+     * @param products {@link Product}s which are written
+     * @param counts Counts of products which are written instead of their current counts
+     * @throws IOException if file can't be written or is bigger than 2 GB
+     */
+    public static void write(Path file, MappedInventoryStore base, List<Product> products, int[] counts)
+            throws IOException {
+        BitSet replaced = new BitSet(base == null ? 0 : base.slotCount);
+        if (base != null) {
+            for (Product product : products) {
+                int slot = base.slotOf(product.getArticle().getId());
+                if (slot >= 0) {
+                    replaced.set(slot);
+                }
+            }
+        }
+        long count = (base == null ? 0 : base.slotCount - replaced.cardinality()) + (long) products.size();
+        int capacity = Integer.highestOneBit((int) Math.min(Math.max(count * 2, 16), 1 << 30));
+        if (capacity < count * 2) {
+            capacity <<= 1;
+        }
+        long metadataPosition = HEADER_SIZE + 4L * capacity + SLOT_SIZE * count;
+        if (metadataPosition > Integer.MAX_VALUE) {
+            throw new IOException("Inventory is too big for one file: " + count + " articles");
+        }
+        int[] index = new int[capacity];
+
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer slots = ByteBuffer.allocate(BUFFER_SIZE);
+            long slotsPosition = HEADER_SIZE + 4L * capacity;
+            DataOutputStream metadata = new DataOutputStream(new BufferedOutputStream(new PositionalStream(out,
+                    metadataPosition), BUFFER_SIZE));
+            int slot = 0;
+            for (int i = 0; base != null && i < base.slotCount; i++) {
+                if (replaced.get(i)) {
+                    continue;
+                }
+                int position = base.slotPosition(i);
+                int hash = base.buffer.getInt(position);
+                long metadataOfSlot = metadataPosition + metadata.size();
+                base.copyMetadata(base.buffer.getLong(position + METADATA), metadata);
+                slotsPosition = putSlot(out, slots, slotsPosition, hash, base.buffer.getInt(position + COUNT),
+                        base.buffer.getLong(position + PRICE), base.idOf(position), metadataOfSlot);
+                addToIndex(index, hash, slot++);
+            }
+            for (int i = 0; i < products.size(); i++) {
+                Product product = products.get(i);
+                Article article = product.getArticle();
+                int hash = article.getId().hashCode();
+                long metadataOfSlot = metadataPosition + metadata.size();
+                writeString(metadata, article.getName());
+                writeString(metadata, article.getDescription());
+                slotsPosition = putSlot(out, slots, slotsPosition, hash, counts[i],
+                        product.getPrice(), article.getId(), metadataOfSlot);
+                addToIndex(index, hash, slot++);
+            }
+            flush(out, slots, slotsPosition);
+            metadata.flush();
+            if (metadataPosition + metadata.size() > Integer.MAX_VALUE) {
+                throw new IOException("Inventory is too big for one file: " + count + " articles");
+            }
+
+            ByteBuffer head = ByteBuffer.allocate(BUFFER_SIZE);
+            head.putLong(MAGIC).putInt((int) count).putInt(capacity).putLong(metadataPosition).putLong(0);
+            long position = 0;
+            for (int cell : index) {
+                if (!head.hasRemaining()) {
+                    position = flush(out, head, position);
+                }
+                head.putInt(cell);
+            }
+            flush(out, head, position);
+            out.force(true);
+        }
+    }
+
+    /**
+     * @param id ID of {@link Article}
+     * @return Number of slot of article or -1 if file doesn't contain article
+     */
+    private int slotOf(Id id) {
+        int hash = id.hashCode();
+        for (int i = hash & indexMask; ; i = (i + 1) & indexMask) {
+            int cell = buffer.getInt(HEADER_SIZE + 4 * i);
+            if (cell == 0) {
+                return -1;
+            }
+            int position = slotPosition(cell - 1);
+            if (buffer.getInt(position) == hash && buffer.getLong(position + ID_LOW) == id.getLow()
+                    && buffer.getLong(position + ID_HIGH) == id.getHigh()) {
+                return cell - 1;
+            }
+        }
+    }
+
+    /**
+     * @param slot Number of slot
+     * @return New {@link Product} from slot
+     */
+    private Product readSlot(int slot) {
+        int position = slotPosition(slot);
+        long metadata = buffer.getLong(position + METADATA);
+        String name = readString(metadata);
+        metadata += 4 + Math.max(buffer.getInt((int) metadata), 0);
+        String description = readString(metadata);
+        return new Product(buffer.getInt(position + COUNT), buffer.getLong(position + PRICE),
+                new Article(idOf(position), name, description));
+    }
+
+    /**
+     * @param position Position of slot
+     * @return Price * count of slot in minor units
+     */
+    private long valueOfSlot(int position) {
+        return Money.times(buffer.getLong(position + PRICE), buffer.getInt(position + COUNT));
+    }
+
+    /**
+     * @param position Position of slot
+     * @return {@link Id} of slot
+     */
+    private Id idOf(int position) {
+        return new Id(buffer.getLong(position + ID_HIGH), buffer.getLong(position + ID_LOW));
+    }
+
+    /**
+     * @param slot Number of slot
+     * @return Position of slot in file
+     */
+    private int slotPosition(int slot) {
+        return slotsPosition + SLOT_SIZE * slot;
+    }
+
+    /**
+     * @param position Position of string in file
+     * @return String or null
+     */
+    private String readString(long position) {
+        int length = buffer.getInt((int) position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position((int) position + 4);
+        duplicate.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copy metadata of slot (two strings) without decoding
+     * @param position Position of metadata in file
+     * @param out Stream
+     * @throws IOException if metadata can't be written
+     */
+    private void copyMetadata(long position, DataOutputStream out) throws IOException {
+        int start = (int) position;
+        int end = start;
+        for (int i = 0; i < 2; i++) {
+            end += 4 + Math.max(buffer.getInt(end), 0);
+        }
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(start);
+        duplicate.limit(end);
+        byte[] bytes = new byte[end - start];
+        duplicate.get(bytes);
+        out.write(bytes);
+    }
+
+    /**
+     * Put slot to index
+     * @param index Index
+     * @param hash Hash of ID
+     * @param slot Number of slot
+     */
+    private static void addToIndex(int[] index, int hash, int slot) {
+        int mask = index.length - 1;
+        int i = hash & mask;
+        while (index[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        index[i] = slot + 1;
+    }
+
+    /**
+     * Put slot to buffer, buffer is written to file when it is full
+     * @param out Channel
+     * @param slots Buffer of slots
+     * @param position Position of buffer in file
+     * @param hash Hash of ID
+     * @param count Count
+     * @param price Price in minor units
+     * @param id {@link Id} of article
+     * @param metadata Position of metadata
+     * @return New position of buffer
+     * @throws IOException if buffer can't be written
+     */
+    private static long putSlot(FileChannel out, ByteBuffer slots, long position, int hash, int count,
+                                long price, Id id, long metadata) throws IOException {
+        if (slots.remaining() < SLOT_SIZE) {
+            position = flush(out, slots, position);
+        }
+        slots.putInt(hash).putInt(count).putLong(price).putLong(id.getHigh()).putLong(id.getLow())
+                .putLong(metadata);
+        return position;
+    }
+
+    /**
+     * Write buffer to file and clear it
+     * @param out Channel
+     * @param bytes Buffer
+     * @param position Position of buffer in file
+     * @return Position after written bytes
+     * @throws IOException if buffer can't be written
+     */
+    private static long flush(FileChannel out, ByteBuffer bytes, long position) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            position += out.write(bytes, position);
+        }
+        bytes.clear();
+        return position;
+    }
+
+    /**
+     * Write string as length and UTF-8 bytes
+     * @param out Stream
+     * @param value String or null
+     * @throws IOException if string can't be written
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Output stream which writes to channel from fixed position without changing of position of channel
+     */
+    private static final class PositionalStream extends OutputStream {
+        /** Channel */
+        private final FileChannel channel;
+        /** Position of next byte */
+        private long position;
+
+        /**
+         * @param channel Channel
+         * @param position Position of first byte
+         */
+        PositionalStream(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes, offset, length);
+            while (wrapped.hasRemaining()) {
+                position += channel.write(wrapped, position);
+            }
+        }
+    }
+}
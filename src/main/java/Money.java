@@ -0,0 +1,98 @@
+/**
+ * Fixed-point money of {@link Product}s and {@link Order}s
+ *
+ * Amount of money is kept in primitive long as count of minor units (for example cents), {@link #SCALE} digits
+ * of amount are after decimal point. Sums of amounts are exact and don't allocate objects, overflow throws
+ * {@link ArithmeticException} instead of losing money.
+ * String form has all {@link #SCALE} digits after point (for example "12.50"), it is used only for reading and writing
+ * @version 1.0
+ */
+
+public final class Money {
+    /** Count of digits after decimal point */
+    public static final int SCALE = 2;
+    /** Count of minor units in one major unit */
+    public static final long MINOR_PER_MAJOR = 100;
+
+    /**
+     * Class has only static methods
+     */
+    private Money() {
+    }
+
+    /**
+     * @param major Count of major units
+     * @return Amount in minor units
+     * @throws ArithmeticException if amount doesn't fit in long
+     */
+    public static long ofMajor(long major) {
+        return Math.multiplyExact(major, MINOR_PER_MAJOR);
+    }
+
+    /**
+     * @param price Price of one item in minor units
+     * @param count Count of items
+     * @return Price of all items in minor units
+     * @throws ArithmeticException if amount doesn't fit in long
+     */
+    public static long times(long price, int count) {
+        return Math.multiplyExact(price, count);
+    }
+
+    /**
+     * @param value Amount with at most {@link #SCALE} digits after point (for example "12.5" or "-3")
+     * @return Amount in minor units
+     * @throws IllegalArgumentException if value isn't amount
+     */
+    public static long parse(String value) {
+        int point = value.indexOf('.');
+        String major = point < 0 ? value : value.substring(0, point);
+        String minor = point < 0 ? "" : value.substring(point + 1);
+        if (major.isEmpty() || major.equals("-") || minor.length() > SCALE || (point >= 0 && minor.isEmpty())) {
+            throw new IllegalArgumentException("Wrong amount: " + value);
+        }
+        try {
+            boolean negative = major.charAt(0) == '-';
+            long result = ofMajor(Math.abs(Long.parseLong(major)));
+            long fraction = 0;
+            for (int i = 0; i < SCALE; i++) {
+                char ch = i < minor.length() ? minor.charAt(i) : '0';
+                if (ch < '0' || ch > '9') {
+                    throw new IllegalArgumentException("Wrong amount: " + value);
+                }
+                fraction = fraction * 10 + (ch - '0');
+            }
+            result = Math.addExact(result, fraction);
+            return negative ? -result : result;
+        } catch (NumberFormatException | ArithmeticException ex) {
+            throw new IllegalArgumentException("Wrong amount: " + value, ex);
+        }
+    }
+
+    /**
+     * @param amount Amount in minor units
+     * @return Amount with {@link #SCALE} digits after point
+     */
+    public static String format(long amount) {
+        return appendTo(new StringBuilder(24), amount).toString();
+    }
+
+    /**
+     * Append amount to text without creating of string
+     * @param sb Text
+     * @param amount Amount in minor units
+     * @return The same text
+     */
+    public static StringBuilder appendTo(StringBuilder sb, long amount) {
+        long major = amount / MINOR_PER_MAJOR;
+        long minor = Math.abs(amount % MINOR_PER_MAJOR);
+        if (amount < 0 && major == 0) {
+            sb.append('-');
+        }
+        sb.append(major).append('.');
+        for (long unit = MINOR_PER_MAJOR / 10; unit > 0; unit /= 10) {
+            sb.append((char) ('0' + minor / unit % 10));
+        }
+        return sb;
+    }
+}
@@ -5,7 +5,6 @@
  */
 
 import java.util.List;
-import java.util.UUID;
 
 public class Order {
     /**
@@ -15,15 +14,20 @@ public class Order {
     /**
      * ID of order
      */
-    private String id;
+    private Id id;
     /**
-     * Total price of order
+     * Total price of order in minor units (see {@link Money})
      */
-    private double totalPrice = 0;
+    private long totalPrice = 0;
     /**
      * {@link Client} who order
      */
     private Client client;
+    /**
+     * Text of order with texts of lines which it is built with
+     * Header of order (ID, total price, client) isn't changed, so text is built again only when text of line is changed
+     */
+    private volatile Text text;
 
     /**
      * Constructor of order
@@ -31,20 +35,29 @@ public class Order {
      * @param client {@link Client} who order
      */
     public Order(List<Product> products, Client client){
+        this(Id.random(), products, client);
+    }
 
-        id = UUID.randomUUID().toString();
-
+    /**
+     * Constructor of existing order (for example order which is restored from snapshot)
+     * @param id ID of order
+     * @param products List of {@link Product}s which are in order
+     * @param client {@link Client} who order
+     * @throws ArithmeticException if total price doesn't fit in long
+     */
+    public Order(Id id, List<Product> products, Client client){
+        this.id = id;
         this.products = products;
         this.client = client;
         for (Product p : products){
-            totalPrice += p.getPrice() * p.getCount();
+            totalPrice = Math.addExact(totalPrice, Money.times(p.getPrice(), p.getCount()));
         }
     }
 
     /**
      * @return ID of order
      */
-    public String getId(){
+    public Id getId(){
         return id;
     }
 
@@ -63,22 +76,67 @@ public class Order {
     }
 
     /**
-     * @return Total price of order
+     * @return Total price of order in minor units (see {@link Money})
      */
-    public double getTotalPrice() {
+    public long getTotalPrice() {
         return totalPrice;
     }
 
     /**
+     * If text of every line is the same as in the last call then the same string is returned
+     * Lines are compared by reference, because {@link Product#toString()} returns the same string while count isn't changed
      * @return String value of order
      */
     public String toString(){
+        Text cached = text;
+        if (cached != null && cached.isTextOf(products)) {
+            return cached.value;
+        }
+        String[] lines = new String[products.size()];
         StringBuilder sb = new StringBuilder();
-        sb.append("\nId : ").append(id).append("\nTotal price : ").append(totalPrice)
-                .append("\n\nCLIENT : ").append(client.toString()).append("\n\nPRODUCTS : ");
-        for (Product product : products){
-            sb.append(product.toString()).append("\n++++++++++");
+        sb.append("\nId : ").append(id).append("\nTotal price : ");
+        Money.appendTo(sb, totalPrice).append("\n\nCLIENT : ").append(client.toString()).append("\n\nPRODUCTS : ");
+        for (int i = 0; i < lines.length; i++){
+            lines[i] = products.get(i).toString();
+            sb.append(lines[i]).append("\n++++++++++");
+        }
+        String result = sb.toString();
+        text = new Text(lines, result);
+        return result;
+    }
+
+    /**
+     * Text of order and texts of lines which text is built with
+     */
+    private static final class Text {
+        /** Texts of lines */
+        final String[] lines;
+        /** Text of order */
+        final String value;
+
+        /**
+         * @param lines Texts of lines
+         * @param value Text of order
+         */
+        Text(String[] lines, String value) {
+            this.lines = lines;
+            this.value = value;
+        }
+
+        /**
+         * @param products Lines of order
+         * @return Is text built with current texts of all lines
+         */
+        boolean isTextOf(List<Product> products) {
+            if (products.size() != lines.length) {
+                return false;
+            }
+            for (int i = 0; i < lines.length; i++) {
+                if (products.get(i).toString() != lines[i]) {
+                    return false;
+                }
+            }
+            return true;
         }
-        return sb.toString();
     }
 }
@@ -0,0 +1,113 @@
+/**
+ * Class of secondary indexes of open orders of {@link WarehouseManagement}
+ *
+ * Index keeps IDs of orders by ID of every {@link Article} of order and by {@link Client} of order,
+ * so orders of article or client are found without scanning of all orders.
+ * Order is added when it is created and removed when it is canceled or delivered,
+ * taking and returning of order don't change index, because order stays open
+ *
+ * Index is updated under lock of stripe of order (see {@link StripedLocks}), so changes of one order are not concurrent.
+ * Sets of IDs are changed atomically with their keys, so orders with the same article or client can be changed in parallel
+ * @version 1.0
+ */
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class OrderIndex {
+    /** IDs of orders by ID of article (article id : {@link Id}, order ids : Set of {@link Id}) */
+    private final Map<Id, Set<Id>> byArticle = new ConcurrentHashMap<>();
+    /** IDs of orders by client (client : {@link Client}, order ids : Set of {@link Id}) */
+    private final Map<Client, Set<Id>> byClient = new ConcurrentHashMap<>();
+
+    /**
+     * Add order to index
+     * @param order {@link Order}
+     */
+    public void add(Order order) {
+        Id id = order.getId();
+        for (Product line : order.getProducts()) {
+            add(byArticle, line.getArticle().getId(), id);
+        }
+        if (order.getClient() != null) {
+            add(byClient, order.getClient(), id);
+        }
+    }
+
+    /**
+     * Remove order from index
+     * @param order {@link Order}
+     */
+    public void remove(Order order) {
+        Id id = order.getId();
+        for (Product line : order.getProducts()) {
+            remove(byArticle, line.getArticle().getId(), id);
+        }
+        if (order.getClient() != null) {
+            remove(byClient, order.getClient(), id);
+        }
+    }
+
+    /**
+     * Remove all orders from index
+     */
+    public void clear() {
+        byArticle.clear();
+        byClient.clear();
+    }
+
+    /**
+     * @param articleId ID of {@link Article}
+     * @return Unmodifiable set of IDs of orders which contain article
+     */
+    public Set<Id> ordersOfArticle(Id articleId) {
+        return view(byArticle.get(articleId));
+    }
+
+    /**
+     * @param client {@link Client}
+     * @return Unmodifiable set of IDs of orders of client
+     */
+    public Set<Id> ordersOfClient(Client client) {
+        return view(byClient.get(client));
+    }
+
+    /**
+     * Add ID of order to set of key, set is created if it doesn't exist
+     * @param index Index
+     * @param key Key of set
+     * @param orderId ID of {@link Order}
+     * @param <K> Type of key
+     */
+    private static <K> void add(Map<K, Set<Id>> index, K key, Id orderId) {
+        index.compute(key, (k, ids) -> {
+            Set<Id> result = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+            result.add(orderId);
+            return result;
+        });
+    }
+
+    /**
+     * Remove ID of order from set of key, empty set is removed
+     * @param index Index
+     * @param key Key of set
+     * @param orderId ID of {@link Order}
+     * @param <K> Type of key
+     */
+    private static <K> void remove(Map<K, Set<Id>> index, K key, Id orderId) {
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(orderId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * @param ids Set of IDs or null
+     * @return Unmodifiable view of set or empty set
+     */
+    private static Set<Id> view(Set<Id> ids) {
+        return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+}
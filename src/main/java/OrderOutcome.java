@@ -0,0 +1,17 @@
+/**
+ * Outcome of creating of one order in batch
+ * @version 1.0
+ * @see WarehouseManagement#createOrders(Employee, java.util.List)
+ */
+public enum OrderOutcome {
+    /** Order is created */
+    CREATED,
+    /** Inventory doesn't have enough amount of one of products */
+    INSUFFICIENT_STOCK,
+    /** Order with the same ID already exists or is earlier in batch */
+    DUPLICATE_ID,
+    /** One of articles doesn't exist in inventory */
+    UNKNOWN_ARTICLE,
+    /** Employee doesn't have authorization */
+    UNAUTHORIZED
+}
@@ -0,0 +1,18 @@
+/**
+ * State of order in its lifecycle
+ *
+ * Order is created {@link #PENDING}, it is taken to {@link #DELIVERING} and returned to {@link #PENDING},
+ * then it ends {@link #DELIVERED} or {@link #CANCELLED}. Ended orders are kept as history
+ * @version 1.0
+ * @see OrderStore
+ */
+public enum OrderState {
+    /** Order is waiting to delivery */
+    PENDING,
+    /** Order is taken to delivery by courier */
+    DELIVERING,
+    /** Order is delivered */
+    DELIVERED,
+    /** Order is canceled */
+    CANCELLED
+}
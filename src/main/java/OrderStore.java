@@ -0,0 +1,284 @@
+/**
+ * Class of store of all orders of {@link WarehouseManagement} with their {@link OrderState}s
+ *
+ * Every order is kept in one map for the whole lifecycle, and its state is changed by compare-and-set,
+ * so order is never missing or doubled while it is taken or returned,
+ * and delivered and canceled orders stay as history. Orders can't be removed from store.
+ * Store also keeps set of IDs of every state, it is changed together with state in the same atomic update of map,
+ * so orders of one state are read through {@link #view(OrderState)} without visiting orders of other states:
+ * lookups take constant time, iteration and size take time of count of orders in this state, not of history
+ *
+ * State of order is always exact. Iteration and sizes of views are weakly consistent like {@link ConcurrentHashMap}:
+ * order which changes state while view is iterated can be missed by this iteration
+ * @version 1.0
+ */
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class OrderStore {
+    /** All orders (id : {@link Id}, entry : {@link Entry}) */
+    private final ConcurrentHashMap<Id, Entry> entries = new ConcurrentHashMap<>();
+    /** IDs of orders by state (state : {@link OrderState}, ids : Set of {@link Id}) */
+    private final Map<OrderState, Set<Id>> ids = new EnumMap<>(OrderState.class);
+    /** Unmodifiable views of states */
+    private final Map<OrderState, Map<Id, Order>> views = new EnumMap<>(OrderState.class);
+
+    /**
+     * Create empty store
+     */
+    public OrderStore() {
+        for (OrderState state : OrderState.values()) {
+            ids.put(state, ConcurrentHashMap.newKeySet());
+            views.put(state, new StateView(state));
+        }
+    }
+
+    /**
+     * Add new order in state {@link OrderState#PENDING}
+     * @param order {@link Order}
+     * @return Is order added, false if order with the same ID exists in any state
+     */
+    public boolean add(Order order) {
+        return put(order, OrderState.PENDING);
+    }
+
+    /**
+     * Add order in given state, it is used when orders are restored
+     * @param order {@link Order}
+     * @param state {@link OrderState} of order
+     * @return Is order added, false if order with the same ID exists in any state
+     */
+    public boolean put(Order order, OrderState state) {
+        Entry added = new Entry(order, state);
+        return entries.computeIfAbsent(order.getId(), id -> {
+            ids.get(state).add(id);
+            return added;
+        }) == added;
+    }
+
+    /**
+     * Change state of order if it is in expected state
+     * @param id ID of {@link Order}
+     * @param expected Expected {@link OrderState}
+     * @param next New {@link OrderState}
+     * @return Order which state is changed, or null if order doesn't exist or isn't in expected state
+     */
+    public Order transition(Id id, OrderState expected, OrderState next) {
+        Entry entry = entries.get(id);
+        if (entry == null || entry.state.get() != expected) {
+            return null;
+        }
+        Order[] changed = new Order[1];
+        entries.computeIfPresent(id, (key, current) -> {
+            if (current.state.compareAndSet(expected, next)) {
+                ids.get(next).add(key);
+                ids.get(expected).remove(key);
+                changed[0] = current.order;
+            }
+            return current;
+        });
+        return changed[0];
+    }
+
+    /**
+     * @param id ID of {@link Order}
+     * @return Order in any state, or null if it doesn't exist
+     */
+    public Order get(Id id) {
+        Entry entry = entries.get(id);
+        return entry == null ? null : entry.order;
+    }
+
+    /**
+     * @param id ID of {@link Order}
+     * @param state {@link OrderState}
+     * @return Order if it is in state, else null
+     */
+    public Order get(Id id, OrderState state) {
+        Entry entry = entries.get(id);
+        return entry == null || entry.state.get() != state ? null : entry.order;
+    }
+
+    /**
+     * @param id ID of {@link Order}
+     * @return {@link OrderState} of order, or null if it doesn't exist
+     */
+    public OrderState stateOf(Id id) {
+        Entry entry = entries.get(id);
+        return entry == null ? null : entry.state.get();
+    }
+
+    /**
+     * @param id ID of {@link Order}
+     * @return Does order exist in any state
+     */
+    public boolean contains(Id id) {
+        return entries.containsKey(id);
+    }
+
+    /**
+     * @param state {@link OrderState}
+     * @return Count of orders in state
+     */
+    public int count(OrderState state) {
+        return ids.get(state).size();
+    }
+
+    /**
+     * @param state {@link OrderState}
+     * @return Unmodifiable map view of orders in state (id : {@link Id}, order : {@link Order})
+     */
+    public Map<Id, Order> view(OrderState state) {
+        return views.get(state);
+    }
+
+    /**
+     * Order with its state
+     */
+    private static final class Entry {
+        /** Order */
+        final Order order;
+        /** State of order */
+        final AtomicReference<OrderState> state;
+
+        /**
+         * @param order {@link Order}
+         * @param state {@link OrderState} of order
+         */
+        Entry(Order order, OrderState state) {
+            this.order = order;
+            this.state = new AtomicReference<>(state);
+        }
+    }
+
+    /**
+     * Unmodifiable map view of orders in one state
+     */
+    private final class StateView extends AbstractMap<Id, Order> {
+        /** State of orders of view */
+        private final OrderState state;
+        /** Entries of view, they are iterated lazily */
+        private final Set<Map.Entry<Id, Order>> entrySet = new AbstractSet<Map.Entry<Id, Order>>() {
+            @Override
+            public Iterator<Map.Entry<Id, Order>> iterator() {
+                return new StateIterator(state);
+            }
+
+            @Override
+            public int size() {
+                return count(state);
+            }
+        };
+
+        /**
+         * @param state State of orders of view
+         */
+        StateView(OrderState state) {
+            this.state = state;
+        }
+
+        @Override
+        public Order get(Object key) {
+            return key instanceof Id ? OrderStore.this.get((Id) key, state) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            return value instanceof Order && value.equals(get(((Order) value).getId()));
+        }
+
+        @Override
+        public Set<Id> keySet() {
+            return Collections.unmodifiableSet(super.keySet());
+        }
+
+        @Override
+        public Order remove(Object key) {
+            throw new UnsupportedOperationException("Orders can't be removed from store");
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException("Orders can't be removed from store");
+        }
+
+        @Override
+        public int size() {
+            return count(state);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        @Override
+        public Set<Map.Entry<Id, Order>> entrySet() {
+            return Collections.unmodifiableSet(entrySet);
+        }
+    }
+
+    /**
+     * Iterator of orders in one state, it goes through IDs of state and skips orders which have left it
+     */
+    private final class StateIterator implements Iterator<Map.Entry<Id, Order>> {
+        /** State of orders */
+        private final OrderState state;
+        /** Iterator of IDs of state */
+        private final Iterator<Id> stateIds;
+        /** Next order in state, or null */
+        private Order next;
+
+        /**
+         * @param state State of orders
+         */
+        StateIterator(OrderState state) {
+            this.state = state;
+            stateIds = ids.get(state).iterator();
+            advance();
+        }
+
+        /**
+         * Find next order in state
+         */
+        private void advance() {
+            next = null;
+            while (stateIds.hasNext()) {
+                Order order = get(stateIds.next(), state);
+                if (order != null) {
+                    next = order;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<Id, Order> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Order order = next;
+            advance();
+            return new AbstractMap.SimpleImmutableEntry<>(order.getId(), order);
+        }
+    }
+}
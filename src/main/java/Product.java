@@ -1,31 +1,51 @@
 /**
  * Class of product
+ * Count of product is atomic {@link StockCounter}, so stock can be reserved without locks (see {@link StockReservation})
  * @author Bakyt Eshaliev
  * @version 1.0
  */
+
 public class Product {
     /**
      * Count of product
+     * Counter is shared with the product which this product replaces in inventory (see {@link #shareCountOf(Product)})
      */
-    private int count;
+    private volatile StockCounter count;
     /**
-     * Price of product
+     * Price of product in minor units (see {@link Money})
      */
-    private double price;
+    private long price;
     /**
      * {@link Article} of product
      */
     private Article article;
+    /**
+     * Text of product with count which text is built with
+     * Text is built again only when count is changed
+     */
+    private volatile Text text;
 
     /**
      * Constructor of class
      * @param count Count of product
-     * @param price Price of product
+     * @param price Price of product in minor units (see {@link Money})
+     * @param article {@link Article} of product
+     */
+    public Product(int count, long price, Article article){
+        this.article = article;
+        this.count = new AtomicStockCounter(count);
+        this.price = price;
+    }
+
+    /**
+     * Constructor of product which count is kept in counter of inventory (see {@link ColumnarInventoryStore})
+     * @param counter {@link StockCounter} of product
+     * @param price Price of product in minor units (see {@link Money})
      * @param article {@link Article} of product
      */
-    public Product(int count, double price, Article article){
+    Product(StockCounter counter, long price, Article article) {
         this.article = article;
-        this.count = count;
+        this.count = counter;
         this.price = price;
     }
 
@@ -33,7 +53,7 @@ public class Product {
      * @return Count of product
      */
     public int getCount() {
-        return count;
+        return count.get();
     }
 
     /**
@@ -41,13 +61,56 @@ public class Product {
      * @param count New count
      */
     public void setCount(int count) {
-        this.count = count;
+        this.count.set(count);
+    }
+
+    /**
+     * Take amount of product if there is enough of it
+     * Count is changed by compare-and-set, so the method is safe without locks
+     * @param amount Amount which is needed to take
+     * @return Result of action. If count of product is less than amount return false and don't change count
+     */
+    boolean tryTake(int amount) {
+        return count.tryTake(amount);
+    }
+
+    /**
+     * Add amount to count of product (for example amount which was taken by {@link #tryTake(int)})
+     * @param amount Amount which is needed to add
+     */
+    void addCount(int amount) {
+        count.addAndGet(amount);
     }
 
     /**
-     * @return Price of Product
+     * Use counter of old product instead of own counter
+     * Reservations which are done through old product after this method are still counted,
+     * so old product can be replaced in inventory without locking of reservations
+     * @param old {@link Product} which is replaced by this product
      */
-    public double getPrice() {
+    void shareCountOf(Product old) {
+        count = old.count;
+    }
+
+    /**
+     * @return {@link StockCounter} of product
+     */
+    StockCounter counter() {
+        return count;
+    }
+
+    /**
+     * Use counter of inventory instead of own counter (see {@link ColumnarInventoryStore})
+     * @param counter {@link StockCounter} which already contains count of product
+     */
+    void useCounter(StockCounter counter) {
+        count = counter;
+    }
+
+    /**
+     * @return Price of Product in minor units (see {@link Money})
+     */
+    public long getPrice() {
         return price;
     }
 
@@ -59,11 +122,40 @@ public class Product {
     }
 
     /**
+     * If count isn't changed since the last call then the same string is returned
      * @return String value of product
      */
     public String toString(){
+        int currentCount = count.get();
+        Text cached = text;
+        if (cached != null && cached.count == currentCount) {
+            return cached.value;
+        }
         StringBuilder sb = new StringBuilder();
-        sb.append(article.toString()).append("\nCount : ").append(count).append("\nPrice : ").append(price);
-        return sb.toString();
+        sb.append(article.toString()).append("\nCount : ").append(currentCount).append("\nPrice : ");
+        Money.appendTo(sb, price);
+        String result = sb.toString();
+        text = new Text(currentCount, result);
+        return result;
+    }
+
+    /**
+     * Text of product and count which text is built with
+     * Both are kept in one object, so they are always read together
+     */
+    private static final class Text {
+        /** Count of product in text */
+        final int count;
+        /** Text of product */
+        final String value;
+
+        /**
+         * @param count Count of product in text
+         * @param value Text of product
+         */
+        Text(int count, String value) {
+            this.count = count;
+            this.value = value;
+        }
     }
 }
@@ -0,0 +1,135 @@
+/**
+ * Class of page of report of {@link WarehouseManagement}
+ *
+ * Page selects entries which pass filter, skips the first {@link #getOffset()} of them
+ * and takes at most {@link #getLimit()} entries.
+ * Entries are written to {@link Writer} one by one while collection is iterated,
+ * so report never keeps more than text of one entry in memory
+ * @param <T> Type of entries
+ * @version 1.0
+ * @see WarehouseManagement#showInventory(Employee, Writer, ReportPage)
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.Predicate;
+
+public final class ReportPage<T> {
+    /** Separator after every entry */
+    private static final String SEPARATOR = "\n+++++++++++++++++";
+
+    /** Count of matching entries which are skipped */
+    private final long offset;
+    /** Max count of entries in page */
+    private final int limit;
+    /** Filter of entries or null for all entries */
+    private final Predicate<? super T> filter;
+
+    /**
+     * @param offset Count of matching entries which are skipped
+     * @param limit Max count of entries in page
+     * @param filter Filter of entries or null for all entries
+     */
+    private ReportPage(long offset, int limit, Predicate<? super T> filter) {
+        this.offset = offset;
+        this.limit = limit;
+        this.filter = filter;
+    }
+
+    /**
+     * @param <T> Type of entries
+     * @return Page with all entries
+     */
+    public static <T> ReportPage<T> all() {
+        return new ReportPage<>(0, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * @param number Number of page, the first page is 0
+     * @param size Count of entries in page
+     * @param <T> Type of entries
+     * @return Page with entries from (number * size) to ((number + 1) * size)
+     * @throws IllegalArgumentException if number is negative or size isn't positive
+     */
+    public static <T> ReportPage<T> of(int number, int size) {
+        if (number < 0 || size <= 0) {
+            throw new IllegalArgumentException("Wrong page: " + number + ", size: " + size);
+        }
+        return new ReportPage<>((long) number * size, size, null);
+    }
+
+    /**
+     * @param condition Condition which entries must pass
+     * @return Page with the same offset and limit, where entries pass filter of this page and condition
+     */
+    public ReportPage<T> where(Predicate<? super T> condition) {
+        if (filter == null) {
+            return new ReportPage<>(offset, limit, condition);
+        }
+        Predicate<? super T> current = filter;
+        return new ReportPage<>(offset, limit, entry -> current.test(entry) && condition.test(entry));
+    }
+
+    /**
+     * @return Count of matching entries which are skipped
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return Max count of entries in page
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Write entries of page, iterating is stopped when page is full
+     * Every entry is written as title, text of entry and separator
+     * @param entries Entries of report
+     * @param title Title of every entry
+     * @param out Writer of report
+     * @return Count of written entries
+     * @throws IOException if report can't be written
+     */
+    int write(Iterable<? extends T> entries, String title, Writer out) throws IOException {
+        return write(entries, title, out, 0);
+    }
+
+    /**
+     * Write entries of page like {@link #write(Iterable, String, Writer)} and flush writer after every group of entries
+     * @param entries Entries of report
+     * @param title Title of every entry
+     * @param out Writer of report
+     * @param flushEvery Count of entries after which writer is flushed, 0 to flush only at the end
+     * @return Count of written entries
+     * @throws IOException if report can't be written
+     */
+    int write(Iterable<? extends T> entries, String title, Writer out, int flushEvery) throws IOException {
+        long skipped = 0;
+        int written = 0;
+        for (T entry : entries) {
+            if (written == limit) {
+                break;
+            }
+            if (filter != null && !filter.test(entry)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            out.write("\n\n");
+            out.write(title);
+            out.write(entry.toString());
+            out.write(SEPARATOR);
+            written++;
+            if (flushEvery > 0 && written % flushEvery == 0) {
+                out.flush();
+            }
+        }
+        out.flush();
+        return written;
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Binary encoding of entities of {@link WarehouseManagement} for snapshots and journal
+ * (see {@link WarehouseStateStore} and {@link WarehouseJournal})
+ *
+ * Records of journal are framed like records of {@link BinaryAuditFormat}: length of payload (int), payload, CRC32 of payload (int)
+ * @version 1.0
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+final class StateCodec {
+    /**
+     * Class has only static methods
+     */
+    private StateCodec() {
+    }
+
+    /**
+     * Write string which can be null
+     * @param out Stream
+     * @param value String or null
+     * @throws IOException if string can't be written
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Read string which can be null
+     * @param in Stream
+     * @return String or null
+     * @throws IOException if string can't be read
+     */
+    static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Write {@link Id} as two longs
+     * @param out Stream
+     * @param id ID
+     * @throws IOException if ID can't be written
+     */
+    static void writeId(DataOutputStream out, Id id) throws IOException {
+        out.writeLong(id.getHigh());
+        out.writeLong(id.getLow());
+    }
+
+    /**
+     * Read {@link Id} from two longs
+     * @param in Stream
+     * @return ID
+     * @throws IOException if ID can't be read
+     */
+    static Id readId(DataInputStream in) throws IOException {
+        return new Id(in.readLong(), in.readLong());
+    }
+
+    /**
+     * Write {@link Product} with its {@link Article}
+     * @param out Stream
+     * @param product {@link Product}
+     * @param count Count which is written instead of current count of product
+     * @throws IOException if product can't be written
+     */
+    static void writeProduct(DataOutputStream out, Product product, int count) throws IOException {
+        Article article = product.getArticle();
+        writeId(out, article.getId());
+        writeString(out, article.getName());
+        writeString(out, article.getDescription());
+        out.writeInt(count);
+        out.writeLong(product.getPrice());
+    }
+
+    /**
+     * Read {@link Product} with its {@link Article}
+     * @param in Stream
+     * @return New {@link Product}
+     * @throws IOException if product can't be read
+     */
+    static Product readProduct(DataInputStream in) throws IOException {
+        Article article = new Article(readId(in), readString(in), readString(in));
+        int count = in.readInt();
+        long price = in.readLong();
+        return new Product(count, price, article);
+    }
+
+    /**
+     * Write {@link Order} with its {@link Client} and {@link Product}s
+     * @param out Stream
+     * @param order {@link Order}
+     * @throws IOException if order can't be written
+     */
+    static void writeOrder(DataOutputStream out, Order order) throws IOException {
+        writeId(out, order.getId());
+        Client client = order.getClient();
+        out.writeBoolean(client != null);
+        if (client != null) {
+            writeString(out, client.getName());
+            writeString(out, client.getAddress());
+            writeString(out, client.getPhone());
+        }
+        List<Product> products = order.getProducts();
+        out.writeInt(products.size());
+        for (Product product : products) {
+            writeProduct(out, product, product.getCount());
+        }
+    }
+
+    /**
+     * Read {@link Order} with its {@link Client} and {@link Product}s
+     * @param in Stream
+     * @return New {@link Order} with the same ID
+     * @throws IOException if order can't be read
+     */
+    static Order readOrder(DataInputStream in) throws IOException {
+        Id id = readId(in);
+        Client client = in.readBoolean() ? new Client(readString(in), readString(in), readString(in)) : null;
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Damaged order: count of products is " + count);
+        }
+        List<Product> products = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            products.add(readProduct(in));
+        }
+        return new Order(id, products, client);
+    }
+
+    /**
+     * Add length and CRC32 to payload
+     * @param payload Stream with payload
+     * @return Framed record
+     */
+    static byte[] frame(ByteArrayOutputStream payload) {
+        byte[] bytes = payload.toByteArray();
+        byte[] record = new byte[bytes.length + 8];
+        putInt(record, 0, bytes.length);
+        System.arraycopy(bytes, 0, record, 4, bytes.length);
+        putInt(record, record.length - 4, BinaryAuditFormat.crc(bytes, 0, bytes.length));
+        return record;
+    }
+
+    /**
+     * Read payload of framed record
+     * @param in Stream
+     * @return Payload or null if there isn't any complete record left
+     * @throws IOException if record is damaged
+     */
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > BinaryAuditFormat.MAX_PAYLOAD_LENGTH) {
+                throw new IOException("Damaged record: length is " + length);
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            if (in.readInt() != BinaryAuditFormat.crc(payload, 0, length)) {
+                throw new IOException("Damaged record: wrong CRC32");
+            }
+            return payload;
+        } catch (EOFException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Write big-endian int to array
+     * @param bytes Array
+     * @param offset Position of int
+     * @param value Value
+     */
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Counter of stock of one {@link Article}
+ * {@link Product} reads and changes its count through counter, so count can be kept in object on heap
+ * or in column of {@link InventoryStore}
+ * @version 1.0
+ * @see AtomicStockCounter
+ */
+
+public interface StockCounter {
+    /**
+     * @return Current count
+     */
+    int get();
+
+    /**
+     * @param count New count
+     */
+    void set(int count);
+
+    /**
+     * Set count if current count is equal to expected count
+     * @param expect Expected count
+     * @param update New count
+     * @return Result of action. If current count isn't equal to expected count return false
+     */
+    boolean compareAndSet(int expect, int update);
+
+    /**
+     * @param delta Amount which is added to count
+     * @return New count
+     */
+    int addAndGet(int delta);
+
+    /**
+     * Take amount if there is enough of it
+     * Count is changed by compare-and-set, so the method is safe without locks
+     * @param amount Amount which is needed to take
+     * @return Result of action. If count is less than amount return false and don't change count
+     * @throws IllegalArgumentException if amount is negative
+     */
+    default boolean tryTake(int amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount can't be negative: " + amount);
+        }
+        while (true) {
+            int current = get();
+            if (current < amount) {
+                return false;
+            }
+            if (compareAndSet(current, current - amount)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Class of all-or-nothing reservation of stock for lines of {@link Order}
+ *
+ * Reservation has two phases:
+ * 1){@link #reserve(InventoryStore, List)} takes amounts of all lines from {@link StockCounter}s of inventory by compare-and-set.
+ * If one line can't be reserved then all lines which are already reserved are given back
+ * 2){@link #commit()} makes reservation final or {@link #rollback()} gives all amounts back
+ *
+ * Lines with the same {@link Article} are merged, so every counter is changed once
+ * Reservation itself takes no lock, {@link WarehouseManagement} calls it under locks of articles of order,
+ * so stock value is changed by the same prices as amounts
+ * @version 1.0
+ */
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class StockReservation {
+    /**
+     * Status of reservation
+     */
+    public enum Status {
+        /** All lines are reserved */
+        RESERVED,
+        /** One of articles doesn't exist in inventory */
+        UNKNOWN_ARTICLE,
+        /** Inventory doesn't have enough amount of one of articles */
+        INSUFFICIENT_STOCK
+    }
+
+    /** Lines are merged with linear search if order has not more lines than this */
+    private static final int LINEAR_MERGE_LIMIT = 8;
+
+    /** {@link Status} of reservation */
+    private final Status status;
+    /** {@link StockCounter}s from inventory which amounts are reserved */
+    private final StockCounter[] counters;
+    /** Reserved amounts of {@link #counters} */
+    private final int[] amounts;
+    /** Count of reserved lines */
+    private final int size;
+    /** Is reservation committed or rolled back */
+    private boolean finished;
+
+    /**
+     * @param status {@link Status} of reservation
+     * @param counters {@link StockCounter}s from inventory
+     * @param amounts Reserved amounts
+     * @param size Count of reserved lines
+     */
+    private StockReservation(Status status, StockCounter[] counters, int[] amounts, int size) {
+        this.status = status;
+        this.counters = counters;
+        this.amounts = amounts;
+        this.size = size;
+        finished = status != Status.RESERVED;
+    }
+
+    /**
+     * Reserve amounts of all lines
+     * If result isn't {@link Status#RESERVED} then inventory isn't changed
+     * @param inventory {@link InventoryStore}
+     * @param lines {@link Product}s of order
+     * @return Reservation
+     * @throws IllegalArgumentException if count of one of lines is negative
+     */
+    public static StockReservation reserve(InventoryStore inventory, List<Product> lines) {
+        int lineCount = lines.size();
+        StockCounter[] counters = new StockCounter[lineCount];
+        Id[] ids = new Id[lineCount];
+        int[] amounts = new int[lineCount];
+        int size = 0;
+        Map<Id, Integer> indexes = lineCount > LINEAR_MERGE_LIMIT ? new HashMap<>() : null;
+
+        for (Product line : lines) {
+            if (line.getCount() < 0) {
+                throw new IllegalArgumentException("Count of line can't be negative: " + line.getCount());
+            }
+            Id id = line.getArticle().getId();
+            int index = indexes == null ? indexOf(ids, size, id) : indexes.getOrDefault(id, -1);
+            if (index < 0) {
+                StockCounter counter = inventory.counterOf(id);
+                if (counter == null) {
+                    return new StockReservation(Status.UNKNOWN_ARTICLE, counters, amounts, 0);
+                }
+                counters[size] = counter;
+                ids[size] = id;
+                amounts[size] = line.getCount();
+                if (indexes != null) {
+                    indexes.put(id, size);
+                }
+                size++;
+            } else {
+                amounts[index] += line.getCount();
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (!counters[i].tryTake(amounts[i])) {
+                giveBack(counters, amounts, i);
+                return new StockReservation(Status.INSUFFICIENT_STOCK, counters, amounts, 0);
+            }
+        }
+        return new StockReservation(Status.RESERVED, counters, amounts, size);
+    }
+
+    /**
+     * @return {@link Status} of reservation
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return Is every line reserved
+     */
+    public boolean isReserved() {
+        return status == Status.RESERVED;
+    }
+
+    /**
+     * Make reservation final
+     * Amounts stay taken from inventory
+     */
+    public void commit() {
+        finished = true;
+    }
+
+    /**
+     * Give back all reserved amounts
+     * The method does nothing if reservation is already committed or rolled back
+     */
+    public void rollback() {
+        if (!finished) {
+            finished = true;
+            giveBack(counters, amounts, size);
+        }
+    }
+
+    /**
+     * Give back amounts of all lines of order to inventory (for example when order is canceled)
+     * @param inventory {@link InventoryStore}
+     * @param lines {@link Product}s of order
+     */
+    public static void release(InventoryStore inventory, List<Product> lines) {
+        for (Product line : lines) {
+            StockCounter counter = inventory.counterOf(line.getArticle().getId());
+            if (counter != null) {
+                counter.addAndGet(line.getCount());
+            }
+        }
+    }
+
+    /**
+     * @param ids IDs of {@link Article}s
+     * @param size Count of ids in array
+     * @param id ID of {@link Article}
+     * @return Index of id or -1
+     */
+    private static int indexOf(Id[] ids, int size, Id id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i].equals(id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Give back amounts of first counters
+     * @param counters Counters
+     * @param amounts Amounts
+     * @param count Count of counters which amounts are given back
+     */
+    private static void giveBack(StockCounter[] counters, int[] amounts, int count) {
+        for (int i = 0; i < count; i++) {
+            counters[i].addAndGet(amounts[i]);
+        }
+    }
+}
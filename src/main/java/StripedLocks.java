@@ -0,0 +1,156 @@
+/**
+ * Class of striped locks for {@link Id}s of {@link Article}s or {@link Order}s
+ *
+ * Every ID is mapped to one of fixed count of locks, so memory doesn't depend on count of ids
+ * Several ids are always locked in ascending order of their stripes, so two threads which lock
+ * overlapping sets of ids can't deadlock
+ * @version 1.0
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class StripedLocks {
+    /** Default count of stripes */
+    public static final int DEFAULT_STRIPES = 1024;
+
+    /** Locks */
+    private final ReentrantLock[] stripes;
+    /** Mask for index of stripe (count of stripes is power of two) */
+    private final int mask;
+
+    /**
+     * Constructor with default count of stripes
+     */
+    public StripedLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructor of locks
+     * @param count Count of stripes, it will be rounded up to power of two
+     */
+    public StripedLocks(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count of stripes must be positive");
+        }
+        int size = Integer.highestOneBit(count);
+        if (size < count) {
+            size <<= 1;
+        }
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Lock stripe of one ID
+     * @param id ID
+     * @return Index of locked stripe, it is needed for {@link #unlock(int)}
+     */
+    public int lock(Id id) {
+        int stripe = stripeOf(id);
+        stripes[stripe].lock();
+        return stripe;
+    }
+
+    /**
+     * Unlock stripe
+     * @param stripe Index of stripe from {@link #lock(Id)}
+     */
+    public void unlock(int stripe) {
+        stripes[stripe].unlock();
+    }
+
+    /**
+     * Lock stripes of {@link Article}s of all {@link Product}s in ascending order
+     * Stripe which is shared by several products is locked once
+     * @param products {@link Product}s
+     * @return Indexes of locked stripes, they are needed for {@link #unlockAll(int[])}
+     */
+    public int[] lockAll(List<Product> products) {
+        int[] indexes = new int[products.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = stripeOf(products.get(i).getArticle().getId());
+        }
+        return lockStripes(indexes);
+    }
+
+    /**
+     * Lock stripes of all ids in ascending order
+     * Stripe which is shared by several ids is locked once
+     * @param ids IDs
+     * @return Indexes of locked stripes, they are needed for {@link #unlockAll(int[])}
+     */
+    public int[] lockAll(Collection<Id> ids) {
+        int[] indexes = new int[ids.size()];
+        int i = 0;
+        for (Id id : ids) {
+            indexes[i++] = stripeOf(id);
+        }
+        return lockStripes(indexes);
+    }
+
+    /**
+     * Lock stripes in ascending order, every stripe once
+     * @param indexes Indexes of stripes, array is sorted by the method
+     * @return Indexes of locked stripes without repeats
+     */
+    private int[] lockStripes(int[] indexes) {
+        Arrays.sort(indexes);
+        int count = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            if (i == 0 || indexes[i] != indexes[i - 1]) {
+                indexes[count++] = indexes[i];
+            }
+        }
+        int[] locked = count == indexes.length ? indexes : Arrays.copyOf(indexes, count);
+        for (int stripe : locked) {
+            stripes[stripe].lock();
+        }
+        return locked;
+    }
+
+    /**
+     * Unlock stripes in reverse order
+     * @param locked Indexes of stripes from {@link #lockAll(List)} or {@link #lockAll(Collection)}
+     */
+    public void unlockAll(int[] locked) {
+        for (int i = locked.length - 1; i >= 0; i--) {
+            stripes[locked[i]].unlock();
+        }
+    }
+
+    /**
+     * Lock every stripe in ascending order
+     * While all stripes are locked nobody can lock any ID
+     */
+    public void lockEvery() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    /**
+     * Unlock every stripe in reverse order
+     * @see #lockEvery()
+     */
+    public void unlockEvery() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    /**
+     * @param id ID
+     * @return Index of stripe of ID
+     */
+    private int stripeOf(Id id) {
+        int h = id.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Human-readable format of audit log
+ * implements {@link AuditFormat}
+ *
+ * Record is written as its message (or as ids if record doesn't have message) with date of action
+ * Records of binary log can be converted to this format by {@link #convert(AuditLogReader, Writer)}
+ * @version 1.0
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+public class TextAuditFormat implements AuditFormat {
+    /** Separator between records */
+    private static final String SEPARATOR = "\n------------------------------------\n";
+
+    /**
+     * @param record {@link AuditRecord} which is needed to write
+     * @return UTF-8 bytes of {@link #render(AuditRecord)}
+     */
+    @Override
+    public byte[] encode(AuditRecord record) {
+        return render(record).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Render record as text
+     * If record doesn't have message then text will be built from ids, quantities and note of record
+     * @param record {@link AuditRecord}
+     * @return Text of record with date of action and separator
+     */
+    public static String render(AuditRecord record) {
+        StringBuilder sb = new StringBuilder();
+        if (record.getMessage() != null) {
+            sb.append(record.getMessage());
+        } else {
+            appendIds(sb, record);
+        }
+        Date date = new Date(record.getEpochNanos() / 1_000_000L);
+        sb.append("\n\nDATE : ").append(date.toString()).append(SEPARATOR);
+        return sb.toString();
+    }
+
+    /**
+     * Write all records from reader as text
+     * @param reader {@link AuditLogReader} of binary log
+     * @param out Writer for text
+     * @return Count of converted records
+     * @throws IOException if log can't be read or text can't be written
+     */
+    public static long convert(AuditLogReader reader, Writer out) throws IOException {
+        long count = 0;
+        AuditRecord record;
+        while ((record = reader.next()) != null) {
+            out.write(render(record));
+            count++;
+        }
+        out.flush();
+        return count;
+    }
+
+    /**
+     * Append text built from ids, quantities and note of record
+     * @param sb Builder of text
+     * @param record {@link AuditRecord}
+     */
+    private static void appendIds(StringBuilder sb, AuditRecord record) {
+        sb.append(record.getType().getTitle()).append("\n\nEVENT : ").append(record.getType());
+        if (record.getActorId() != null) {
+            sb.append("\n\nEMPLOYEE/COURIER :\nId : ").append(record.getActorId());
+        }
+        if (record.getSubjectId() != null) {
+            sb.append("\n\nSUBJECT :\nId : ").append(record.getSubjectId());
+        }
+        if (record.getLineCount() > 0) {
+            sb.append("\n\nPRODUCTS : ");
+            for (int i = 0; i < record.getLineCount(); i++) {
+                sb.append("\nId : ").append(record.getArticleId(i))
+                        .append("\nCount : ").append(record.getQuantity(i)).append("\n++++++++++");
+            }
+        }
+        if (record.getNote() != null) {
+            sb.append("\n\nREASON :\n").append(record.getNote());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Class of running totals of value of {@link WarehouseManagement}
+ *
+ * Totals are stock value (price * count of every product of inventory), value of orders which are waiting to delivery
+ * and value of orders which are taken to delivery. Every action adds only its change to totals,
+ * so totals are read in constant time without scanning of inventory and orders.
+ * Totals are exact sums of minor units (see {@link Money}) in {@link LongAdder}s,
+ * threads which add to the same total at the same time use different cells, so totals aren't a contention point of actions
+ *
+ * Read total is sum of all finished changes, change which is done at the same time can be seen partly.
+ * Every change of stock value is counted under locks of its articles by the same prices as change of amounts,
+ * so after all actions are finished stock value is exactly sum of price * count of inventory
+ * @version 1.0
+ */
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class WarehouseAggregates {
+    /** Total value of stock of inventory */
+    private final LongAdder stockValue = new LongAdder();
+    /** Total value of orders which are waiting to delivery */
+    private final LongAdder openOrderValue = new LongAdder();
+    /** Total value of orders which are taken to delivery */
+    private final LongAdder deliveringOrderValue = new LongAdder();
+
+    /**
+     * @param delta Change of stock value
+     */
+    public void addStockValue(long delta) {
+        stockValue.add(delta);
+    }
+
+    /**
+     * Order is created, its value is added to open orders
+     * @param order {@link Order}
+     */
+    public void orderCreated(Order order) {
+        openOrderValue.add(order.getTotalPrice());
+    }
+
+    /**
+     * Order is canceled, its value is removed from open orders
+     * @param order {@link Order}
+     */
+    public void orderCanceled(Order order) {
+        openOrderValue.add(-order.getTotalPrice());
+    }
+
+    /**
+     * Order is taken to delivery, its value is moved from open orders to delivering orders
+     * @param order {@link Order}
+     */
+    public void orderTaken(Order order) {
+        openOrderValue.add(-order.getTotalPrice());
+        deliveringOrderValue.add(order.getTotalPrice());
+    }
+
+    /**
+     * Order is returned from delivery, its value is moved from delivering orders to open orders
+     * @param order {@link Order}
+     */
+    public void orderReturned(Order order) {
+        deliveringOrderValue.add(-order.getTotalPrice());
+        openOrderValue.add(order.getTotalPrice());
+    }
+
+    /**
+     * Order is delivered, its value is removed from delivering orders
+     * @param order {@link Order}
+     */
+    public void orderDelivered(Order order) {
+        deliveringOrderValue.add(-order.getTotalPrice());
+    }
+
+    /**
+     * Set totals from state (for example after recovery)
+     * It must not be called at the same time with other changes
+     * @param stock Stock value
+     * @param openOrders Orders which are waiting to delivery
+     * @param deliveringOrders Orders which are taken to delivery
+     */
+    public void reset(long stock, Iterable<Order> openOrders, Iterable<Order> deliveringOrders) {
+        stockValue.reset();
+        stockValue.add(stock);
+        openOrderValue.reset();
+        for (Order order : openOrders) {
+            openOrderValue.add(order.getTotalPrice());
+        }
+        deliveringOrderValue.reset();
+        for (Order order : deliveringOrders) {
+            deliveringOrderValue.add(order.getTotalPrice());
+        }
+    }
+
+    /**
+     * @return Total value of stock of inventory
+     */
+    public long getStockValue() {
+        return stockValue.sum();
+    }
+
+    /**
+     * @return Total value of orders which are waiting to delivery
+     */
+    public long getOpenOrderValue() {
+        return openOrderValue.sum();
+    }
+
+    /**
+     * @return Total value of orders which are taken to delivery
+     */
+    public long getDeliveringOrderValue() {
+        return deliveringOrderValue.sum();
+    }
+}
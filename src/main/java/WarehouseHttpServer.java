@@ -0,0 +1,584 @@
+/**
+ * Class of HTTP/JSON front end of {@link WarehouseManagement} on JDK {@link HttpServer}
+ *
+ * Endpoints (actor is given by header "X-Employee-Id", employee or courier must be added
+ * by {@link #addEmployee(Employee)}):
+ * 1)POST /receipts {"article": {"id", "name", "description"}, "count", "price"} receipts product, price is "12.50"
+ * 2)POST /orders {"id", "client": {"name", "address", "phone"}, "lines": [{"article", "count"}]} creates order,
+ * id and client are optional, prices of lines are taken from inventory
+ * 3)POST /orders/(id)/cancel and /orders/(id)/return {"reason"}, POST /orders/(id)/take and /orders/(id)/deliver
+ * 4)GET /inventory, /orders and /delivering-orders with optional parameters "page" and "size" write text report
+ * Actions answer {"result": true/false} with status 200, unknown actor gets 403, wrong request gets 400,
+ * failed action gets 500 with generic message, its exception is logged by {@link java.util.logging.Logger}
+ *
+ * Every request runs on own virtual thread if JDK has them (Java 21 and newer), else on fixed pool of threads.
+ * Admission is bounded: if {@link #getMaxConcurrentRequests()} requests are already running then
+ * new request is answered with 503 by dispatcher thread of server, without any thread of requests
+ * @version 1.0
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class WarehouseHttpServer implements Closeable {
+    /** Default max count of requests which run at the same time */
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 1024;
+    /** Default count of connections which wait for accepting */
+    public static final int DEFAULT_BACKLOG = 4096;
+    /** Header with ID of employee or courier */
+    public static final String ACTOR_HEADER = "X-Employee-Id";
+    /** Default size of page of reports */
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    /** Max size of page of reports */
+    private static final int MAX_PAGE_SIZE = 10_000;
+    /** Max size of body of request in bytes */
+    private static final int MAX_BODY_SIZE = 1 << 20;
+    /** Is current request rejected by admission, it is set only on dispatcher thread */
+    private static final ThreadLocal<Boolean> REJECTED = new ThreadLocal<>();
+    /** Logger of failed requests, their details are not sent to clients */
+    private static final Logger LOG = Logger.getLogger(WarehouseHttpServer.class.getName());
+
+    /** Warehouse management */
+    private final WarehouseManagement wm;
+    /** JDK HTTP server */
+    private final HttpServer server;
+    /** Executor of requests */
+    private final ExecutorService requestExecutor;
+    /** Is {@link #requestExecutor} made of virtual threads */
+    private final boolean virtualThreads;
+    /** Permits of running requests */
+    private final Semaphore admission;
+    /** Max count of running requests */
+    private final int maxConcurrentRequests;
+    /** Employees and couriers which can act through HTTP (id : {@link Id}, employee : {@link Employee}) */
+    private final Map<Id, Employee> staff = new ConcurrentHashMap<>();
+    /** Count of requests which are rejected by admission */
+    private final LongAdder rejectedRequests = new LongAdder();
+    /** Count of running requests */
+    private final AtomicInteger runningRequests = new AtomicInteger();
+    /** Max count of running requests which was seen */
+    private final AtomicInteger peakRunningRequests = new AtomicInteger();
+
+    /**
+     * Constructor of server on port of loopback address with default admission and backlog
+     * Server is started by {@link #start()}
+     * @param wm Warehouse management
+     * @param port Port, 0 for any free port
+     * @throws IOException if port can't be bound
+     */
+    public WarehouseHttpServer(WarehouseManagement wm, int port) throws IOException {
+        this(wm, new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                DEFAULT_MAX_CONCURRENT_REQUESTS, DEFAULT_BACKLOG);
+    }
+
+    /**
+     * Constructor of server
+     * Server is started by {@link #start()}
+     * @param wm Warehouse management
+     * @param address Address of server
+     * @param maxConcurrentRequests Max count of requests which run at the same time
+     * @param backlog Count of connections which wait for accepting
+     * @throws IOException if address can't be bound
+     * @throws IllegalArgumentException if max count of requests isn't positive
+     */
+    public WarehouseHttpServer(WarehouseManagement wm, InetSocketAddress address, int maxConcurrentRequests,
+                               int backlog) throws IOException {
+        if (maxConcurrentRequests <= 0) {
+            throw new IllegalArgumentException("Max count of requests must be positive: " + maxConcurrentRequests);
+        }
+        this.wm = wm;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        admission = new Semaphore(maxConcurrentRequests);
+        ExecutorService executor = newVirtualThreadExecutor();
+        virtualThreads = executor != null;
+        if (executor == null) {
+            AtomicInteger number = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(
+                    Math.min(maxConcurrentRequests, 8 * Runtime.getRuntime().availableProcessors()), task -> {
+                        Thread thread = new Thread(task, "warehouse-http-" + number.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        requestExecutor = executor;
+        server = HttpServer.create(address, backlog);
+        server.setExecutor(new AdmissionExecutor());
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Start accepting of connections
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Let employee or courier act through HTTP, authorization is still checked by warehouse management
+     * @param e {@link Employee} or {@link Courier}
+     */
+    public void addEmployee(Employee e) {
+        staff.put(e.getId(), e);
+    }
+
+    /**
+     * @return Port of server
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return Max count of requests which run at the same time
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * @return Is every request run on own virtual thread
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return Count of requests which are answered with 503 by admission
+     */
+    public long getRejectedRequests() {
+        return rejectedRequests.sum();
+    }
+
+    /**
+     * @return Max count of requests which ran at the same time
+     */
+    public int getPeakRunningRequests() {
+        return peakRunningRequests.get();
+    }
+
+    /**
+     * Stop server, running requests get a second to finish
+     * Warehouse management isn't closed
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        requestExecutor.shutdown();
+    }
+
+    /**
+     * @return Executor which starts new virtual thread for every task, or null if JDK doesn't have virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Answer request, errors are answered with status and message
+     * @param exchange Request and response
+     * @throws IOException if response can't be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (REJECTED.get() != null) {
+                sendJson(exchange, 503, "{\"error\":\"Too many requests\"}");
+                return;
+            }
+            route(exchange);
+        } catch (HttpError ex) {
+            sendError(exchange, ex.status, ex.getMessage());
+        } catch (IllegalArgumentException ex) {
+            sendError(exchange, 400, ex.getMessage());
+        } catch (IOException | RuntimeException ex) {
+            LOG.log(Level.SEVERE, "Request " + exchange.getRequestMethod() + " " + exchange.getRequestURI()
+                    + " failed", ex);
+            sendError(exchange, 500, "Internal server error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Find endpoint of request and answer it
+     * @param exchange Request and response
+     * @throws IOException if action can't be recorded or response can't be sent
+     */
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+        if (path.length == 1 && (path[0].equals("inventory") || path[0].equals("orders")
+                || path[0].equals("delivering-orders")) && method.equals("GET")) {
+            showReport(exchange, path[0]);
+            return;
+        }
+        if (!method.equals("POST")) {
+            throw path.length == 1 && (path[0].equals("receipts") || path[0].equals("orders"))
+                    || path.length == 3 && path[0].equals("orders")
+                    ? new HttpError(405, "Method not allowed") : new HttpError(404, "Not found");
+        }
+        if (path.length == 1 && path[0].equals("receipts")) {
+            receiptProduct(exchange);
+        } else if (path.length == 1 && path[0].equals("orders")) {
+            createOrder(exchange);
+        } else if (path.length == 3 && path[0].equals("orders")) {
+            changeOrder(exchange, Id.parse(path[1]), path[2]);
+        } else {
+            throw new HttpError(404, "Not found");
+        }
+    }
+
+    /**
+     * POST /receipts
+     * @param exchange Request and response
+     * @throws IOException if action can't be recorded or response can't be sent
+     */
+    private void receiptProduct(HttpExchange exchange) throws IOException {
+        Employee e = actor(exchange);
+        Map<String, Object> body = Json.parseObject(readBody(exchange));
+        Map<String, Object> articleJson = object(body, "article");
+        String name = string(articleJson, "name", true);
+        String description = string(articleJson, "description", false);
+        String articleId = string(articleJson, "id", false);
+        Article article = articleId == null ? new Article(name, description)
+                : new Article(Id.parse(articleId), name, description);
+        Product product = new Product(count(body, "count"), Money.parse(string(body, "price", true)), article);
+        boolean result = wm.receiptProduct(e, product);
+        StringBuilder sb = new StringBuilder("{\"result\":").append(result).append(",\"article\":");
+        sendJson(exchange, 200, Json.quote(sb, article.getId().toString()).append('}').toString());
+    }
+
+    /**
+     * POST /orders
+     * @param exchange Request and response
+     * @throws IOException if action can't be recorded or response can't be sent
+     */
+    private void createOrder(HttpExchange exchange) throws IOException {
+        Employee e = actor(exchange);
+        Map<String, Object> body = Json.parseObject(readBody(exchange));
+        Object linesJson = body.get("lines");
+        if (!(linesJson instanceof List)) {
+            throw new IllegalArgumentException("Array \"lines\" expected");
+        }
+        List<Product> lines = new ArrayList<>();
+        for (Object lineJson : (List<?>) linesJson) {
+            if (!(lineJson instanceof Map)) {
+                throw new IllegalArgumentException("Line must be object");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> line = (Map<String, Object>) lineJson;
+            Id articleId = Id.parse(string(line, "article", true));
+            Product product = wm.getInventory().get(articleId);
+            Article article = product == null ? new Article(articleId, "", "") : product.getArticle();
+            lines.add(new Product(count(line, "count"), product == null ? 0 : product.getPrice(), article));
+        }
+        Client client = null;
+        if (body.get("client") != null) {
+            Map<String, Object> clientJson = object(body, "client");
+            client = new Client(string(clientJson, "name", true), string(clientJson, "address", false),
+                    string(clientJson, "phone", false));
+        }
+        String id = string(body, "id", false);
+        Order order = id == null ? new Order(lines, client) : new Order(Id.parse(id), lines, client);
+        boolean result = wm.createOrder(e, order);
+        StringBuilder sb = new StringBuilder("{\"result\":").append(result).append(",\"id\":");
+        sendJson(exchange, 200, Json.quote(sb, order.getId().toString()).append('}').toString());
+    }
+
+    /**
+     * POST /orders/(id)/(action)
+     * @param exchange Request and response
+     * @param orderId ID of order
+     * @param action "cancel", "take", "return" or "deliver"
+     * @throws IOException if action can't be recorded or response can't be sent
+     */
+    private void changeOrder(HttpExchange exchange, Id orderId, String action) throws IOException {
+        Employee e = actor(exchange);
+        String text = readBody(exchange);
+        Map<String, Object> body = text.trim().isEmpty() ? new HashMap<>() : Json.parseObject(text);
+        boolean result;
+        switch (action) {
+            case "cancel":
+                result = wm.cancelOrder(e, orderId, string(body, "reason", false));
+                break;
+            case "take":
+                result = wm.takeOrder(courier(e), orderId);
+                break;
+            case "return":
+                result = wm.returnOrder(courier(e), orderId, string(body, "reason", false));
+                break;
+            case "deliver":
+                result = wm.deliverOrder(courier(e), orderId);
+                break;
+            default:
+                throw new HttpError(404, "Not found");
+        }
+        sendJson(exchange, 200, "{\"result\":" + result + "}");
+    }
+
+    /**
+     * GET /inventory, /orders or /delivering-orders
+     * @param exchange Request and response
+     * @param report Name of report
+     * @throws IOException if showing can't be recorded or response can't be sent
+     */
+    private void showReport(HttpExchange exchange, String report) throws IOException {
+        Employee e = actor(exchange);
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        int size = Integer.parseInt(query.getOrDefault("size", String.valueOf(DEFAULT_PAGE_SIZE)));
+        if (size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Size of page can't be more than " + MAX_PAGE_SIZE);
+        }
+        int page = Integer.parseInt(query.getOrDefault("page", "0"));
+        StringWriter out = new StringWriter();
+        int written;
+        if (report.equals("inventory")) {
+            written = wm.showInventory(e, out, ReportPage.of(page, size));
+        } else if (report.equals("orders")) {
+            written = wm.showOrders(e, out, ReportPage.of(page, size));
+        } else {
+            written = wm.showDeliveringOrders(e, out, ReportPage.of(page, size));
+        }
+        if (written < 0) {
+            throw new HttpError(403, "Employee doesn't have authorization");
+        }
+        send(exchange, 200, "text/plain; charset=utf-8", out.toString());
+    }
+
+    /**
+     * @param exchange Request
+     * @return Employee or courier of header {@link #ACTOR_HEADER}
+     * @throws HttpError if employee isn't added to server
+     */
+    private Employee actor(HttpExchange exchange) {
+        String id = exchange.getRequestHeaders().getFirst(ACTOR_HEADER);
+        if (id == null) {
+            throw new HttpError(403, "Header " + ACTOR_HEADER + " expected");
+        }
+        Employee e = staff.get(Id.parse(id));
+        if (e == null) {
+            throw new HttpError(403, "Unknown employee " + id);
+        }
+        return e;
+    }
+
+    /**
+     * @param e Employee of request
+     * @return Courier
+     * @throws HttpError if employee isn't courier
+     */
+    private static Courier courier(Employee e) {
+        if (!(e instanceof Courier)) {
+            throw new HttpError(403, "Courier expected");
+        }
+        return (Courier) e;
+    }
+
+    /**
+     * @param exchange Request
+     * @return Body of request in UTF-8
+     * @throws IOException if body can't be read
+     * @throws HttpError if body is too big
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                body.write(buffer, 0, read);
+                if (body.size() > MAX_BODY_SIZE) {
+                    throw new HttpError(413, "Body is too big");
+                }
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param rawQuery Query of URI, or null
+     * @return Parameters of query
+     */
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> result = new HashMap<>();
+        if (rawQuery == null) {
+            return result;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                result.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param json Object
+     * @param key Key of field
+     * @return Object of field
+     * @throws IllegalArgumentException if field isn't object
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> object(Map<String, Object> json, String key) {
+        Object value = json.get(key);
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Object \"" + key + "\" expected");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * @param json Object
+     * @param key Key of field
+     * @param required Is field required
+     * @return String of field, or null if optional field doesn't exist
+     * @throws IllegalArgumentException if field isn't string or required field doesn't exist
+     */
+    private static String string(Map<String, Object> json, String key, boolean required) {
+        Object value = json.get(key);
+        if (value == null && !required) {
+            return null;
+        }
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("String \"" + key + "\" expected");
+        }
+        return (String) value;
+    }
+
+    /**
+     * @param json Object
+     * @param key Key of field
+     * @return Count of field
+     * @throws IllegalArgumentException if field isn't integer or is negative
+     */
+    private static int count(Map<String, Object> json, String key) {
+        Object value = json.get(key);
+        if (!(value instanceof Long) || (Long) value != ((Long) value).intValue()) {
+            throw new IllegalArgumentException("Integer \"" + key + "\" expected");
+        }
+        if ((Long) value < 0) {
+            throw new IllegalArgumentException("\"" + key + "\" can't be negative");
+        }
+        return ((Long) value).intValue();
+    }
+
+    /**
+     * @param exchange Response
+     * @param status Status of response
+     * @param message Message of error
+     * @throws IOException if response can't be sent
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, Json.quote(new StringBuilder("{\"error\":"), message).append('}').toString());
+    }
+
+    /**
+     * @param exchange Response
+     * @param status Status of response
+     * @param json JSON body
+     * @throws IOException if response can't be sent
+     */
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        send(exchange, status, "application/json; charset=utf-8", json);
+    }
+
+    /**
+     * @param exchange Response
+     * @param status Status of response
+     * @param contentType Type of body
+     * @param body Body of response
+     * @throws IOException if response can't be sent
+     */
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Executor of server which admits only {@link #maxConcurrentRequests} requests to {@link #requestExecutor}
+     * Other requests are run on dispatcher thread, they are answered with 503 at once
+     */
+    private final class AdmissionExecutor implements Executor {
+        @Override
+        public void execute(Runnable task) {
+            if (!admission.tryAcquire()) {
+                rejectedRequests.increment();
+                REJECTED.set(Boolean.TRUE);
+                try {
+                    task.run();
+                } finally {
+                    REJECTED.remove();
+                }
+                return;
+            }
+            try {
+                requestExecutor.execute(() -> {
+                    int running = runningRequests.incrementAndGet();
+                    peakRunningRequests.accumulateAndGet(running, Math::max);
+                    try {
+                        task.run();
+                    } finally {
+                        runningRequests.decrementAndGet();
+                        admission.release();
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                admission.release();
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Error which is answered with HTTP status
+     */
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        /** HTTP status */
+        private final int status;
+
+        /**
+         * @param status HTTP status
+         * @param message Message of error
+         */
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/**
+ * Journal of all changes of state of {@link WarehouseManagement} after the last snapshot
+ * (see {@link WarehouseStateStore})
+ *
+ * Every change is appended as framed binary record (see {@link StateCodec#frame(ByteArrayOutputStream)})
+ * with all data which is needed to apply it again, so journal can be replayed on snapshot after restart
+ * Records are appended by one write to the open channel of journal, they are forced to disk when journal is closed
+ * Only successful actions are recorded, so replay applies records without any checking
+ * Changes of counts are recorded as deltas, and every record is appended under locks of its articles
+ * after its change is checked and before locks are released, so records of one article are in order of their changes
+ * @version 1.0
+ */
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+final class WarehouseJournal implements Closeable {
+    /** Code of giving or withdrawing of employee's authorization */
+    private static final byte EMPLOYEE_AUTHORIZATION = 1;
+    /** Code of giving or withdrawing of courier's authorization */
+    private static final byte COURIER_AUTHORIZATION = 2;
+    /** Code of reception of products */
+    private static final byte PRODUCT_RECEPTION = 3;
+    /** Code of change of product's information with change of count */
+    private static final byte PRODUCT_INFORMATION_CHANGE = 4;
+    /** Code of creating of order */
+    private static final byte ORDER_CREATION = 5;
+    /** Code of canceling of order */
+    private static final byte ORDER_CANCELLATION = 6;
+    /** Code of taking of order */
+    private static final byte ORDER_TAKING = 7;
+    /** Code of returning of order */
+    private static final byte ORDER_RETURNING = 8;
+    /** Code of delivery of order */
+    private static final byte ORDER_DELIVERY = 9;
+
+    /** Channel of journal file */
+    private final FileChannel channel;
+
+    /**
+     * Open journal for appending
+     * @param file Journal file, it is created if it doesn't exist
+     * @throws IOException if file can't be opened
+     */
+    WarehouseJournal(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Record giving or withdrawing of employee's authorization
+     * @param id ID of {@link Employee}
+     * @param given Is authorization given
+     * @throws IOException if record can't be written
+     */
+    void employeeAuthorization(Id id, boolean given) throws IOException {
+        authorization(EMPLOYEE_AUTHORIZATION, id, given);
+    }
+
+    /**
+     * Record giving or withdrawing of courier's authorization
+     * @param id ID of {@link Courier}
+     * @param given Is authorization given
+     * @throws IOException if record can't be written
+     */
+    void courierAuthorization(Id id, boolean given) throws IOException {
+        authorization(COURIER_AUTHORIZATION, id, given);
+    }
+
+    /**
+     * Record reception of products
+     * @param products Received {@link Product}s with received counts, before they are added to inventory
+     * @throws IOException if record can't be written
+     */
+    void productReception(List<Product> products) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * products.size() + 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(PRODUCT_RECEPTION);
+        out.writeInt(products.size());
+        for (Product product : products) {
+            StateCodec.writeProduct(out, product, product.getCount());
+        }
+        append(bytes);
+    }
+
+    /**
+     * Record change of product's information
+     * Count is recorded as change like counts of orders, so replay doesn't depend on order of records of other articles
+     * @param product {@link Product} with new information
+     * @param countDelta Change of count of product
+     * @throws IOException if record can't be written
+     */
+    void productInformationChange(Product product, int countDelta) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(PRODUCT_INFORMATION_CHANGE);
+        StateCodec.writeProduct(out, product, countDelta);
+        append(bytes);
+    }
+
+    /**
+     * Record creating of order
+     * @param order Created {@link Order}
+     * @throws IOException if record can't be written
+     */
+    void orderCreation(Order order) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + 64 * order.getProducts().size());
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(ORDER_CREATION);
+        StateCodec.writeOrder(out, order);
+        append(bytes);
+    }
+
+    /**
+     * Record canceling of order
+     * @param id ID of {@link Order}
+     * @throws IOException if record can't be written
+     */
+    void orderCancellation(Id id) throws IOException {
+        orderAction(ORDER_CANCELLATION, id, null);
+    }
+
+    /**
+     * Record taking of order to delivery
+     * @param id ID of {@link Order}
+     * @param courierId ID of {@link Courier}
+     * @throws IOException if record can't be written
+     */
+    void orderTaking(Id id, Id courierId) throws IOException {
+        orderAction(ORDER_TAKING, id, courierId);
+    }
+
+    /**
+     * Record returning of order from delivery
+     * @param id ID of {@link Order}
+     * @param courierId ID of {@link Courier}
+     * @throws IOException if record can't be written
+     */
+    void orderReturning(Id id, Id courierId) throws IOException {
+        orderAction(ORDER_RETURNING, id, courierId);
+    }
+
+    /**
+     * Record delivery of order
+     * @param id ID of {@link Order}
+     * @param courierId ID of {@link Courier}
+     * @throws IOException if record can't be written
+     */
+    void orderDelivery(Id id, Id courierId) throws IOException {
+        orderAction(ORDER_DELIVERY, id, courierId);
+    }
+
+    /**
+     * Force all records to disk and close journal
+     * @throws IOException if journal can't be forced or closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            try {
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Open existing journal for appending after its last complete record
+     * Incomplete last record (after crash while writing) is cut off
+     * @param file Journal file
+     * @param length Length of complete records from {@link #replay(Path, WarehouseManagement)}
+     * @return Journal
+     * @throws IOException if file can't be opened or cut
+     */
+    static WarehouseJournal reopen(Path file, long length) throws IOException {
+        WarehouseJournal journal = new WarehouseJournal(file);
+        try {
+            if (journal.channel.size() > length) {
+                journal.channel.truncate(length);
+            }
+        } catch (IOException ex) {
+            journal.channel.close();
+            throw ex;
+        }
+        return journal;
+    }
+
+    /**
+     * Apply all records of journal to warehouse management
+     * Incomplete last record (after crash while writing) is ignored
+     * @param file Journal file
+     * @param wm {@link WarehouseManagement} in state of snapshot of this journal
+     * @return Length of complete records of journal
+     * @throws IOException if journal can't be read or record is damaged
+     */
+    static long replay(Path file, WarehouseManagement wm) throws IOException {
+        long length = 0;
+        try (InputStream stream = Files.newInputStream(file)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+            byte[] payload;
+            while ((payload = StateCodec.readFrame(in)) != null) {
+                apply(new DataInputStream(new ByteArrayInputStream(payload)), wm);
+                length += payload.length + 8;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Apply one record
+     * @param in Payload of record
+     * @param wm {@link WarehouseManagement}
+     * @throws IOException if record is damaged
+     */
+    private static void apply(DataInputStream in, WarehouseManagement wm) throws IOException {
+        byte code = in.readByte();
+        Map<Id, Product> inventory = wm.getInventory();
+        switch (code) {
+            case EMPLOYEE_AUTHORIZATION:
+            case COURIER_AUTHORIZATION: {
+                Id id = StateCodec.readId(in);
+                Set<Id> authorized = code == EMPLOYEE_AUTHORIZATION
+                        ? wm.getAuthorizedEmployees() : wm.getAuthorizedCouriers();
+                if (in.readBoolean()) {
+                    authorized.add(id);
+                } else {
+                    authorized.remove(id);
+                }
+                break;
+            }
+            case PRODUCT_RECEPTION: {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    Product product = StateCodec.readProduct(in);
+                    Product productFromInventory = inventory.get(product.getArticle().getId());
+                    if (productFromInventory != null) {
+                        int receivedCount = product.getCount();
+                        product.shareCountOf(productFromInventory);
+                        product.addCount(receivedCount);
+                    }
+                    inventory.put(product.getArticle().getId(), product);
+                }
+                break;
+            }
+            case PRODUCT_INFORMATION_CHANGE: {
+                Product product = StateCodec.readProduct(in);
+                Product productFromInventory = inventory.get(product.getArticle().getId());
+                if (productFromInventory != null) {
+                    int countDelta = product.getCount();
+                    product.shareCountOf(productFromInventory);
+                    product.addCount(countDelta);
+                }
+                inventory.put(product.getArticle().getId(), product);
+                break;
+            }
+            case ORDER_CREATION: {
+                Order order = StateCodec.readOrder(in);
+                for (Product line : order.getProducts()) {
+                    Product productFromInventory = inventory.get(line.getArticle().getId());
+                    if (productFromInventory != null) {
+                        productFromInventory.addCount(-line.getCount());
+                    }
+                }
+                wm.getOrderStore().add(order);
+                break;
+            }
+            case ORDER_CANCELLATION: {
+                Order order = wm.getOrderStore().transition(StateCodec.readId(in), OrderState.PENDING,
+                        OrderState.CANCELLED);
+                if (order != null) {
+                    StockReservation.release(wm.getInventoryStore(), order.getProducts());
+                }
+                break;
+            }
+            case ORDER_TAKING: {
+                wm.getOrderStore().transition(StateCodec.readId(in), OrderState.PENDING, OrderState.DELIVERING);
+                break;
+            }
+            case ORDER_RETURNING: {
+                wm.getOrderStore().transition(StateCodec.readId(in), OrderState.DELIVERING, OrderState.PENDING);
+                break;
+            }
+            case ORDER_DELIVERY:
+                wm.getOrderStore().transition(StateCodec.readId(in), OrderState.DELIVERING, OrderState.DELIVERED);
+                break;
+            default:
+                throw new IOException("Damaged journal record: unknown code " + code);
+        }
+    }
+
+    /**
+     * @param code Code of authorization
+     * @param id ID of employee or courier
+     * @param given Is authorization given
+     * @throws IOException if record can't be written
+     */
+    private void authorization(byte code, Id id, boolean given) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(code);
+        StateCodec.writeId(out, id);
+        out.writeBoolean(given);
+        append(bytes);
+    }
+
+    /**
+     * @param code Code of action with order
+     * @param id ID of order
+     * @param courierId ID of courier or null
+     * @throws IOException if record can't be written
+     */
+    private void orderAction(byte code, Id id, Id courierId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(code);
+        StateCodec.writeId(out, id);
+        out.writeBoolean(courierId != null);
+        if (courierId != null) {
+            StateCodec.writeId(out, courierId);
+        }
+        append(bytes);
+    }
+
+    /**
+     * Append framed record with one write
+     * @param payload Payload of record
+     * @throws IOException if record can't be written
+     */
+    private synchronized void append(ByteArrayOutputStream payload) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(StateCodec.frame(payload));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -8,36 +8,168 @@
  * 5)Take order
  * 6)Return order
  * 7)Mark order as delivered
- * All actions will be recorded to "resources/information.txt"
+ * 8)Find open orders by article or client (see {@link OrderIndex})
+ * 9)Search products by name and description (see {@link ArticleSearchIndex})
+ * 10)Set reorder thresholds of articles and find the most depleted articles (see {@link LowStockIndex})
+ * 11)Read total value of stock, open orders and delivering orders (see {@link WarehouseAggregates})
+ * 12)Read counters and latencies of all actions (see {@link WarehouseMetrics}),
+ * they are also available through JMX after {@link #registerMBean(String)}
+ * 13)Read history of delivered and canceled orders (see {@link OrderStore})
+ * All actions will be recorded to "resources/information.txt" through {@link AuditSink}
+ * Close warehouse management with {@link #close()} to write all records which are still in queue
+ *
+ * Class is thread-safe. Reception and change of product lock only stripe of its {@link Article},
+ * actions with order lock only stripe of the {@link Order} (see {@link StripedLocks}),
+ * so actions with different articles and orders run in parallel.
+ * Creating and canceling of order lock stripe of order and then stripes of its articles,
+ * so stock is reserved by {@link StockReservation} and stock value is changed by the same prices of articles
+ *
+ * Warehouse management which is created by {@link #recover(Path)} keeps its state in directory
+ * as snapshot and journal of changes (see {@link WarehouseStateStore}), so after restart only the journal is replayed
+ * and inventory of snapshot is read from memory-mapped file only when articles are used (see {@link MappedInventoryStore}).
+ * Make snapshot by {@link #checkpoint()} or {@link #scheduleCheckpoints(long, TimeUnit)} to keep the journal short
  * @author Bakyt Eshaliev
  * @version 1.0
  */
 
-import java.io.FileWriter;
+import javax.management.ObjectName;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
-public class WarehouseManagement {
-    /** Set of all (id: String) of authorized employees
+public class WarehouseManagement implements Closeable {
+    /** Default file for records of all actions */
+    public static final String INFORMATION_FILE = "src/main/resources/information.txt";
+    /** Max count of entries of report which are written in one record by {@link #showInventory(Employee)} */
+    static final int REPORT_ENTRIES_PER_RECORD = 256;
+
+    /** {@link AuditSink} for records of all actions */
+    private final AuditSink auditSink;
+    /** Set of all (id: {@link Id}) of authorized employees
      * @see Employee
      */
-    private Set<String> authorizedEmployees = new HashSet<>();
-    /** Set of all (id: String) of authorized couriers
+    private Set<Id> authorizedEmployees = ConcurrentHashMap.newKeySet();
+    /** Set of all (id: {@link Id}) of authorized couriers
      * @see Courier
      */
-    private Set<String> authorizedCouriers = new HashSet<>();
-    /** Map of all products in inventory (id : String, product : {@link Product}) */
-    private Map<String, Product> inventory = new HashMap<>();
-    /** Map of all orders waiting to delivery (id : String, order : {@link Order}) */
-    private Map<String, Order> orders = new HashMap<>();
-    /** Map of all orders taken to delivery (id : String, order : {@link Order}) */
-    private Map<String, Order> deliveringOrders = new HashMap<>();
+    private Set<Id> authorizedCouriers = ConcurrentHashMap.newKeySet();
+    /** {@link InventoryStore} of all products in inventory */
+    private final InventoryStore inventoryStore;
+    /** Map view of {@link #inventoryStore} (id : {@link Id}, product : {@link Product}) */
+    private final Map<Id, Product> inventory;
+    /** {@link OrderStore} of all orders with their {@link OrderState}s */
+    private final OrderStore orderStore = new OrderStore();
+    /** View of all orders waiting to delivery (id : {@link Id}, order : {@link Order}) */
+    private final Map<Id, Order> orders = orderStore.view(OrderState.PENDING);
+    /** View of all orders taken to delivery (id : {@link Id}, order : {@link Order}) */
+    private final Map<Id, Order> deliveringOrders = orderStore.view(OrderState.DELIVERING);
+    /** {@link OrderIndex} of orders from {@link #orders} and {@link #deliveringOrders} by articles and clients */
+    private final OrderIndex orderIndex = new OrderIndex();
+    /** {@link CourierIndex} of orders from {@link #deliveringOrders} by couriers */
+    private final CourierIndex courierIndex = new CourierIndex();
+    /** {@link ArticleSearchIndex} of names and descriptions of articles, it is built by the first search */
+    private final ArticleSearchIndex searchIndex = new ArticleSearchIndex();
+    /** {@link LowStockIndex} of articles with reorder thresholds */
+    private final LowStockIndex lowStockIndex;
+    /** {@link WarehouseAggregates} of value of inventory and orders */
+    private final WarehouseAggregates aggregates = new WarehouseAggregates();
+    /** {@link WarehouseMetrics} of all actions, they are registered in platform MBean server */
+    private final WarehouseMetrics metrics;
+    /** Locks of {@link Article}s by their ids */
+    private final StripedLocks articleLocks = new StripedLocks();
+    /** Locks of {@link Order}s by their ids */
+    private final StripedLocks orderLocks = new StripedLocks();
+    /** Persistent state of warehouse management, or null if state is kept only in memory */
+    private volatile WarehouseStateStore stateStore;
+
+    /**
+     * Constructor of warehouse management
+     * All actions will be recorded to {@link #INFORMATION_FILE} by {@link AsyncAuditWriter}
+     */
+    public WarehouseManagement() {
+        this(new AsyncAuditWriter(Paths.get(INFORMATION_FILE), AsyncAuditWriter.Durability.FLUSH_PER_BATCH));
+    }
+
+    /**
+     * Constructor of warehouse management
+     * @param auditSink {@link AuditSink} for records of all actions
+     */
+    public WarehouseManagement(AuditSink auditSink) {
+        this(auditSink, new HeapInventoryStore());
+    }
+
+    /**
+     * Constructor of warehouse management
+     * @param auditSink {@link AuditSink} for records of all actions
+     * @param inventoryStore {@link InventoryStore} of products
+     */
+    public WarehouseManagement(AuditSink auditSink, InventoryStore inventoryStore) {
+        this.auditSink = auditSink;
+        this.inventoryStore = inventoryStore;
+        inventory = inventoryStore.asMap();
+        lowStockIndex = new LowStockIndex(inventoryStore);
+        metrics = new WarehouseMetrics(auditSink);
+    }
+
+    /**
+     * Restore warehouse management from state directory
+     * All actions will be recorded to {@link #INFORMATION_FILE} by {@link AsyncAuditWriter}
+     * @param directory Directory of state, it is created if it doesn't exist
+     * @return Warehouse management with restored state which keeps all next changes in the directory
+     * @throws IOException if state can't be read or is damaged
+     * @see #recover(Path, AuditSink)
+     */
+    public static WarehouseManagement recover(Path directory) throws IOException {
+        return recover(directory,
+                new AsyncAuditWriter(Paths.get(INFORMATION_FILE), AsyncAuditWriter.Durability.FLUSH_PER_BATCH));
+    }
+
+    /**
+     * Restore warehouse management from state directory
+     *
+     * Inventory of the latest snapshot is mapped (see {@link MappedInventoryStore}), the rest of snapshot is loaded
+     * and all journals after it are replayed. Incomplete last record of journal is cut off and the last journal is continued
+     * Couriers of orders which are taken to delivery are not restored, because couriers are not kept by warehouse management
+     *
+     * @param directory Directory of state, it is created if it doesn't exist
+     * @param auditSink {@link AuditSink} for records of all actions
+     * @return Warehouse management with restored state which keeps all next changes in the directory
+     * @throws IOException if state can't be read or is damaged
+     */
+    public static WarehouseManagement recover(Path directory, AuditSink auditSink) throws IOException {
+        WarehouseStateStore store = new WarehouseStateStore(directory);
+        WarehouseStateStore.Snapshot snapshot = store.load();
+        WarehouseManagement wm = new WarehouseManagement(auditSink,
+                snapshot == null ? new HeapInventoryStore() : snapshot.getInventory());
+        try {
+            if (snapshot != null) {
+                snapshot.restore(wm);
+            }
+            store.replay(wm);
+            wm.reindexOrders();
+            wm.aggregates.reset(wm.inventoryStore.totalValue(), wm.orders.values(), wm.deliveringOrders.values());
+        } catch (IOException | RuntimeException ex) {
+            wm.metrics.unregister();
+            wm.inventoryStore.close();
+            store.close();
+            throw ex;
+        }
+        wm.stateStore = store;
+        return wm;
+    }
 
     /**
      * @return Set of authorized employees id
      * @see #authorizedEmployees
      */
-    public Set<String> getAuthorizedEmployees() {
+    public Set<Id> getAuthorizedEmployees() {
         return authorizedEmployees;
     }
 
@@ -45,33 +177,263 @@ public class WarehouseManagement {
      * @return Set of authorized couriers id
      * @see #authorizedCouriers
      */
-    public Set<String> getAuthorizedCouriers() {
+    public Set<Id> getAuthorizedCouriers() {
         return authorizedCouriers;
     }
 
     /**
-     * @return Map of {@link #inventory} (id : String, product : {@link Product})
+     * @return Map of {@link #inventory} (id : {@link Id}, product : {@link Product})
+     * Map is view of {@link InventoryStore}, products can't be removed from it
      */
-    public Map<String, Product> getInventory(){
+    public Map<Id, Product> getInventory(){
         return inventory;
     }
 
     /**
-     * @return Map of {@link #orders} (id : String, order : {@link Order})
+     * @return {@link InventoryStore} of products
+     */
+    public InventoryStore getInventoryStore() {
+        return inventoryStore;
+    }
+
+    /**
+     * @return Map of {@link #orders} (id : {@link Id}, order : {@link Order})
+     * Map is view of {@link OrderStore}, orders can't be put to it
      */
 
-    public Map<String, Order> getOrders(){
+    public Map<Id, Order> getOrders(){
         return orders;
     }
 
     /**
-     * @return Map of orders taken to delivery (id : String, order : {@link Order}) {@link #deliveringOrders}
+     * @return Map of orders taken to delivery (id : {@link Id}, order : {@link Order}) {@link #deliveringOrders}
+     * Map is view of {@link OrderStore}, orders can't be put to it
      */
 
-    public Map<String, Order> getDeliveringOrders(){
+    public Map<Id, Order> getDeliveringOrders(){
         return deliveringOrders;
     }
 
+    /**
+     * @return {@link OrderStore} of orders in all states, including delivered and canceled ones
+     */
+    public OrderStore getOrderStore() {
+        return orderStore;
+    }
+
+    /**
+     * Find open orders (from {@link #orders} and {@link #deliveringOrders}) which contain article
+     * Orders are found by {@link OrderIndex}, so time doesn't depend on count of all orders
+     * @param articleId ID of {@link Article}
+     * @return List of open orders which contain article
+     */
+    public List<Order> findOrdersByArticle(Id articleId) {
+        return openOrders(orderIndex.ordersOfArticle(articleId));
+    }
+
+    /**
+     * Find open orders (from {@link #orders} and {@link #deliveringOrders}) of client
+     * Orders are found by {@link OrderIndex}, so time doesn't depend on count of all orders
+     * @param client {@link Client}
+     * @return List of open orders of client
+     */
+    public List<Order> findOrdersByClient(Client client) {
+        return openOrders(orderIndex.ordersOfClient(client));
+    }
+
+    /**
+     * Search products by words of name and description of their articles
+     * Every word must be a word of article, its beginning or (for words of three chars and more) its part.
+     * Products are sorted by quality of match, then by count, count is current count in inventory
+     *
+     * Index is built from inventory by the first search, so restored warehouse management doesn't read all articles
+     * until it is needed
+     * @param query Words of name or description
+     * @param limit Max count of products
+     * @return List of the best products
+     */
+    public List<Product> searchProducts(String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            List<Product> result = doSearchProducts(query, limit);
+            metrics.success(WarehouseMetrics.Operation.SEARCH_PRODUCTS, start);
+            return result;
+        } catch (RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.SEARCH_PRODUCTS, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #searchProducts(String, int)} without metrics
+     */
+    private List<Product> doSearchProducts(String query, int limit) {
+        if (!searchIndex.isBuilt()) {
+            searchIndex.build(inventoryStore);
+        }
+        List<Id> ids = searchIndex.search(query, limit, id -> {
+            StockCounter counter = inventoryStore.counterOf(id);
+            return counter == null ? 0 : counter.get();
+        });
+        List<Product> result = new ArrayList<>(ids.size());
+        for (Id id : ids) {
+            Product product = inventory.get(id);
+            if (product != null) {
+                result.add(product);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * This method set reorder threshold of article and record this action to "resources/information.txt"
+     *
+     * Article is low when its count is less than its threshold. Thresholds are kept only in memory,
+     * so they are not restored by {@link #recover(Path)}
+     *
+     * @param e {@link Employee} who sets threshold
+     * @param articleId ID of {@link Article} from inventory
+     * @param threshold Threshold, 0 removes threshold
+     * @return Result of action. If employee doesn't have authorization or article doesn't exist in inventory return false, else return true
+     * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
+     * @throws IllegalArgumentException if threshold is negative
+     */
+    public boolean setReorderThreshold(Employee e, Id articleId, int threshold) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return metrics.finished(WarehouseMetrics.Operation.SET_REORDER_THRESHOLD, start,
+                    doSetReorderThreshold(e, articleId, threshold));
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.SET_REORDER_THRESHOLD, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #setReorderThreshold(Employee, Id, int)} without metrics
+     */
+    private boolean doSetReorderThreshold(Employee e, Id articleId, int threshold) throws IOException {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold can't be negative: " + threshold);
+        }
+        if (!authorizedEmployees.contains(e.getId())) {
+            return unauthorized(WarehouseMetrics.Operation.SET_REORDER_THRESHOLD);
+        }
+        int stripe = articleLocks.lock(articleId);
+        try {
+            if (inventoryStore.counterOf(articleId) == null) {
+                return false;
+            }
+            writeToFile(AuditEventType.REORDER_THRESHOLD_CHANGE, e, articleId, Collections.emptyList(),
+                    String.valueOf(threshold), () -> "CHANGE REORDER THRESHOLD\n\nEMPLOYEE : " + e +
+                    "\n\nARTICLE ID : " + articleId + "\nTHRESHOLD : " + threshold);
+            lowStockIndex.setThreshold(articleId, threshold);
+            return true;
+        } finally {
+            articleLocks.unlock(stripe);
+        }
+    }
+
+    /**
+     * @param articleId ID of {@link Article}
+     * @return Reorder threshold of article, or 0 if article doesn't have threshold
+     */
+    public int getReorderThreshold(Id articleId) {
+        return lowStockIndex.thresholdOf(articleId);
+    }
+
+    /**
+     * Find products which count is less than their reorder threshold
+     * Products are taken from the head of {@link LowStockIndex}, so time depends only on limit
+     * @param limit Max count of products
+     * @return List of low products, product with the least ratio of count to threshold is the first
+     */
+    public List<Product> getMostDepletedProducts(int limit) {
+        List<Id> ids = lowStockIndex.mostDepleted(limit);
+        List<Product> result = new ArrayList<>(ids.size());
+        for (Id id : ids) {
+            Product product = inventory.get(id);
+            if (product != null) {
+                result.add(product);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add listener which is called when article becomes low or stops being low
+     * @param listener {@link LowStockIndex.Listener}
+     */
+    public void addLowStockListener(LowStockIndex.Listener listener) {
+        lowStockIndex.addListener(listener);
+    }
+
+    /**
+     * @return Total value (price * count) of all products of inventory in minor units (see {@link Money}),
+     * it is kept by every action, so inventory isn't scanned
+     */
+    public long getStockValue() {
+        return aggregates.getStockValue();
+    }
+
+    /**
+     * @return Total price of orders from {@link #orders} in minor units
+     */
+    public long getOpenOrderValue() {
+        return aggregates.getOpenOrderValue();
+    }
+
+    /**
+     * @return Total price of orders from {@link #deliveringOrders} in minor units
+     */
+    public long getDeliveringOrderValue() {
+        return aggregates.getDeliveringOrderValue();
+    }
+
+    /**
+     * @return {@link WarehouseMetrics} of all actions
+     */
+    public WarehouseMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Register {@link WarehouseMetrics} in platform MBean server (see {@link WarehouseMetrics#register(String)})
+     * MBean server keeps warehouse management reachable, so registered warehouse management must be closed
+     * by {@link #close()}, which removes MBean
+     * @param name Name of warehouse management
+     * @return Name of MBean
+     * @throws IllegalStateException if metrics are already registered or MBean can't be registered
+     */
+    public ObjectName registerMBean(String name) {
+        return metrics.register(name);
+    }
+
+    /**
+     * @param orderId ID of {@link Order} from {@link #deliveringOrders}
+     * @return ID of {@link Courier} who delivers order, or null if order isn't taken to delivery
+     * or is restored by {@link #recover(Path)}
+     */
+    public Id findCourierOfOrder(Id orderId) {
+        return courierIndex.courierOf(orderId);
+    }
+
+    /**
+     * @param courierId ID of {@link Courier}
+     * @return Unmodifiable view of orders which are taken to delivery by courier (id : {@link Id}, order : {@link Order})
+     */
+    public Map<Id, Order> getOrdersOfCourier(Id courierId) {
+        return courierIndex.viewOf(courierId);
+    }
+
+    /**
+     * @param courierId ID of {@link Courier}
+     * @return Count of orders which are taken to delivery by courier
+     */
+    public int getOrderCountOfCourier(Id courierId) {
+        return courierIndex.countOf(courierId);
+    }
+
     /**
      * This method give authorization to employee and record this action to "resources/information.txt"
      *
@@ -79,8 +441,22 @@ public class WarehouseManagement {
      * @throws IOException  if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
      */
     public void giveEmployeeAuthorization(Employee e) throws IOException {
-        authorizedEmployees.add(e.getId());
-        writeToFile( "EMPLOYEE AUTHORIZATION\n\nGive employee's authorization to " + e);
+        long start = System.nanoTime();
+        try {
+            synchronized (authorizedEmployees) {
+                authorizedEmployees.add(e.getId());
+                WarehouseJournal journal = journal();
+                if (journal != null) {
+                    journal.employeeAuthorization(e.getId(), true);
+                }
+            }
+            writeToFile(AuditEventType.EMPLOYEE_AUTHORIZATION_GIVEN, null, e.getId(),
+                    () -> "EMPLOYEE AUTHORIZATION\n\nGive employee's authorization to " + e);
+            metrics.success(WarehouseMetrics.Operation.GIVE_EMPLOYEE_AUTHORIZATION, start);
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.GIVE_EMPLOYEE_AUTHORIZATION, start);
+            throw ex;
+        }
     }
 
     /**
@@ -90,8 +466,22 @@ public class WarehouseManagement {
      * @throws IOException  if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
      */
     public void withdrawEmployeeAuthorization(Employee e) throws IOException {
-        authorizedEmployees.remove(e.getId());
-        writeToFile("EMPLOYEE AUTHORIZATION\n\nWithdraw employee's authorization from " + e);
+        long start = System.nanoTime();
+        try {
+            synchronized (authorizedEmployees) {
+                authorizedEmployees.remove(e.getId());
+                WarehouseJournal journal = journal();
+                if (journal != null) {
+                    journal.employeeAuthorization(e.getId(), false);
+                }
+            }
+            writeToFile(AuditEventType.EMPLOYEE_AUTHORIZATION_WITHDRAWN, null, e.getId(),
+                    () -> "EMPLOYEE AUTHORIZATION\n\nWithdraw employee's authorization from " + e);
+            metrics.success(WarehouseMetrics.Operation.WITHDRAW_EMPLOYEE_AUTHORIZATION, start);
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.WITHDRAW_EMPLOYEE_AUTHORIZATION, start);
+            throw ex;
+        }
     }
 
     /**
@@ -101,8 +491,23 @@ public class WarehouseManagement {
      * @throws IOException  if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
      */
     public void giveCourierAuthorization(Courier c) throws IOException {
-        authorizedCouriers.add(c.getId());
-        writeToFile( "COURIER AUTHORIZATION\n\nGive courier's authorization to " + c);
+        long start = System.nanoTime();
+        try {
+            c.attach(courierIndex);
+            synchronized (authorizedCouriers) {
+                authorizedCouriers.add(c.getId());
+                WarehouseJournal journal = journal();
+                if (journal != null) {
+                    journal.courierAuthorization(c.getId(), true);
+                }
+            }
+            writeToFile(AuditEventType.COURIER_AUTHORIZATION_GIVEN, null, c.getId(),
+                    () -> "COURIER AUTHORIZATION\n\nGive courier's authorization to " + c);
+            metrics.success(WarehouseMetrics.Operation.GIVE_COURIER_AUTHORIZATION, start);
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.GIVE_COURIER_AUTHORIZATION, start);
+            throw ex;
+        }
     }
 
     /**
@@ -113,8 +518,22 @@ public class WarehouseManagement {
      * @throws IOException  if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
      */
     public void withdrawCourierAuthorization(Courier c) throws IOException {
-        authorizedCouriers.remove(c.getId());
-        writeToFile("COURIER AUTHORIZATION\n\nWithdraw courier's authorization from " + c);
+        long start = System.nanoTime();
+        try {
+            synchronized (authorizedCouriers) {
+                authorizedCouriers.remove(c.getId());
+                WarehouseJournal journal = journal();
+                if (journal != null) {
+                    journal.courierAuthorization(c.getId(), false);
+                }
+            }
+            writeToFile(AuditEventType.COURIER_AUTHORIZATION_WITHDRAWN, null, c.getId(),
+                    () -> "COURIER AUTHORIZATION\n\nWithdraw courier's authorization from " + c);
+            metrics.success(WarehouseMetrics.Operation.WITHDRAW_COURIER_AUTHORIZATION, start);
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.WITHDRAW_COURIER_AUTHORIZATION, start);
+            throw ex;
+        }
     }
 
     /**
@@ -130,40 +549,182 @@ public class WarehouseManagement {
      *
      * Else if receipting product doesn't exist in inventory then method will add to inventory receipting product
      *
+     * Product with negative count isn't receipted and isn't recorded, like invalid line of {@link #receiptProducts(Employee, Collection)}
+     *
      * Action of reception will be recorded to "resources/information.txt" with information about employee and receipting product
      *
      * @param e {@link Employee} who receipts product
      * @param product {@link Product} which is receipted
-     * @return Status of action. If employee have authorization return true, else return false
+     * @return Status of action. If employee have authorization and count of product isn't negative return true, else return false
      * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
      */
     public boolean receiptProduct(Employee e, Product product) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return metrics.finished(WarehouseMetrics.Operation.RECEIPT_PRODUCT, start, doReceiptProduct(e, product));
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.RECEIPT_PRODUCT, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #receiptProduct(Employee, Product)} without metrics
+     */
+    private boolean doReceiptProduct(Employee e, Product product) throws IOException {
         if (authorizedEmployees.contains(e.getId())) {
-            writeToFile("PRODUCT RECEPTION\n\nEMPLOYEE : " + e + "\n\nPRODUCT : " + product);
+            if (product.getCount() < 0) {
+                return false;
+            }
+            Id id = product.getArticle().getId();
+            int stripe = articleLocks.lock(id);
+            try {
+                String productText = product.toString();
+                writeToFile(AuditEventType.PRODUCT_RECEPTION, e, id, Collections.singletonList(product), null,
+                        () -> "PRODUCT RECEPTION\n\nEMPLOYEE : " + e + "\n\nPRODUCT : " + productText);
+                WarehouseJournal journal = journal();
+                if (journal != null) {
+                    journal.productReception(Collections.singletonList(product));
+                }
 
-            String id = product.getArticle().getId();
-            if (inventory.containsKey(id)) {
-                product.setCount(inventory.get(id).getCount() + product.getCount());
-                inventory.replace(id, product);
-            } else {
-                inventory.put(id, product);
+                putReceived(product);
+            } finally {
+                articleLocks.unlock(stripe);
             }
             return true;
         }
-        else return false;
+        else return unauthorized(WarehouseMetrics.Operation.RECEIPT_PRODUCT);
+
+    }
+
+    /**
+     * This method receipt batch of products (for example all products from one truck)
+     *
+     * The method checks authorization of employee once for the whole batch
+     * if employee isn't authorized then method won't receipt any product and won't record it
+     *
+     * Lines with the same article are merged: their counts are summed and information of the last line is used,
+     * so result in inventory is the same as after {@link #receiptProduct(Employee, Product)} for every line in order of batch
+     * Merged lines are new {@link Product}s, so products of batch are not changed and are not kept in inventory
+     * Null lines and lines with negative count are skipped
+     *
+     * All counts are updated in one pass and action is recorded to "resources/information.txt" as one record
+     *
+     * @param e {@link Employee} who receipts products
+     * @param products {@link Product}s which are receipted
+     * @return {@link BatchReceiptResult} with status of every line
+     * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
+     */
+    public BatchReceiptResult receiptProducts(Employee e, Collection<Product> products) throws IOException {
+        long start = System.nanoTime();
+        try {
+            BatchReceiptResult result = doReceiptProducts(e, products);
+            metrics.finished(WarehouseMetrics.Operation.RECEIPT_PRODUCTS, start, result.isAuthorized());
+            return result;
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.RECEIPT_PRODUCTS, start);
+            throw ex;
+        }
+    }
 
+    /**
+     * Action of {@link #receiptProducts(Employee, Collection)} without metrics
+     */
+    private BatchReceiptResult doReceiptProducts(Employee e, Collection<Product> products) throws IOException {
+        if (!authorizedEmployees.contains(e.getId())) {
+            metrics.unauthorized(WarehouseMetrics.Operation.RECEIPT_PRODUCTS);
+            return BatchReceiptResult.unauthorized(products.size());
+        }
+        int lineCount = products.size();
+        BatchReceiptResult.Status[] statuses = new BatchReceiptResult.Status[lineCount];
+        Map<Id, Integer> mergedIndexes = new HashMap<>();
+        Product[] merged = new Product[lineCount];
+        int[] lineOfMerged = new int[lineCount];
+        int[] receivedCounts = new int[lineCount];
+        int mergedCount = 0;
+        int line = 0;
+        for (Product product : products) {
+            if (product == null || product.getCount() < 0) {
+                statuses[line++] = BatchReceiptResult.Status.INVALID;
+                continue;
+            }
+            Integer index = mergedIndexes.putIfAbsent(product.getArticle().getId(), mergedCount);
+            if (index == null) {
+                index = mergedCount++;
+            } else {
+                statuses[lineOfMerged[index]] = BatchReceiptResult.Status.MERGED;
+            }
+            merged[index] = product;
+            lineOfMerged[index] = line;
+            receivedCounts[index] += product.getCount();
+            statuses[line++] = BatchReceiptResult.Status.RECEIVED;
+        }
+
+        Id[] articleIds = new Id[mergedCount];
+        int[] quantities = Arrays.copyOf(receivedCounts, mergedCount);
+        StringBuilder sb = new StringBuilder();
+        sb.append("BATCH PRODUCT RECEPTION\n\nEMPLOYEE : ").append(e).append("\n\nPRODUCTS : ");
+        for (int i = 0; i < mergedCount; i++) {
+            merged[i] = new Product(receivedCounts[i], merged[i].getPrice(), merged[i].getArticle());
+            articleIds[i] = merged[i].getArticle().getId();
+            sb.append(merged[i]).append("\n++++++++++");
+        }
+        List<Product> mergedProducts = Arrays.asList(merged).subList(0, mergedCount);
+
+        int[] stripes = articleLocks.lockAll(mergedProducts);
+        try {
+            writeRecords(Collections.singletonList(new AuditRecord(AuditEventType.BATCH_PRODUCT_RECEPTION,
+                    AuditRecord.currentEpochNanos(), e.getId(), null, articleIds, quantities, null,
+                    sb.toString())));
+            WarehouseJournal journal = journal();
+            if (journal != null) {
+                journal.productReception(mergedProducts);
+            }
+            for (Product product : mergedProducts) {
+                putReceived(product);
+            }
+        } finally {
+            articleLocks.unlockAll(stripes);
+        }
+        return new BatchReceiptResult(statuses);
+    }
+
+    /**
+     * Add received product to inventory, count of product in inventory is increased by count of received product
+     * It must be called under lock of article
+     * @param product Received {@link Product}
+     */
+    private void putReceived(Product product) {
+        Id id = product.getArticle().getId();
+        int receivedCount = product.getCount();
+        long valueDelta = Money.times(product.getPrice(), receivedCount);
+        Product productFromInventory = inventory.get(id);
+        if (productFromInventory != null) {
+            valueDelta += Money.times(product.getPrice() - productFromInventory.getPrice(), productFromInventory.getCount());
+            product.shareCountOf(productFromInventory);
+            product.addCount(receivedCount);
+        }
+        inventory.put(id, product);
+        aggregates.addStockValue(valueDelta);
+        searchIndex.update(product.getArticle());
+        lowStockIndex.refresh(id);
     }
 
     /**
      * This method add new order
      *
-     * The method checks authorization of employee who creating order, amount of products in order to existing in inventory and order to already existing in {@link #orders} or in {@link #deliveringOrders}
+     * The method checks authorization of employee who creating order, amount of products in order to existing in inventory and order to already existing in {@link #orderStore} in any state
      * and return result of this checking (false - if employee doesn't have authorization or we don't have in inventory enough amount of products or order is already exists, else - true)
      * If result of checking is false then method won't create order and won't record action
      *
+     * If order contains article which doesn't exist in inventory then result of checking is false too
+     *
      * If result of checking true:
      * 1)this method will change information in inventory about amounts of all products which are contained in order by formula:
      * (new amount) = (old amount) - (amount from order)
+     * Amounts of all products are reserved together (see {@link StockReservation}), so if one of products isn't enough
+     * then amounts of other products are not changed. Articles of order are locked while amounts are reserved and recorded,
+     * so price of article can't be changed between change of amount and change of stock value
      * 2)this method will record action to "resources/information.txt" with information about employee who created order and information about order
      *
      *
@@ -173,25 +734,266 @@ public class WarehouseManagement {
      * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
      */
     public boolean createOrder(Employee e, Order order) throws IOException {
-        String id = order.getId();
-        boolean orderIsAlreadyExits = orders.containsKey(id) || deliveringOrders.containsKey(id);
-        if (authorizedEmployees.contains(e.getId()) && !orderIsAlreadyExits){
+        long start = System.nanoTime();
+        try {
+            return metrics.finished(WarehouseMetrics.Operation.CREATE_ORDER, start, doCreateOrder(e, order));
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.CREATE_ORDER, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #createOrder(Employee, Order)} without metrics
+     */
+    private boolean doCreateOrder(Employee e, Order order) throws IOException {
+        if (!authorizedEmployees.contains(e.getId())) {
+            return unauthorized(WarehouseMetrics.Operation.CREATE_ORDER);
+        }
+        Id id = order.getId();
+        int orderStripe = orderLocks.lock(id);
+        try {
+            boolean orderIsAlreadyExits = orderStore.contains(id);
+            if (orderIsAlreadyExits) {
+                return false;
+            }
             List<Product> productsFromOrder = order.getProducts();
-            for (Product productFromOrder : productsFromOrder){
-                String productId = productFromOrder.getArticle().getId();
-                Product productFromInventory = inventory.get(productId);
-                if (productFromInventory.getCount() < productFromOrder.getCount()){
+            int[] articleStripes = articleLocks.lockAll(productsFromOrder);
+            try {
+                StockReservation reservation = StockReservation.reserve(inventoryStore, productsFromOrder);
+                if (!reservation.isReserved()) {
                     return false;
                 }
-                else {
-                    productFromInventory.setCount(productFromInventory.getCount() - productFromOrder.getCount());
+                try {
+                    writeToFile(AuditEventType.ORDER_CREATION, e, id, productsFromOrder, null,
+                            () -> "CREATE NEW ORDER\n\nEMPLOYEE : " + e + "\n\nORDER : " + order);
+                    WarehouseJournal journal = journal();
+                    if (journal != null) {
+                        journal.orderCreation(order);
+                    }
+                    orderStore.add(order);
+                    orderIndex.add(order);
+                    reservation.commit();
+                    aggregates.orderCreated(order);
+                    aggregates.addStockValue(-stockValueOf(productsFromOrder));
+                    lowStockIndex.refresh(productsFromOrder);
+                    return true;
+                } finally {
+                    reservation.rollback();
                 }
+            } finally {
+                articleLocks.unlockAll(articleStripes);
             }
-            writeToFile("CREATE NEW ORDER\n\nEMPLOYEE : " + e.toString() + "\n\nORDER : " + order.toString());
-            orders.put(id, order);
-            return true;
+        } finally {
+            orderLocks.unlock(orderStripe);
+        }
+    }
+
+    /**
+     * This method add batch of new orders
+     *
+     * The method checks authorization of employee once for the whole batch
+     * if employee isn't authorized then method won't create any order and won't record action
+     *
+     * Then every order is checked in order of batch like in {@link #createOrder(Employee, Order)}:
+     * ID of order must not exist in {@link #orderStore} (delivered and canceled orders too) or earlier in batch,
+     * all articles must exist in inventory and inventory must have enough amount of products
+     * for this order together with all orders which are accepted earlier in batch
+     *
+     * Amounts of accepted orders are summed by article and every article's amount is taken from inventory once.
+     * If inventory is changed by other action at the same time and sum can't be taken,
+     * then accepted orders are reserved one by one (see {@link StockReservation})
+     *
+     * All created orders are recorded to "resources/information.txt" with one write
+     *
+     * @param e {@link Employee} who creating orders
+     * @param newOrders {@link Order}s
+     * @return {@link OrderOutcome} of every order in order of batch
+     * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
+     */
+    public List<OrderOutcome> createOrders(Employee e, List<Order> newOrders) throws IOException {
+        long start = System.nanoTime();
+        try {
+            List<OrderOutcome> outcomes = doCreateOrders(e, newOrders);
+            metrics.finished(WarehouseMetrics.Operation.CREATE_ORDERS, start,
+                    !outcomes.contains(OrderOutcome.UNAUTHORIZED));
+            return outcomes;
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.CREATE_ORDERS, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #createOrders(Employee, List)} without metrics
+     */
+    private List<OrderOutcome> doCreateOrders(Employee e, List<Order> newOrders) throws IOException {
+        OrderOutcome[] outcomes = new OrderOutcome[newOrders.size()];
+        if (!authorizedEmployees.contains(e.getId())) {
+            metrics.unauthorized(WarehouseMetrics.Operation.CREATE_ORDERS);
+            Arrays.fill(outcomes, OrderOutcome.UNAUTHORIZED);
+            return Arrays.asList(outcomes);
+        }
+        Set<Id> ids = new HashSet<>();
+        for (Order order : newOrders) {
+            ids.add(order.getId());
+        }
+        int[] orderStripes = orderLocks.lockAll(ids);
+        try {
+            Set<Id> seenIds = new HashSet<>();
+            Map<Id, StockCounter> touchedProducts = new HashMap<>();
+            Map<Id, Integer> demand = new HashMap<>();
+            Map<Id, Integer> orderDemand = new HashMap<>();
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] = checkOrderOfBatch(newOrders.get(i), seenIds, touchedProducts, demand, orderDemand);
+            }
+
+            int[] articleStripes = articleLocks.lockAll(touchedProducts.keySet());
+            try {
+                return commitOrdersOfBatch(e, newOrders, outcomes, touchedProducts, demand);
+            } finally {
+                articleLocks.unlockAll(articleStripes);
+            }
+        } finally {
+            orderLocks.unlockAll(orderStripes);
+        }
+    }
+
+    /**
+     * Take amounts of accepted orders of batch from inventory, record and add orders
+     * It must be called under locks of all orders of batch and of all their articles
+     * @param e {@link Employee} who creating orders
+     * @param newOrders {@link Order}s
+     * @param outcomes Outcomes of checking of orders, orders which can't be reserved get their reason
+     * @param touchedProducts {@link StockCounter}s from inventory of articles which are in orders of batch (id : {@link Id}, counter : {@link StockCounter})
+     * @param demand Amounts of accepted orders by article
+     * @return {@link OrderOutcome} of every order in order of batch
+     * @throws IOException if orders can't be recorded
+     */
+    private List<OrderOutcome> commitOrdersOfBatch(Employee e, List<Order> newOrders, OrderOutcome[] outcomes,
+                                                   Map<Id, StockCounter> touchedProducts,
+                                                   Map<Id, Integer> demand) throws IOException {
+        List<StockReservation> reservations = new ArrayList<>();
+        if (!takeDemand(touchedProducts, demand)) {
+            demand.clear();
+            for (int i = 0; i < outcomes.length; i++) {
+                if (outcomes[i] != OrderOutcome.CREATED) {
+                    continue;
+                }
+                StockReservation reservation = StockReservation.reserve(inventoryStore, newOrders.get(i).getProducts());
+                if (reservation.isReserved()) {
+                    reservations.add(reservation);
+                } else if (reservation.getStatus() == StockReservation.Status.UNKNOWN_ARTICLE) {
+                    outcomes[i] = OrderOutcome.UNKNOWN_ARTICLE;
+                } else {
+                    outcomes[i] = OrderOutcome.INSUFFICIENT_STOCK;
+                }
+            }
+        }
+
+        boolean committed = false;
+        try {
+            List<AuditRecord> records = new ArrayList<>();
+            for (int i = 0; i < outcomes.length; i++) {
+                if (outcomes[i] == OrderOutcome.CREATED) {
+                    Order order = newOrders.get(i);
+                    records.add(AuditRecord.of(AuditEventType.ORDER_CREATION, e.getId(), order.getId(),
+                            order.getProducts(), null,
+                            () -> "CREATE NEW ORDER\n\nEMPLOYEE : " + e + "\n\nORDER : " + order));
+                }
+            }
+            writeRecords(records);
+            WarehouseJournal journal = journal();
+            for (int i = 0; journal != null && i < outcomes.length; i++) {
+                if (outcomes[i] == OrderOutcome.CREATED) {
+                    journal.orderCreation(newOrders.get(i));
+                }
+            }
+            for (int i = 0; i < outcomes.length; i++) {
+                if (outcomes[i] == OrderOutcome.CREATED) {
+                    orderStore.add(newOrders.get(i));
+                    orderIndex.add(newOrders.get(i));
+                    aggregates.orderCreated(newOrders.get(i));
+                    aggregates.addStockValue(-stockValueOf(newOrders.get(i).getProducts()));
+                    lowStockIndex.refresh(newOrders.get(i).getProducts());
+                }
+            }
+            committed = true;
+        } finally {
+            if (!committed) {
+                for (Map.Entry<Id, Integer> entry : demand.entrySet()) {
+                    touchedProducts.get(entry.getKey()).addAndGet(entry.getValue());
+                }
+                for (StockReservation reservation : reservations) {
+                    reservation.rollback();
+                }
+            }
+        }
+        return Arrays.asList(outcomes);
+    }
+
+    /**
+     * Check order of batch and add its amounts to demand of batch if it is accepted
+     * @param order {@link Order}
+     * @param seenIds IDs of orders which are earlier in batch
+     * @param touchedProducts {@link StockCounter}s from inventory of articles which are in orders of batch (id : {@link Id}, counter : {@link StockCounter})
+     * @param demand Amounts of accepted orders by article
+     * @param orderDemand Map for amounts of this order, it is cleared by the method
+     * @return {@link OrderOutcome#CREATED} if order is accepted, else reason of rejecting
+     */
+    private OrderOutcome checkOrderOfBatch(Order order, Set<Id> seenIds, Map<Id, StockCounter> touchedProducts,
+                                           Map<Id, Integer> demand, Map<Id, Integer> orderDemand) {
+        Id id = order.getId();
+        if (orderStore.contains(id) || !seenIds.add(id)) {
+            return OrderOutcome.DUPLICATE_ID;
+        }
+        orderDemand.clear();
+        for (Product line : order.getProducts()) {
+            if (line.getCount() < 0) {
+                throw new IllegalArgumentException("Count of line can't be negative: " + line.getCount());
+            }
+            Id articleId = line.getArticle().getId();
+            StockCounter counter = touchedProducts.get(articleId);
+            if (counter == null) {
+                counter = inventoryStore.counterOf(articleId);
+                if (counter == null) {
+                    return OrderOutcome.UNKNOWN_ARTICLE;
+                }
+                touchedProducts.put(articleId, counter);
+            }
+            orderDemand.merge(articleId, line.getCount(), Integer::sum);
+        }
+        for (Map.Entry<Id, Integer> entry : orderDemand.entrySet()) {
+            int accepted = demand.getOrDefault(entry.getKey(), 0);
+            if (accepted + entry.getValue() > touchedProducts.get(entry.getKey()).get()) {
+                return OrderOutcome.INSUFFICIENT_STOCK;
+            }
+        }
+        for (Map.Entry<Id, Integer> entry : orderDemand.entrySet()) {
+            demand.merge(entry.getKey(), entry.getValue(), Integer::sum);
         }
-        else return false;
+        return OrderOutcome.CREATED;
+    }
+
+    /**
+     * Take summed amounts of batch from inventory, every article once
+     * If one of amounts can't be taken then already taken amounts are given back
+     * @param touchedProducts {@link StockCounter}s from inventory (id : {@link Id}, counter : {@link StockCounter})
+     * @param demand Amounts by article
+     * @return Result of action. If all amounts are taken return true, else return false
+     */
+    private boolean takeDemand(Map<Id, StockCounter> touchedProducts, Map<Id, Integer> demand) {
+        List<Map.Entry<Id, Integer>> taken = new ArrayList<>();
+        for (Map.Entry<Id, Integer> entry : demand.entrySet()) {
+            if (!touchedProducts.get(entry.getKey()).tryTake(entry.getValue())) {
+                for (Map.Entry<Id, Integer> takenEntry : taken) {
+                    touchedProducts.get(takenEntry.getKey()).addAndGet(takenEntry.getValue());
+                }
+                return false;
+            }
+            taken.add(entry);
+        }
+        return true;
     }
 
     /**
@@ -209,15 +1011,53 @@ public class WarehouseManagement {
      * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
      */
     public boolean changeProductInfo(Employee e, Product productWithNewInfo) throws IOException {
-        String id = productWithNewInfo.getArticle().getId();
-        if (authorizedEmployees.contains(e.getId()) && inventory.containsKey(id)){
-            writeToFile("CHANGE PRODUCT INFORMATION\n\nEMPLOYEE :" + e + "\n\nOLD INFORMATION :" + inventory.get(id) +
-                    "\n\nNEW INFORMATION :" + productWithNewInfo);
+        long start = System.nanoTime();
+        try {
+            return metrics.finished(WarehouseMetrics.Operation.CHANGE_PRODUCT_INFO, start,
+                    doChangeProductInfo(e, productWithNewInfo));
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.CHANGE_PRODUCT_INFO, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #changeProductInfo(Employee, Product)} without metrics
+     */
+    private boolean doChangeProductInfo(Employee e, Product productWithNewInfo) throws IOException {
+        Id id = productWithNewInfo.getArticle().getId();
+        if (!authorizedEmployees.contains(e.getId())) {
+            return unauthorized(WarehouseMetrics.Operation.CHANGE_PRODUCT_INFO);
+        }
+        int stripe = articleLocks.lock(id);
+        try {
+            Product oldProduct = inventory.get(id);
+            if (oldProduct == null) {
+                return false;
+            }
+            String oldText = oldProduct.toString();
+            String newText = productWithNewInfo.toString();
+            writeToFile(AuditEventType.PRODUCT_INFORMATION_CHANGE, e, id, Collections.singletonList(productWithNewInfo),
+                    null, () -> "CHANGE PRODUCT INFORMATION\n\nEMPLOYEE :" + e + "\n\nOLD INFORMATION :" + oldText +
+                    "\n\nNEW INFORMATION :" + newText);
+            WarehouseJournal journal = journal();
+            if (journal != null) {
+                journal.productInformationChange(productWithNewInfo,
+                        productWithNewInfo.getCount() - oldProduct.getCount());
+            }
 
-            inventory.replace(id, productWithNewInfo);
+            int newCount = productWithNewInfo.getCount();
+            long oldValue = Money.times(oldProduct.getPrice(), oldProduct.getCount());
+            productWithNewInfo.shareCountOf(oldProduct);
+            productWithNewInfo.setCount(newCount);
+            inventory.put(id, productWithNewInfo);
+            aggregates.addStockValue(Money.times(productWithNewInfo.getPrice(), newCount) - oldValue);
+            searchIndex.update(productWithNewInfo.getArticle());
+            lowStockIndex.refresh(id);
             return true;
+        } finally {
+            articleLocks.unlock(stripe);
         }
-        else return false;
     }
 
     /**
@@ -242,26 +1082,69 @@ public class WarehouseManagement {
      * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
      * @see Order
      */
-    public boolean cancelOrder(Employee e, String id, String reason) throws IOException{
-        if (authorizedEmployees.contains(e.getId()) && orders.containsKey(id)){
-            Order order = orders.get(id);
-            orders.remove(id);
+    public boolean cancelOrder(Employee e, Id id, String reason) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return metrics.finished(WarehouseMetrics.Operation.CANCEL_ORDER, start, doCancelOrder(e, id, reason));
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.CANCEL_ORDER, start);
+            throw ex;
+        }
+    }
 
-            List<Product> productsFromOrder = order.getProducts();
-            for (Product product : productsFromOrder){
-                String productId = product.getArticle().getId();
-                Product productFromInventory = inventory.get(productId);
-                productFromInventory.setCount(productFromInventory.getCount() + product.getCount());
+    /**
+     * Action of {@link #cancelOrder(Employee, Id, String)} without metrics
+     */
+    private boolean doCancelOrder(Employee e, Id id, String reason) throws IOException {
+        if (!authorizedEmployees.contains(e.getId())) {
+            return unauthorized(WarehouseMetrics.Operation.CANCEL_ORDER);
+        }
+        int orderStripe = orderLocks.lock(id);
+        try {
+            Order order = orders.get(id);
+            if (order == null) {
+                return false;
             }
+            List<Product> productsFromOrder = order.getProducts();
+            int[] articleStripes = articleLocks.lockAll(productsFromOrder);
+            try {
+                writeToFile(AuditEventType.ORDER_CANCELLATION, e, id, productsFromOrder, reason,
+                        () -> "CANCEL ORDER\n\nEMPLOYEE :" + e + "\n\nORDER :" + order + "\nREASON :\n" + reason);
+                WarehouseJournal journal = journal();
+                if (journal != null) {
+                    journal.orderCancellation(id);
+                }
 
-            writeToFile("CANCEL ORDER\n\nEMPLOYEE :" + e + "\n\nORDER :" + order + "\nREASON :\n" + reason);
-            return true;
+                orderStore.transition(id, OrderState.PENDING, OrderState.CANCELLED);
+                orderIndex.remove(order);
+                StockReservation.release(inventoryStore, productsFromOrder);
+                aggregates.orderCanceled(order);
+                aggregates.addStockValue(stockValueOf(productsFromOrder));
+                lowStockIndex.refresh(productsFromOrder);
+                return true;
+            } finally {
+                articleLocks.unlockAll(articleStripes);
+            }
+        } finally {
+            orderLocks.unlock(orderStripe);
         }
-        else return false;
     }
 
     /**
-     * This method take order from {@link #orders} to {@link Courier}'s field and to {@link #deliveringOrders}
+     * This method cancel order by ID in UUID form (see {@link #cancelOrder(Employee, Id, String)})
+     * @param e {@link Employee} who canceling order
+     * @param id ID of order which is canceling
+     * @param reason Reason of canceling order
+     * @return Result of action. If employee doesn't have authorization return false, else return true
+     * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
+     * @throws IllegalArgumentException if id isn't ID in UUID form
+     */
+    public boolean cancelOrder(Employee e, String id, String reason) throws IOException {
+        return cancelOrder(e, Id.parse(id), reason);
+    }
+
+    /**
+     * This method take order from {@link #orders} to {@link Courier} in {@link #courierIndex} and to {@link #deliveringOrders}
      *
      * The method checks authorization of courier who taking order, order's ID to existing in {@link #orders} and in {@link Courier}'s field
      * and return result of this checking
@@ -271,21 +1154,60 @@ public class WarehouseManagement {
      * @return Result
      * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
      */
-    public boolean takeOrder(Courier c, String id) throws IOException {
-        if (authorizedCouriers.contains(c.getId()) && orders.containsKey(id)){
+    public boolean takeOrder(Courier c, Id id) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return metrics.finished(WarehouseMetrics.Operation.TAKE_ORDER, start, doTakeOrder(c, id));
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.TAKE_ORDER, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #takeOrder(Courier, Id)} without metrics
+     */
+    private boolean doTakeOrder(Courier c, Id id) throws IOException {
+        if (!authorizedCouriers.contains(c.getId())) {
+            return unauthorized(WarehouseMetrics.Operation.TAKE_ORDER);
+        }
+        int stripe = orderLocks.lock(id);
+        try {
             Order order = orders.get(id);
-            writeToFile("TAKING ORDER TO DELIVERY\n\nCOURIER : " + c + "\n\nORDER :" + order);
+            if (order == null) {
+                return false;
+            }
+            writeToFile(AuditEventType.ORDER_TAKING, c, id,
+                    () -> "TAKING ORDER TO DELIVERY\n\nCOURIER : " + c + "\n\nORDER :" + order);
+            WarehouseJournal journal = journal();
+            if (journal != null) {
+                journal.orderTaking(id, c.getId());
+            }
 
-            c.takeOrder(order);
-            deliveringOrders.put(id, order);
-            orders.remove(id);
+            c.attach(courierIndex);
+            courierIndex.assign(c.getId(), order);
+            orderStore.transition(id, OrderState.PENDING, OrderState.DELIVERING);
+            aggregates.orderTaken(order);
             return true;
+        } finally {
+            orderLocks.unlock(stripe);
         }
-        else return false;
     }
 
     /**
-     * This method return order from {@link #deliveringOrders} and from {@link Courier}'s field to {@link #orders}
+     * This method take order by ID in UUID form (see {@link #takeOrder(Courier, Id)})
+     * @param c {@link Courier} who taking order
+     * @param id ID of {@link Order}
+     * @return Result
+     * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
+     * @throws IllegalArgumentException if id isn't ID in UUID form
+     */
+    public boolean takeOrder(Courier c, String id) throws IOException {
+        return takeOrder(c, Id.parse(id));
+    }
+
+    /**
+     * This method return order from {@link #deliveringOrders} and from {@link Courier} in {@link #courierIndex} to {@link #orders}
      * and record action to "resources/information.txt" with information about courier, order and reason
      *
      * The method checks authorization of courier who returning order, order's ID to existing in {@link #deliveringOrders} and return result of this checking
@@ -298,21 +1220,60 @@ public class WarehouseManagement {
      * @return Status of action. If action is done - return true, but if action is canceled by checks - return false
      * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
      */
-    public boolean returnOrder(Courier c, String id, String reason) throws IOException {
-        if (authorizedCouriers.contains(c.getId()) && deliveringOrders.containsKey(id)){
+    public boolean returnOrder(Courier c, Id id, String reason) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return metrics.finished(WarehouseMetrics.Operation.RETURN_ORDER, start, doReturnOrder(c, id, reason));
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.RETURN_ORDER, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #returnOrder(Courier, Id, String)} without metrics
+     */
+    private boolean doReturnOrder(Courier c, Id id, String reason) throws IOException {
+        if (!authorizedCouriers.contains(c.getId())) {
+            return unauthorized(WarehouseMetrics.Operation.RETURN_ORDER);
+        }
+        int stripe = orderLocks.lock(id);
+        try {
             Order order = deliveringOrders.get(id);
-            orders.put(id, order);
-            deliveringOrders.remove(id);
-            c.deleteOrder(id);
+            if (order == null) {
+                return false;
+            }
+            writeToFile(AuditEventType.ORDER_RETURNING, c, id, Collections.emptyList(), reason,
+                    () -> "RETURNING ORDER\n\n" + "COURIER :" + c + "\n\nORDER:" + order + "\n\nREASON:\n" + reason);
+            WarehouseJournal journal = journal();
+            if (journal != null) {
+                journal.orderReturning(id, c.getId());
+            }
 
-            writeToFile("RETURNING ORDER\n\n" + "COURIER :" + c + "\n\nORDER:" + order + "\n\nREASON:\n" + reason);
+            orderStore.transition(id, OrderState.DELIVERING, OrderState.PENDING);
+            courierIndex.release(id);
+            aggregates.orderReturned(order);
             return true;
+        } finally {
+            orderLocks.unlock(stripe);
         }
-        return false;
     }
 
     /**
-     * This method delete order from {@link Courier}'s field and from {@link #deliveringOrders}
+     * This method return order by ID in UUID form (see {@link #returnOrder(Courier, Id, String)})
+     * @param c {@link Courier}
+     * @param id ID of {@link Order}
+     * @param reason Reason of returning order
+     * @return Status of action. If action is done - return true, but if action is canceled by checks - return false
+     * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
+     * @throws IllegalArgumentException if id isn't ID in UUID form
+     */
+    public boolean returnOrder(Courier c, String id, String reason) throws IOException {
+        return returnOrder(c, Id.parse(id), reason);
+    }
+
+    /**
+     * This method delete order from {@link Courier} in {@link #courierIndex} and from {@link #deliveringOrders}
      * and record action to "resources/information.txt" with information about courier and order
      *
      * The method checks authorization of courier who returning order, order's ID to existing in {@link #deliveringOrders} and return result of this checking
@@ -322,20 +1283,62 @@ public class WarehouseManagement {
      * @return Status of action. If action is done - return true, but if action is canceled by checks - return false
      * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
      */
-    public boolean deliverOrder(Courier c, String id) throws IOException{
-        if (authorizedCouriers.contains(c.getId()) && deliveringOrders.containsKey(id)){
+    public boolean deliverOrder(Courier c, Id id) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return metrics.finished(WarehouseMetrics.Operation.DELIVER_ORDER, start, doDeliverOrder(c, id));
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.DELIVER_ORDER, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #deliverOrder(Courier, Id)} without metrics
+     */
+    private boolean doDeliverOrder(Courier c, Id id) throws IOException {
+        if (!authorizedCouriers.contains(c.getId())) {
+            return unauthorized(WarehouseMetrics.Operation.DELIVER_ORDER);
+        }
+        int stripe = orderLocks.lock(id);
+        try {
             Order order = deliveringOrders.get(id);
-            writeToFile("DELIVER ORDER\n\nCOURIER :" + c + "\n\nORDER :" + order);
+            if (order == null) {
+                return false;
+            }
+            writeToFile(AuditEventType.ORDER_DELIVERY, c, id,
+                    () -> "DELIVER ORDER\n\nCOURIER :" + c + "\n\nORDER :" + order);
+            WarehouseJournal journal = journal();
+            if (journal != null) {
+                journal.orderDelivery(id, c.getId());
+            }
 
-            c.getOrders().remove(id);
-            deliveringOrders.remove(id);
+            courierIndex.release(id);
+            orderStore.transition(id, OrderState.DELIVERING, OrderState.DELIVERED);
+            orderIndex.remove(order);
+            aggregates.orderDelivered(order);
             return true;
+        } finally {
+            orderLocks.unlock(stripe);
         }
-        else return false;
+    }
+
+    /**
+     * This method deliver order by ID in UUID form (see {@link #deliverOrder(Courier, Id)})
+     * @param c {@link Courier} who deliver order
+     * @param id {@link Order}'s ID
+     * @return Status of action. If action is done - return true, but if action is canceled by checks - return false
+     * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
+     * @throws IllegalArgumentException if id isn't ID in UUID form
+     */
+    public boolean deliverOrder(Courier c, String id) throws IOException {
+        return deliverOrder(c, Id.parse(id));
     }
 
     /**
      * Write all products from {@link #inventory} to "resources/information.txt"
+     * Products are streamed to records of {@link #auditSink} by groups of {@link #REPORT_ENTRIES_PER_RECORD}
+     * (see {@link AuditReportWriter}), so memory which is used by report doesn't depend on size of inventory
      *
      * The method check authorization of employee
      * @param e {@link Employee}
@@ -343,78 +1346,483 @@ public class WarehouseManagement {
      * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
      */
     public boolean showInventory(Employee e) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return metrics.finished(WarehouseMetrics.Operation.SHOW_INVENTORY, start, doShowInventory(e));
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.SHOW_INVENTORY, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #showInventory(Employee)} without metrics
+     */
+    private boolean doShowInventory(Employee e) throws IOException {
         if (authorizedEmployees.contains(e.getId())) {
-            StringBuilder sb = new StringBuilder();
-            sb.append("SHOW INVENTORY:\n\nEMPLOYEE:").append(e);
-            Set<Map.Entry<String, Product>> entries = inventory.entrySet();
-            for (Map.Entry entry : entries) {
-                Product product = (Product) entry.getValue();
-                sb.append("\n\nPRODUCT").append(product.toString()).append("\n+++++++++++++++++");
-            }
-            writeToFile(sb.toString());
+            Writer out = new AuditReportWriter(AuditEventType.INVENTORY_SHOWING, e);
+            out.write("SHOW INVENTORY:\n\nEMPLOYEE:" + e);
+            ReportPage.all().write(inventoryStore, "PRODUCT", out, REPORT_ENTRIES_PER_RECORD);
             return true;
         }
-        return false;
+        return unauthorized(WarehouseMetrics.Operation.SHOW_INVENTORY);
+    }
+
+    /**
+     * Write page of products from {@link #inventory} to writer and record showing to "resources/information.txt"
+     *
+     * Products are written one by one while inventory is iterated (see {@link ReportPage}),
+     * so memory which is used by report doesn't depend on size of inventory
+     * Only employee, page and count of written products are recorded
+     *
+     * The method check authorization of employee
+     * @param e {@link Employee}
+     * @param out Writer of report
+     * @param page {@link ReportPage} of products
+     * @return Count of written products, or -1 if employee doesn't have authorization
+     * @throws IOException if report can't be written or the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
+     */
+    public int showInventory(Employee e, Writer out, ReportPage<? super Product> page) throws IOException {
+        long start = System.nanoTime();
+        try {
+            int written = doShowInventory(e, out, page);
+            metrics.finished(WarehouseMetrics.Operation.SHOW_INVENTORY, start, written >= 0);
+            return written;
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.SHOW_INVENTORY, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #showInventory(Employee, Writer, ReportPage)} without metrics
+     */
+    private int doShowInventory(Employee e, Writer out, ReportPage<? super Product> page) throws IOException {
+        if (!authorizedEmployees.contains(e.getId())) {
+            metrics.unauthorized(WarehouseMetrics.Operation.SHOW_INVENTORY);
+            return -1;
+        }
+        out.write("SHOW INVENTORY:\n\nEMPLOYEE:" + e);
+        int written = page.write(inventoryStore, "PRODUCT", out);
+        writeToFile(AuditEventType.INVENTORY_SHOWING, e, null,
+                () -> "SHOW INVENTORY:\n\nEMPLOYEE:" + e + pageSummary(page, "PRODUCTS", written));
+        return written;
     }
 
     /**
-     * Write all order from {@link #orders} to "resources/information.txt"
+     * Write all orders from {@link #orders} to "resources/information.txt"
+     * Orders are streamed to records by groups (see {@link #showInventory(Employee)})
      *
      * The method check authorization of employee
      * @param e {@link Employee} or {@link Courier}
      * @return Result of action
      * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
      */
-    public boolean showOrders(Employee e) throws IOException{
+    public boolean showOrders(Employee e) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return metrics.finished(WarehouseMetrics.Operation.SHOW_ORDERS, start, doShowOrders(e));
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.SHOW_ORDERS, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #showOrders(Employee)} without metrics
+     */
+    private boolean doShowOrders(Employee e) throws IOException {
         if (authorizedEmployees.contains(e.getId()) || authorizedCouriers.contains(e.getId())){
-            StringBuilder sb = new StringBuilder();
-            sb.append("SHOW ORDERS:\n\nEMPLOYEE/COURIER:").append(e);
-            Set<Map.Entry<String, Order>> entries = orders.entrySet();
-            for (Map.Entry entry : entries) {
-                Order order = (Order) entry.getValue();
-                sb.append("\n\nORDER:").append(order.toString()).append("\n+++++++++++++++++");
-            }
-            writeToFile(sb.toString());
+            Writer out = new AuditReportWriter(AuditEventType.ORDERS_SHOWING, e);
+            out.write("SHOW ORDERS:\n\nEMPLOYEE/COURIER:" + e);
+            ReportPage.all().write(orders.values(), "ORDER:", out, REPORT_ENTRIES_PER_RECORD);
             return true;
         }
-        else return false;
+        else return unauthorized(WarehouseMetrics.Operation.SHOW_ORDERS);
     }
 
     /**
-     * Write all order from {@link #orders} to "resources/information.txt"
+     * Write page of orders from {@link #orders} to writer and record showing to "resources/information.txt"
+     * Orders are written one by one (see {@link #showInventory(Employee, Writer, ReportPage)})
+     *
+     * The method check authorization of employee
+     * @param e {@link Employee} or {@link Courier}
+     * @param out Writer of report
+     * @param page {@link ReportPage} of orders
+     * @return Count of written orders, or -1 if employee or courier doesn't have authorization
+     * @throws IOException if report can't be written or the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
+     */
+    public int showOrders(Employee e, Writer out, ReportPage<? super Order> page) throws IOException {
+        long start = System.nanoTime();
+        try {
+            int written = doShowOrders(e, out, page);
+            metrics.finished(WarehouseMetrics.Operation.SHOW_ORDERS, start, written >= 0);
+            return written;
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.SHOW_ORDERS, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #showOrders(Employee, Writer, ReportPage)} without metrics
+     */
+    private int doShowOrders(Employee e, Writer out, ReportPage<? super Order> page) throws IOException {
+        if (!authorizedEmployees.contains(e.getId()) && !authorizedCouriers.contains(e.getId())) {
+            metrics.unauthorized(WarehouseMetrics.Operation.SHOW_ORDERS);
+            return -1;
+        }
+        out.write("SHOW ORDERS:\n\nEMPLOYEE/COURIER:" + e);
+        int written = page.write(orders.values(), "ORDER:", out);
+        writeToFile(AuditEventType.ORDERS_SHOWING, e, null,
+                () -> "SHOW ORDERS:\n\nEMPLOYEE/COURIER:" + e + pageSummary(page, "ORDERS", written));
+        return written;
+    }
+
+    /**
+     * Write all orders from {@link #deliveringOrders} to "resources/information.txt"
+     * Orders are streamed to records by groups (see {@link #showInventory(Employee)})
      *
      * The method check authorization of employee
      * @param e {@link Employee}
      * @return Result of action
      * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
      */
-    public boolean showDeliveringOrders(Employee e) throws IOException{
+    public boolean showDeliveringOrders(Employee e) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return metrics.finished(WarehouseMetrics.Operation.SHOW_DELIVERING_ORDERS, start,
+                    doShowDeliveringOrders(e));
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.SHOW_DELIVERING_ORDERS, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #showDeliveringOrders(Employee)} without metrics
+     */
+    private boolean doShowDeliveringOrders(Employee e) throws IOException {
         if (authorizedEmployees.contains(e.getId())){
-            StringBuilder sb = new StringBuilder();
-            sb.append("SHOW DELIVERING ORDERS:\n\nEMPLOYEE:").append(e);
-            Set<Map.Entry<String, Order>> entries = deliveringOrders.entrySet();
-            for (Map.Entry entry : entries) {
-                Order order = (Order) entry.getValue();
-                sb.append("\n\nORDER:").append(order.toString()).append("\n+++++++++++++++++");
-            }
-            writeToFile(sb.toString());
+            Writer out = new AuditReportWriter(AuditEventType.DELIVERING_ORDERS_SHOWING, e);
+            out.write("SHOW DELIVERING ORDERS:\n\nEMPLOYEE:" + e);
+            ReportPage.all().write(deliveringOrders.values(), "ORDER:", out, REPORT_ENTRIES_PER_RECORD);
             return true;
         }
-        else return false;
+        else return unauthorized(WarehouseMetrics.Operation.SHOW_DELIVERING_ORDERS);
     }
 
     /**
-     * This method helps to write record to "resources/information.txt" input string
-     * and add current date to record
-     * @param str String which is needed to write
-     * @throws IOException if the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
+     * Write page of orders from {@link #deliveringOrders} to writer and record showing to "resources/information.txt"
+     * Orders are written one by one (see {@link #showInventory(Employee, Writer, ReportPage)})
+     *
+     * The method check authorization of employee
+     * @param e {@link Employee}
+     * @param out Writer of report
+     * @param page {@link ReportPage} of orders
+     * @return Count of written orders, or -1 if employee doesn't have authorization
+     * @throws IOException if report can't be written or the "resources/information.txt" exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other reason
+     */
+    public int showDeliveringOrders(Employee e, Writer out, ReportPage<? super Order> page) throws IOException {
+        long start = System.nanoTime();
+        try {
+            int written = doShowDeliveringOrders(e, out, page);
+            metrics.finished(WarehouseMetrics.Operation.SHOW_DELIVERING_ORDERS, start, written >= 0);
+            return written;
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.SHOW_DELIVERING_ORDERS, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #showDeliveringOrders(Employee, Writer, ReportPage)} without metrics
+     */
+    private int doShowDeliveringOrders(Employee e, Writer out, ReportPage<? super Order> page) throws IOException {
+        if (!authorizedEmployees.contains(e.getId())) {
+            metrics.unauthorized(WarehouseMetrics.Operation.SHOW_DELIVERING_ORDERS);
+            return -1;
+        }
+        out.write("SHOW DELIVERING ORDERS:\n\nEMPLOYEE:" + e);
+        int written = page.write(deliveringOrders.values(), "ORDER:", out);
+        writeToFile(AuditEventType.DELIVERING_ORDERS_SHOWING, e, null,
+                () -> "SHOW DELIVERING ORDERS:\n\nEMPLOYEE:" + e + pageSummary(page, "ORDERS", written));
+        return written;
+    }
+
+    /**
+     * @param page {@link ReportPage} of report
+     * @param title Title of entries
+     * @param written Count of written entries
+     * @return Text about page of report for record
      */
-    private void writeToFile(String str) throws IOException {
-        FileWriter fw = new FileWriter("src/main/resources/information.txt", true);
-        Date currentDate = new Date();
+    private static String pageSummary(ReportPage<?> page, String title, int written) {
+        return "\n\nOFFSET : " + page.getOffset() + "\nLIMIT : " + page.getLimit() + "\n" + title + " : " + written;
+    }
 
-        fw.write(str + "\n\nDATE : " + currentDate.toString() + "\n------------------------------------\n");
-        fw.flush();
-        fw.close();
+    /**
+     * Make snapshot of state and start new journal (see {@link WarehouseStateStore})
+     *
+     * State is captured while all stripes of {@link #orderLocks} and {@link #articleLocks} are locked,
+     * snapshot is written to disk after they are unlocked, so other actions wait only for copying of state
+     *
+     * @throws IOException if snapshot or journal can't be written
+     * @throws IllegalStateException if warehouse management isn't created by {@link #recover(Path)}
+     */
+    public void checkpoint() throws IOException {
+        long start = System.nanoTime();
+        try {
+            doCheckpoint();
+            metrics.success(WarehouseMetrics.Operation.CHECKPOINT, start);
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.CHECKPOINT, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Action of {@link #checkpoint()} without metrics
+     */
+    private void doCheckpoint() throws IOException {
+        WarehouseStateStore store = stateStore;
+        if (store == null) {
+            throw new IllegalStateException("Warehouse management doesn't have state directory");
+        }
+        synchronized (store) {
+            WarehouseStateStore.Snapshot snapshot;
+            long number;
+            orderLocks.lockEvery();
+            articleLocks.lockEvery();
+            try {
+                synchronized (authorizedEmployees) {
+                    synchronized (authorizedCouriers) {
+                        snapshot = WarehouseStateStore.Snapshot.capture(this, inventoryStore);
+                        number = store.startJournal();
+                    }
+                }
+            } finally {
+                articleLocks.unlockEvery();
+                orderLocks.unlockEvery();
+            }
+            store.writeSnapshot(number, snapshot);
+        }
+    }
+
+    /**
+     * Make snapshots periodically on background thread
+     * If snapshot can't be written then periodic snapshots are stopped
+     * @param period Period between snapshots
+     * @param unit Unit of period
+     * @throws IllegalStateException if warehouse management isn't created by {@link #recover(Path)}
+     * @see #checkpoint()
+     */
+    public void scheduleCheckpoints(long period, TimeUnit unit) {
+        WarehouseStateStore store = stateStore;
+        if (store == null) {
+            throw new IllegalStateException("Warehouse management doesn't have state directory");
+        }
+        store.schedule(() -> {
+            try {
+                checkpoint();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, period, unit);
+    }
+
+    /**
+     * Remove {@link #metrics} from platform MBean server,
+     * close journal of state, {@link #auditSink} and {@link #inventoryStore}
+     * All records which are waiting for writing will be written
+     * @throws IOException if records can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        metrics.unregister();
+        try {
+            WarehouseStateStore store = stateStore;
+            if (store != null) {
+                store.close();
+            }
+        } finally {
+            try {
+                auditSink.close();
+            } finally {
+                inventoryStore.close();
+            }
+        }
+    }
+
+    /**
+     * @return Current journal of state, or null if state is kept only in memory
+     */
+    private WarehouseJournal journal() {
+        WarehouseStateStore store = stateStore;
+        return store == null ? null : store.journal();
+    }
+
+    /**
+     * @param ids IDs of orders from {@link #orderIndex}
+     * @return Orders from {@link #orders} and {@link #deliveringOrders} with these IDs
+     */
+    private List<Order> openOrders(Set<Id> ids) {
+        List<Order> result = new ArrayList<>(ids.size());
+        for (Id id : ids) {
+            Order order = orderStore.get(id);
+            if (order != null) {
+                result.add(order);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * It must be called under locks of articles of lines, so prices are the same as when amounts are changed
+     * @param lines {@link Product}s of order
+     * @return Value of amounts of lines by prices of their articles in inventory in minor units
+     */
+    private long stockValueOf(List<Product> lines) {
+        long value = 0;
+        for (Product line : lines) {
+            Product product = inventory.get(line.getArticle().getId());
+            if (product != null) {
+                value += Money.times(product.getPrice(), line.getCount());
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Build {@link #orderIndex} again from {@link #orders} and {@link #deliveringOrders}
+     * It is used after orders are restored from snapshot and journal
+     */
+    private void reindexOrders() {
+        orderIndex.clear();
+        for (Order order : orders.values()) {
+            orderIndex.add(order);
+        }
+        for (Order order : deliveringOrders.values()) {
+            orderIndex.add(order);
+        }
+    }
+
+    /**
+     * This method helps to write record about action without products to {@link #auditSink}
+     * @param type {@link AuditEventType} of action
+     * @param actor {@link Employee} or {@link Courier} who did action, or null
+     * @param subjectId ID of entity which is changed by action, or null
+     * @param message Source of human-readable message of record
+     * @throws IOException if {@link #auditSink} is closed or can't write record
+     */
+    private void writeToFile(AuditEventType type, Employee actor, Id subjectId, Supplier<String> message)
+            throws IOException {
+        writeToFile(type, actor, subjectId, Collections.emptyList(), null, message);
+    }
+
+    /**
+     * This method helps to write record to {@link #auditSink}
+     * Current date is added to record
+     * If {@link #auditSink} commits records in groups then the method returns when record is forced to disk,
+     * so every action which returns true is already durable
+     * Message is formatted when sink needs it (for example by writer thread of {@link AsyncAuditWriter}),
+     * so it must depend only on values which aren't changed after action
+     * @param type {@link AuditEventType} of action
+     * @param actor {@link Employee} or {@link Courier} who did action, or null
+     * @param subjectId ID of entity which is changed by action, or null
+     * @param products {@link Product}s which are changed by action
+     * @param note Note of action (for example reason), or null
+     * @param message Source of human-readable message of record
+     * @throws IOException if {@link #auditSink} is closed or can't write record
+     */
+    private void writeToFile(AuditEventType type, Employee actor, Id subjectId, List<Product> products,
+                             String note, Supplier<String> message) throws IOException {
+        AuditRecord record = AuditRecord.of(type, actor == null ? null : actor.getId(), subjectId, products, note, message);
+        long start = System.nanoTime();
+        try {
+            auditSink.write(record);
+            metrics.success(WarehouseMetrics.Operation.WRITE_AUDIT, start);
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.WRITE_AUDIT, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * This method helps to write records of one action to {@link #auditSink} (see {@link AuditSink#writeAll(List)})
+     * @param records {@link AuditRecord}s of action
+     * @throws IOException if {@link #auditSink} is closed or can't write records
+     */
+    private void writeRecords(List<AuditRecord> records) throws IOException {
+        long start = System.nanoTime();
+        try {
+            auditSink.writeAll(records);
+            metrics.success(WarehouseMetrics.Operation.WRITE_AUDIT, start);
+        } catch (IOException | RuntimeException ex) {
+            metrics.failed(WarehouseMetrics.Operation.WRITE_AUDIT, start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Count call which is rejected by authorization
+     * (see {@link WarehouseMetrics#unauthorized(WarehouseMetrics.Operation)})
+     * @param operation Rejected operation
+     * @return Result of rejected call, always false
+     */
+    private boolean unauthorized(WarehouseMetrics.Operation operation) {
+        metrics.unauthorized(operation);
+        return false;
+    }
+
+    /**
+     * Writer of report to {@link #auditSink}
+     * Text is collected until writer is flushed, then it is written as one record,
+     * so report is recorded by several records and only text of one group of entries is kept in memory
+     */
+    private final class AuditReportWriter extends Writer {
+        /** {@link AuditEventType} of records */
+        private final AuditEventType type;
+        /** {@link Employee} or {@link Courier} who shows report */
+        private final Employee actor;
+        /** Text which isn't recorded yet */
+        private final StringBuilder text = new StringBuilder();
+
+        /**
+         * @param type {@link AuditEventType} of records
+         * @param actor {@link Employee} or {@link Courier} who shows report
+         */
+        AuditReportWriter(AuditEventType type, Employee actor) {
+            this.type = type;
+            this.actor = actor;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            text.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String value) {
+            text.append(value);
+        }
+
+        /**
+         * Write collected text as one record
+         * @throws IOException if {@link #auditSink} is closed or can't write record
+         */
+        @Override
+        public void flush() throws IOException {
+            if (text.length() == 0) {
+                return;
+            }
+            String message = text.toString();
+            text.setLength(0);
+            writeToFile(type, actor, null, () -> message);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
     }
 }
@@ -0,0 +1,341 @@
+/**
+ * Class of metrics of {@link WarehouseManagement}
+ * implements {@link WarehouseMetricsMXBean}
+ *
+ * Every {@link Operation} has counters of successful, rejected and failed calls and {@link LatencyRecorder}
+ * of latencies. Counters are {@link LongAdder}s, so recording of call doesn't allocate memory and threads
+ * which record calls at the same time don't wait for each other.
+ * Call is successful if action is done, rejected if action is canceled by checks (for example authorization)
+ * and failed if method throws exception. Calls which are rejected by authorization are counted
+ * as rejected and also as unauthorized
+ *
+ * Queue size and written bytes of {@link AuditSink} are read when they are needed.
+ * Metrics are read by {@link #snapshot(Operation)} or through JMX after {@link #register(String)}
+ * @version 1.0
+ */
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class WarehouseMetrics implements WarehouseMetricsMXBean {
+    /**
+     * Measured operations of warehouse management
+     */
+    public enum Operation {
+        GIVE_EMPLOYEE_AUTHORIZATION,
+        WITHDRAW_EMPLOYEE_AUTHORIZATION,
+        GIVE_COURIER_AUTHORIZATION,
+        WITHDRAW_COURIER_AUTHORIZATION,
+        RECEIPT_PRODUCT,
+        RECEIPT_PRODUCTS,
+        CREATE_ORDER,
+        CREATE_ORDERS,
+        CHANGE_PRODUCT_INFO,
+        CANCEL_ORDER,
+        TAKE_ORDER,
+        RETURN_ORDER,
+        DELIVER_ORDER,
+        SET_REORDER_THRESHOLD,
+        SEARCH_PRODUCTS,
+        SHOW_INVENTORY,
+        SHOW_ORDERS,
+        SHOW_DELIVERING_ORDERS,
+        CHECKPOINT,
+        /** Writing of records to {@link AuditSink}, it is a part of other operations */
+        WRITE_AUDIT
+    }
+
+    /** Numbers of registered metrics, they make names of MBeans unique */
+    private static final AtomicInteger REGISTERED = new AtomicInteger();
+
+    /** Metrics of operations by {@link Operation#ordinal()} */
+    private final OperationMetrics[] operations = new OperationMetrics[Operation.values().length];
+    /** {@link AuditSink} of warehouse management */
+    private final AuditSink auditSink;
+    /** Name of registered MBean, or null */
+    private ObjectName objectName;
+
+    /**
+     * @param auditSink {@link AuditSink} of warehouse management
+     */
+    public WarehouseMetrics(AuditSink auditSink) {
+        this.auditSink = auditSink;
+        for (int i = 0; i < operations.length; i++) {
+            operations[i] = new OperationMetrics();
+        }
+    }
+
+    /**
+     * Count successful call
+     * @param operation {@link Operation}
+     * @param startNanos Time before call by {@link System#nanoTime()}
+     */
+    public void success(Operation operation, long startNanos) {
+        OperationMetrics metrics = operations[operation.ordinal()];
+        metrics.latencies.record(System.nanoTime() - startNanos);
+        metrics.success.increment();
+    }
+
+    /**
+     * Count call which is canceled by checks
+     * @param operation {@link Operation}
+     * @param startNanos Time before call by {@link System#nanoTime()}
+     */
+    public void rejected(Operation operation, long startNanos) {
+        OperationMetrics metrics = operations[operation.ordinal()];
+        metrics.latencies.record(System.nanoTime() - startNanos);
+        metrics.rejected.increment();
+    }
+
+    /**
+     * Count successful or rejected call
+     * @param operation {@link Operation}
+     * @param startNanos Time before call by {@link System#nanoTime()}
+     * @param result Result of call
+     * @return Result of call
+     */
+    public boolean finished(Operation operation, long startNanos, boolean result) {
+        if (result) {
+            success(operation, startNanos);
+        } else {
+            rejected(operation, startNanos);
+        }
+        return result;
+    }
+
+    /**
+     * Count call which is rejected by authorization, call must be counted as rejected too
+     * @param operation {@link Operation}
+     */
+    public void unauthorized(Operation operation) {
+        operations[operation.ordinal()].unauthorized.increment();
+    }
+
+    /**
+     * Count call which threw exception
+     * @param operation {@link Operation}
+     * @param startNanos Time before call by {@link System#nanoTime()}
+     */
+    public void failed(Operation operation, long startNanos) {
+        OperationMetrics metrics = operations[operation.ordinal()];
+        metrics.latencies.record(System.nanoTime() - startNanos);
+        metrics.failed.increment();
+    }
+
+    /**
+     * @param operation {@link Operation}
+     * @return Current counters and latencies of operation
+     */
+    public OperationSnapshot snapshot(Operation operation) {
+        OperationMetrics metrics = operations[operation.ordinal()];
+        return new OperationSnapshot(operation.name(), metrics.success.sum(), metrics.rejected.sum(),
+                metrics.unauthorized.sum(), metrics.failed.sum(), metrics.latencies.snapshot());
+    }
+
+    @Override
+    public OperationSnapshot[] getOperations() {
+        Operation[] values = Operation.values();
+        OperationSnapshot[] result = new OperationSnapshot[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = snapshot(values[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public int getAuditQueueSize() {
+        return auditSink.getQueueSize();
+    }
+
+    @Override
+    public long getAuditBytesWritten() {
+        return auditSink.getBytesWritten();
+    }
+
+    /**
+     * Register metrics in platform MBean server with name "Lagerverwaltung:type=WarehouseMetrics,name=(name)-(number)"
+     * Number makes name unique, so several warehouse managements can be registered with the same name
+     * @param name Name of warehouse management
+     * @return Name of MBean
+     * @throws IllegalStateException if metrics are already registered or MBean can't be registered
+     */
+    public synchronized ObjectName register(String name) {
+        if (objectName != null) {
+            throw new IllegalStateException("Metrics are already registered as " + objectName);
+        }
+        try {
+            ObjectName newName = new ObjectName("Lagerverwaltung:type=WarehouseMetrics,name="
+                    + ObjectName.quote(name + "-" + REGISTERED.incrementAndGet()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+            objectName = newName;
+            return newName;
+        } catch (JMException ex) {
+            throw new IllegalStateException("Metrics can't be registered", ex);
+        }
+    }
+
+    /**
+     * Remove metrics from platform MBean server, method does nothing if metrics aren't registered
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName);
+        } catch (JMException ex) {
+            // MBean is already removed by other code
+        }
+        objectName = null;
+    }
+
+    /**
+     * @return Name of registered MBean, or null if metrics aren't registered
+     */
+    public synchronized ObjectName getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Counters and latencies of one operation
+     */
+    private static final class OperationMetrics {
+        /** Count of successful calls */
+        final LongAdder success = new LongAdder();
+        /** Count of rejected calls */
+        final LongAdder rejected = new LongAdder();
+        /** Count of calls which are rejected by authorization */
+        final LongAdder unauthorized = new LongAdder();
+        /** Count of calls which threw exception */
+        final LongAdder failed = new LongAdder();
+        /** Latencies of all calls */
+        final LatencyRecorder latencies = new LatencyRecorder();
+    }
+
+    /**
+     * Counters and latencies of one operation at one moment
+     * Latencies are in nanoseconds
+     */
+    public static final class OperationSnapshot {
+        /** Name of {@link Operation} */
+        private final String operation;
+        /** Count of successful calls */
+        private final long successCount;
+        /** Count of rejected calls */
+        private final long rejectedCount;
+        /** Count of calls which are rejected by authorization */
+        private final long unauthorizedCount;
+        /** Count of calls which threw exception */
+        private final long failedCount;
+        /** Latencies of all calls */
+        private final LatencyHistogram latencies;
+
+        /**
+         * @param operation Name of {@link Operation}
+         * @param successCount Count of successful calls
+         * @param rejectedCount Count of rejected calls
+         * @param unauthorizedCount Count of calls which are rejected by authorization
+         * @param failedCount Count of calls which threw exception
+         * @param latencies Latencies of all calls
+         */
+        OperationSnapshot(String operation, long successCount, long rejectedCount, long unauthorizedCount,
+                          long failedCount, LatencyHistogram latencies) {
+            this.operation = operation;
+            this.successCount = successCount;
+            this.rejectedCount = rejectedCount;
+            this.unauthorizedCount = unauthorizedCount;
+            this.failedCount = failedCount;
+            this.latencies = latencies;
+        }
+
+        /**
+         * @return Name of {@link Operation}
+         */
+        public String getOperation() {
+            return operation;
+        }
+
+        /**
+         * @return Count of successful calls
+         */
+        public long getSuccessCount() {
+            return successCount;
+        }
+
+        /**
+         * @return Count of rejected calls, including calls which are rejected by authorization
+         */
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        /**
+         * @return Count of calls which are rejected by authorization
+         */
+        public long getUnauthorizedCount() {
+            return unauthorizedCount;
+        }
+
+        /**
+         * @return Count of calls which threw exception
+         */
+        public long getFailedCount() {
+            return failedCount;
+        }
+
+        /**
+         * @return Mean latency
+         */
+        public double getMeanNanos() {
+            return latencies.getMean();
+        }
+
+        /**
+         * @return Median latency
+         */
+        public long getP50Nanos() {
+            return latencies.valueAtPercentile(50);
+        }
+
+        /**
+         * @return Latency at 99th percentile
+         */
+        public long getP99Nanos() {
+            return latencies.valueAtPercentile(99);
+        }
+
+        /**
+         * @return Latency at 99.9th percentile
+         */
+        public long getP999Nanos() {
+            return latencies.valueAtPercentile(99.9);
+        }
+
+        /**
+         * @return Max latency
+         */
+        public long getMaxNanos() {
+            return latencies.getMax();
+        }
+
+        /**
+         * Count of latencies may differ from sum of counters if calls were recorded while snapshot was taken
+         * @return Count of recorded latencies
+         */
+        public long getLatencyCount() {
+            return latencies.getCount();
+        }
+
+        @Override
+        public String toString() {
+            return operation + ": success " + successCount + ", rejected " + rejectedCount + " (unauthorized "
+                    + unauthorizedCount + "), failed " + failedCount + ", p50 " + getP50Nanos() + " ns, p99 "
+                    + getP99Nanos() + " ns, p99.9 " + getP999Nanos() + " ns, max " + getMaxNanos() + " ns";
+        }
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * Management interface of {@link WarehouseMetrics}
+ * Warehouse management registers its metrics in platform MBean server,
+ * so they can be read by JConsole, VisualVM or other JMX client
+ * @version 1.0
+ */
+
+public interface WarehouseMetricsMXBean {
+    /**
+     * @return Counters and latencies of every operation of warehouse management
+     */
+    WarehouseMetrics.OperationSnapshot[] getOperations();
+
+    /**
+     * @return Count of audit records which are waiting for writing
+     */
+    int getAuditQueueSize();
+
+    /**
+     * @return Count of bytes which are written by audit sink
+     */
+    long getAuditBytesWritten();
+}
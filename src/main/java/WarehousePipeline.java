@@ -0,0 +1,635 @@
+/**
+ * Class of single-writer front end of {@link WarehouseManagement}
+ *
+ * Actions are published as commands to preallocated ring of {@link Command} slots and one applier thread
+ * applies them to warehouse management in order of their sequences. Producer claims sequence, waits if ring is full,
+ * fills slot and marks it as published, so publishing doesn't allocate memory.
+ * Applier takes all published commands at once and makes them visible to downstream {@link Stage}s once per batch.
+ * Every stage has own thread and sees every applied command with its result in order of sequences,
+ * slot is reused only when all stages have seen it. Pipeline always has stage which records latency from publishing
+ * of command to its application (see {@link #getLatencies(CommandType)}), metrics of actions themselves are counted
+ * by {@link WarehouseMetrics} of warehouse management.
+ *
+ * Results are given in two ways:
+ * 1)submit methods return {@link CompletableFuture} which is completed by applier thread (the only allocation)
+ * 2)publish methods return sequence of command and don't allocate, results are read by {@link Stage}
+ *
+ * Warehouse management is still thread-safe, so it can be used directly together with pipeline;
+ * locks of actions which are applied by applier thread are not contended by other actions of pipeline
+ * @version 1.0
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+public class WarehousePipeline implements Closeable {
+    /**
+     * Actions which can be published to pipeline
+     */
+    public enum CommandType {
+        RECEIPT_PRODUCT, CHANGE_PRODUCT_INFO, CREATE_ORDER, CANCEL_ORDER, TAKE_ORDER, RETURN_ORDER, DELIVER_ORDER
+    }
+
+    /**
+     * Downstream consumer of applied commands
+     */
+    public interface Stage {
+        /**
+         * Called by thread of stage for every applied command in order of sequences
+         * Command must not be kept after the method returns, because its slot will be reused
+         * @param command Applied {@link Command} with result
+         * @param sequence Sequence of command
+         * @param endOfBatch Is command the last one which is available to stage now
+         */
+        void onCommand(Command command, long sequence, boolean endOfBatch);
+    }
+
+    /** Default count of slots */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    /** Count of empty checks which thread spins before it yields */
+    private static final int SPIN_TRIES = 100;
+    /** Count of empty checks which thread yields before it sleeps */
+    private static final int YIELD_TRIES = 200;
+    /** How long waiting thread sleeps between checks (nanoseconds) */
+    private static final long PARK_NANOS = 50_000;
+
+    /** Warehouse management which applies commands */
+    private final WarehouseManagement wm;
+    /** Slots of commands */
+    private final Command[] ring;
+    /** Mask of index of slot by sequence */
+    private final int mask;
+    /** Sequence of published command of every slot, -1 if slot wasn't published yet */
+    private final AtomicLongArray published;
+    /** Next sequence which will be claimed by producer */
+    private final AtomicLong claimed = new AtomicLong();
+    /** Count of producers which are publishing command right now */
+    private final AtomicInteger pendingPublishes = new AtomicInteger();
+    /** The last sequence which is applied */
+    private final Sequence applied = new Sequence();
+    /** Downstream stages, the first one records latencies */
+    private final Stage[] stages;
+    /** The last sequence which is seen by every stage */
+    private final Sequence[] stageSequences;
+    /** Recorders of latencies by {@link CommandType#ordinal()} */
+    private final LatencyRecorder[] latencies = new LatencyRecorder[CommandType.values().length];
+    /** Applier thread and threads of stages */
+    private final Thread[] threads;
+    /** Is pipeline closed for new commands */
+    private volatile boolean closed;
+    /** The first error of stage, it is thrown by {@link #close()} */
+    private volatile RuntimeException stageFailure;
+
+    /**
+     * Constructor of pipeline with {@link #DEFAULT_CAPACITY}
+     * @param wm Warehouse management which applies commands
+     * @param stages Downstream {@link Stage}s
+     */
+    public WarehousePipeline(WarehouseManagement wm, Stage... stages) {
+        this(wm, DEFAULT_CAPACITY, stages);
+    }
+
+    /**
+     * Constructor of pipeline, starts applier thread and thread of every stage
+     * @param wm Warehouse management which applies commands
+     * @param capacity Count of slots, power of two
+     * @param stages Downstream {@link Stage}s
+     * @throws IllegalArgumentException if capacity isn't positive power of two
+     */
+    public WarehousePipeline(WarehouseManagement wm, int capacity, Stage... stages) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be positive power of two: " + capacity);
+        }
+        this.wm = wm;
+        ring = new Command[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Command();
+        }
+        mask = capacity - 1;
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyRecorder();
+        }
+        this.stages = new Stage[stages.length + 1];
+        this.stages[0] = (command, sequence, endOfBatch) ->
+                latencies[command.type.ordinal()].record(command.appliedNanos - command.publishNanos);
+        System.arraycopy(stages, 0, this.stages, 1, stages.length);
+        stageSequences = new Sequence[this.stages.length];
+        threads = new Thread[this.stages.length + 1];
+        threads[0] = new Thread(this::runApplier, "warehouse-pipeline-applier");
+        for (int i = 0; i < this.stages.length; i++) {
+            stageSequences[i] = new Sequence();
+            int stage = i;
+            threads[i + 1] = new Thread(() -> runStage(stage), "warehouse-pipeline-stage-" + i);
+        }
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Publish reception of product (see {@link WarehouseManagement#receiptProduct(Employee, Product)})
+     * @param e {@link Employee} who receipts product
+     * @param product {@link Product} which is receipted
+     * @return Sequence of command
+     * @throws IllegalStateException if pipeline is closed
+     */
+    public long publishReceiptProduct(Employee e, Product product) {
+        return publish(CommandType.RECEIPT_PRODUCT, e, product, null, null, null, null);
+    }
+
+    /**
+     * Publish change of product (see {@link WarehouseManagement#changeProductInfo(Employee, Product)})
+     * @param e {@link Employee} who changes information
+     * @param productWithNewInfo {@link Product} with new information
+     * @return Sequence of command
+     * @throws IllegalStateException if pipeline is closed
+     */
+    public long publishChangeProductInfo(Employee e, Product productWithNewInfo) {
+        return publish(CommandType.CHANGE_PRODUCT_INFO, e, productWithNewInfo, null, null, null, null);
+    }
+
+    /**
+     * Publish creation of order (see {@link WarehouseManagement#createOrder(Employee, Order)})
+     * @param e {@link Employee} who creates order
+     * @param order {@link Order}
+     * @return Sequence of command
+     * @throws IllegalStateException if pipeline is closed
+     */
+    public long publishCreateOrder(Employee e, Order order) {
+        return publish(CommandType.CREATE_ORDER, e, null, order, null, null, null);
+    }
+
+    /**
+     * Publish cancellation of order (see {@link WarehouseManagement#cancelOrder(Employee, Id, String)})
+     * @param e {@link Employee} who cancels order
+     * @param id ID of order
+     * @param reason Reason of cancellation
+     * @return Sequence of command
+     * @throws IllegalStateException if pipeline is closed
+     */
+    public long publishCancelOrder(Employee e, Id id, String reason) {
+        return publish(CommandType.CANCEL_ORDER, e, null, null, id, reason, null);
+    }
+
+    /**
+     * Publish taking of order (see {@link WarehouseManagement#takeOrder(Courier, Id)})
+     * @param c {@link Courier} who takes order
+     * @param id ID of order
+     * @return Sequence of command
+     * @throws IllegalStateException if pipeline is closed
+     */
+    public long publishTakeOrder(Courier c, Id id) {
+        return publish(CommandType.TAKE_ORDER, c, null, null, id, null, null);
+    }
+
+    /**
+     * Publish returning of order (see {@link WarehouseManagement#returnOrder(Courier, Id, String)})
+     * @param c {@link Courier} who returns order
+     * @param id ID of order
+     * @param reason Reason of returning
+     * @return Sequence of command
+     * @throws IllegalStateException if pipeline is closed
+     */
+    public long publishReturnOrder(Courier c, Id id, String reason) {
+        return publish(CommandType.RETURN_ORDER, c, null, null, id, reason, null);
+    }
+
+    /**
+     * Publish delivery of order (see {@link WarehouseManagement#deliverOrder(Courier, Id)})
+     * @param c {@link Courier} who delivers order
+     * @param id ID of order
+     * @return Sequence of command
+     * @throws IllegalStateException if pipeline is closed
+     */
+    public long publishDeliverOrder(Courier c, Id id) {
+        return publish(CommandType.DELIVER_ORDER, c, null, null, id, null, null);
+    }
+
+    /**
+     * Submit reception of product (see {@link WarehouseManagement#receiptProduct(Employee, Product)})
+     * @param e {@link Employee} who receipts product
+     * @param product {@link Product} which is receipted
+     * @return Future of result, it is completed exceptionally if action throws exception
+     * @throws IllegalStateException if pipeline is closed
+     */
+    public CompletableFuture<Boolean> submitReceiptProduct(Employee e, Product product) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        publish(CommandType.RECEIPT_PRODUCT, e, product, null, null, null, result);
+        return result;
+    }
+
+    /**
+     * Submit change of product (see {@link WarehouseManagement#changeProductInfo(Employee, Product)})
+     * @param e {@link Employee} who changes information
+     * @param productWithNewInfo {@link Product} with new information
+     * @return Future of result, it is completed exceptionally if action throws exception
+     * @throws IllegalStateException if pipeline is closed
+     */
+    public CompletableFuture<Boolean> submitChangeProductInfo(Employee e, Product productWithNewInfo) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        publish(CommandType.CHANGE_PRODUCT_INFO, e, productWithNewInfo, null, null, null, result);
+        return result;
+    }
+
+    /**
+     * Submit creation of order (see {@link WarehouseManagement#createOrder(Employee, Order)})
+     * @param e {@link Employee} who creates order
+     * @param order {@link Order}
+     * @return Future of result, it is completed exceptionally if action throws exception
+     * @throws IllegalStateException if pipeline is closed
+     */
+    public CompletableFuture<Boolean> submitCreateOrder(Employee e, Order order) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        publish(CommandType.CREATE_ORDER, e, null, order, null, null, result);
+        return result;
+    }
+
+    /**
+     * Submit cancellation of order (see {@link WarehouseManagement#cancelOrder(Employee, Id, String)})
+     * @param e {@link Employee} who cancels order
+     * @param id ID of order
+     * @param reason Reason of cancellation
+     * @return Future of result, it is completed exceptionally if action throws exception
+     * @throws IllegalStateException if pipeline is closed
+     */
+    public CompletableFuture<Boolean> submitCancelOrder(Employee e, Id id, String reason) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        publish(CommandType.CANCEL_ORDER, e, null, null, id, reason, result);
+        return result;
+    }
+
+    /**
+     * Submit taking of order (see {@link WarehouseManagement#takeOrder(Courier, Id)})
+     * @param c {@link Courier} who takes order
+     * @param id ID of order
+     * @return Future of result, it is completed exceptionally if action throws exception
+     * @throws IllegalStateException if pipeline is closed
+     */
+    public CompletableFuture<Boolean> submitTakeOrder(Courier c, Id id) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        publish(CommandType.TAKE_ORDER, c, null, null, id, null, result);
+        return result;
+    }
+
+    /**
+     * Submit returning of order (see {@link WarehouseManagement#returnOrder(Courier, Id, String)})
+     * @param c {@link Courier} who returns order
+     * @param id ID of order
+     * @param reason Reason of returning
+     * @return Future of result, it is completed exceptionally if action throws exception
+     * @throws IllegalStateException if pipeline is closed
+     */
+    public CompletableFuture<Boolean> submitReturnOrder(Courier c, Id id, String reason) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        publish(CommandType.RETURN_ORDER, c, null, null, id, reason, result);
+        return result;
+    }
+
+    /**
+     * Submit delivery of order (see {@link WarehouseManagement#deliverOrder(Courier, Id)})
+     * @param c {@link Courier} who delivers order
+     * @param id ID of order
+     * @return Future of result, it is completed exceptionally if action throws exception
+     * @throws IllegalStateException if pipeline is closed
+     */
+    public CompletableFuture<Boolean> submitDeliverOrder(Courier c, Id id) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        publish(CommandType.DELIVER_ORDER, c, null, null, id, null, result);
+        return result;
+    }
+
+    /**
+     * @return The last sequence which is applied, or -1 if no command is applied yet
+     */
+    public long getAppliedSequence() {
+        return applied.value;
+    }
+
+    /**
+     * @param type {@link CommandType}
+     * @return Latencies from publishing to application of commands of type in nanoseconds
+     */
+    public LatencyHistogram getLatencies(CommandType type) {
+        return latencies[type.ordinal()].snapshot();
+    }
+
+    /**
+     * Close pipeline for new commands and wait until all published commands are applied and seen by all stages
+     * Warehouse management isn't closed
+     * @throws IOException if thread is interrupted while it waits or stage threw exception
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing pipeline");
+        }
+        if (stageFailure != null) {
+            throw new IOException("Stage of pipeline failed", stageFailure);
+        }
+    }
+
+    /**
+     * Claim sequence, fill its slot and publish it
+     * @param type {@link CommandType}
+     * @param actor {@link Employee} or {@link Courier}
+     * @param product {@link Product} of action, or null
+     * @param order {@link Order} of action, or null
+     * @param id ID of order, or null
+     * @param reason Reason of action, or null
+     * @param result Future of result, or null
+     * @return Sequence of command
+     * @throws IllegalStateException if pipeline is closed
+     */
+    private long publish(CommandType type, Employee actor, Product product, Order order, Id id, String reason,
+                         CompletableFuture<Boolean> result) {
+        pendingPublishes.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Pipeline is closed");
+            }
+            long sequence = claimed.getAndIncrement();
+            long wrapPoint = sequence - ring.length;
+            for (int tries = 0; wrapPoint > minimumStageSequence(); tries++) {
+                backOff(tries);
+            }
+            fill(ring[(int) sequence & mask], type, actor, product, order, id, reason, result);
+            published.lazySet((int) sequence & mask, sequence);
+            return sequence;
+        } finally {
+            pendingPublishes.decrementAndGet();
+        }
+    }
+
+    /**
+     * Write command to slot
+     * @param command Slot of command
+     * @param type {@link CommandType}
+     * @param actor {@link Employee} or {@link Courier}
+     * @param product {@link Product} of action, or null
+     * @param order {@link Order} of action, or null
+     * @param id ID of order, or null
+     * @param reason Reason of action, or null
+     * @param result Future of result, or null
+     */
+    private static void fill(Command command, CommandType type, Employee actor, Product product, Order order, Id id,
+                             String reason, CompletableFuture<Boolean> result) {
+        command.type = type;
+        command.actor = actor;
+        command.product = product;
+        command.order = order;
+        command.id = id;
+        command.reason = reason;
+        command.future = result;
+        command.result = false;
+        command.error = null;
+        command.publishNanos = System.nanoTime();
+    }
+
+    /**
+     * Loop of applier thread
+     * Thread stops when pipeline is closed and all claimed commands are applied
+     */
+    private void runApplier() {
+        long next = 0;
+        int tries = 0;
+        while (!closed || pendingPublishes.get() > 0 || next < claimed.get()) {
+            long last = next - 1;
+            while (published.get((int) (last + 1) & mask) == last + 1) {
+                last++;
+                apply(ring[(int) last & mask]);
+            }
+            if (last < next) {
+                backOff(tries++);
+                continue;
+            }
+            tries = 0;
+            applied.value = last;
+            next = last + 1;
+        }
+    }
+
+    /**
+     * Apply command to warehouse management and complete its future
+     * @param command {@link Command}
+     */
+    private void apply(Command command) {
+        try {
+            switch (command.type) {
+                case RECEIPT_PRODUCT:
+                    command.result = wm.receiptProduct(command.actor, command.product);
+                    break;
+                case CHANGE_PRODUCT_INFO:
+                    command.result = wm.changeProductInfo(command.actor, command.product);
+                    break;
+                case CREATE_ORDER:
+                    command.result = wm.createOrder(command.actor, command.order);
+                    break;
+                case CANCEL_ORDER:
+                    command.result = wm.cancelOrder(command.actor, command.id, command.reason);
+                    break;
+                case TAKE_ORDER:
+                    command.result = wm.takeOrder((Courier) command.actor, command.id);
+                    break;
+                case RETURN_ORDER:
+                    command.result = wm.returnOrder((Courier) command.actor, command.id, command.reason);
+                    break;
+                default:
+                    command.result = wm.deliverOrder((Courier) command.actor, command.id);
+                    break;
+            }
+        } catch (IOException | RuntimeException ex) {
+            command.error = ex;
+        }
+        command.appliedNanos = System.nanoTime();
+        CompletableFuture<Boolean> future = command.future;
+        if (future != null) {
+            command.future = null;
+            if (command.error == null) {
+                future.complete(command.result);
+            } else {
+                future.completeExceptionally(command.error);
+            }
+        }
+    }
+
+    /**
+     * Loop of thread of stage
+     * Thread stops when applier thread is stopped and stage has seen all applied commands
+     * @param index Index of stage in {@link #stages}
+     */
+    private void runStage(int index) {
+        Stage stage = stages[index];
+        Sequence sequence = stageSequences[index];
+        long next = 0;
+        int tries = 0;
+        while (true) {
+            long available = applied.value;
+            if (available < next) {
+                if (closed && !threads[0].isAlive() && applied.value < next) {
+                    return;
+                }
+                backOff(tries++);
+                continue;
+            }
+            tries = 0;
+            for (long s = next; s <= available; s++) {
+                try {
+                    stage.onCommand(ring[(int) s & mask], s, s == available);
+                } catch (RuntimeException ex) {
+                    if (stageFailure == null) {
+                        stageFailure = ex;
+                    }
+                }
+            }
+            sequence.value = available;
+            next = available + 1;
+        }
+    }
+
+    /**
+     * @return The least sequence which is seen by every stage
+     */
+    private long minimumStageSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (Sequence sequence : stageSequences) {
+            minimum = Math.min(minimum, sequence.value);
+        }
+        return minimum;
+    }
+
+    /**
+     * Wait before the next check: spin, then yield, then sleep
+     * @param tries Count of failed checks
+     */
+    private static void backOff(int tries) {
+        if (tries < SPIN_TRIES) {
+            return;
+        }
+        if (tries < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    /**
+     * Sequence of consumer, padded so sequences of different threads are not in the same cache line
+     */
+    private static final class Sequence {
+        /** Padding before value */
+        long p1, p2, p3, p4, p5, p6, p7;
+        /** The last sequence which is processed by consumer */
+        volatile long value = -1;
+        /** Padding after value */
+        long p9, p10, p11, p12, p13, p14, p15;
+    }
+
+    /**
+     * Slot of ring with command and its result
+     * Fields are written by producer before publishing and by applier before stages see command
+     */
+    public static final class Command {
+        /** Type of action */
+        private CommandType type;
+        /** {@link Employee} or {@link Courier} of action */
+        private Employee actor;
+        /** {@link Product} of action, or null */
+        private Product product;
+        /** {@link Order} of action, or null */
+        private Order order;
+        /** ID of order, or null */
+        private Id id;
+        /** Reason of action, or null */
+        private String reason;
+        /** Future of result, or null */
+        private CompletableFuture<Boolean> future;
+        /** Result of action */
+        private boolean result;
+        /** Exception of action, or null */
+        private Exception error;
+        /** Time of publishing by {@link System#nanoTime()} */
+        private long publishNanos;
+        /** Time of application by {@link System#nanoTime()} */
+        private long appliedNanos;
+
+        /**
+         * @return Type of action
+         */
+        public CommandType getType() {
+            return type;
+        }
+
+        /**
+         * @return {@link Employee} or {@link Courier} of action
+         */
+        public Employee getActor() {
+            return actor;
+        }
+
+        /**
+         * @return {@link Product} of reception or change, or null
+         */
+        public Product getProduct() {
+            return product;
+        }
+
+        /**
+         * @return Created {@link Order}, or null
+         */
+        public Order getOrder() {
+            return order;
+        }
+
+        /**
+         * @return ID of order of cancellation, taking, returning or delivery, or null
+         */
+        public Id getId() {
+            return id;
+        }
+
+        /**
+         * @return Reason of cancellation or returning, or null
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * @return Result of action, false if action threw exception
+         */
+        public boolean getResult() {
+            return result;
+        }
+
+        /**
+         * @return Exception of action, or null
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        /**
+         * @return Time from publishing to application in nanoseconds
+         */
+        public long getLatencyNanos() {
+            return appliedNanos - publishNanos;
+        }
+    }
+}
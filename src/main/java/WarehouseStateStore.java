@@ -0,0 +1,469 @@
+/**
+ * Class of persistent state of {@link WarehouseManagement} in one directory
+ *
+ * State is stored as point-in-time snapshot "snapshot-N.bin" with inventory "inventory-N.bin" (see {@link MappedInventoryStore})
+ * and journal "journal-N.log" of all changes after this snapshot (see {@link WarehouseJournal}).
+ * Checkpoint starts new journal N+1 and writes snapshot N+1, after that older files are deleted
+ * Files are written to temporary files, forced to disk and renamed, so incomplete snapshot is never used
+ *
+ * Recovery maps inventory of the latest snapshot without reading its products, reads the rest of snapshot,
+ * replays its journal and all later journals and continues to write the last journal,
+ * so time of restart depends on count of orders and length of journals, but not on count of articles
+ * Couriers which hold delivering orders are not stored, because {@link WarehouseManagement} doesn't know {@link Courier} objects
+ * @version 1.0
+ * @see WarehouseManagement#recover(Path)
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+final class WarehouseStateStore implements Closeable {
+    /** First bytes of snapshot file ("LVSNAP05") */
+    private static final long SNAPSHOT_MAGIC = 0x4C56534E41503035L;
+    /** Prefix of names of snapshot files */
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    /** Suffix of names of snapshot files */
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    /** Prefix of names of journal files */
+    private static final String JOURNAL_PREFIX = "journal-";
+    /** Suffix of names of journal files */
+    private static final String JOURNAL_SUFFIX = ".log";
+    /** Prefix of names of inventory files */
+    private static final String INVENTORY_PREFIX = "inventory-";
+    /** Suffix of names of inventory files */
+    private static final String INVENTORY_SUFFIX = ".bin";
+
+    /** Directory of state */
+    private final Path directory;
+    /** Number of loaded snapshot, 0 if there isn't snapshot */
+    private long base;
+    /** Number of current journal */
+    private long sequence;
+    /** Current journal, null before recovery */
+    private volatile WarehouseJournal journal;
+    /** Inventory file which is mapped by loaded snapshot, or null */
+    private Path inventoryInUse;
+    /** Scheduler of periodic checkpoints, null if they aren't scheduled */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param directory Directory of state, it is created if it doesn't exist
+     * @throws IOException if directory can't be created
+     */
+    WarehouseStateStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * @return Current journal or null before recovery
+     */
+    WarehouseJournal journal() {
+        return journal;
+    }
+
+    /**
+     * Load the latest complete snapshot
+     * Inventory of snapshot is opened as {@link MappedInventoryStore}, so products are not read
+     * @return {@link Snapshot} or null if directory doesn't have any complete snapshot
+     * @throws IOException if snapshot can't be read
+     */
+    Snapshot load() throws IOException {
+        for (Map.Entry<Long, Path> entry : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).descendingMap().entrySet()) {
+            Snapshot snapshot = readSnapshot(entry.getValue());
+            Path inventoryFile = directory.resolve(INVENTORY_PREFIX + entry.getKey() + INVENTORY_SUFFIX);
+            if (snapshot != null && Files.isRegularFile(inventoryFile)
+                    && Files.size(inventoryFile) == snapshot.inventoryLength) {
+                snapshot.inventory = new MappedInventoryStore(inventoryFile);
+                base = entry.getKey();
+                inventoryInUse = inventoryFile;
+                return snapshot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replay all journals after snapshot from {@link #load()} and continue the last journal
+     * @param wm {@link WarehouseManagement} in state of snapshot
+     * @throws IOException if journal can't be read, is damaged or journals are missing
+     */
+    void replay(WarehouseManagement wm) throws IOException {
+        // without snapshot the first journal starts at empty state
+        long expected = Math.max(base, 1);
+        Path last = null;
+        long lastLength = 0;
+        for (Map.Entry<Long, Path> entry : list(JOURNAL_PREFIX, JOURNAL_SUFFIX).tailMap(base, true).entrySet()) {
+            if (entry.getKey() != expected) {
+                throw new IOException("Journal " + expected + " is missing in " + directory);
+            }
+            last = entry.getValue();
+            lastLength = WarehouseJournal.replay(last, wm);
+            expected = entry.getKey() + 1;
+        }
+        sequence = expected - 1;
+        if (last != null) {
+            journal = WarehouseJournal.reopen(last, lastLength);
+        } else {
+            journal = new WarehouseJournal(directory.resolve(JOURNAL_PREFIX + expected + JOURNAL_SUFFIX));
+            sequence = expected;
+        }
+    }
+
+    /**
+     * Start new journal
+     * It must be called while state of warehouse management can't change, snapshot is captured at the same moment
+     * @return Number of new journal and of snapshot which must be written by {@link #writeSnapshot(long, Snapshot)}
+     * @throws IOException if new journal can't be created or old journal can't be closed
+     */
+    long startJournal() throws IOException {
+        long next = sequence + 1;
+        WarehouseJournal newJournal = new WarehouseJournal(directory.resolve(JOURNAL_PREFIX + next + JOURNAL_SUFFIX));
+        WarehouseJournal oldJournal = journal;
+        journal = newJournal;
+        sequence = next;
+        if (oldJournal != null) {
+            oldJournal.close();
+        }
+        return next;
+    }
+
+    /**
+     * Write inventory and snapshot and delete older files
+     * Inventory file is written first, so complete snapshot file always has complete inventory file
+     * @param number Number of snapshot from {@link #startJournal()}
+     * @param snapshot Captured {@link Snapshot}
+     * @throws IOException if snapshot can't be written
+     */
+    void writeSnapshot(long number, Snapshot snapshot) throws IOException {
+        Path inventoryFile = directory.resolve(INVENTORY_PREFIX + number + INVENTORY_SUFFIX);
+        Path temporaryInventory = directory.resolve(INVENTORY_PREFIX + number + INVENTORY_SUFFIX + ".tmp");
+        MappedInventoryStore.write(temporaryInventory, snapshot.base, snapshot.products, snapshot.counts);
+        Files.move(temporaryInventory, inventoryFile, StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        snapshot.inventoryLength = Files.size(inventoryFile);
+
+        Path file = directory.resolve(SNAPSHOT_PREFIX + number + SNAPSHOT_SUFFIX);
+        Path temporary = directory.resolve(SNAPSHOT_PREFIX + number + SNAPSHOT_SUFFIX + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = Channels.newOutputStream(channel);
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(stream, 64 * 1024), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            snapshot.write(out);
+            out.flush();
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        for (Path old : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).headMap(number).values()) {
+            Files.deleteIfExists(old);
+        }
+        for (Path old : list(JOURNAL_PREFIX, JOURNAL_SUFFIX).headMap(number).values()) {
+            Files.deleteIfExists(old);
+        }
+        for (Path old : list(INVENTORY_PREFIX, INVENTORY_SUFFIX).headMap(number).values()) {
+            // inventory which is mapped by running warehouse management is deleted after restart
+            if (!old.equals(inventoryInUse)) {
+                Files.deleteIfExists(old);
+            }
+        }
+    }
+
+    /**
+     * Run checkpoint periodically on background thread
+     * @param checkpoint Checkpoint action
+     * @param period Period between checkpoints
+     * @param unit Unit of period
+     */
+    synchronized void schedule(Runnable checkpoint, long period, TimeUnit unit) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "warehouse-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        scheduler.scheduleAtFixedRate(checkpoint, period, period, unit);
+    }
+
+    /**
+     * Stop periodic checkpoints and close current journal
+     * @throws IOException if journal can't be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        WarehouseJournal current = journal;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * @param prefix Prefix of names of files
+     * @param suffix Suffix of names of files
+     * @return Files of directory by their numbers
+     * @throws IOException if directory can't be read
+     */
+    private TreeMap<Long, Path> list(String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), path);
+                } catch (NumberFormatException ex) {
+                    // file with foreign name is ignored
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Read snapshot file
+     * @param file Snapshot file
+     * @return {@link Snapshot} or null if file is incomplete or damaged
+     * @throws IOException if file can't be opened
+     */
+    private static Snapshot readSnapshot(Path file) throws IOException {
+        try (InputStream stream = Files.newInputStream(file)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(stream, 64 * 1024), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            Snapshot snapshot = Snapshot.read(in);
+            long crc = checked.getChecksum().getValue();
+            return in.readLong() == crc ? snapshot : null;
+        } catch (IOException | RuntimeException ex) {
+            if (!Files.exists(file)) {
+                throw ex;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Point-in-time copy of state of {@link WarehouseManagement}
+     * Counts of products are copied, other parts of products and orders are not changed after creating
+     * Inventory is written to its own file, snapshot file contains only its length
+     */
+    static final class Snapshot {
+        /** IDs of authorized employees */
+        private final Collection<Id> employees;
+        /** IDs of authorized couriers */
+        private final Collection<Id> couriers;
+        /** Mapped inventory which articles are copied to new inventory file, or null */
+        private final MappedInventoryStore base;
+        /** {@link Product}s of inventory which are written to new inventory file */
+        private final List<Product> products;
+        /** Counts of {@link #products} at the moment of capturing */
+        private final int[] counts;
+        /** Orders of every {@link OrderState} (state : {@link OrderState}, orders : List of {@link Order}) */
+        private final Map<OrderState, List<Order>> orders;
+        /** Length of inventory file */
+        private long inventoryLength;
+        /** Inventory of loaded snapshot */
+        private InventoryStore inventory;
+
+        /**
+         * @param employees IDs of authorized employees
+         * @param couriers IDs of authorized couriers
+         * @param base Mapped inventory which articles are copied, or null
+         * @param products {@link Product}s of inventory
+         * @param counts Counts of products
+         * @param orders Orders of every {@link OrderState}
+         */
+        private Snapshot(Collection<Id> employees, Collection<Id> couriers, MappedInventoryStore base,
+                         List<Product> products, int[] counts, Map<OrderState, List<Order>> orders) {
+            this.employees = employees;
+            this.couriers = couriers;
+            this.base = base;
+            this.products = products;
+            this.counts = counts;
+            this.orders = orders;
+        }
+
+        /**
+         * Copy state of warehouse management
+         * It must be called while state can't change
+         * Products of mapped inventory which are not read to memory are not changed, so they are copied from its file later
+         * @param wm {@link WarehouseManagement}
+         * @param inventory {@link InventoryStore} of warehouse management
+         * @return {@link Snapshot}
+         */
+        static Snapshot capture(WarehouseManagement wm, InventoryStore inventory) {
+            MappedInventoryStore base = null;
+            List<Product> products = new ArrayList<>();
+            if (inventory instanceof MappedInventoryStore) {
+                base = (MappedInventoryStore) inventory;
+                for (Product product : base.loadedProducts()) {
+                    products.add(product);
+                }
+            } else {
+                for (Product product : inventory) {
+                    products.add(product);
+                }
+            }
+            int[] counts = new int[products.size()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = products.get(i).getCount();
+            }
+            Map<OrderState, List<Order>> orders = new EnumMap<>(OrderState.class);
+            for (OrderState state : OrderState.values()) {
+                orders.put(state, new ArrayList<>(wm.getOrderStore().view(state).values()));
+            }
+            return new Snapshot(new ArrayList<>(wm.getAuthorizedEmployees()),
+                    new ArrayList<>(wm.getAuthorizedCouriers()), base, products, counts, orders);
+        }
+
+        /**
+         * @return Mapped inventory of loaded snapshot
+         */
+        InventoryStore getInventory() {
+            return inventory;
+        }
+
+        /**
+         * Put authorizations and orders to warehouse management with inventory of this snapshot
+         * @param wm {@link WarehouseManagement}
+         */
+        void restore(WarehouseManagement wm) {
+            wm.getAuthorizedEmployees().addAll(employees);
+            wm.getAuthorizedCouriers().addAll(couriers);
+            for (Map.Entry<OrderState, List<Order>> entry : orders.entrySet()) {
+                for (Order order : entry.getValue()) {
+                    wm.getOrderStore().put(order, entry.getKey());
+                }
+            }
+        }
+
+        /**
+         * @param out Stream
+         * @throws IOException if snapshot can't be written
+         */
+        private void write(DataOutputStream out) throws IOException {
+            out.writeLong(SNAPSHOT_MAGIC);
+            writeIds(out, employees);
+            writeIds(out, couriers);
+            out.writeLong(inventoryLength);
+            for (OrderState state : OrderState.values()) {
+                writeOrders(out, orders.get(state));
+            }
+        }
+
+        /**
+         * @param in Stream
+         * @return {@link Snapshot} with new orders and without inventory
+         * @throws IOException if snapshot is damaged
+         */
+        private static Snapshot read(DataInputStream in) throws IOException {
+            if (in.readLong() != SNAPSHOT_MAGIC) {
+                throw new IOException("File isn't snapshot of warehouse");
+            }
+            List<Id> employees = readIds(in);
+            List<Id> couriers = readIds(in);
+            long inventoryLength = in.readLong();
+            Map<OrderState, List<Order>> orders = new EnumMap<>(OrderState.class);
+            for (OrderState state : OrderState.values()) {
+                orders.put(state, readOrders(in));
+            }
+            Snapshot snapshot = new Snapshot(employees, couriers, null, null, null, orders);
+            snapshot.inventoryLength = inventoryLength;
+            return snapshot;
+        }
+
+        /**
+         * @param out Stream
+         * @param ids IDs
+         * @throws IOException if ids can't be written
+         */
+        private static void writeIds(DataOutputStream out, Collection<Id> ids) throws IOException {
+            out.writeInt(ids.size());
+            for (Id id : ids) {
+                StateCodec.writeId(out, id);
+            }
+        }
+
+        /**
+         * @param in Stream
+         * @return IDs
+         * @throws IOException if ids can't be read
+         */
+        private static List<Id> readIds(DataInputStream in) throws IOException {
+            int count = readSize(in);
+            List<Id> ids = new ArrayList<>(Math.min(count, 1 << 16));
+            for (int i = 0; i < count; i++) {
+                ids.add(StateCodec.readId(in));
+            }
+            return ids;
+        }
+
+        /**
+         * @param out Stream
+         * @param orders Orders
+         * @throws IOException if orders can't be written
+         */
+        private static void writeOrders(DataOutputStream out, List<Order> orders) throws IOException {
+            out.writeInt(orders.size());
+            for (Order order : orders) {
+                StateCodec.writeOrder(out, order);
+            }
+        }
+
+        /**
+         * @param in Stream
+         * @return Orders
+         * @throws IOException if orders can't be read
+         */
+        private static List<Order> readOrders(DataInputStream in) throws IOException {
+            int count = readSize(in);
+            List<Order> orders = new ArrayList<>(Math.min(count, 1 << 16));
+            for (int i = 0; i < count; i++) {
+                orders.add(StateCodec.readOrder(in));
+            }
+            return orders;
+        }
+
+        /**
+         * @param in Stream
+         * @return Size of collection
+         * @throws IOException if size is negative
+         */
+        private static int readSize(DataInputStream in) throws IOException {
+            int size = in.readInt();
+            if (size < 0) {
+                throw new IOException("Damaged snapshot: size is " + size);
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,581 @@
+/**
+ * Class of multi-threaded load generator of {@link WarehouseManagement}
+ *
+ * Simulator starts employee threads which receive products, create and cancel orders, and courier threads
+ * which take, return and deliver orders. Articles of receptions and orders are chosen from catalog
+ * by Zipf distribution, so a few articles are hot like in real warehouse. Every thread records latency
+ * of every action to own {@link LatencyHistogram}, histograms are merged at the end.
+ *
+ * After the run simulator checks invariants of inventory for every article:
+ * 1)stock is never negative
+ * 2)available + reserved by open orders + delivered = received (initial stock and all receptions)
+ *
+ * Run from command line, for example:
+ * java -cp target/classes WorkloadSimulator --employees=4 --couriers=4 --catalog=10000 --seconds=10
+ * Options (all are optional): employees, couriers, catalog, seconds, zipf (exponent), lines (max lines of order),
+ * seed, audit (file of audit log, records are dropped without it) and mix (weights of actions, for example
+ * receipt:10,create:60,cancel:10,take:40,return:5,deliver:35). Exit status is 1 if invariant is broken
+ * @version 1.0
+ */
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class WorkloadSimulator {
+    /**
+     * Simulated actions
+     */
+    public enum Operation {
+        RECEIPT, CREATE, CANCEL, TAKE, RETURN, DELIVER
+    }
+
+    /** Initial count of every article */
+    private static final int INITIAL_STOCK = 1000;
+    /** Price of every article in minor units */
+    private static final long PRICE = Money.ofMajor(10);
+
+    /** Count of employee threads */
+    private int employees = 4;
+    /** Count of courier threads */
+    private int couriers = 4;
+    /** Count of articles */
+    private int catalogSize = 10_000;
+    /** Duration of run in milliseconds */
+    private long durationMillis = 10_000;
+    /** Exponent of Zipf distribution of articles */
+    private double zipfExponent = 1.0;
+    /** Max count of lines of order */
+    private int maxLines = 5;
+    /** Seed of random choices */
+    private long seed = 42;
+    /** File of audit log, or null to drop records */
+    private String auditFile;
+    /** Weights of actions by {@link Operation#ordinal()} */
+    private final int[] weights = {10, 60, 10, 40, 5, 35};
+
+    /**
+     * Read options of simulator
+     * @param args Options in form "--name=value"
+     * @return Simulator with options
+     * @throws IllegalArgumentException if option is unknown or has wrong value
+     */
+    public static WorkloadSimulator fromArgs(String[] args) {
+        WorkloadSimulator simulator = new WorkloadSimulator();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Wrong option: " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+                case "employees": simulator.employees = positive(name, value); break;
+                case "couriers": simulator.couriers = positive(name, value); break;
+                case "catalog": simulator.catalogSize = positive(name, value); break;
+                case "seconds": simulator.durationMillis = 1000L * positive(name, value); break;
+                case "zipf": simulator.zipfExponent = Double.parseDouble(value); break;
+                case "lines": simulator.maxLines = positive(name, value); break;
+                case "seed": simulator.seed = Long.parseLong(value); break;
+                case "audit": simulator.auditFile = value; break;
+                case "mix": simulator.setMix(value); break;
+                default: throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+        return simulator;
+    }
+
+    /**
+     * Run simulator from command line, print report and exit with status 1 if invariant is broken
+     * @param args Options (see {@link #fromArgs(String[])})
+     * @throws Exception if simulator can't run
+     */
+    public static void main(String[] args) throws Exception {
+        WorkloadSimulator simulator = fromArgs(args);
+        Report report = simulator.run();
+        report.print(System.out);
+        if (!report.getViolations().isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param durationMillis Duration of run in milliseconds
+     * @return This simulator
+     */
+    public WorkloadSimulator setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+        return this;
+    }
+
+    /**
+     * @param employees Count of employee threads
+     * @param couriers Count of courier threads
+     * @return This simulator
+     */
+    public WorkloadSimulator setThreads(int employees, int couriers) {
+        this.employees = employees;
+        this.couriers = couriers;
+        return this;
+    }
+
+    /**
+     * @param catalogSize Count of articles
+     * @return This simulator
+     */
+    public WorkloadSimulator setCatalogSize(int catalogSize) {
+        this.catalogSize = catalogSize;
+        return this;
+    }
+
+    /**
+     * Run all threads for duration and check invariants
+     * @return {@link Report} of run
+     * @throws IOException if warehouse management can't write records
+     * @throws InterruptedException if thread is interrupted while it waits for workers
+     */
+    public Report run() throws IOException, InterruptedException {
+        AuditSink sink = auditFile == null ? new DroppingSink()
+                : new AsyncAuditWriter(Paths.get(auditFile), AsyncAuditWriter.Durability.FLUSH_PER_BATCH);
+        Article[] articles = new Article[catalogSize];
+        Map<Id, Integer> numbers = new HashMap<>();
+        AtomicLongArray received = new AtomicLongArray(catalogSize);
+        AtomicLongArray delivered = new AtomicLongArray(catalogSize);
+        List<Product> products = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            articles[i] = new Article("Article " + i, "Simulated article " + i);
+            numbers.put(articles[i].getId(), i);
+            products.add(new Product(INITIAL_STOCK, PRICE, articles[i]));
+            received.set(i, INITIAL_STOCK);
+        }
+
+        List<Worker> workers = new ArrayList<>();
+        long elapsed;
+        try (WarehouseManagement wm = new WarehouseManagement(sink)) {
+            Employee admin = new Employee("Administrator");
+            wm.giveEmployeeAuthorization(admin);
+            wm.receiptProducts(admin, products);
+
+            ConcurrentLinkedQueue<Id> waiting = new ConcurrentLinkedQueue<>();
+            double[] cdf = zipfCdf(catalogSize, zipfExponent);
+            for (int i = 0; i < employees + couriers; i++) {
+                Worker worker = new Worker(wm, i < employees, articles, numbers, cdf, waiting, received, delivered,
+                        new Random(seed + i));
+                if (worker.employee != null) {
+                    wm.giveEmployeeAuthorization(worker.employee);
+                } else {
+                    wm.giveCourierAuthorization(worker.courier);
+                }
+                workers.add(worker);
+            }
+
+            long start = System.nanoTime();
+            long deadline = start + durationMillis * 1_000_000L;
+            List<Thread> threads = new ArrayList<>();
+            for (Worker worker : workers) {
+                worker.deadline = deadline;
+                Thread thread = new Thread(worker, worker.employee != null ? "employee" : "courier");
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            elapsed = System.nanoTime() - start;
+
+            Report report = new Report(elapsed);
+            for (Worker worker : workers) {
+                if (worker.error != null) {
+                    report.violations.add("Worker failed: " + worker.error);
+                }
+                report.add(worker);
+            }
+            checkInvariants(wm, articles, numbers, received, delivered, report.violations);
+            return report;
+        }
+    }
+
+    /**
+     * Check stock of every article after run
+     * @param wm {@link WarehouseManagement} after run
+     * @param articles Articles of catalog
+     * @param numbers Numbers of articles by ID
+     * @param received Received counts by number of article
+     * @param delivered Delivered counts by number of article
+     * @param violations List for broken invariants
+     */
+    private static void checkInvariants(WarehouseManagement wm, Article[] articles, Map<Id, Integer> numbers,
+                                        AtomicLongArray received, AtomicLongArray delivered, List<String> violations) {
+        long[] reserved = new long[articles.length];
+        for (Map<Id, Order> orders : Arrays.asList(wm.getOrders(), wm.getDeliveringOrders())) {
+            for (Order order : orders.values()) {
+                for (Product line : order.getProducts()) {
+                    reserved[numbers.get(line.getArticle().getId())] += line.getCount();
+                }
+            }
+        }
+        for (int i = 0; i < articles.length; i++) {
+            long available = wm.getInventory().get(articles[i].getId()).getCount();
+            if (available < 0) {
+                violations.add("Negative stock of " + articles[i].getName() + ": " + available);
+            }
+            if (available + reserved[i] + delivered.get(i) != received.get(i)) {
+                violations.add("Stock of " + articles[i].getName() + " doesn't match: available " + available
+                        + " + reserved " + reserved[i] + " + delivered " + delivered.get(i)
+                        + " != received " + received.get(i));
+            }
+        }
+    }
+
+    /**
+     * @param size Count of articles
+     * @param exponent Exponent of distribution
+     * @return Cumulative probabilities of articles, article with the least number is the most popular
+     */
+    static double[] zipfCdf(int size, double exponent) {
+        double[] cdf = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    /**
+     * @param mix Weights of actions, for example "receipt:10,create:60"; actions which aren't listed keep their weights
+     * @throws IllegalArgumentException if mix has unknown action or wrong weight
+     */
+    private void setMix(String mix) {
+        for (String part : mix.split(",")) {
+            String[] pair = part.split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Wrong mix: " + mix);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight can't be negative: " + part);
+            }
+            weights[Operation.valueOf(pair[0].trim().toUpperCase()).ordinal()] = weight;
+        }
+    }
+
+    /**
+     * @param name Name of option
+     * @param value Value of option
+     * @return Positive value
+     * @throws IllegalArgumentException if value isn't positive number
+     */
+    private static int positive(String name, String value) {
+        int result = Integer.parseInt(value);
+        if (result <= 0) {
+            throw new IllegalArgumentException("Option " + name + " must be positive: " + value);
+        }
+        return result;
+    }
+
+    /**
+     * Thread of one employee or courier
+     * Employee chooses between reception, creation and cancellation, courier chooses between taking,
+     * returning and delivery. Action which can't be done (cancellation without waiting orders, delivery without
+     * own orders) is replaced by creation or taking
+     */
+    private final class Worker implements Runnable {
+        /** Warehouse management */
+        private final WarehouseManagement wm;
+        /** Employee of thread, or null */
+        private final Employee employee;
+        /** Courier of thread, or null */
+        private final Courier courier;
+        /** Articles of catalog */
+        private final Article[] articles;
+        /** Numbers of articles by ID */
+        private final Map<Id, Integer> numbers;
+        /** Cumulative probabilities of articles */
+        private final double[] cdf;
+        /** Orders which are waiting to delivery */
+        private final ConcurrentLinkedQueue<Id> waiting;
+        /** Received counts by number of article */
+        private final AtomicLongArray received;
+        /** Delivered counts by number of article */
+        private final AtomicLongArray delivered;
+        /** Random choices of thread */
+        private final Random random;
+        /** Orders which are taken by courier */
+        private final List<Id> taken = new ArrayList<>();
+        /** Histograms of latencies by {@link Operation#ordinal()} */
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+        /** Counts of done actions by {@link Operation#ordinal()} */
+        private final long[] done = new long[Operation.values().length];
+        /** Time when thread stops */
+        private long deadline;
+        /** Error which stopped thread, or null */
+        private Exception error;
+
+        /**
+         * @param wm Warehouse management
+         * @param isEmployee Is thread employee or courier
+         * @param articles Articles of catalog
+         * @param numbers Numbers of articles by ID
+         * @param cdf Cumulative probabilities of articles
+         * @param waiting Orders which are waiting to delivery
+         * @param received Received counts by number of article
+         * @param delivered Delivered counts by number of article
+         * @param random Random choices of thread
+         */
+        Worker(WarehouseManagement wm, boolean isEmployee, Article[] articles, Map<Id, Integer> numbers, double[] cdf,
+               ConcurrentLinkedQueue<Id> waiting, AtomicLongArray received, AtomicLongArray delivered, Random random) {
+            this.wm = wm;
+            this.employee = isEmployee ? new Employee("Employee") : null;
+            this.courier = isEmployee ? null : new Courier("Courier");
+            this.articles = articles;
+            this.numbers = numbers;
+            this.cdf = cdf;
+            this.waiting = waiting;
+            this.received = received;
+            this.delivered = delivered;
+            this.random = random;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (System.nanoTime() < deadline) {
+                    if (employee != null) {
+                        runEmployeeAction();
+                    } else {
+                        runCourierAction();
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                error = ex;
+            }
+        }
+
+        /**
+         * @throws IOException if action can't be recorded
+         */
+        private void runEmployeeAction() throws IOException {
+            Operation operation = choose(Operation.RECEIPT, Operation.CANCEL);
+            if (operation == Operation.RECEIPT) {
+                int article = nextArticle();
+                int count = 1 + random.nextInt(20);
+                long start = System.nanoTime();
+                boolean result = wm.receiptProduct(employee, new Product(count, PRICE, articles[article]));
+                finish(operation, start, result);
+                if (result) {
+                    received.addAndGet(article, count);
+                }
+                return;
+            }
+            if (operation == Operation.CANCEL) {
+                Id id = waiting.poll();
+                if (id != null) {
+                    long start = System.nanoTime();
+                    finish(operation, start, wm.cancelOrder(employee, id, "Simulation"));
+                    return;
+                }
+            }
+            int lines = 1 + random.nextInt(maxLines);
+            List<Product> products = new ArrayList<>(lines);
+            for (int i = 0; i < lines; i++) {
+                products.add(new Product(1 + random.nextInt(5), PRICE, articles[nextArticle()]));
+            }
+            Order order = new Order(products, null);
+            long start = System.nanoTime();
+            boolean result = wm.createOrder(employee, order);
+            finish(Operation.CREATE, start, result);
+            if (result) {
+                waiting.add(order.getId());
+            }
+        }
+
+        /**
+         * @throws IOException if action can't be recorded
+         */
+        private void runCourierAction() throws IOException {
+            Operation operation = choose(Operation.TAKE, Operation.DELIVER);
+            if (operation != Operation.TAKE && !taken.isEmpty()) {
+                Id id = taken.remove(taken.size() - 1);
+                if (operation == Operation.RETURN) {
+                    long start = System.nanoTime();
+                    boolean result = wm.returnOrder(courier, id, "Simulation");
+                    finish(operation, start, result);
+                    if (result) {
+                        waiting.add(id);
+                    }
+                } else {
+                    Order order = wm.getDeliveringOrders().get(id);
+                    long start = System.nanoTime();
+                    boolean result = wm.deliverOrder(courier, id);
+                    finish(operation, start, result);
+                    if (result) {
+                        for (Product line : order.getProducts()) {
+                            delivered.addAndGet(numbers.get(line.getArticle().getId()), line.getCount());
+                        }
+                    }
+                }
+                return;
+            }
+            Id id = waiting.poll();
+            if (id == null) {
+                Thread.yield();
+                return;
+            }
+            long start = System.nanoTime();
+            boolean result = wm.takeOrder(courier, id);
+            finish(Operation.TAKE, start, result);
+            if (result) {
+                taken.add(id);
+            }
+        }
+
+        /**
+         * @param first The first action of role
+         * @param last The last action of role
+         * @return Action which is chosen by weights
+         */
+        private Operation choose(Operation first, Operation last) {
+            int total = 0;
+            for (int i = first.ordinal(); i <= last.ordinal(); i++) {
+                total += weights[i];
+            }
+            int point = total == 0 ? 0 : random.nextInt(total);
+            for (int i = first.ordinal(); i < last.ordinal(); i++) {
+                point -= weights[i];
+                if (point < 0) {
+                    return Operation.values()[i];
+                }
+            }
+            return last;
+        }
+
+        /**
+         * @return Number of article by Zipf distribution
+         */
+        private int nextArticle() {
+            int index = Arrays.binarySearch(cdf, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+        }
+
+        /**
+         * @param operation Done action
+         * @param start Time before action
+         * @param result Result of action
+         */
+        private void finish(Operation operation, long start, boolean result) {
+            latencies[operation.ordinal()].record(System.nanoTime() - start);
+            if (result) {
+                done[operation.ordinal()]++;
+            }
+        }
+    }
+
+    /**
+     * Report of run: latencies and counts of every action and broken invariants
+     */
+    public static final class Report {
+        /** Duration of run in nanoseconds */
+        private final long elapsed;
+        /** Merged histograms by {@link Operation#ordinal()} */
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+        /** Counts of successful actions by {@link Operation#ordinal()} */
+        private final long[] done = new long[Operation.values().length];
+        /** Broken invariants */
+        private final List<String> violations = new ArrayList<>();
+
+        /**
+         * @param elapsed Duration of run in nanoseconds
+         */
+        private Report(long elapsed) {
+            this.elapsed = elapsed;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        /**
+         * @param worker Finished worker
+         */
+        private void add(Worker worker) {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i].add(worker.latencies[i]);
+                done[i] += worker.done[i];
+            }
+        }
+
+        /**
+         * @param operation Action
+         * @return Latencies of all calls of action in nanoseconds
+         */
+        public LatencyHistogram getLatencies(Operation operation) {
+            return latencies[operation.ordinal()];
+        }
+
+        /**
+         * @param operation Action
+         * @return Count of calls of action which returned true
+         */
+        public long getDone(Operation operation) {
+            return done[operation.ordinal()];
+        }
+
+        /**
+         * @return Broken invariants, empty list if inventory is consistent
+         */
+        public List<String> getViolations() {
+            return violations;
+        }
+
+        /**
+         * Print throughput and latencies of every action in microseconds and broken invariants
+         * @param out Stream of report
+         */
+        public void print(PrintStream out) {
+            double seconds = elapsed / 1e9;
+            out.printf("%-8s %10s %10s %12s %10s %10s %10s %10s%n",
+                    "ACTION", "CALLS", "DONE", "CALLS/S", "P50 US", "P99 US", "P99.9 US", "MAX US");
+            for (Operation operation : Operation.values()) {
+                LatencyHistogram histogram = getLatencies(operation);
+                out.printf("%-8s %10d %10d %12.0f %10.1f %10.1f %10.1f %10.1f%n", operation, histogram.getCount(),
+                        getDone(operation), histogram.getCount() / seconds, histogram.valueAtPercentile(50) / 1e3,
+                        histogram.valueAtPercentile(99) / 1e3, histogram.valueAtPercentile(99.9) / 1e3,
+                        histogram.getMax() / 1e3);
+            }
+            if (violations.isEmpty()) {
+                out.println("Inventory invariants hold");
+            } else {
+                for (String violation : violations) {
+                    out.println("VIOLATION: " + violation);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@link AuditSink} which drops all records, so simulator measures only warehouse management
+     */
+    private static final class DroppingSink implements AuditSink {
+        @Override
+        public void write(AuditRecord record) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
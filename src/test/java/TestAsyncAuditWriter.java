@@ -0,0 +1,174 @@
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestAsyncAuditWriter {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    /** Format which writes only message of record */
+    private final AuditFormat messageFormat = record -> record.getMessage().getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Set values for tests
+     */
+    @Before
+    public void set() {
+        file = folder.getRoot().toPath().resolve("audit").resolve("information.txt");
+    }
+
+    /**
+     * Test close
+     * Expected to create parent directories and write all records from queue in order of writing
+     */
+    @Test
+    public void testCloseWritesAllRecords() throws Exception {
+        AsyncAuditWriter writer = new AsyncAuditWriter(file, AsyncAuditWriter.Durability.FIRE_AND_FORGET, messageFormat,
+                16, 4, 0);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            writer.write(record("record " + i + "\n"));
+            expected.append("record ").append(i).append("\n");
+        }
+        writer.close();
+
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        Assert.assertEquals(expected.toString(), content);
+    }
+
+    /**
+     * Test fsync mode with record which is bigger than buffer of writer
+     * Expected to write record completely and to count all written bytes
+     */
+    @Test
+    public void testFsyncPerBatchWritesBigRecord() throws Exception {
+        AsyncAuditWriter writer = new AsyncAuditWriter(file, AsyncAuditWriter.Durability.FSYNC_PER_BATCH, messageFormat);
+        StringBuilder record = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            record.append('x');
+        }
+        writer.write(record("small\n"));
+        writer.write(record(record.toString()));
+        writer.close();
+
+        Assert.assertEquals("small\n".length() + 100000, Files.size(file));
+        Assert.assertEquals(Files.size(file), writer.getBytesWritten());
+        Assert.assertEquals(0, writer.getQueueSize());
+    }
+
+    /**
+     * Test group commit with many concurrent callers
+     * Expected that every record is already in file when write returns
+     */
+    @Test
+    public void testGroupCommitRecordIsWrittenWhenWriteReturns() throws Exception {
+        AsyncAuditWriter writer = new AsyncAuditWriter(file, AsyncAuditWriter.Durability.GROUP_COMMIT, messageFormat,
+                64, 16, 200);
+        int threads = 8;
+        int recordsPerThread = 50;
+        List<Thread> workers = new ArrayList<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    for (int i = 0; i < recordsPerThread; i++) {
+                        String record = "thread " + thread + " record " + i + "\n";
+                        writer.write(record(record));
+                        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                        Assert.assertTrue(content.contains(record));
+                    }
+                } catch (Throwable ex) {
+                    error.compareAndSet(null, ex);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        writer.close();
+
+        Assert.assertNull(error.get());
+        Assert.assertEquals(threads * recordsPerThread, Files.readAllLines(file).size());
+    }
+
+    /**
+     * Test write after close
+     * Expected to throw IOException
+     */
+    @Test(expected = IOException.class)
+    public void testWriteAfterClose() throws Exception {
+        AsyncAuditWriter writer = new AsyncAuditWriter(file, AsyncAuditWriter.Durability.FLUSH_PER_BATCH);
+        writer.close();
+        writer.write(record("record"));
+    }
+
+    /**
+     * Test record which message can't be formatted in group commit mode
+     * Expected that pending write, later writes and close throw IOException and nothing is reported as written
+     */
+    @Test
+    public void testFailedMessageFailsPendingWrite() throws Exception {
+        AsyncAuditWriter writer = new AsyncAuditWriter(file, AsyncAuditWriter.Durability.GROUP_COMMIT);
+        AuditRecord broken = AuditRecord.of(AuditEventType.INVENTORY_SHOWING, null, null, Collections.emptyList(), null,
+                () -> {
+                    throw new IllegalStateException("Message can't be formatted");
+                });
+        try {
+            writer.write(broken);
+            Assert.fail();
+        } catch (IOException ex) {
+            Assert.assertTrue(ex.getCause().getCause() instanceof IllegalStateException);
+        }
+        try {
+            writer.write(record("record"));
+            Assert.fail();
+        } catch (IOException ex) {
+            Assert.assertNotNull(ex.getCause());
+        }
+        try {
+            writer.close();
+            Assert.fail();
+        } catch (IOException ex) {
+            Assert.assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertEquals(0, writer.getBytesWritten());
+    }
+
+    /**
+     * Test warehouse management with custom sink
+     * Expected to write records of actions to the sink and to write them all on close
+     */
+    @Test
+    public void testWarehouseManagementWritesToSink() throws Exception {
+        WarehouseManagement wm = new WarehouseManagement(
+                new AsyncAuditWriter(file, AsyncAuditWriter.Durability.FLUSH_PER_BATCH));
+        Employee e = new Employee("Employee");
+        wm.giveEmployeeAuthorization(e);
+        wm.withdrawEmployeeAuthorization(e);
+        wm.close();
+
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        Assert.assertTrue(content.contains("Give employee's authorization to"));
+        Assert.assertTrue(content.contains("Withdraw employee's authorization from"));
+    }
+
+    /**
+     * @param message Message of record
+     * @return Record of showing inventory with message
+     */
+    private static AuditRecord record(String message) {
+        return AuditRecord.of(AuditEventType.INVENTORY_SHOWING, null, null, null, message);
+    }
+}
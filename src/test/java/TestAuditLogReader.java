@@ -0,0 +1,161 @@
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestAuditLogReader {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    private Employee e;
+    private Article article;
+    private Id courierId;
+    private Id orderId;
+
+    /**
+     * Set values for tests
+     */
+    @Before
+    public void set() {
+        file = folder.getRoot().toPath().resolve("audit.bin");
+        e = new Employee("Employee");
+        article = new Article("Phone", "Can call");
+        courierId = Id.random();
+        orderId = Id.random();
+    }
+
+    /**
+     * Test binary log of warehouse management
+     * Expected to read back the same records in order of actions
+     */
+    @Test
+    public void testReadRecordsOfWarehouseManagement() throws Exception {
+        WarehouseManagement wm = new WarehouseManagement(new AsyncAuditWriter(file,
+                AsyncAuditWriter.Durability.FLUSH_PER_BATCH, new BinaryAuditFormat()));
+        wm.giveEmployeeAuthorization(e);
+        wm.receiptProduct(e, new Product(100, 200, article));
+        List<Product> products = new ArrayList<>();
+        products.add(new Product(3, 200, article));
+        Order order = new Order(products, new Client("Client", "Address", "+996555555555"));
+        wm.createOrder(e, order);
+        wm.cancelOrder(e, order.getId(), "reason");
+        wm.close();
+
+        try (AuditLogReader reader = new AuditLogReader(file)) {
+            AuditRecord record = reader.next();
+            Assert.assertEquals(AuditEventType.EMPLOYEE_AUTHORIZATION_GIVEN, record.getType());
+            Assert.assertEquals(e.getId(), record.getSubjectId());
+
+            record = reader.next();
+            Assert.assertEquals(AuditEventType.PRODUCT_RECEPTION, record.getType());
+            Assert.assertEquals(e.getId(), record.getActorId());
+            Assert.assertEquals(article.getId(), record.getArticleId(0));
+            Assert.assertEquals(100, record.getQuantity(0));
+
+            record = reader.next();
+            Assert.assertEquals(AuditEventType.ORDER_CREATION, record.getType());
+            Assert.assertEquals(order.getId(), record.getSubjectId());
+            Assert.assertEquals(3, record.getQuantity(0));
+
+            record = reader.next();
+            Assert.assertEquals(AuditEventType.ORDER_CANCELLATION, record.getType());
+            Assert.assertEquals("reason", record.getNote());
+            Assert.assertNull(record.getMessage());
+
+            Assert.assertNull(reader.next());
+            Assert.assertFalse(reader.isTruncated());
+        }
+    }
+
+    /**
+     * Test incomplete last record
+     * Expected to read all complete records and to treat incomplete record as end of log
+     */
+    @Test
+    public void testIncompleteLastRecordIsIgnored() throws Exception {
+        BinaryAuditFormat format = new BinaryAuditFormat();
+        AuditRecord first = AuditRecord.of(AuditEventType.ORDER_DELIVERY, courierId, orderId, null, null);
+        byte[] second = format.encode(AuditRecord.of(AuditEventType.ORDER_TAKING, courierId, orderId, null, null));
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(format.encode(first));
+            out.write(second, 0, second.length - 3);
+        }
+
+        try (AuditLogReader reader = new AuditLogReader(file)) {
+            Assert.assertEquals(first, reader.next());
+            Assert.assertNull(reader.next());
+            Assert.assertTrue(reader.isTruncated());
+        }
+    }
+
+    /**
+     * Test last record which is cut inside its length
+     * Expected to read all complete records and to report incomplete record
+     */
+    @Test
+    public void testRecordCutInsideLength() throws Exception {
+        BinaryAuditFormat format = new BinaryAuditFormat();
+        AuditRecord first = AuditRecord.of(AuditEventType.ORDER_DELIVERY, courierId, orderId, null, null);
+        byte[] second = format.encode(AuditRecord.of(AuditEventType.ORDER_TAKING, courierId, orderId, null, null));
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(format.encode(first));
+            out.write(second, 0, 2);
+        }
+
+        try (AuditLogReader reader = new AuditLogReader(file)) {
+            Assert.assertEquals(first, reader.next());
+            Assert.assertNull(reader.next());
+            Assert.assertTrue(reader.isTruncated());
+        }
+    }
+
+    /**
+     * Test damaged record
+     * Expected to throw IOException because of wrong CRC32
+     */
+    @Test(expected = IOException.class)
+    public void testDamagedRecord() throws Exception {
+        byte[] bytes = new BinaryAuditFormat().encode(
+                AuditRecord.of(AuditEventType.ORDER_DELIVERY, courierId, orderId, null, null));
+        bytes[10] ^= 1;
+        Files.write(file, bytes, StandardOpenOption.CREATE);
+
+        try (AuditLogReader reader = new AuditLogReader(file)) {
+            reader.next();
+        }
+    }
+
+    /**
+     * Test converting of binary log to text
+     * Expected to render ids, quantities and reason of every record
+     */
+    @Test
+    public void testConvertToText() throws Exception {
+        Id[] ids = {article.getId()};
+        int[] quantities = {5};
+        AuditRecord record = new AuditRecord(AuditEventType.ORDER_CANCELLATION, AuditRecord.currentEpochNanos(),
+                e.getId(), orderId, ids, quantities, "reason", null);
+        Files.write(file, new BinaryAuditFormat().encode(record));
+
+        StringWriter text = new StringWriter();
+        try (AuditLogReader reader = new AuditLogReader(file)) {
+            Assert.assertEquals(1, TextAuditFormat.convert(reader, text));
+        }
+        String result = text.toString();
+        Assert.assertTrue(result.startsWith("CANCEL ORDER"));
+        Assert.assertTrue(result.contains(article.getId().toString()));
+        Assert.assertTrue(result.contains(e.getId().toString()));
+        Assert.assertTrue(result.contains(orderId.toString()));
+        Assert.assertTrue(result.contains("Count : 5"));
+        Assert.assertTrue(result.contains("REASON :\nreason"));
+        Assert.assertTrue(result.contains("DATE : "));
+    }
+}
@@ -0,0 +1,122 @@
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class TestColumnarInventoryStore {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ColumnarInventoryStore store;
+    private Article a1;
+    private Article a2;
+
+    /**
+     * Set values for tests
+     */
+    @Before
+    public void set() {
+        store = new ColumnarInventoryStore();
+        a1 = new Article("Phone", "Can call");
+        a2 = new Article("TV", null);
+    }
+
+    /**
+     * Test put and get
+     * Expected to read the same article, count and price and to change count of column through product
+     */
+    @Test
+    public void testPutAndGet() throws Exception {
+        Product product = new Product(100, 20050, a1);
+        Assert.assertNull(store.put(product));
+        store.put(new Product(1000, 500, a2));
+
+        Assert.assertEquals(2, store.size());
+        Assert.assertNull(store.get(Id.random()));
+        Product fromStore = store.get(a1.getId());
+        Assert.assertEquals(100, fromStore.getCount());
+        Assert.assertEquals(20050, fromStore.getPrice());
+        Assert.assertEquals("Phone", fromStore.getArticle().getName());
+        Assert.assertNull(store.get(a2.getId()).getArticle().getDescription());
+
+        product.setCount(70);
+        Assert.assertEquals(70, fromStore.getCount());
+        Assert.assertTrue(store.counterOf(a1.getId()).tryTake(20));
+        Assert.assertEquals(50, product.getCount());
+    }
+
+    /**
+     * Test replacing of article
+     * Expected to keep index and count of article and to change its information
+     */
+    @Test
+    public void testReplace() throws Exception {
+        store.put(new Product(100, 200, a1));
+        Product old = store.get(a1.getId());
+        Product replacing = new Product(0, 300, new Article(a1.getId(), "Smartphone", "Can call"));
+        replacing.shareCountOf(old);
+        Assert.assertNotNull(store.put(replacing));
+
+        Assert.assertEquals(1, store.size());
+        Product fromStore = store.get(a1.getId());
+        Assert.assertEquals(100, fromStore.getCount());
+        Assert.assertEquals(300, fromStore.getPrice());
+        Assert.assertEquals("Smartphone", fromStore.getArticle().getName());
+    }
+
+    /**
+     * Test many articles
+     * Expected to find every article after growing of columns and index
+     */
+    @Test
+    public void testManyArticles() throws Exception {
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < 40000; i++) {
+            Article article = new Article("Article " + i, "Description " + i);
+            articles.add(article);
+            store.put(new Product(i, i, article));
+        }
+        Assert.assertEquals(40000, store.size());
+        for (int i = 0; i < articles.size(); i += 997) {
+            Product product = store.get(articles.get(i).getId());
+            Assert.assertEquals(i, product.getCount());
+            Assert.assertEquals("Description " + i, product.getArticle().getDescription());
+        }
+        Set<Id> ids = new HashSet<>();
+        for (Product product : store) {
+            ids.add(product.getArticle().getId());
+        }
+        Assert.assertEquals(40000, ids.size());
+    }
+
+    /**
+     * Test warehouse management with columnar inventory
+     * Expected to reserve and give back stock in columns
+     */
+    @Test
+    public void testWarehouseManagement() throws Exception {
+        WarehouseManagement wm = new WarehouseManagement(new AsyncAuditWriter(
+                folder.getRoot().toPath().resolve("information.txt"), AsyncAuditWriter.Durability.FIRE_AND_FORGET), store);
+        Employee e = new Employee("Employee");
+        wm.giveEmployeeAuthorization(e);
+        wm.receiptProducts(e, Arrays.asList(new Product(100, 200, a1), new Product(10, 500, a2)));
+        Order order = new Order(new ArrayList<>(Arrays.asList(new Product(30, 200, a1), new Product(10, 500, a2))),
+                new Client("Client", "Address", "+996555555555"));
+        Order tooBig = new Order(new ArrayList<>(Collections.singletonList(new Product(71, 200, a1))),
+                new Client("Client", "Address", "+996555555555"));
+        Assert.assertTrue(wm.createOrder(e, order));
+        Assert.assertFalse(wm.createOrder(e, tooBig));
+        Assert.assertEquals(70, wm.getInventory().get(a1.getId()).getCount());
+        Assert.assertEquals(0, wm.getInventory().get(a2.getId()).getCount());
+
+        Assert.assertTrue(wm.cancelOrder(e, order.getId(), "Reason"));
+        Assert.assertEquals(100, wm.getInventory().get(a1.getId()).getCount());
+        Assert.assertEquals(2, wm.getInventory().size());
+        wm.close();
+    }
+}
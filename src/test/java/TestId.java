@@ -0,0 +1,45 @@
+import org.junit.*;
+
+import java.util.UUID;
+
+public class TestId {
+    /**
+     * Test formatting and parsing of ID
+     * Expected to get the same string as {@link UUID} and the same ID after parsing
+     */
+    @Test
+    public void testParseAndFormat() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        Id id = new Id(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+
+        Assert.assertEquals(uuid.toString(), id.toString());
+        Id parsed = Id.parse(uuid.toString());
+        Assert.assertEquals(id, parsed);
+        Assert.assertEquals(id.hashCode(), parsed.hashCode());
+        Assert.assertEquals(0, id.compareTo(parsed));
+        Assert.assertEquals(id, Id.parse(uuid.toString().toUpperCase()));
+    }
+
+    /**
+     * Test parsing of wrong string
+     * Expected to throw IllegalArgumentException
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseWrongId() throws Exception {
+        Id.parse("123e4567-e89b-12d3-a456-42661417400g");
+    }
+
+    /**
+     * Test comparing of IDs
+     * Expected to compare bits as unsigned numbers
+     */
+    @Test
+    public void testCompare() throws Exception {
+        Id small = Id.parse("00000000-0000-0000-0000-000000000001");
+        Id big = Id.parse("ffffffff-ffff-ffff-ffff-ffffffffffff");
+
+        Assert.assertTrue(small.compareTo(big) < 0);
+        Assert.assertTrue(big.compareTo(small) > 0);
+        Assert.assertNotEquals(small, big);
+    }
+}
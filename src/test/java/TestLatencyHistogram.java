@@ -0,0 +1,102 @@
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestLatencyHistogram {
+    /**
+     * Test percentiles of uniform latencies from 1 to 1000000
+     * Expected to differ from exact percentiles in less than 1%
+     */
+    @Test
+    public void testPercentiles() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1_000_000; value++) {
+            histogram.record(value);
+        }
+        Assert.assertEquals(1_000_000, histogram.getCount());
+        Assert.assertEquals(1_000_000, histogram.getMax());
+        Assert.assertEquals(500_000.5, histogram.getMean(), 1e-6);
+        Assert.assertEquals(500_000, histogram.valueAtPercentile(50), 5_000);
+        Assert.assertEquals(990_000, histogram.valueAtPercentile(99), 9_900);
+        Assert.assertEquals(999_000, histogram.valueAtPercentile(99.9), 9_990);
+        Assert.assertEquals(1_000_000, histogram.valueAtPercentile(100));
+        Assert.assertEquals(1, histogram.valueAtPercentile(0));
+    }
+
+    /**
+     * Test buckets of values
+     * Expected that every value is in bucket whose highest value is not less than value and differs in less than 1%
+     */
+    @Test
+    public void testBuckets() throws Exception {
+        long[] values = {0, 1, 255, 256, 257, 1000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values) {
+            long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+            Assert.assertTrue(highest >= value);
+            Assert.assertTrue(highest - value <= value / 100);
+        }
+    }
+
+    /**
+     * Test merging of histograms of two threads
+     * Expected to get the same percentiles and count as one histogram of all values
+     */
+    @Test
+    public void testAdd() throws Exception {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        LatencyHistogram all = new LatencyHistogram();
+        for (long value = 0; value < 10_000; value++) {
+            (value % 2 == 0 ? first : second).record(value * 37);
+            all.record(value * 37);
+        }
+        first.add(second);
+        Assert.assertEquals(all.getCount(), first.getCount());
+        Assert.assertEquals(all.getMax(), first.getMax());
+        Assert.assertEquals(all.valueAtPercentile(50), first.valueAtPercentile(50));
+        Assert.assertEquals(all.valueAtPercentile(99.9), first.valueAtPercentile(99.9));
+    }
+
+    /**
+     * Test recording of latencies by several threads to one recorder
+     * Expected to count every value and to get the same percentiles as histogram of one thread
+     */
+    @Test
+    public void testConcurrentRecorder() throws Exception {
+        LatencyRecorder recorder = new LatencyRecorder();
+        int threads = 4;
+        int valuesPerThread = 100_000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                for (long value = 1; value <= valuesPerThread; value++) {
+                    recorder.record(value);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        LatencyHistogram expected = new LatencyHistogram();
+        for (long value = 1; value <= valuesPerThread; value++) {
+            expected.record(value);
+        }
+        LatencyHistogram snapshot = recorder.snapshot();
+        Assert.assertEquals((long) threads * valuesPerThread, snapshot.getCount());
+        Assert.assertEquals(valuesPerThread, snapshot.getMax());
+        Assert.assertEquals(expected.getMean(), snapshot.getMean(), 1e-6);
+        Assert.assertEquals(expected.valueAtPercentile(99), snapshot.valueAtPercentile(99));
+    }
+
+    /**
+     * Test recording of negative latency
+     * Expected to throw IllegalArgumentException
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeValue() throws Exception {
+        new LatencyHistogram().record(-1);
+    }
+}
@@ -0,0 +1,132 @@
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class TestMappedInventoryStore {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    private Article a1;
+    private Article a2;
+
+    /**
+     * Set values for tests
+     */
+    @Before
+    public void set() {
+        file = folder.getRoot().toPath().resolve("inventory.bin");
+        a1 = new Article("Phone", "Can call");
+        a2 = new Article("TV", null);
+    }
+
+    /**
+     * Test writing and reading of inventory file
+     * Expected to read the same articles, counts and prices and to return the same product on every access
+     */
+    @Test
+    public void testWriteAndRead() throws Exception {
+        List<Product> products = Arrays.asList(new Product(100, 20050, a1), new Product(1000, 500, a2));
+        MappedInventoryStore.write(file, null, products, new int[] {10, 20});
+        try (MappedInventoryStore store = new MappedInventoryStore(file)) {
+            Assert.assertEquals(2, store.size());
+            Assert.assertNull(store.get(Id.random()));
+            Product product = store.get(a1.getId());
+            Assert.assertEquals(10, product.getCount());
+            Assert.assertEquals(20050, product.getPrice());
+            Assert.assertEquals("Can call", product.getArticle().getDescription());
+            Assert.assertNull(store.get(a2.getId()).getArticle().getDescription());
+            Assert.assertSame(product, store.get(a1.getId()));
+        }
+    }
+
+    /**
+     * Test changes of mapped inventory
+     * Expected to keep changes in memory and to write them with unchanged articles of file to new file
+     */
+    @Test
+    public void testWriteChangesWithBase() throws Exception {
+        MappedInventoryStore.write(file, null, Arrays.asList(new Product(100, 200, a1), new Product(1000, 500, a2)),
+                new int[] {100, 1000});
+        Path next = folder.getRoot().toPath().resolve("next.bin");
+        Article a3 = new Article("Radio", "Can play");
+        try (MappedInventoryStore store = new MappedInventoryStore(file)) {
+            store.get(a1.getId()).setCount(50);
+            store.put(new Product(5, 10, a3));
+            Assert.assertEquals(3, store.size());
+            Set<Id> ids = new HashSet<>();
+            for (Product product : store) {
+                ids.add(product.getArticle().getId());
+            }
+            Assert.assertEquals(new HashSet<>(Arrays.asList(a1.getId(), a2.getId(), a3.getId())), ids);
+
+            List<Product> loaded = new ArrayList<>();
+            for (Product product : store.loadedProducts()) {
+                loaded.add(product);
+            }
+            int[] counts = new int[loaded.size()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = loaded.get(i).getCount();
+            }
+            MappedInventoryStore.write(next, store, loaded, counts);
+        }
+        try (MappedInventoryStore store = new MappedInventoryStore(next)) {
+            Assert.assertEquals(3, store.size());
+            Assert.assertEquals(50, store.get(a1.getId()).getCount());
+            Assert.assertEquals(1000, store.get(a2.getId()).getCount());
+            Assert.assertEquals("Radio", store.get(a3.getId()).getArticle().getName());
+        }
+    }
+
+    /**
+     * Test iterating of big inventory
+     * Expected to read all products without keeping them in memory and to return changed products from memory
+     */
+    @Test
+    public void testIterationDoesNotLoadProducts() throws Exception {
+        List<Product> products = new ArrayList<>();
+        int[] counts = new int[1000];
+        for (int i = 0; i < counts.length; i++) {
+            products.add(new Product(i, i, new Article("Article " + i, null)));
+            counts[i] = i;
+        }
+        MappedInventoryStore.write(file, null, products, counts);
+        try (MappedInventoryStore store = new MappedInventoryStore(file)) {
+            Product changed = store.get(products.get(10).getArticle().getId());
+            changed.setCount(5000);
+            long sum = 0;
+            int size = 0;
+            for (Product product : store) {
+                sum += product.getCount();
+                size++;
+                if (product.getArticle().getId().equals(changed.getArticle().getId())) {
+                    Assert.assertSame(changed, product);
+                }
+            }
+            Assert.assertEquals(1000, size);
+            Assert.assertEquals(999 * 1000 / 2 - 10 + 5000, sum);
+            Assert.assertEquals(1, store.getLoadedCount());
+        }
+    }
+
+    /**
+     * Test empty inventory file
+     * Expected to open store without articles
+     */
+    @Test
+    public void testEmptyInventory() throws Exception {
+        MappedInventoryStore.write(file, null, Collections.emptyList(), new int[0]);
+        try (MappedInventoryStore store = new MappedInventoryStore(file)) {
+            Assert.assertEquals(0, store.size());
+            Assert.assertFalse(store.iterator().hasNext());
+            Assert.assertNull(store.get(a1.getId()));
+        }
+    }
+}
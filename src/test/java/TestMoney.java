@@ -0,0 +1,52 @@
+import org.junit.*;
+
+import java.util.Arrays;
+
+public class TestMoney {
+    /**
+     * Test formatting and parsing of amounts
+     * Expected to keep all digits after point and to get the same amount after parsing
+     */
+    @Test
+    public void testParseAndFormat() throws Exception {
+        Assert.assertEquals("12.50", Money.format(1250));
+        Assert.assertEquals("0.05", Money.format(5));
+        Assert.assertEquals("-0.05", Money.format(-5));
+        Assert.assertEquals("-3.10", Money.format(-310));
+        Assert.assertEquals(1250, Money.parse("12.5"));
+        Assert.assertEquals(1200, Money.parse("12"));
+        Assert.assertEquals(-5, Money.parse("-0.05"));
+        Assert.assertEquals(Long.MAX_VALUE, Money.parse(Money.format(Long.MAX_VALUE)));
+        Assert.assertEquals(Long.MIN_VALUE + 1, Money.parse(Money.format(Long.MIN_VALUE + 1)));
+    }
+
+    /**
+     * Test parsing of wrong amount
+     * Expected to throw IllegalArgumentException, because amount has more digits after point than scale
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseWrongAmount() throws Exception {
+        Money.parse("1.005");
+    }
+
+    /**
+     * Test total price of order
+     * Expected to be exact sum of prices of lines in minor units
+     */
+    @Test
+    public void testExactTotal() throws Exception {
+        Article article = new Article("Pen", "Can write");
+        Order order = new Order(Arrays.asList(new Product(1, 10, article), new Product(2, 10, article),
+                new Product(1, 10, article)), null);
+        Assert.assertEquals(40, order.getTotalPrice());
+    }
+
+    /**
+     * Test overflow of amount
+     * Expected to throw ArithmeticException instead of wrong amount
+     */
+    @Test(expected = ArithmeticException.class)
+    public void testOverflow() throws Exception {
+        Money.times(Long.MAX_VALUE / 2, 3);
+    }
+}
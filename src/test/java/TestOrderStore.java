@@ -0,0 +1,122 @@
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestOrderStore {
+    private OrderStore store;
+    private Order order;
+
+    /**
+     * Set values for tests
+     */
+    @Before
+    public void set() {
+        store = new OrderStore();
+        order = new Order(new ArrayList<>(Collections.singletonList(new Product(1, 100, new Article("Phone", "")))),
+                null);
+    }
+
+    /**
+     * Test lifecycle of order
+     * Expected to move order between views by transitions and to reject transitions from wrong state
+     */
+    @Test
+    public void testTransitions() throws Exception {
+        Assert.assertTrue(store.add(order));
+        Assert.assertFalse(store.add(order));
+        Map<Id, Order> pending = store.view(OrderState.PENDING);
+        Map<Id, Order> delivering = store.view(OrderState.DELIVERING);
+        Assert.assertSame(order, pending.get(order.getId()));
+        Assert.assertNull(store.transition(order.getId(), OrderState.DELIVERING, OrderState.DELIVERED));
+
+        Assert.assertSame(order, store.transition(order.getId(), OrderState.PENDING, OrderState.DELIVERING));
+        Assert.assertTrue(pending.isEmpty());
+        Assert.assertEquals(Collections.singleton(order.getId()), delivering.keySet());
+        Assert.assertTrue(delivering.containsValue(order));
+
+        Assert.assertSame(order, store.transition(order.getId(), OrderState.DELIVERING, OrderState.DELIVERED));
+        Assert.assertTrue(delivering.isEmpty());
+        Assert.assertEquals(OrderState.DELIVERED, store.stateOf(order.getId()));
+        Assert.assertSame(order, store.get(order.getId()));
+        Assert.assertEquals(1, store.count(OrderState.DELIVERED));
+        Assert.assertFalse(store.add(order));
+    }
+
+    /**
+     * Test views of states
+     * Expected to don't allow changes through views and to iterate only orders of state
+     */
+    @Test
+    public void testViews() throws Exception {
+        store.add(order);
+        Map<Id, Order> pending = store.view(OrderState.PENDING);
+        try {
+            pending.remove(order.getId());
+            Assert.fail();
+        } catch (UnsupportedOperationException ex) {
+            Assert.assertTrue(store.contains(order.getId()));
+        }
+        try {
+            pending.put(order.getId(), order);
+            Assert.fail();
+        } catch (UnsupportedOperationException ex) {
+            Assert.assertEquals(1, store.count(OrderState.PENDING));
+        }
+        try {
+            pending.keySet().clear();
+            Assert.fail();
+        } catch (UnsupportedOperationException ex) {
+            Assert.assertEquals(1, pending.size());
+        }
+
+        for (int i = 0; i < 100; i++) {
+            Order delivered = new Order(new ArrayList<>(), null);
+            store.add(delivered);
+            store.transition(delivered.getId(), OrderState.PENDING, OrderState.DELIVERING);
+            store.transition(delivered.getId(), OrderState.DELIVERING, OrderState.DELIVERED);
+        }
+        Assert.assertEquals(Collections.singleton(order.getId()), pending.keySet());
+        Assert.assertEquals(1, pending.values().size());
+        Assert.assertEquals(100, store.view(OrderState.DELIVERED).keySet().size());
+        Assert.assertTrue(store.view(OrderState.DELIVERING).isEmpty());
+        Assert.assertFalse(store.view(OrderState.DELIVERING).entrySet().iterator().hasNext());
+    }
+
+    /**
+     * Test concurrent transitions of the same order
+     * Expected to let only one thread change state
+     */
+    @Test
+    public void testConcurrentTransition() throws Exception {
+        store.add(order);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            OrderState next = i % 2 == 0 ? OrderState.DELIVERING : OrderState.CANCELLED;
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                if (store.transition(order.getId(), OrderState.PENDING, next) != null) {
+                    succeeded.incrementAndGet();
+                }
+            });
+            workers[i].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Assert.assertEquals(1, succeeded.get());
+        Assert.assertEquals(0, store.count(OrderState.PENDING));
+        Assert.assertEquals(1, store.count(OrderState.DELIVERING) + store.count(OrderState.CANCELLED));
+    }
+}
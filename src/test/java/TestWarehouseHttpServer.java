@@ -0,0 +1,212 @@
+import org.junit.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+public class TestWarehouseHttpServer {
+    private WarehouseManagement wm;
+    private WarehouseHttpServer server;
+    private Employee e;
+    private Courier c;
+
+    /** Status of the last response */
+    private int status;
+
+    /**
+     * Set values for tests
+     */
+    @Before
+    public void set() throws Exception {
+        wm = new WarehouseManagement(new AuditSink() {
+            @Override
+            public void write(AuditRecord record) {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        e = new Employee("Employee");
+        c = new Courier("Courier");
+        wm.giveEmployeeAuthorization(e);
+        wm.giveCourierAuthorization(c);
+        server = new WarehouseHttpServer(wm, 0);
+        server.addEmployee(e);
+        server.addEmployee(c);
+        server.start();
+    }
+
+    /**
+     * Stop server and close warehouse management
+     */
+    @After
+    public void close() throws Exception {
+        server.close();
+        wm.close();
+    }
+
+    /**
+     * Send request to server
+     * @param method HTTP method
+     * @param path Path and query
+     * @param actor Employee of request, or null
+     * @param body Body of request, or null
+     * @return Body of response
+     */
+    private String request(String method, String path, Employee actor, String body) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path)
+                .openConnection();
+        connection.setRequestMethod(method);
+        if (actor != null) {
+            connection.setRequestProperty(WarehouseHttpServer.ACTOR_HEADER, actor.getId().toString());
+        }
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        status = connection.getResponseCode();
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                result.write(buffer, 0, read);
+            }
+        }
+        return new String(result.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Test lifecycle of order through HTTP
+     * Expected to receipt product, create, take and deliver order and to show them in reports
+     */
+    @Test
+    public void testOrderLifecycle() throws Exception {
+        Map<String, Object> receipt = Json.parseObject(request("POST", "/receipts", e,
+                "{\"article\": {\"name\": \"Phone\", \"description\": \"Can \\\"call\\\"\"}, \"count\": 10,"
+                        + " \"price\": \"12.50\"}"));
+        Assert.assertEquals(200, status);
+        Assert.assertEquals(Boolean.TRUE, receipt.get("result"));
+        String article = (String) receipt.get("article");
+        Assert.assertEquals(Money.parse("12.50"), wm.getInventory().get(Id.parse(article)).getPrice());
+
+        Map<String, Object> order = Json.parseObject(request("POST", "/orders", e,
+                "{\"client\": {\"name\": \"Client\"}, \"lines\": [{\"article\": \"" + article + "\", \"count\": 3}]}"));
+        Assert.assertEquals(Boolean.TRUE, order.get("result"));
+        String id = (String) order.get("id");
+        Assert.assertEquals(7, wm.getInventory().get(Id.parse(article)).getCount());
+        Assert.assertEquals(Money.times(Money.parse("12.50"), 3), wm.getOrders().get(Id.parse(id)).getTotalPrice());
+
+        Assert.assertEquals("{\"result\":true}", request("POST", "/orders/" + id + "/take", c, null));
+        Assert.assertTrue(request("GET", "/delivering-orders", e, null).contains(id));
+        Assert.assertEquals("{\"result\":true}", request("POST", "/orders/" + id + "/deliver", c, ""));
+        Assert.assertEquals("{\"result\":false}", request("POST", "/orders/" + id + "/cancel", e,
+                "{\"reason\": \"Late\"}"));
+
+        String inventory = request("GET", "/inventory?page=0&size=10", e, null);
+        Assert.assertEquals(200, status);
+        Assert.assertTrue(inventory.contains("Phone"));
+    }
+
+    /**
+     * Test answers to wrong requests
+     * Expected to answer 403 to unknown actor and to employee on courier endpoint, 400 to wrong JSON and negative count,
+     * 404 to unknown path and 405 to wrong method
+     */
+    @Test
+    public void testErrors() throws Exception {
+        request("GET", "/inventory", null, null);
+        Assert.assertEquals(403, status);
+        request("GET", "/inventory", new Employee("Stranger"), null);
+        Assert.assertEquals(403, status);
+        request("POST", "/orders/" + Id.random() + "/take", e, null);
+        Assert.assertEquals(403, status);
+        Map<String, Object> error = Json.parseObject(request("POST", "/receipts", e, "{\"count\": "));
+        Assert.assertEquals(400, status);
+        Assert.assertTrue(((String) error.get("error")).startsWith("Wrong JSON"));
+        request("POST", "/receipts", e, "{\"article\": {\"name\": \"Phone\"}, \"count\": 1.5, \"price\": \"1\"}");
+        Assert.assertEquals(400, status);
+        request("POST", "/receipts", e, "{\"article\": {\"name\": \"Phone\"}, \"count\": -1000, \"price\": \"1\"}");
+        Assert.assertEquals(400, status);
+        Assert.assertTrue(wm.getInventory().isEmpty());
+        request("GET", "/inventory?size=100000", e, null);
+        Assert.assertEquals(400, status);
+        request("GET", "/unknown", e, null);
+        Assert.assertEquals(404, status);
+        request("GET", "/receipts", e, null);
+        Assert.assertEquals(405, status);
+    }
+
+    /**
+     * Test answer to failed action
+     * Expected to answer 500 with generic message which doesn't show exception to client
+     */
+    @Test
+    public void testInternalError() throws Exception {
+        server.close();
+        wm.close();
+        wm = new WarehouseManagement(new AuditSink() {
+            @Override
+            public void write(AuditRecord record) throws IOException {
+                if (record.getType() == AuditEventType.PRODUCT_RECEPTION) {
+                    throw new IOException("Disk of /secret/path is full");
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        wm.giveEmployeeAuthorization(e);
+        server = new WarehouseHttpServer(wm, 0);
+        server.addEmployee(e);
+        server.start();
+        String body = request("POST", "/receipts", e,
+                "{\"article\": {\"name\": \"Phone\"}, \"count\": 1, \"price\": \"1\"}");
+        Assert.assertEquals(500, status);
+        Assert.assertEquals("{\"error\":\"Internal server error\"}", body);
+    }
+
+    /**
+     * Test reading of JSON
+     * Expected to read nested values with escapes and to reject text after value
+     */
+    @Test
+    public void testJson() throws Exception {
+        Map<String, Object> json = Json.parseObject("{\"a\": [1, -2.5e1, true, null], \"b\": \"\\u0041\\n\"}");
+        Assert.assertEquals(java.util.Arrays.asList(1L, -25.0, true, null), json.get("a"));
+        Assert.assertEquals("A\n", json.get("b"));
+        Assert.assertEquals("\"A\\n\\\"\"", Json.quote(new StringBuilder(), "A\n\"").toString());
+        try {
+            Json.parse("[1] 2");
+            Assert.fail();
+        } catch (IllegalArgumentException ex) {
+            Assert.assertTrue(ex.getMessage().startsWith("Wrong JSON at 4"));
+        }
+        Assert.assertTrue(((List<?>) Json.parse(" [ ] ")).isEmpty());
+    }
+
+    /**
+     * Test many connections which are open at the same time
+     * Expected to answer every request with 200 or 503 and to keep count of threads bounded
+     */
+    @Test
+    public void testLoad() throws Exception {
+        WarehouseHttpLoadTest.Report report = WarehouseHttpLoadTest.fromArgs(new String[]{
+                "--connections=1000", "--max-concurrent=16", "--timeout=60"}).run();
+        Assert.assertEquals(0, report.getFailures());
+        Assert.assertEquals(1000, report.getOpenConnections());
+        Assert.assertTrue(report.isPassed());
+        Assert.assertTrue(report.getResponses(200) > 0);
+        Assert.assertTrue(report.getPeakThreads() < 200);
+    }
+}
@@ -1,4 +1,9 @@
 import org.junit.*;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
 import java.util.*;
 
 public class TestWarehouseManagement {
@@ -28,6 +33,14 @@ public class TestWarehouseManagement {
         order = new Order(new ArrayList<>(), client);
     }
 
+    /**
+     * Close warehouse management
+     */
+    @After
+    public void close() throws Exception{
+        wm.close();
+    }
+
     /**
      * test Give Employee Authorization
      */
@@ -104,12 +117,25 @@ public class TestWarehouseManagement {
 
         Assert.assertEquals(100, product1.getCount());
         Assert.assertEquals(1000, product2.getCount());
-        Assert.assertEquals(200, product1.getPrice(), 0);
-        Assert.assertEquals(500, product2.getPrice(), 0);
+        Assert.assertEquals(200, product1.getPrice());
+        Assert.assertEquals(500, product2.getPrice());
         Assert.assertEquals(a1, getArticle);
         Assert.assertEquals(a2, getArticle2);
     }
 
+    /**
+     * Test reception of product with negative count
+     * Expected to return false and not to change inventory
+     */
+    @Test
+    public void testReceiptProductWithNegativeCount() throws Exception{
+        testReceiptProduct();
+        Assert.assertFalse(wm.receiptProduct(e, new Product(-1000, 300, a1)));
+        Assert.assertEquals(100, wm.getInventory().get(a1.getId()).getCount());
+        Assert.assertEquals(200, wm.getInventory().get(a1.getId()).getPrice());
+        Assert.assertEquals(100 * 200 + 1000 * 500, wm.getStockValue());
+    }
+
     /**
      * Test reception of existing product
      * Expected to change all fields and increase amount of product by formula:
@@ -124,7 +150,7 @@ public class TestWarehouseManagement {
         wm.receiptProduct(e, receivedExistingProduct);
         product1 = wm.getInventory().get(a1.getId());
         Assert.assertEquals(150, product1.getCount());
-        Assert.assertEquals(300, product1.getPrice(), 0);
+        Assert.assertEquals(300, product1.getPrice());
         Article getArticle = product1.getArticle();
         Assert.assertEquals("New Name", getArticle.getName());
         Assert.assertEquals("New Description", getArticle.getDescription());
@@ -132,6 +158,56 @@ public class TestWarehouseManagement {
         Assert.assertEquals(newArticle, getArticle);
     }
 
+    /**
+     * Test batch reception of products
+     * Expected to:
+     * 1) merge lines with the same article (sum of counts and information of the last line)
+     * 2) skip null lines
+     * 3) add counts to existing products
+     * 4) don't change products of batch and don't keep them in inventory
+     */
+    @Test
+    public void testReceiptProducts() throws Exception{
+        testReceiptProduct();
+        Article newArticle = new Article(a1.getId(), "New Name", "New Description");
+        Article a3 = new Article("Radio", "Can play music");
+        List<Product> batch = new ArrayList<>();
+        batch.add(new Product(10, 200, a1));
+        batch.add(new Product(5, 100, a3));
+        batch.add(null);
+        batch.add(new Product(20, 300, newArticle));
+
+        BatchReceiptResult result = wm.receiptProducts(e, batch);
+
+        Assert.assertEquals(BatchReceiptResult.Status.MERGED, result.getStatus(0));
+        Assert.assertEquals(BatchReceiptResult.Status.RECEIVED, result.getStatus(1));
+        Assert.assertEquals(BatchReceiptResult.Status.INVALID, result.getStatus(2));
+        Assert.assertEquals(BatchReceiptResult.Status.RECEIVED, result.getStatus(3));
+        Product productFromInventory = wm.getInventory().get(a1.getId());
+        Assert.assertEquals(130, productFromInventory.getCount());
+        Assert.assertEquals(300, productFromInventory.getPrice());
+        Assert.assertEquals(newArticle, productFromInventory.getArticle());
+        Assert.assertEquals(5, wm.getInventory().get(a3.getId()).getCount());
+        Assert.assertEquals(1000, wm.getInventory().get(a2.getId()).getCount());
+        Assert.assertEquals(10, batch.get(0).getCount());
+        Assert.assertEquals(5, batch.get(1).getCount());
+        Assert.assertEquals(20, batch.get(3).getCount());
+        Assert.assertNotSame(batch.get(3), productFromInventory);
+        Assert.assertNotSame(batch.get(1), wm.getInventory().get(a3.getId()));
+    }
+
+    /**
+     * Test batch reception by employee without authorization
+     * Expected to don't receipt any product
+     */
+    @Test
+    public void testReceiptProductsWithoutAuthorization() throws Exception{
+        BatchReceiptResult result = wm.receiptProducts(e, Collections.singletonList(product1));
+        Assert.assertFalse(result.isAuthorized());
+        Assert.assertEquals(1, result.count(BatchReceiptResult.Status.UNAUTHORIZED));
+        Assert.assertEquals(0, wm.getInventory().size());
+    }
+
     /**
      * Test create order
      * Expected to
@@ -151,7 +227,7 @@ public class TestWarehouseManagement {
         productsList.add(productForOrder1);
         productsList.add(productForOrder2);
 
-        double totalPrice = 3 * 200 + 2 * 500;
+        long totalPrice = 3 * 200 + 2 * 500;
 
         order = new Order(productsList, client);
 
@@ -161,11 +237,11 @@ public class TestWarehouseManagement {
 
         Assert.assertEquals(productsList, orderFromOrders.getProducts());
         Assert.assertEquals(client, orderFromOrders.getClient());
-        Assert.assertEquals(totalPrice, orderFromOrders.getTotalPrice(), 0);
+        Assert.assertEquals(totalPrice, orderFromOrders.getTotalPrice());
 
 
-        String product1Id = product1.getArticle().getId();
-        String product2Id = product2.getArticle().getId();
+        Id product1Id = product1.getArticle().getId();
+        Id product2Id = product2.getArticle().getId();
         int product1Count = wm.getInventory().get(product1Id).getCount();
         int product2Count = wm.getInventory().get(product2Id).getCount();
 
@@ -194,13 +270,98 @@ public class TestWarehouseManagement {
 
         Assert.assertFalse(wm.createOrder(e, orderTest));
 
-        String id = product1.getArticle().getId();
+        Id id = product1.getArticle().getId();
         Product productFromInventory = wm.getInventory().get(id);
 
         Assert.assertEquals(product1, productFromInventory);
         Assert.assertEquals(0, wm.getOrders().size());
     }
 
+    /**
+     * Test create order when only the last product isn't enough
+     * Expected to:
+     * 1)return false from method
+     * 2)don't change amount of the first product
+     * 3)don't create order
+     */
+    @Test
+    public void testOrderWhenLastProductIsNotEnough() throws Exception{
+        testReceiptProduct();
+
+        List<Product> productsList = new ArrayList<>();
+        productsList.add(new Product(10, product1.getPrice(), a1));
+        productsList.add(new Product(1001, product2.getPrice(), a2));
+
+        Assert.assertFalse(wm.createOrder(e, new Order(productsList, client)));
+        Assert.assertEquals(100, wm.getInventory().get(a1.getId()).getCount());
+        Assert.assertEquals(1000, wm.getInventory().get(a2.getId()).getCount());
+        Assert.assertEquals(0, wm.getOrders().size());
+    }
+
+    /**
+     * Test create order with article which doesn't exist in inventory
+     * Expected to return false and don't change amount of other products
+     */
+    @Test
+    public void testOrderWithUnknownArticle() throws Exception{
+        testReceiptProduct();
+
+        List<Product> productsList = new ArrayList<>();
+        productsList.add(new Product(10, product1.getPrice(), a1));
+        productsList.add(new Product(1, 10, new Article("Unknown", "Doesn't exist")));
+
+        Assert.assertFalse(wm.createOrder(e, new Order(productsList, client)));
+        Assert.assertEquals(100, wm.getInventory().get(a1.getId()).getCount());
+        Assert.assertEquals(0, wm.getOrders().size());
+    }
+
+    /**
+     * Test create order with the same article in several lines
+     * Expected to reserve sum of all lines
+     */
+    @Test
+    public void testOrderWithSameArticleInSeveralLines() throws Exception{
+        testReceiptProduct();
+
+        List<Product> productsList = new ArrayList<>();
+        productsList.add(new Product(60, product1.getPrice(), a1));
+        productsList.add(new Product(50, product1.getPrice(), a1));
+        Assert.assertFalse(wm.createOrder(e, new Order(productsList, client)));
+        Assert.assertEquals(100, wm.getInventory().get(a1.getId()).getCount());
+
+        productsList.remove(1);
+        productsList.add(new Product(40, product1.getPrice(), a1));
+        Assert.assertTrue(wm.createOrder(e, new Order(productsList, client)));
+        Assert.assertEquals(0, wm.getInventory().get(a1.getId()).getCount());
+    }
+
+    /**
+     * Test batch creating of orders
+     * Expected to:
+     * 1) create orders while inventory has enough products for them and all orders before them
+     * 2) reject duplicate, unknown article and insufficient stock with their outcomes
+     * 3) take amounts of created orders only
+     */
+    @Test
+    public void testCreateOrders() throws Exception{
+        testReceiptProduct();
+        Order first = new Order(new ArrayList<>(Arrays.asList(new Product(60, 200, a1), new Product(5, 500, a2))), client);
+        Order tooMuch = new Order(new ArrayList<>(Collections.singletonList(new Product(50, 200, a1))), client);
+        Order unknown = new Order(new ArrayList<>(Collections.singletonList(
+                new Product(1, 10, new Article("Unknown", "Doesn't exist")))), client);
+        Order last = new Order(new ArrayList<>(Collections.singletonList(new Product(40, 200, a1))), client);
+
+        List<OrderOutcome> outcomes = wm.createOrders(e, Arrays.asList(first, tooMuch, unknown, first, last));
+
+        Assert.assertEquals(Arrays.asList(OrderOutcome.CREATED, OrderOutcome.INSUFFICIENT_STOCK,
+                OrderOutcome.UNKNOWN_ARTICLE, OrderOutcome.DUPLICATE_ID, OrderOutcome.CREATED), outcomes);
+        Assert.assertEquals(2, wm.getOrders().size());
+        Assert.assertEquals(0, wm.getInventory().get(a1.getId()).getCount());
+        Assert.assertEquals(995, wm.getInventory().get(a2.getId()).getCount());
+        Assert.assertEquals(Collections.singletonList(OrderOutcome.DUPLICATE_ID),
+                wm.createOrders(e, Collections.singletonList(last)));
+    }
+
     /**
      * Test change product's information
      * Expected to replace old information of product with new information
@@ -214,7 +375,7 @@ public class TestWarehouseManagement {
 
         Product productFromInventory = wm.getInventory().get(a1.getId());
         Assert.assertEquals(newArticle, productFromInventory.getArticle());
-        Assert.assertEquals(400, productFromInventory.getPrice(), 0);
+        Assert.assertEquals(400, productFromInventory.getPrice());
         Assert.assertEquals(500, productFromInventory.getCount());
     }
 
@@ -261,9 +422,9 @@ public class TestWarehouseManagement {
 
         Assert.assertFalse(wm.getOrders().containsValue(order));
 
-        String productId1 = product1.getArticle().getId();
+        Id productId1 = product1.getArticle().getId();
         Product productFromInventory1 = wm.getInventory().get(productId1);
-        String productId2 = product2.getArticle().getId();
+        Id productId2 = product2.getArticle().getId();
         Product productFromInventory2 = wm.getInventory().get(productId2);
 
         Assert.assertEquals(100, productFromInventory1.getCount());
@@ -283,6 +444,232 @@ public class TestWarehouseManagement {
         Assert.assertFalse(c.getOrders().containsValue(order));
     }
 
+    /**
+     * Test history of orders
+     * Expected to keep delivered order in store with state DELIVERED, to reject new order with its ID
+     * and to reject cancellation, returning and second delivery of it
+     */
+    @Test
+    public void testOrderHistory() throws Exception{
+        testDeliverOrder();
+        Assert.assertEquals(OrderState.DELIVERED, wm.getOrderStore().stateOf(order.getId()));
+        Assert.assertSame(order, wm.getOrderStore().view(OrderState.DELIVERED).get(order.getId()));
+        Assert.assertEquals(1, wm.getOrderStore().count(OrderState.DELIVERED));
+        Assert.assertFalse(wm.createOrder(e, order));
+        Assert.assertFalse(wm.cancelOrder(e, order.getId(), "reason"));
+        Assert.assertFalse(wm.returnOrder(c, order.getId(), "reason"));
+        Assert.assertFalse(wm.deliverOrder(c, order.getId()));
+        Assert.assertEquals(0, wm.getOrders().size());
+        Assert.assertEquals(0, wm.getDeliveringOrders().size());
+        Assert.assertEquals(OrderState.DELIVERED, wm.getOrderStore().stateOf(order.getId()));
+    }
+
+    /**
+     * Test index of couriers
+     * Expected to find courier of order and orders of courier in both directions
+     */
+    @Test
+    public void testCourierIndex() throws Exception{
+        testTakeOrder();
+        Assert.assertEquals(c.getId(), wm.findCourierOfOrder(order.getId()));
+        Assert.assertEquals(1, wm.getOrderCountOfCourier(c.getId()));
+        Assert.assertEquals(1, c.getOrderCount());
+        Assert.assertSame(order, wm.getOrdersOfCourier(c.getId()).get(order.getId()));
+
+        wm.returnOrder(c, order.getId(), "reason");
+        Assert.assertNull(wm.findCourierOfOrder(order.getId()));
+        Assert.assertEquals(0, c.getOrderCount());
+
+        Courier other = new Courier("Other courier");
+        wm.giveCourierAuthorization(other);
+        wm.takeOrder(other, order.getId());
+        Assert.assertEquals(other.getId(), wm.findCourierOfOrder(order.getId()));
+        Assert.assertTrue(other.getOrders().containsKey(order.getId()));
+        Assert.assertTrue(c.getOrders().isEmpty());
+    }
+
+    /**
+     * Test searching of products by name and description
+     * Expected to find products by words, beginnings and parts of words, sort them by match and count,
+     * and to find new name after change of product information
+     */
+    @Test
+    public void testSearchProducts() throws Exception{
+        testReceiptProduct();
+        Product phoneCase = new Product(500, 10, new Article("Phone case", "Protects phone"));
+        wm.receiptProduct(e, phoneCase);
+
+        Assert.assertEquals(Arrays.asList(phoneCase, product1), wm.searchProducts("phone", 10));
+        Assert.assertEquals(Collections.singletonList(phoneCase), wm.searchProducts("Phone CASE", 10));
+        Assert.assertEquals(Collections.singletonList(phoneCase), wm.searchProducts("phone", 1));
+        Assert.assertEquals(Collections.singletonList(product2), wm.searchProducts("broad", 10));
+        Assert.assertEquals(Collections.singletonList(product2), wm.searchProducts("cast", 10));
+        Assert.assertTrue(wm.searchProducts("radio", 10).isEmpty());
+        Assert.assertTrue(wm.searchProducts("  ", 10).isEmpty());
+
+        wm.changeProductInfo(e, new Product(100, 200, new Article(a1.getId(), "Radio", "Can play music")));
+        Assert.assertEquals(1, wm.searchProducts("radio", 10).size());
+        Assert.assertEquals(Collections.singletonList(phoneCase), wm.searchProducts("phone", 10));
+        Article radio = wm.searchProducts("music", 10).get(0).getArticle();
+        Assert.assertEquals(a1.getId(), radio.getId());
+        Assert.assertEquals(100, wm.searchProducts("music", 10).get(0).getCount());
+    }
+
+    /**
+     * Test reorder thresholds of articles
+     * Expected to find low products sorted by ratio of count to threshold after reception, creation and cancellation
+     * of orders, and to call listener when article crosses its threshold
+     */
+    @Test
+    public void testLowStock() throws Exception{
+        testReceiptProduct();
+        List<String> crossings = new ArrayList<>();
+        wm.addLowStockListener((articleId, count, threshold, low) ->
+                crossings.add((articleId.equals(a1.getId()) ? "a1 " : "a2 ") + count + (low ? " low" : " restocked")));
+
+        Assert.assertTrue(wm.setReorderThreshold(e, a1.getId(), 120));
+        Assert.assertTrue(wm.setReorderThreshold(e, a2.getId(), 500));
+        Assert.assertFalse(wm.setReorderThreshold(e, Id.random(), 10));
+        Assert.assertFalse(wm.setReorderThreshold(new Employee("Other"), a1.getId(), 10));
+        Assert.assertEquals(120, wm.getReorderThreshold(a1.getId()));
+        Assert.assertEquals(Collections.singletonList(product1), wm.getMostDepletedProducts(100));
+
+        Order big = new Order(new ArrayList<>(Collections.singletonList(new Product(600, 500, a2))), client);
+        wm.createOrder(e, big);
+        Assert.assertEquals(Arrays.asList(product2, product1), wm.getMostDepletedProducts(100));
+        Assert.assertEquals(Collections.singletonList(product2), wm.getMostDepletedProducts(1));
+
+        wm.cancelOrder(e, big.getId(), "reason");
+        wm.receiptProduct(e, new Product(50, 200, a1));
+        Assert.assertTrue(wm.getMostDepletedProducts(100).isEmpty());
+        Assert.assertEquals(Arrays.asList("a1 100 low", "a2 400 low", "a2 1000 restocked", "a1 150 restocked"),
+                crossings);
+
+        wm.setReorderThreshold(e, a1.getId(), 200);
+        wm.setReorderThreshold(e, a2.getId(), 0);
+        Assert.assertEquals(0, wm.getReorderThreshold(a2.getId()));
+        Assert.assertEquals(1, wm.getMostDepletedProducts(100).size());
+        Assert.assertEquals(a1.getId(), wm.getMostDepletedProducts(100).get(0).getArticle().getId());
+    }
+
+    /**
+     * Test running totals of value
+     * Expected to change stock value, open order value and delivering order value by every action
+     * in the same way as sums over inventory and orders
+     */
+    @Test
+    public void testAggregates() throws Exception{
+        testCreateOrder();
+        Assert.assertEquals(97 * 200 + 998 * 500, wm.getStockValue());
+        Assert.assertEquals(3 * 200 + 2 * 500, wm.getOpenOrderValue());
+        Assert.assertEquals(0, wm.getDeliveringOrderValue());
+
+        testGiveCourierAuthorization();
+        wm.takeOrder(c, order.getId());
+        Assert.assertEquals(0, wm.getOpenOrderValue());
+        Assert.assertEquals(1600, wm.getDeliveringOrderValue());
+        wm.returnOrder(c, order.getId(), "reason");
+        Assert.assertEquals(1600, wm.getOpenOrderValue());
+        Assert.assertEquals(0, wm.getDeliveringOrderValue());
+        wm.cancelOrder(e, order.getId(), "reason");
+        Assert.assertEquals(0, wm.getOpenOrderValue());
+        Assert.assertEquals(100 * 200 + 1000 * 500, wm.getStockValue());
+
+        wm.changeProductInfo(e, new Product(50, 300, a1));
+        wm.receiptProduct(e, new Product(10, 400, a2));
+        Assert.assertEquals(50 * 300 + 1010 * 400, wm.getStockValue());
+
+        Order other = new Order(new ArrayList<>(Collections.singletonList(new Product(10, 400, a2))), client);
+        wm.createOrder(e, other);
+        wm.takeOrder(c, other.getId());
+        wm.deliverOrder(c, other.getId());
+        Assert.assertEquals(0, wm.getDeliveringOrderValue());
+        long sum = 0;
+        for (Product product : wm.getInventory().values()) {
+            sum += product.getPrice() * product.getCount();
+        }
+        Assert.assertEquals(sum, wm.getStockValue());
+    }
+
+    /**
+     * Test metrics of actions
+     * Expected to count successful, rejected and unauthorized calls of every action and to record latency of every call
+     */
+    @Test
+    public void testMetrics() throws Exception{
+        testCreateOrder();
+        Employee stranger = new Employee("Stranger");
+        Assert.assertFalse(wm.createOrder(stranger, new Order(new ArrayList<>(), client)));
+        Assert.assertFalse(wm.cancelOrder(e, Id.random(), "reason"));
+
+        WarehouseMetrics.OperationSnapshot create = wm.getMetrics().snapshot(WarehouseMetrics.Operation.CREATE_ORDER);
+        Assert.assertEquals(1, create.getSuccessCount());
+        Assert.assertEquals(1, create.getRejectedCount());
+        Assert.assertEquals(1, create.getUnauthorizedCount());
+        Assert.assertEquals(0, create.getFailedCount());
+        Assert.assertEquals(2, create.getLatencyCount());
+        Assert.assertTrue(create.getMaxNanos() > 0);
+        Assert.assertTrue(create.getP50Nanos() <= create.getP99Nanos());
+
+        WarehouseMetrics.OperationSnapshot cancel = wm.getMetrics().snapshot(WarehouseMetrics.Operation.CANCEL_ORDER);
+        Assert.assertEquals(0, cancel.getSuccessCount());
+        Assert.assertEquals(1, cancel.getRejectedCount());
+        Assert.assertEquals(0, cancel.getUnauthorizedCount());
+
+        WarehouseMetrics.OperationSnapshot audit = wm.getMetrics().snapshot(WarehouseMetrics.Operation.WRITE_AUDIT);
+        Assert.assertTrue(audit.getSuccessCount() >= 3);
+        Assert.assertEquals(WarehouseMetrics.Operation.values().length, wm.getMetrics().getOperations().length);
+    }
+
+    /**
+     * Test metrics through JMX
+     * Expected to register MBean only on request, to read operations and audit gauges from platform MBean server
+     * and to remove MBean after closing
+     */
+    @Test
+    public void testMetricsMBean() throws Exception{
+        testReceiptProduct();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Assert.assertNull(wm.getMetrics().getObjectName());
+        ObjectName name = wm.registerMBean("WarehouseManagement");
+        Assert.assertEquals(name, wm.getMetrics().getObjectName());
+        Assert.assertTrue(server.isRegistered(name));
+        CompositeData[] operations = (CompositeData[]) server.getAttribute(name, "Operations");
+        Assert.assertEquals(WarehouseMetrics.Operation.RECEIPT_PRODUCT.name(),
+                operations[WarehouseMetrics.Operation.RECEIPT_PRODUCT.ordinal()].get("operation"));
+        Assert.assertEquals(2L, operations[WarehouseMetrics.Operation.RECEIPT_PRODUCT.ordinal()].get("successCount"));
+        Assert.assertTrue((Integer) server.getAttribute(name, "AuditQueueSize") >= 0);
+        wm.close();
+        Assert.assertFalse(server.isRegistered(name));
+    }
+
+    /**
+     * Test finding of open orders by article and by client
+     * Expected to find orders while they are waiting or delivering, and not to find canceled and delivered orders
+     */
+    @Test
+    public void testFindOrders() throws Exception{
+        testCreateOrder();
+        Order other = new Order(new ArrayList<>(Collections.singletonList(new Product(1, 500, a2))),
+                new Client("Other", "Address", "+996555555556"));
+        wm.createOrder(e, other);
+
+        Assert.assertEquals(Collections.singletonList(order), wm.findOrdersByArticle(a1.getId()));
+        Assert.assertEquals(2, wm.findOrdersByArticle(a2.getId()).size());
+        Assert.assertEquals(Collections.singletonList(order),
+                wm.findOrdersByClient(new Client("Client", "Address", "+996555555555")));
+
+        testGiveCourierAuthorization();
+        wm.takeOrder(c, order.getId());
+        Assert.assertEquals(Collections.singletonList(order), wm.findOrdersByArticle(a1.getId()));
+        wm.deliverOrder(c, order.getId());
+        Assert.assertTrue(wm.findOrdersByArticle(a1.getId()).isEmpty());
+        Assert.assertTrue(wm.findOrdersByClient(client).isEmpty());
+
+        wm.cancelOrder(e, other.getId(), "reason");
+        Assert.assertTrue(wm.findOrdersByArticle(a2.getId()).isEmpty());
+    }
+
     /**
      * Test check courier's authorization
      * Expected to:
@@ -395,30 +782,103 @@ public class TestWarehouseManagement {
     }
 
     /**
-     * Test return order which isn't exist in deliveringOrders
+     * Test return order which isn't exist in deliveringOrders (it is already delivered)
      * Expected to cancel operation
      */
     @Test
     public void testReturnOrderWhichIsNotExistInDeliveringOrders() throws Exception{
-        testTakeOrder();
-        wm.getDeliveringOrders().remove(order.getId());
+        testDeliverOrder();
         Assert.assertFalse(wm.returnOrder(c, order.getId(), "reason"));
         Assert.assertEquals(0, wm.getOrders().size());
         Assert.assertEquals(0, wm.getDeliveringOrders().size());
     }
     /**
-     * Test deliver order which isn't in deliveringOrders
-     * Expected to cancel cancel operation
+     * Test deliver order which isn't in deliveringOrders (it is returned)
+     * Expected to cancel operation
      */
     @Test
     public void testDeliverOrderWhichIsNotInDeliveringOrdersField() throws Exception{
-        testTakeOrder();
-        wm.getDeliveringOrders().remove(order.getId());
-        Assert.assertFalse(wm.returnOrder(c, order.getId(), "reason"));
-        Assert.assertEquals(0, wm.getOrders().size());
+        testReturnOrderTest();
+        Assert.assertFalse(wm.deliverOrder(c, order.getId()));
+        Assert.assertEquals(1, wm.getOrders().size());
         Assert.assertEquals(0, wm.getDeliveringOrders().size());
     }
 
+    /**
+     * Test views of orders
+     * Expected to don't allow removing of orders through views
+     */
+    @Test
+    public void testOrderViewsAreUnmodifiable() throws Exception{
+        testTakeOrder();
+        try {
+            wm.getDeliveringOrders().remove(order.getId());
+            Assert.fail();
+        } catch (UnsupportedOperationException ex) {
+            Assert.assertEquals(1, wm.getDeliveringOrders().size());
+        }
+        try {
+            wm.getDeliveringOrders().values().clear();
+            Assert.fail();
+        } catch (UnsupportedOperationException ex) {
+            Assert.assertEquals(OrderState.DELIVERING, wm.getOrderStore().stateOf(order.getId()));
+        }
+    }
+
+    /**
+     * Test cancellation and returning when record can't be written
+     * Expected to throw IOException and to keep order, stock and aggregates unchanged
+     */
+    @Test
+    public void testCancelAndReturnAreRecordedBeforeChange() throws Exception{
+        boolean[] failing = {false};
+        WarehouseManagement failingWm = new WarehouseManagement(new AuditSink() {
+            @Override
+            public void write(AuditRecord record) throws java.io.IOException {
+                if (failing[0]) {
+                    throw new java.io.IOException("Disk is full");
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        try {
+            failingWm.giveEmployeeAuthorization(e);
+            failingWm.giveCourierAuthorization(c);
+            failingWm.receiptProduct(e, product1);
+            Order canceled = new Order(new ArrayList<>(Collections.singletonList(new Product(10, 200, a1))), client);
+            Order returned = new Order(new ArrayList<>(Collections.singletonList(new Product(5, 200, a1))), client);
+            failingWm.createOrder(e, canceled);
+            failingWm.createOrder(e, returned);
+            failingWm.takeOrder(c, returned.getId());
+            long stockValue = failingWm.getStockValue();
+
+            failing[0] = true;
+            try {
+                failingWm.cancelOrder(e, canceled.getId(), "reason");
+                Assert.fail();
+            } catch (java.io.IOException ex) {
+                Assert.assertEquals(OrderState.PENDING, failingWm.getOrderStore().stateOf(canceled.getId()));
+            }
+            try {
+                failingWm.returnOrder(c, returned.getId(), "reason");
+                Assert.fail();
+            } catch (java.io.IOException ex) {
+                Assert.assertEquals(OrderState.DELIVERING, failingWm.getOrderStore().stateOf(returned.getId()));
+            }
+            Assert.assertEquals(85, failingWm.getInventory().get(a1.getId()).getCount());
+            Assert.assertEquals(stockValue, failingWm.getStockValue());
+            Assert.assertEquals(10 * 200, failingWm.getOpenOrderValue());
+            Assert.assertEquals(5 * 200, failingWm.getDeliveringOrderValue());
+            Assert.assertEquals(2, failingWm.findOrdersByArticle(a1.getId()).size());
+            Assert.assertEquals(c.getId(), failingWm.findCourierOfOrder(returned.getId()));
+        } finally {
+            failingWm.close();
+        }
+    }
+
     /**
      * Expected to write inventory to "resources/information.txt"
      */
@@ -428,6 +888,48 @@ public class TestWarehouseManagement {
         wm.showInventory(e);
     }
 
+    /**
+     * Test report of big inventory to audit sink
+     * Expected to record every product by several records with limited count of products
+     */
+    @Test
+    public void testShowInventoryStreamsToSink() throws Exception{
+        List<AuditRecord> records = Collections.synchronizedList(new ArrayList<>());
+        WarehouseManagement recordingWm = new WarehouseManagement(new AuditSink() {
+            @Override
+            public void write(AuditRecord record) {
+                if (record.getType() == AuditEventType.INVENTORY_SHOWING) {
+                    records.add(record);
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        try {
+            recordingWm.giveEmployeeAuthorization(e);
+            int count = WarehouseManagement.REPORT_ENTRIES_PER_RECORD * 2 + 10;
+            List<Product> products = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                products.add(new Product(i, 10, new Article("Article " + i, null)));
+            }
+            recordingWm.receiptProducts(e, products);
+            Assert.assertTrue(recordingWm.showInventory(e));
+
+            Assert.assertEquals(3, records.size());
+            Assert.assertTrue(records.get(0).getMessage().startsWith("SHOW INVENTORY:"));
+            StringBuilder report = new StringBuilder();
+            for (AuditRecord record : records) {
+                report.append(record.getMessage());
+            }
+            Assert.assertEquals(count, report.toString().split("\n\nPRODUCT").length - 1);
+            Assert.assertTrue(report.indexOf("Article " + (count - 1)) >= 0);
+        } finally {
+            recordingWm.close();
+        }
+    }
+
     /**
      * Expected to write orders to "resources/information.txt" in both cases with courier and employee
      */
@@ -447,4 +949,193 @@ public class TestWarehouseManagement {
         testTakeOrder();
         wm.showDeliveringOrders(e);
     }
+
+    /**
+     * Test streaming report of inventory by pages
+     * Expected to write only products of page which pass filter, and nothing if employee doesn't have authorization
+     */
+    @Test
+    public void testShowInventoryPages() throws Exception{
+        StringWriter out = new StringWriter();
+        Assert.assertEquals(-1, wm.showInventory(e, out, ReportPage.all()));
+        Assert.assertEquals(0, out.toString().length());
+
+        testGiveEmployeeAuthorization();
+        for (int i = 0; i < 5; i++) {
+            wm.receiptProduct(e, new Product(i, 10, new Article("Article " + i, null)));
+        }
+        Assert.assertEquals(5, wm.showInventory(e, out, ReportPage.all()));
+        Assert.assertEquals(2, wm.showInventory(e, new StringWriter(), ReportPage.of(0, 2)));
+        Assert.assertEquals(1, wm.showInventory(e, new StringWriter(), ReportPage.of(2, 2)));
+        Assert.assertEquals(0, wm.showInventory(e, new StringWriter(), ReportPage.of(3, 2)));
+
+        out = new StringWriter();
+        ReportPage<Product> bigCounts = ReportPage.<Product>of(0, 10).where(product -> product.getCount() >= 3);
+        Assert.assertEquals(2, wm.showInventory(e, out, bigCounts));
+        Assert.assertTrue(out.toString().contains("Article 3"));
+        Assert.assertFalse(out.toString().contains("Article 2"));
+    }
+
+    /**
+     * Test cached texts of entities
+     * Expected to get the same string while count isn't changed and new text after change of count
+     */
+    @Test
+    public void testCachedText() throws Exception{
+        List<Product> lines = new ArrayList<>();
+        lines.add(product1);
+        Order cachedOrder = new Order(lines, client);
+        String productText = product1.toString();
+        String orderText = cachedOrder.toString();
+        Assert.assertSame(productText, product1.toString());
+        Assert.assertSame(orderText, cachedOrder.toString());
+        Assert.assertSame(a1.toString(), a1.toString());
+
+        product1.setCount(7);
+        Assert.assertNotSame(productText, product1.toString());
+        Assert.assertTrue(product1.toString().contains("Count : 7"));
+        Assert.assertTrue(cachedOrder.toString().contains("Count : 7"));
+    }
+
+    /**
+     * Test lazy message of record
+     * Expected to format message only once and only when it is needed
+     */
+    @Test
+    public void testLazyMessage() throws Exception{
+        int[] calls = new int[1];
+        AuditRecord record = AuditRecord.of(AuditEventType.ORDER_CREATION, e.getId(), null,
+                Collections.singletonList(product1), null, () -> {
+                    calls[0]++;
+                    return "message";
+                });
+        product1.setCount(1);
+        Assert.assertEquals(0, calls[0]);
+        Assert.assertEquals(100, record.getQuantity(0));
+        Assert.assertEquals("message", record.getMessage());
+        Assert.assertEquals("message", record.getMessage());
+        Assert.assertEquals(1, calls[0]);
+    }
+
+    /**
+     * Test streaming report of orders
+     * Expected to write waiting and delivering orders to writer
+     */
+    @Test
+    public void testShowOrdersPages() throws Exception{
+        testTakeOrder();
+        StringWriter out = new StringWriter();
+        Assert.assertEquals(0, wm.showOrders(e, out, ReportPage.all()));
+        Assert.assertEquals(1, wm.showDeliveringOrders(e, out, ReportPage.all()));
+        Assert.assertTrue(out.toString().contains(order.getId().toString()));
+        Assert.assertEquals(-1, wm.showDeliveringOrders(c, out, ReportPage.all()));
+    }
+
+    /**
+     * Test concurrent creating and canceling of orders with the same products and reception of the first product
+     * Expected that no amount of product is lost:
+     * (amount in inventory) + (amounts in created orders) = (received amount)
+     */
+    @Test
+    public void testConcurrentCreateAndCancelOrders() throws Exception{
+        testReceiptProduct();
+        int threads = 8;
+        int ordersPerThread = 200;
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    for (int i = 0; i < ordersPerThread; i++) {
+                        List<Product> productsList = new ArrayList<>();
+                        productsList.add(new Product(1, product1.getPrice(), a1));
+                        productsList.add(new Product(2, product2.getPrice(), a2));
+                        if (i % 3 == 0) {
+                            wm.receiptProduct(e, new Product(1, product1.getPrice(), a1));
+                        }
+                        Order concurrentOrder = new Order(productsList, client);
+                        if (wm.createOrder(e, concurrentOrder) && i % 2 == 0) {
+                            Assert.assertTrue(wm.cancelOrder(e, concurrentOrder.getId(), "reason"));
+                        }
+                    }
+                } catch (Throwable ex) {
+                    errors.add(ex);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Assert.assertTrue(errors.isEmpty());
+        int orderedProduct1 = 0;
+        int orderedProduct2 = 0;
+        for (Order createdOrder : wm.getOrders().values()) {
+            orderedProduct1 += createdOrder.getProducts().get(0).getCount();
+            orderedProduct2 += createdOrder.getProducts().get(1).getCount();
+        }
+        int receivedProduct1 = 100 + threads * ((ordersPerThread + 2) / 3);
+        Assert.assertEquals(receivedProduct1, wm.getInventory().get(a1.getId()).getCount() + orderedProduct1);
+        Assert.assertEquals(1000, wm.getInventory().get(a2.getId()).getCount() + orderedProduct2);
+    }
+
+    /**
+     * Test concurrent change of prices with creating and canceling of orders
+     * Expected that stock value is exactly sum of price * count of inventory after all actions
+     */
+    @Test
+    public void testConcurrentRepriceAndCreateOrders() throws Exception{
+        testReceiptProduct();
+        wm.receiptProduct(e, new Product(10000, product1.getPrice(), a1));
+        int threads = 4;
+        int ordersPerThread = 300;
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    for (int i = 0; i < ordersPerThread; i++) {
+                        List<Product> productsList = new ArrayList<>();
+                        productsList.add(new Product(1, product1.getPrice(), a1));
+                        productsList.add(new Product(1, product2.getPrice(), a2));
+                        Order concurrentOrder = new Order(productsList, client);
+                        if (thread % 2 == 0) {
+                            wm.createOrders(e, Collections.singletonList(concurrentOrder));
+                        } else if (wm.createOrder(e, concurrentOrder) && i % 2 == 0) {
+                            wm.cancelOrder(e, concurrentOrder.getId(), "reason");
+                        }
+                    }
+                } catch (Throwable ex) {
+                    errors.add(ex);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        Thread repricer = new Thread(() -> {
+            try {
+                for (int i = 0; i < ordersPerThread; i++) {
+                    wm.receiptProduct(e, new Product(0, 100 + i, a1));
+                    wm.receiptProduct(e, new Product(0, 300 + i, a2));
+                }
+            } catch (Throwable ex) {
+                errors.add(ex);
+            }
+        });
+        repricer.start();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        repricer.join();
+
+        Assert.assertTrue(errors.isEmpty());
+        long sum = 0;
+        for (Product product : wm.getInventory().values()) {
+            sum += product.getPrice() * product.getCount();
+        }
+        Assert.assertEquals(sum, wm.getStockValue());
+    }
 }
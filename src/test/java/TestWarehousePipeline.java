@@ -0,0 +1,179 @@
+import org.junit.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestWarehousePipeline {
+    private WarehouseManagement wm;
+    private Employee e;
+    private Courier c;
+    private Article article;
+
+    /**
+     * Set values for tests
+     */
+    @Before
+    public void set() throws Exception {
+        wm = new WarehouseManagement(new AuditSink() {
+            @Override
+            public void write(AuditRecord record) {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        e = new Employee("Employee");
+        c = new Courier("Courier");
+        article = new Article("Phone", "Can call");
+        wm.giveEmployeeAuthorization(e);
+        wm.giveCourierAuthorization(c);
+    }
+
+    /**
+     * Close warehouse management
+     */
+    @After
+    public void close() throws Exception {
+        wm.close();
+    }
+
+    /**
+     * Test lifecycle of order through pipeline
+     * Expected to complete futures with results of actions in order of submitting
+     * and to record latency of every command after closing
+     */
+    @Test
+    public void testSubmit() throws Exception {
+        WarehousePipeline pipeline = new WarehousePipeline(wm, 16);
+        try {
+            Order order = new Order(new ArrayList<>(Collections.singletonList(new Product(3, 100, article))), null);
+            CompletableFuture<Boolean> receipt = pipeline.submitReceiptProduct(e, new Product(10, 100, article));
+            CompletableFuture<Boolean> create = pipeline.submitCreateOrder(e, order);
+            CompletableFuture<Boolean> take = pipeline.submitTakeOrder(c, order.getId());
+            CompletableFuture<Boolean> cancel = pipeline.submitCancelOrder(e, order.getId(), "reason");
+            CompletableFuture<Boolean> deliver = pipeline.submitDeliverOrder(c, order.getId());
+            CompletableFuture<Boolean> stranger = pipeline.submitReceiptProduct(new Employee("Stranger"),
+                    new Product(10, 100, article));
+
+            Assert.assertTrue(receipt.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(create.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(take.get(5, TimeUnit.SECONDS));
+            Assert.assertFalse(cancel.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(deliver.get(5, TimeUnit.SECONDS));
+            Assert.assertFalse(stranger.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(7, wm.getInventory().get(article.getId()).getCount());
+        } finally {
+            pipeline.close();
+        }
+        Assert.assertEquals(5, pipeline.getAppliedSequence());
+        Assert.assertEquals(2, pipeline.getLatencies(WarehousePipeline.CommandType.RECEIPT_PRODUCT).getCount());
+        Assert.assertEquals(1, pipeline.getLatencies(WarehousePipeline.CommandType.DELIVER_ORDER).getCount());
+    }
+
+    /**
+     * Test several producers with ring which is much smaller than count of commands
+     * Expected that stage sees every command once in order of sequences and all receptions are applied
+     */
+    @Test
+    public void testPublishFromSeveralThreads() throws Exception {
+        int threads = 4;
+        int commandsPerThread = 20_000;
+        AtomicLong seen = new AtomicLong();
+        AtomicLong outOfOrder = new AtomicLong();
+        AtomicLong received = new AtomicLong();
+        WarehousePipeline.Stage stage = (command, sequence, endOfBatch) -> {
+            if (sequence != seen.getAndIncrement()) {
+                outOfOrder.incrementAndGet();
+            }
+            if (command.getResult()) {
+                received.incrementAndGet();
+            }
+        };
+        wm.receiptProduct(e, new Product(0, 100, article));
+        try (WarehousePipeline pipeline = new WarehousePipeline(wm, 64, stage)) {
+            List<Thread> producers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread producer = new Thread(() -> {
+                    for (int i = 0; i < commandsPerThread; i++) {
+                        pipeline.publishReceiptProduct(e, new Product(1, 100, article));
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+        }
+        Assert.assertEquals((long) threads * commandsPerThread, seen.get());
+        Assert.assertEquals(0, outOfOrder.get());
+        Assert.assertEquals((long) threads * commandsPerThread, received.get());
+        Assert.assertEquals(threads * commandsPerThread, wm.getInventory().get(article.getId()).getCount());
+    }
+
+    /**
+     * Test failing action
+     * Expected to complete future exceptionally and to apply next commands
+     */
+    @Test
+    public void testFailedCommand() throws Exception {
+        AtomicBoolean full = new AtomicBoolean();
+        WarehouseManagement failing = new WarehouseManagement(new AuditSink() {
+            @Override
+            public void write(AuditRecord record) throws IOException {
+                if (full.get()) {
+                    throw new IOException("Disk is full");
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        failing.giveEmployeeAuthorization(e);
+        full.set(true);
+        try (WarehousePipeline pipeline = new WarehousePipeline(failing, 4)) {
+            CompletableFuture<Boolean> failed = pipeline.submitReceiptProduct(e, new Product(1, 100, article));
+            CompletableFuture<Boolean> rejected = pipeline.submitReceiptProduct(new Employee("Stranger"),
+                    new Product(1, 100, article));
+            try {
+                failed.get(5, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException ex) {
+                Assert.assertTrue(ex.getCause() instanceof IOException);
+            }
+            Assert.assertFalse(rejected.get(5, TimeUnit.SECONDS));
+        } finally {
+            full.set(false);
+            failing.close();
+        }
+    }
+
+    /**
+     * Test publishing after close
+     * Expected to throw IllegalStateException
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testPublishAfterClose() throws Exception {
+        WarehousePipeline pipeline = new WarehousePipeline(wm, 8);
+        pipeline.close();
+        pipeline.publishReceiptProduct(e, new Product(1, 100, article));
+    }
+
+    /**
+     * Test capacity which isn't power of two
+     * Expected to throw IllegalArgumentException
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongCapacity() throws Exception {
+        new WarehousePipeline(wm, 12);
+    }
+}
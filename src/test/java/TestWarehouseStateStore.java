@@ -0,0 +1,230 @@
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TestWarehouseStateStore {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path auditFile;
+    private Employee e;
+    private Courier c;
+    private Article a1;
+    private Article a2;
+    private Client client;
+
+    /**
+     * Set values for tests
+     */
+    @Before
+    public void set() {
+        directory = folder.getRoot().toPath().resolve("state");
+        auditFile = folder.getRoot().toPath().resolve("information.txt");
+        e = new Employee("Employee");
+        c = new Courier("Courier");
+        a1 = new Article("Phone", "Can call");
+        a2 = new Article("TV", "Can broadcast TV");
+        client = new Client("Client", "Address", "+996555555555");
+    }
+
+    /**
+     * Test recovery from journal only
+     * Expected to restore authorizations, inventory, orders, delivering orders and canceled orders
+     * after all kinds of actions
+     */
+    @Test
+    public void testRecoverReplaysJournal() throws Exception {
+        WarehouseManagement wm = recover();
+        wm.giveEmployeeAuthorization(e);
+        wm.giveCourierAuthorization(c);
+        wm.receiptProduct(e, new Product(100, 200, a1));
+        wm.receiptProducts(e, Arrays.asList(new Product(50, 500, a2), new Product(10, 200, a1)));
+        wm.changeProductInfo(e, new Product(120, 250, a1));
+        Order taken = new Order(new ArrayList<>(Collections.singletonList(new Product(20, 250, a1))), client);
+        Order waiting = new Order(new ArrayList<>(Collections.singletonList(new Product(5, 500, a2))), client);
+        Order canceled = new Order(new ArrayList<>(Collections.singletonList(new Product(7, 500, a2))), client);
+        wm.createOrder(e, taken);
+        wm.createOrders(e, Arrays.asList(waiting, canceled));
+        wm.cancelOrder(e, canceled.getId(), "Reason");
+        wm.takeOrder(c, taken.getId());
+        Assert.assertEquals(47500, wm.getStockValue());
+        wm.close();
+
+        WarehouseManagement recovered = recover();
+        Assert.assertTrue(recovered.getAuthorizedEmployees().contains(e.getId()));
+        Assert.assertTrue(recovered.getAuthorizedCouriers().contains(c.getId()));
+        Assert.assertEquals(100, recovered.getInventory().get(a1.getId()).getCount());
+        Assert.assertEquals(250, recovered.getInventory().get(a1.getId()).getPrice());
+        Assert.assertEquals(45, recovered.getInventory().get(a2.getId()).getCount());
+        Assert.assertEquals(Collections.singleton(waiting.getId()), recovered.getOrders().keySet());
+        Assert.assertEquals(Collections.singleton(taken.getId()), recovered.getDeliveringOrders().keySet());
+        Assert.assertEquals(client.getName(), recovered.getOrders().get(waiting.getId()).getClient().getName());
+        Assert.assertEquals(OrderState.CANCELLED, recovered.getOrderStore().stateOf(canceled.getId()));
+        Assert.assertEquals(2, recovered.findOrdersByClient(client).size());
+        Assert.assertEquals(1, recovered.findOrdersByArticle(a1.getId()).size());
+        Assert.assertEquals(taken.getId(), recovered.findOrdersByArticle(a1.getId()).get(0).getId());
+        Assert.assertEquals(100 * 250 + 45 * 500, recovered.getStockValue());
+        Assert.assertEquals(5 * 500, recovered.getOpenOrderValue());
+        Assert.assertEquals(20 * 250, recovered.getDeliveringOrderValue());
+
+        Assert.assertTrue(recovered.cancelOrder(e, waiting.getId(), "Reason"));
+        Assert.assertEquals(50, recovered.getInventory().get(a2.getId()).getCount());
+        recovered.close();
+    }
+
+    /**
+     * Test recovery after concurrent changes of product's information and creating and canceling of orders
+     * Expected to restore the same counts and stock value as before restart
+     */
+    @Test
+    public void testRecoverAfterConcurrentChanges() throws Exception {
+        WarehouseManagement wm = recover();
+        wm.giveEmployeeAuthorization(e);
+        wm.receiptProduct(e, new Product(10000, 200, a1));
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        Thread creator = new Thread(() -> {
+            try {
+                for (int i = 0; i < 500; i++) {
+                    Order order = new Order(new ArrayList<>(Collections.singletonList(new Product(3, 200, a1))), client);
+                    if (wm.createOrder(e, order) && i % 2 == 0) {
+                        wm.cancelOrder(e, order.getId(), "Reason");
+                    }
+                }
+            } catch (Throwable ex) {
+                errors.add(ex);
+            }
+        });
+        creator.start();
+        for (int i = 0; i < 200; i++) {
+            wm.changeProductInfo(e, new Product(5000 + i, 200 + i, a1));
+        }
+        creator.join();
+        Assert.assertTrue(errors.isEmpty());
+        int count = wm.getInventory().get(a1.getId()).getCount();
+        long stockValue = wm.getStockValue();
+        wm.close();
+
+        WarehouseManagement recovered = recover();
+        Assert.assertEquals(count, recovered.getInventory().get(a1.getId()).getCount());
+        Assert.assertEquals(399, recovered.getInventory().get(a1.getId()).getPrice());
+        Assert.assertEquals(stockValue, recovered.getStockValue());
+        recovered.close();
+    }
+
+    /**
+     * Test recovery after checkpoint
+     * Expected to restore state from snapshot and later journal, including history of canceled orders,
+     * and to delete older files
+     */
+    @Test
+    public void testRecoverFromSnapshotAndJournal() throws Exception {
+        WarehouseManagement wm = recover();
+        wm.giveEmployeeAuthorization(e);
+        wm.receiptProduct(e, new Product(100, 200, a1));
+        Order order = new Order(new ArrayList<>(Collections.singletonList(new Product(30, 200, a1))), client);
+        Order canceled = new Order(new ArrayList<>(Collections.singletonList(new Product(1, 200, a1))), client);
+        wm.createOrders(e, Arrays.asList(order, canceled));
+        wm.cancelOrder(e, canceled.getId(), "Reason");
+        wm.checkpoint();
+        wm.receiptProduct(e, new Product(5, 200, a1));
+        wm.withdrawEmployeeAuthorization(e);
+        wm.close();
+
+        Assert.assertEquals(3, countFiles());
+        WarehouseManagement recovered = recover();
+        Assert.assertFalse(recovered.getAuthorizedEmployees().contains(e.getId()));
+        Assert.assertEquals(75, recovered.getInventory().get(a1.getId()).getCount());
+        Assert.assertEquals(30, recovered.getOrders().get(order.getId()).getProducts().get(0).getCount());
+        Assert.assertEquals(OrderState.CANCELLED, recovered.getOrderStore().stateOf(canceled.getId()));
+        Assert.assertFalse(recovered.getOrders().containsKey(canceled.getId()));
+        recovered.close();
+        Assert.assertEquals(3, countFiles());
+    }
+
+    /**
+     * Test recovery with big inventory
+     * Expected to read from inventory file only articles which are used after recovery
+     */
+    @Test
+    public void testRecoverReadsInventoryLazily() throws Exception {
+        WarehouseManagement wm = recover();
+        wm.giveEmployeeAuthorization(e);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            products.add(new Product(i, i, new Article("Article " + i, "Description " + i)));
+        }
+        wm.receiptProducts(e, products);
+        wm.checkpoint();
+        wm.close();
+
+        WarehouseManagement recovered = recover();
+        MappedInventoryStore inventory = (MappedInventoryStore) recovered.getInventoryStore();
+        Assert.assertEquals(1000, recovered.getInventory().size());
+        Assert.assertEquals(0, inventory.getLoadedCount());
+        Assert.assertEquals(332833500, recovered.getStockValue());
+        Assert.assertEquals(0, inventory.getLoadedCount());
+        Product product = products.get(10);
+        Order order = new Order(new ArrayList<>(Collections.singletonList(
+                new Product(4, 10, product.getArticle()))), client);
+        Assert.assertTrue(recovered.createOrder(e, order));
+        Assert.assertEquals(1, inventory.getLoadedCount());
+        Assert.assertEquals(6, recovered.getInventory().get(product.getArticle().getId()).getCount());
+        Assert.assertEquals("Article 10", recovered.getInventory().get(product.getArticle().getId())
+                .getArticle().getName());
+        recovered.checkpoint();
+        recovered.close();
+
+        WarehouseManagement again = recover();
+        Assert.assertEquals(1000, again.getInventory().size());
+        Assert.assertEquals(6, again.getInventory().get(product.getArticle().getId()).getCount());
+        Assert.assertEquals(999, again.getInventory().get(products.get(999).getArticle().getId()).getCount());
+        again.close();
+    }
+
+    /**
+     * Test damaged snapshot
+     * Expected to throw IOException because journal before it is already deleted
+     */
+    @Test(expected = IOException.class)
+    public void testDamagedSnapshotWithoutOlderJournal() throws Exception {
+        WarehouseManagement wm = recover();
+        wm.giveEmployeeAuthorization(e);
+        wm.checkpoint();
+        wm.giveCourierAuthorization(c);
+        wm.close();
+
+        Path snapshot = directory.resolve("snapshot-2.bin");
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(snapshot, bytes);
+        recover();
+    }
+
+    /**
+     * @return Warehouse management restored from {@link #directory}
+     * @throws IOException if state can't be restored
+     */
+    private WarehouseManagement recover() throws IOException {
+        return WarehouseManagement.recover(directory,
+                new AsyncAuditWriter(auditFile, AsyncAuditWriter.Durability.FIRE_AND_FORGET));
+    }
+
+    /**
+     * @return Count of files in {@link #directory}
+     * @throws IOException if directory can't be read
+     */
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
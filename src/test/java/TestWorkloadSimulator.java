@@ -0,0 +1,42 @@
+import org.junit.*;
+
+public class TestWorkloadSimulator {
+    /**
+     * Test short run of employees and couriers on small catalog, so threads often change the same articles
+     * Expected to do every action at least once and to keep all invariants of inventory
+     */
+    @Test
+    public void testRun() throws Exception {
+        WorkloadSimulator.Report report = WorkloadSimulator.fromArgs(new String[]{"--catalog=50", "--lines=3"})
+                .setThreads(3, 3)
+                .setDurationMillis(500)
+                .run();
+        Assert.assertEquals(report.getViolations().toString(), 0, report.getViolations().size());
+        for (WorkloadSimulator.Operation operation : WorkloadSimulator.Operation.values()) {
+            Assert.assertTrue(operation.toString(), report.getDone(operation) > 0);
+            Assert.assertTrue(report.getLatencies(operation).getCount() >= report.getDone(operation));
+        }
+    }
+
+    /**
+     * Test Zipf distribution of articles
+     * Expected that cumulative probabilities grow up to 1 and the first article is the most popular
+     */
+    @Test
+    public void testZipf() throws Exception {
+        double[] cdf = WorkloadSimulator.zipfCdf(100, 1.0);
+        Assert.assertEquals(1.0, cdf[99], 1e-9);
+        for (int i = 1; i < cdf.length; i++) {
+            Assert.assertTrue(cdf[i] - cdf[i - 1] <= cdf[0]);
+        }
+    }
+
+    /**
+     * Test unknown option
+     * Expected to throw IllegalArgumentException
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownOption() throws Exception {
+        WorkloadSimulator.fromArgs(new String[]{"--threads=4"});
+    }
+}
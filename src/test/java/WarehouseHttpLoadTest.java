@@ -0,0 +1,354 @@
+/**
+ * Class of loopback load test of {@link WarehouseHttpServer}
+ *
+ * Test opens all connections at first, so server holds all of them at the same time, then sends one request
+ * of inventory report through every connection at once and reads all responses. All connections are handled
+ * by one client thread with {@link Selector}, so client doesn't need thread per connection.
+ * Every response must be 200 or 503 (request is rejected by admission); report shows counts of responses,
+ * peak count of threads of JVM and peak count of requests which ran on server at the same time.
+ * Every connection uses two file descriptors, so limit of descriptors must be more than twice count of connections
+ *
+ * Class is part of test sources, run it after "mvn test-compile", for example:
+ * java -cp target/classes:target/test-classes WarehouseHttpLoadTest --connections=20000 --max-concurrent=1024
+ * Options (all are optional): connections, max-concurrent (admission of server), timeout (seconds).
+ * Exit status is 1 if some connection failed or got unexpected response
+ * @version 1.0
+ */
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class WarehouseHttpLoadTest {
+    /** Count of connections */
+    private int connections = 20_000;
+    /** Max count of requests which run on server at the same time */
+    private int maxConcurrentRequests = WarehouseHttpServer.DEFAULT_MAX_CONCURRENT_REQUESTS;
+    /** Timeout of the whole test in milliseconds */
+    private long timeoutMillis = 120_000;
+
+    /**
+     * Read options of test
+     * @param args Options in form "--name=value"
+     * @return Test with options
+     * @throws IllegalArgumentException if option is unknown or has wrong value
+     */
+    public static WarehouseHttpLoadTest fromArgs(String[] args) {
+        WarehouseHttpLoadTest test = new WarehouseHttpLoadTest();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Wrong option: " + arg);
+            }
+            String name = arg.substring(2, equals);
+            int value = Integer.parseInt(arg.substring(equals + 1));
+            if (value <= 0) {
+                throw new IllegalArgumentException("Option " + name + " must be positive: " + value);
+            }
+            switch (name) {
+                case "connections": test.connections = value; break;
+                case "max-concurrent": test.maxConcurrentRequests = value; break;
+                case "timeout": test.timeoutMillis = 1000L * value; break;
+                default: throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+        return test;
+    }
+
+    /**
+     * Run test from command line, print report and exit with status 1 if test failed
+     * @param args Options (see {@link #fromArgs(String[])})
+     * @throws Exception if test can't run
+     */
+    public static void main(String[] args) throws Exception {
+        Report report = fromArgs(args).run();
+        report.print(System.out);
+        if (!report.isPassed()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Start server on free port of loopback address, run test and stop server
+     * @return {@link Report} of test
+     * @throws IOException if server can't start or client can't open connections
+     */
+    public Report run() throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        try (WarehouseManagement wm = new WarehouseManagement(new AuditSink() {
+                @Override
+                public void write(AuditRecord record) {
+                }
+
+                @Override
+                public void close() {
+                }
+            })) {
+            Employee e = new Employee("Load test");
+            wm.giveEmployeeAuthorization(e);
+            wm.receiptProduct(e, new Product(1, Money.ofMajor(1), new Article("Load test", "Article of load test")));
+            WarehouseHttpServer server = new WarehouseHttpServer(wm,
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), maxConcurrentRequests,
+                    WarehouseHttpServer.DEFAULT_BACKLOG);
+            server.addEmployee(e);
+            server.start();
+            try {
+                threads.resetPeakThreadCount();
+                Report report = new Report(connections, server.usesVirtualThreads());
+                drive(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()),
+                        e.getId(), report);
+                report.peakThreads = threads.getPeakThreadCount();
+                report.peakRunningRequests = server.getPeakRunningRequests();
+                return report;
+            } finally {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * Open all connections, then send request through every connection and read responses
+     * @param address Address of server
+     * @param employeeId ID of employee of requests
+     * @param report {@link Report} for results
+     * @throws IOException if selector can't be opened
+     */
+    private void drive(InetSocketAddress address, Id employeeId, Report report) throws IOException {
+        byte[] request = ("GET /inventory?size=1 HTTP/1.1\r\nHost: localhost\r\n" + WarehouseHttpServer.ACTOR_HEADER
+                + ": " + employeeId + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        long start = System.nanoTime();
+        long deadline = start + timeoutMillis * 1_000_000L;
+        List<SelectionKey> keys = new ArrayList<>(connections);
+        try (Selector selector = Selector.open()) {
+            int pending = 0;
+            for (int i = 0; i < connections; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                Connection connection = new Connection(ByteBuffer.wrap(request));
+                try {
+                    boolean connected = channel.connect(address);
+                    keys.add(channel.register(selector, connected ? 0 : SelectionKey.OP_CONNECT, connection));
+                    if (connected) {
+                        report.openConnections++;
+                    } else {
+                        pending++;
+                    }
+                } catch (IOException ex) {
+                    channel.close();
+                    report.failures++;
+                }
+            }
+            while (pending > 0 && System.nanoTime() < deadline) {
+                selector.select(100);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    pending--;
+                    key.interestOps(0);
+                    try {
+                        ((SocketChannel) key.channel()).finishConnect();
+                        report.openConnections++;
+                    } catch (IOException ex) {
+                        key.cancel();
+                        key.channel().close();
+                        report.failures++;
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+            report.connectNanos = System.nanoTime() - start;
+
+            int active = 0;
+            for (SelectionKey key : keys) {
+                if (key.isValid()) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    active++;
+                }
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            while (active > 0 && System.nanoTime() < deadline) {
+                selector.select(100);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    Connection connection = (Connection) key.attachment();
+                    SocketChannel channel = (SocketChannel) key.channel();
+                    try {
+                        if (key.isWritable()) {
+                            channel.write(connection.request);
+                            if (!connection.request.hasRemaining()) {
+                                key.interestOps(SelectionKey.OP_READ);
+                            }
+                        } else if (key.isReadable()) {
+                            buffer.clear();
+                            int read = channel.read(buffer);
+                            if (read > 0) {
+                                connection.readStatus(buffer);
+                                continue;
+                            }
+                            active--;
+                            key.cancel();
+                            channel.close();
+                            report.count(connection.status);
+                        }
+                    } catch (IOException ex) {
+                        active--;
+                        key.cancel();
+                        channel.close();
+                        report.failures++;
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+            for (SelectionKey key : keys) {
+                if (key.isValid()) {
+                    report.failures++;
+                    key.channel().close();
+                }
+            }
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * State of one connection
+     */
+    private static final class Connection {
+        /** Bytes of request which are not sent yet */
+        final ByteBuffer request;
+        /** The first bytes of response */
+        final StringBuilder head = new StringBuilder();
+        /** Status of response, or 0 if it isn't read yet */
+        int status;
+
+        /**
+         * @param request Bytes of request
+         */
+        Connection(ByteBuffer request) {
+            this.request = request;
+        }
+
+        /**
+         * Read status from the first line of response, the rest of response is skipped
+         * @param buffer Bytes of response
+         */
+        void readStatus(ByteBuffer buffer) {
+            if (status != 0) {
+                return;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining() && head.length() < 64) {
+                head.append((char) buffer.get());
+            }
+            String[] parts = head.toString().split(" ");
+            if (parts.length > 2) {
+                try {
+                    status = Integer.parseInt(parts[1]);
+                } catch (NumberFormatException ex) {
+                    status = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Report of load test
+     */
+    public static final class Report {
+        /** Count of connections */
+        private final int connections;
+        /** Does server use virtual threads */
+        private final boolean virtualThreads;
+        /** Counts of responses by status */
+        private final Map<Integer, Integer> statuses = new TreeMap<>();
+        /** Count of connections which were open at the same time */
+        private int openConnections;
+        /** Count of connections which failed or didn't get response */
+        private int failures;
+        /** Time of opening of all connections in nanoseconds */
+        private long connectNanos;
+        /** Time of the whole test in nanoseconds */
+        private long elapsedNanos;
+        /** Peak count of threads of JVM */
+        private int peakThreads;
+        /** Peak count of requests which ran on server at the same time */
+        private int peakRunningRequests;
+
+        /**
+         * @param connections Count of connections
+         * @param virtualThreads Does server use virtual threads
+         */
+        private Report(int connections, boolean virtualThreads) {
+            this.connections = connections;
+            this.virtualThreads = virtualThreads;
+        }
+
+        /**
+         * @param status Status of response
+         */
+        private void count(int status) {
+            statuses.merge(status, 1, Integer::sum);
+        }
+
+        /**
+         * @param status HTTP status
+         * @return Count of responses with status
+         */
+        public int getResponses(int status) {
+            return statuses.getOrDefault(status, 0);
+        }
+
+        /**
+         * @return Count of connections which were open at the same time
+         */
+        public int getOpenConnections() {
+            return openConnections;
+        }
+
+        /**
+         * @return Count of connections which failed or didn't get response
+         */
+        public int getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return Peak count of threads of JVM while test ran
+         */
+        public int getPeakThreads() {
+            return peakThreads;
+        }
+
+        /**
+         * @return Did every connection get response 200 or 503
+         */
+        public boolean isPassed() {
+            return failures == 0 && getResponses(200) + getResponses(503) == connections;
+        }
+
+        /**
+         * Print counts of connections and responses, peak counts of threads and requests
+         * @param out Stream of report
+         */
+        public void print(PrintStream out) {
+            out.printf("Connections: %d, open at the same time: %d (opened in %.1f s), failed: %d%n",
+                    connections, openConnections, connectNanos / 1e9, failures);
+            for (Map.Entry<Integer, Integer> entry : statuses.entrySet()) {
+                out.printf("Status %d: %d%n", entry.getKey(), entry.getValue());
+            }
+            out.printf("Requests per second: %.0f%n", (getResponses(200) + getResponses(503))
+                    / ((elapsedNanos - connectNanos) / 1e9));
+            out.printf("Threads of requests: %s, peak threads of JVM: %d, peak running requests: %d%n",
+                    virtualThreads ? "virtual" : "platform pool", peakThreads, peakRunningRequests);
+            out.println(isPassed() ? "PASSED" : "FAILED");
+        }
+    }
+}